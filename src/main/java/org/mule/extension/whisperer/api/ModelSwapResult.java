@@ -0,0 +1,67 @@
+package org.mule.extension.whisperer.api;
+
+import java.io.Serializable;
+
+public class ModelSwapResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String model;
+    private String location;
+    private long loadMillis;
+    private int drainingRequests;
+
+    public ModelSwapResult() {
+    }
+
+    public ModelSwapResult(String model, String location, long loadMillis, int drainingRequests) {
+        this.model = model;
+        this.location = location;
+        this.loadMillis = loadMillis;
+        this.drainingRequests = drainingRequests;
+    }
+
+    /**
+     * @return name of the model that was replaced
+     */
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    /**
+     * @return path, classpath resource or URL the new model was loaded from
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    /**
+     * @return time spent loading and warming up the new model before it took over, in milliseconds
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    public void setLoadMillis(long loadMillis) {
+        this.loadMillis = loadMillis;
+    }
+
+    /**
+     * @return requests still running on the previous model when the new one took over; the previous model is
+     * closed once they finish
+     */
+    public int getDrainingRequests() {
+        return drainingRequests;
+    }
+
+    public void setDrainingRequests(int drainingRequests) {
+        this.drainingRequests = drainingRequests;
+    }
+}
@@ -1,8 +1,19 @@
 package org.mule.extension.whisperer.api;
 
-public class OpenAiTranscriptionAttributes {
+import java.io.Serializable;
+import java.util.List;
+
+public class OpenAiTranscriptionAttributes implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private String language;
     private Double duration;
+    private List<TranscriptionSegment> segments;
+    private Integer uploadChunks;
+    private Long uploadedBytes;
+    private Long bytesSaved;
+    private Long transcodeMillis;
+    private Integer retries;
 
     public String getLanguage() {
         return language;
@@ -19,4 +30,74 @@ public class OpenAiTranscriptionAttributes {
     public void setDuration(Double duration) {
         this.duration = duration;
     }
+
+    /**
+     * @return timed segments of a verbose transcription, measured from the start of the whole recording
+     */
+    public List<TranscriptionSegment> getSegments() {
+        return segments;
+    }
+
+    public void setSegments(List<TranscriptionSegment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * @return how many requests the audio was split into because it was over the upload limit, set when audio is
+     * transcoded or split before upload
+     */
+    public Integer getUploadChunks() {
+        return uploadChunks;
+    }
+
+    public void setUploadChunks(Integer uploadChunks) {
+        this.uploadChunks = uploadChunks;
+    }
+
+    /**
+     * @return bytes sent as the audio file, set when audio is transcoded or split before upload
+     */
+    public Long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    public void setUploadedBytes(Long uploadedBytes) {
+        this.uploadedBytes = uploadedBytes;
+    }
+
+    /**
+     * @return how much smaller the upload was than the original audio, 0 if the original was uploaded; set when
+     * audio is transcoded or split before upload
+     */
+    public Long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    public void setBytesSaved(Long bytesSaved) {
+        this.bytesSaved = bytesSaved;
+    }
+
+    /**
+     * @return time spent decoding, re-encoding and splitting the audio, in milliseconds; set when audio is
+     * transcoded or split before upload
+     */
+    public Long getTranscodeMillis() {
+        return transcodeMillis;
+    }
+
+    public void setTranscodeMillis(Long transcodeMillis) {
+        this.transcodeMillis = transcodeMillis;
+    }
+
+    /**
+     * @return how many times the request was retried after a rate limit or a transient error, summed over the
+     * requests of split audio
+     */
+    public Integer getRetries() {
+        return retries;
+    }
+
+    public void setRetries(Integer retries) {
+        this.retries = retries;
+    }
 }
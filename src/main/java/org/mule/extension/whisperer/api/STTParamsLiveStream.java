@@ -0,0 +1,48 @@
+package org.mule.extension.whisperer.api;
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+public class STTParamsLiveStream {
+	@Parameter
+	@Expression(ExpressionSupport.SUPPORTED)
+	@Optional(defaultValue = "16000")
+	@Summary("Sample rate of the incoming signed 16-bit little-endian mono PCM, for example 8000 for telephony")
+	private int sampleRate;
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	@Parameter
+	@Expression(ExpressionSupport.SUPPORTED)
+	@Optional(defaultValue = "1000")
+	@Summary("How often a new hypothesis is produced from the latest audio, in milliseconds")
+	private int stepMillis;
+
+	public int getStepMillis() {
+		return stepMillis;
+	}
+
+	@Parameter
+	@Expression(ExpressionSupport.SUPPORTED)
+	@Optional(defaultValue = "15")
+	@Summary("Most audio, in seconds, transcribed in one step. Text that has not become final by then is finalized.")
+	private int windowSeconds;
+
+	public int getWindowSeconds() {
+		return windowSeconds;
+	}
+
+	@Parameter
+	@Expression(ExpressionSupport.SUPPORTED)
+	@Optional(defaultValue = "2000")
+	@Summary("Speech older than this, in milliseconds, is emitted as final; newer speech is emitted as partial")
+	private int latencyTargetMillis;
+
+	public int getLatencyTargetMillis() {
+		return latencyTargetMillis;
+	}
+}
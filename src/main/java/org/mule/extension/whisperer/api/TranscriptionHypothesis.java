@@ -0,0 +1,40 @@
+package org.mule.extension.whisperer.api;
+
+public class TranscriptionHypothesis extends TranscriptionSegment {
+    private static final long serialVersionUID = 1L;
+
+    private boolean partial;
+    private long lagMillis;
+
+    public TranscriptionHypothesis() {
+    }
+
+    public TranscriptionHypothesis(int id, Double start, Double end, String text, boolean partial, long lagMillis) {
+        super(id, start, end, text);
+        this.partial = partial;
+        this.lagMillis = lagMillis;
+    }
+
+    /**
+     * @return whether the text may still change as more audio arrives; final hypotheses never change and
+     * partial ones are replaced by the next hypothesis with the same id
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
+
+    /**
+     * @return milliseconds between the arrival of the newest audio this hypothesis covers and its emission
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public void setLagMillis(long lagMillis) {
+        this.lagMillis = lagMillis;
+    }
+}
@@ -0,0 +1,63 @@
+package org.mule.extension.whisperer.api;
+
+import java.io.Serializable;
+
+public class TranscriptionSegment implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int id;
+    private Double start;
+    private Double end;
+    private String text;
+
+    public TranscriptionSegment() {
+    }
+
+    public TranscriptionSegment(int id, Double start, Double end, String text) {
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.text = text;
+    }
+
+    /**
+     * @return position of the segment in the transcription, starting at 0
+     */
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * @return start of the segment in seconds from the beginning of the audio
+     */
+    public Double getStart() {
+        return start;
+    }
+
+    public void setStart(Double start) {
+        this.start = start;
+    }
+
+    /**
+     * @return end of the segment in seconds from the beginning of the audio
+     */
+    public Double getEnd() {
+        return end;
+    }
+
+    public void setEnd(Double end) {
+        this.end = end;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
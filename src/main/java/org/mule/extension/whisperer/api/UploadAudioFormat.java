@@ -0,0 +1,19 @@
+package org.mule.extension.whisperer.api;
+
+/**
+ * Encoding of audio transcoded to 16kHz mono before it is uploaded.
+ */
+public enum UploadAudioFormat {
+    /**
+     * Lossless FLAC, when ByteDeco FFmpeg is available.
+     */
+    FLAC,
+    /**
+     * Ogg Opus, the smallest, when ByteDeco FFmpeg is available and built with libopus; otherwise FLAC.
+     */
+    OPUS,
+    /**
+     * 16-bit PCM WAV, always available.
+     */
+    WAV
+}
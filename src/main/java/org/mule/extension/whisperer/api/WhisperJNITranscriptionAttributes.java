@@ -0,0 +1,69 @@
+package org.mule.extension.whisperer.api;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class WhisperJNITranscriptionAttributes implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Double duration;
+    private Double skippedDuration;
+    private List<TranscriptionSegment> segments;
+    private String model;
+    private String routingReason;
+
+    /**
+     * @return length of the submitted audio in seconds
+     */
+    public Double getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Double duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @return seconds of silence removed before inference, 0 when silence skipping is off
+     */
+    public Double getSkippedDuration() {
+        return skippedDuration;
+    }
+
+    public void setSkippedDuration(Double skippedDuration) {
+        this.skippedDuration = skippedDuration;
+    }
+
+    /**
+     * @return the timed segments of a verbose transcription, otherwise {@code null}
+     */
+    public List<TranscriptionSegment> getSegments() {
+        return segments;
+    }
+
+    public void setSegments(List<TranscriptionSegment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * @return name of the model that transcribed the audio
+     */
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    /**
+     * @return why the model was picked, such as the routing rule that matched
+     */
+    public String getRoutingReason() {
+        return routingReason;
+    }
+
+    public void setRoutingReason(String routingReason) {
+        this.routingReason = routingReason;
+    }
+}
@@ -6,6 +6,7 @@ public enum ConnectorError implements ErrorTypeDefinition<ConnectorError> {
     CONNECTION_INCOMPATIBLE,
     TRANSCRIPTION,
     MODEL_SETUP_FAILURE,
+    MODEL_NOT_READY,
     GENERATION,
     AUDIO_FORMAT_NOT_SUPPORTED,
     TIMEOUT
@@ -0,0 +1,515 @@
+package org.mule.extension.whisperer.internal.cache;
+
+import org.mule.extension.whisperer.internal.helpers.Sha256;
+import org.mule.runtime.extension.api.runtime.operation.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed cache of transcription results.
+ *
+ * <p>Keys are SHA-256 hashes of the audio bytes combined with everything else that changes the result (model,
+ * language, temperature, prompt, translate and verbose flags), so identical requests hit regardless of where the
+ * audio came from. Results live in a bounded in-memory LRU and, optionally, in a size-capped directory that
+ * survives restarts. The audio hash is computed by the connections while they buffer the payload, so lookups cost
+ * no extra read.
+ *
+ * <p>Both tiers hold entries serialized, so every hit gets its own copy of the attributes that the caller is free
+ * to change. Entries are only ever deserialized through a filter that admits the result and attribute classes,
+ * since anyone able to write into the disk directory could otherwise plant an object that runs code when read.
+ */
+public class TranscriptionCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TranscriptionCache.class);
+
+    private static final String ENTRY_SUFFIX = ".transcript";
+
+    private static final TranscriptionCache DISABLED = new TranscriptionCache();
+
+    // Entries hold a string and the attributes of either connection, whose fields are strings, boxed numbers and
+    // lists of segments
+    private static final ObjectInputFilter ENTRY_FILTER = ObjectInputFilter.Config.createFilter(
+        "maxdepth=8;maxrefs=100000;maxarray=100000;"
+            + TranscriptionCache.class.getName() + "$Entry;"
+            + "org.mule.extension.whisperer.api.OpenAiTranscriptionAttributes;"
+            + "org.mule.extension.whisperer.api.WhisperJNITranscriptionAttributes;"
+            + "org.mule.extension.whisperer.api.TranscriptionSegment;"
+            + "java.lang.String;java.lang.Number;java.lang.Integer;java.lang.Long;java.lang.Double;java.lang.Float;"
+            + "java.lang.Boolean;java.util.ArrayList;java.util.LinkedList;java.util.Collections$Unmodifiable*;"
+            + "java.util.Collections$EmptyList;java.util.ImmutableCollections$List*;java.util.CollSer;"
+            + "java.lang.Object;!*");
+
+    private final boolean enabled;
+    private final int maxMemoryEntries;
+    private final LinkedHashMap<String, byte[]> memory;
+    private final DiskTier disk;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+
+    private TranscriptionCache() {
+        this.enabled = false;
+        this.maxMemoryEntries = 0;
+        this.memory = null;
+        this.disk = null;
+    }
+
+    private TranscriptionCache(int maxMemoryEntries, DiskTier disk) {
+        this.enabled = true;
+        this.maxMemoryEntries = maxMemoryEntries;
+        this.disk = disk;
+        this.memory = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                if (size() > TranscriptionCache.this.maxMemoryEntries) {
+                    memoryEvictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return a cache that never stores anything and tells connections to skip hashing
+     */
+    public static TranscriptionCache disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Creates the cache configured by {@code parameters}, or the disabled cache.
+     *
+     * @throws IOException if the disk directory cannot be created or scanned
+     */
+    public static TranscriptionCache create(TranscriptionCacheParameters parameters) throws IOException {
+        if (parameters == null || !parameters.isCacheEnabled()) {
+            return DISABLED;
+        }
+        DiskTier disk = null;
+        if (parameters.getDiskDirectory() != null && !parameters.getDiskDirectory().isEmpty()) {
+            disk = new DiskTier(Paths.get(parameters.getDiskDirectory()), parameters.getDiskMaxSizeBytes());
+        }
+        LOGGER.info("Transcription cache enabled: {} in-memory entries{}", parameters.getMaxMemoryEntries(),
+                    disk != null ? ", disk tier " + disk.directory + " capped at " + disk.maxBytes + " bytes" : "");
+        return new TranscriptionCache(Math.max(0, parameters.getMaxMemoryEntries()), disk);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return a digest for connections to feed with the audio bytes while buffering them
+     */
+    public static MessageDigest newAudioDigest() {
+        return Sha256.newDigest();
+    }
+
+    /**
+     * Builds the cache key for a transcription.
+     *
+     * @param audioHash digest of the complete audio payload
+     * @return hex-encoded SHA-256 over the audio hash and every option that affects the result
+     */
+    public static String key(byte[] audioHash, String model, String language, Number temperature, String prompt,
+                             boolean translate, boolean verbose) {
+        MessageDigest digest = newAudioDigest();
+        digest.update(audioHash);
+        for (String part : new String[] {model, language, temperature == null ? null : temperature.toString(), prompt,
+            String.valueOf(translate), String.valueOf(verbose)}) {
+            // Length-prefix each part so adjacent values cannot run into each other
+            byte[] bytes = part == null ? new byte[0] : part.getBytes(StandardCharsets.UTF_8);
+            digest.update((byte) (part == null ? 0 : 1));
+            digest.update(intBytes(bytes.length));
+            digest.update(bytes);
+        }
+        return Sha256.hex(digest.digest());
+    }
+
+    /**
+     * @return the cached result, or {@code null} on a miss
+     */
+    public Result<String, Object> get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        byte[] serialized;
+        synchronized (memory) {
+            serialized = memory.get(key);
+        }
+        if (serialized != null) {
+            Entry entry = deserialize(serialized);
+            if (entry != null) {
+                memoryHits.incrementAndGet();
+                LOGGER.debug("Transcription cache memory hit for {}", key);
+                return entry.toResult();
+            }
+            synchronized (memory) {
+                memory.remove(key);
+            }
+        }
+        if (disk != null) {
+            serialized = disk.read(key);
+            Entry entry = serialized != null ? deserialize(serialized) : null;
+            if (entry != null) {
+                diskHits.incrementAndGet();
+                LOGGER.debug("Transcription cache disk hit for {}", key);
+                putInMemory(key, serialized);
+                return entry.toResult();
+            }
+            if (serialized != null) {
+                LOGGER.warn("Discarding transcription cache entry {}, it is not an entry or holds classes an entry never has", key);
+                disk.delete(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, Result<String, Object> result) {
+        if (!enabled || result.getOutput() == null) {
+            return;
+        }
+        Object attributes = result.getAttributes().orElse(null);
+        if (attributes != null && !(attributes instanceof Serializable)) {
+            LOGGER.debug("Not caching transcription {}, its attributes are not serializable", key);
+            return;
+        }
+        byte[] serialized;
+        try {
+            serialized = serialize(new Entry(result.getOutput(), (Serializable) attributes));
+        } catch (IOException e) {
+            LOGGER.warn("Not caching transcription {}, its attributes failed to serialize", key, e);
+            return;
+        }
+        putInMemory(key, serialized);
+        if (disk != null) {
+            disk.write(key, serialized);
+        }
+    }
+
+    private void putInMemory(String key, byte[] serialized) {
+        if (maxMemoryEntries == 0) {
+            return;
+        }
+        synchronized (memory) {
+            memory.put(key, serialized);
+        }
+    }
+
+    private static byte[] serialize(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+            objects.writeObject(entry);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the entry, or {@code null} if the bytes are not an entry or hold a class the filter rejects
+     */
+    private static Entry deserialize(byte[] serialized) {
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            objects.setObjectInputFilter(ENTRY_FILTER);
+            return (Entry) objects.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            LOGGER.debug("Unreadable transcription cache entry", e);
+            return null;
+        }
+    }
+
+    public Metrics getMetrics() {
+        if (!enabled) {
+            return new Metrics(0, 0, 0, 0, 0, 0, 0, 0);
+        }
+        int memoryEntries;
+        synchronized (memory) {
+            memoryEntries = memory.size();
+        }
+        return new Metrics(memoryHits.get(), diskHits.get(), misses.get(), memoryEvictions.get(),
+                           disk != null ? disk.evictions.get() : 0, memoryEntries,
+                           disk != null ? disk.size() : 0, disk != null ? disk.bytes() : 0);
+    }
+
+    /**
+     * Drops the in-memory tier. Disk entries are kept for the next start.
+     */
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        LOGGER.info("Transcription cache closing: {}", getMetrics());
+        synchronized (memory) {
+            memory.clear();
+        }
+    }
+
+    private static byte[] intBytes(int value) {
+        return new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    private static final class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String output;
+        private final Serializable attributes;
+
+        private Entry(String output, Serializable attributes) {
+            this.output = output;
+            this.attributes = attributes;
+        }
+
+        private Result<String, Object> toResult() {
+            Result.Builder<String, Object> builder = Result.<String, Object>builder().output(output);
+            if (attributes != null) {
+                builder.attributes(attributes);
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * One file per entry, named by key. Files are written to a temporary name and moved into place, so readers
+     * never see a partial entry. An access-ordered index of sizes drives LRU eviction once the total exceeds the
+     * cap; it is rebuilt from file modification times on start, and hits refresh the modification time.
+     */
+    private static final class DiskTier {
+        private final Path directory;
+        private final long maxBytes;
+        private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+        private final AtomicLong evictions = new AtomicLong();
+        private long totalBytes;
+
+        private DiskTier(Path directory, long maxBytes) throws IOException {
+            this.directory = directory;
+            this.maxBytes = maxBytes;
+            Files.createDirectories(directory);
+            load();
+        }
+
+        private void load() throws IOException {
+            List<Path> entries = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+                files.forEach(entries::add);
+            }
+            entries.sort(Comparator.comparing(DiskTier::lastModified));
+            synchronized (index) {
+                for (Path file : entries) {
+                    String name = file.getFileName().toString();
+                    long size = Files.size(file);
+                    index.put(name.substring(0, name.length() - ENTRY_SUFFIX.length()), size);
+                    totalBytes += size;
+                }
+                evictIfNeeded();
+            }
+            LOGGER.debug("Loaded {} transcription cache entries ({} bytes) from {}", entries.size(), totalBytes, directory);
+        }
+
+        /**
+         * @return the serialized entry, or {@code null}
+         */
+        private byte[] read(String key) {
+            synchronized (index) {
+                if (index.get(key) == null) {
+                    return null;
+                }
+            }
+            Path file = fileFor(key);
+            byte[] serialized;
+            try {
+                serialized = Files.readAllBytes(file);
+            } catch (NoSuchFileException e) {
+                forget(key);
+                return null;
+            } catch (IOException e) {
+                LOGGER.warn("Discarding unreadable transcription cache entry {}", file, e);
+                delete(key);
+                return null;
+            }
+            try {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                LOGGER.debug("Failed to refresh the last use of transcription cache entry {}", file, e);
+            }
+            return serialized;
+        }
+
+        private void write(String key, byte[] serialized) {
+            Path file = fileFor(key);
+            Path temp = directory.resolve(key + ".tmp-" + Thread.currentThread().getId());
+            try {
+                Files.write(temp, serialized);
+                long size = serialized.length;
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                synchronized (index) {
+                    Long previous = index.put(key, size);
+                    totalBytes += size - (previous != null ? previous : 0);
+                    evictIfNeeded();
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Failed to write transcription cache entry {}", file, e);
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Best effort, a leftover temp file is not an entry and is never read
+                }
+            }
+        }
+
+        // Caller holds the index lock
+        private void evictIfNeeded() {
+            Iterator<Map.Entry<String, Long>> eldest = index.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                eldest.remove();
+                totalBytes -= entry.getValue();
+                evictions.incrementAndGet();
+                try {
+                    Files.deleteIfExists(fileFor(entry.getKey()));
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to evict transcription cache entry {}", entry.getKey(), e);
+                }
+            }
+        }
+
+        private void delete(String key) {
+            forget(key);
+            try {
+                Files.deleteIfExists(fileFor(key));
+            } catch (IOException e) {
+                LOGGER.warn("Failed to delete transcription cache entry {}", key, e);
+            }
+        }
+
+        private void forget(String key) {
+            synchronized (index) {
+                Long size = index.remove(key);
+                if (size != null) {
+                    totalBytes -= size;
+                }
+            }
+        }
+
+        private int size() {
+            synchronized (index) {
+                return index.size();
+            }
+        }
+
+        private long bytes() {
+            synchronized (index) {
+                return totalBytes;
+            }
+        }
+
+        private Path fileFor(String key) {
+            return directory.resolve(key + ENTRY_SUFFIX);
+        }
+
+        private static FileTime lastModified(Path file) {
+            try {
+                return Files.getLastModifiedTime(file);
+            } catch (IOException e) {
+                return FileTime.fromMillis(0);
+            }
+        }
+    }
+
+    public static final class Metrics {
+        private final long memoryHits;
+        private final long diskHits;
+        private final long misses;
+        private final long memoryEvictions;
+        private final long diskEvictions;
+        private final int memoryEntries;
+        private final int diskEntries;
+        private final long diskBytes;
+
+        Metrics(long memoryHits, long diskHits, long misses, long memoryEvictions, long diskEvictions,
+                int memoryEntries, int diskEntries, long diskBytes) {
+            this.memoryHits = memoryHits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.memoryEvictions = memoryEvictions;
+            this.diskEvictions = diskEvictions;
+            this.memoryEntries = memoryEntries;
+            this.diskEntries = diskEntries;
+            this.diskBytes = diskBytes;
+        }
+
+        public long getMemoryHits() {
+            return memoryHits;
+        }
+
+        public long getDiskHits() {
+            return diskHits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getMemoryEvictions() {
+            return memoryEvictions;
+        }
+
+        public long getDiskEvictions() {
+            return diskEvictions;
+        }
+
+        public int getMemoryEntries() {
+            return memoryEntries;
+        }
+
+        public int getDiskEntries() {
+            return diskEntries;
+        }
+
+        public long getDiskBytes() {
+            return diskBytes;
+        }
+
+        /**
+         * @return fraction of lookups answered from either tier (0..1)
+         */
+        public double getHitRatio() {
+            long lookups = memoryHits + diskHits + misses;
+            return lookups == 0 ? 0 : (double) (memoryHits + diskHits) / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d (memory=%d, disk=%d), misses=%d, hitRatio=%.1f%%, evictions=%d/%d (memory/disk), "
+                                     + "entries=%d/%d (memory/disk), diskBytes=%d",
+                                 memoryHits + diskHits, memoryHits, diskHits, misses, getHitRatio() * 100,
+                                 memoryEvictions, diskEvictions, memoryEntries, diskEntries, diskBytes);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.mule.extension.whisperer.internal.cache;
+
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.api.util.DataUnit;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+public class TranscriptionCacheParameters {
+
+  @Parameter
+  @DisplayName("Cache transcriptions")
+  @Summary("Return the stored result when the same audio is transcribed again with the same model and options")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "false")
+  @Placement(order = 1)
+  private boolean cacheEnabled;
+
+  @Parameter
+  @DisplayName("Max in-memory entries")
+  @Summary("Transcriptions kept in memory; the least recently used are evicted first")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "1000")
+  @Placement(order = 2)
+  private int maxMemoryEntries;
+
+  @Parameter
+  @DisplayName("Disk cache directory")
+  @Summary("Directory for a persistent second cache tier. Leave empty to cache in memory only.")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional
+  @Placement(order = 3)
+  private String diskDirectory;
+
+  @Parameter
+  @DisplayName("Disk cache max size")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "256")
+  @Placement(order = 4)
+  private int diskMaxSize;
+
+  @Parameter
+  @DisplayName("Disk cache max size unit")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "MB")
+  @Placement(order = 5)
+  private DataUnit diskMaxSizeUnit;
+
+  public boolean isCacheEnabled() {
+    return cacheEnabled;
+  }
+
+  public void setCacheEnabled(boolean cacheEnabled) {
+    this.cacheEnabled = cacheEnabled;
+  }
+
+  public int getMaxMemoryEntries() {
+    return maxMemoryEntries;
+  }
+
+  public void setMaxMemoryEntries(int maxMemoryEntries) {
+    this.maxMemoryEntries = maxMemoryEntries;
+  }
+
+  public String getDiskDirectory() {
+    return diskDirectory;
+  }
+
+  public void setDiskDirectory(String diskDirectory) {
+    this.diskDirectory = diskDirectory;
+  }
+
+  public int getDiskMaxSize() {
+    return diskMaxSize;
+  }
+
+  public void setDiskMaxSize(int diskMaxSize) {
+    this.diskMaxSize = diskMaxSize;
+  }
+
+  public DataUnit getDiskMaxSizeUnit() {
+    return diskMaxSizeUnit;
+  }
+
+  public void setDiskMaxSizeUnit(DataUnit diskMaxSizeUnit) {
+    this.diskMaxSizeUnit = diskMaxSizeUnit;
+  }
+
+  public long getDiskMaxSizeBytes() {
+    // Via KB, since toBytes would overflow an int above 2GB
+    return 1024L * diskMaxSizeUnit.toKB(diskMaxSize);
+  }
+}
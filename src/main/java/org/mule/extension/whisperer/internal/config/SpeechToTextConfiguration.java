@@ -2,6 +2,7 @@ package org.mule.extension.whisperer.internal.config;
 
 import org.mule.extension.whisperer.internal.operation.SpeechToTextOperations;
 import org.mule.extension.whisperer.internal.connection.whisperjni.WhisperJNILocalConnectionProvider;
+import org.mule.extension.whisperer.internal.connection.whisperjni.WhisperJNIMultiModelConnectionProvider;
 import org.mule.extension.whisperer.internal.connection.whisperjni.WhisperJNIRemoteConnectionProvider;
 import org.mule.extension.whisperer.internal.connection.openai.OpenAiConnectionProvider;
 import org.mule.runtime.extension.api.annotation.Configuration;
@@ -11,7 +12,8 @@ import org.mule.runtime.extension.api.annotation.connectivity.ConnectionProvider
 
 @Configuration(name = "speech-to-text")
 @Operations(SpeechToTextOperations.class)
-@ConnectionProviders({OpenAiConnectionProvider.class, WhisperJNILocalConnectionProvider.class, WhisperJNIRemoteConnectionProvider.class})
+@ConnectionProviders({OpenAiConnectionProvider.class, WhisperJNILocalConnectionProvider.class, WhisperJNIRemoteConnectionProvider.class,
+    WhisperJNIMultiModelConnectionProvider.class})
 public class SpeechToTextConfiguration {
 
 }
\ No newline at end of file
@@ -1,6 +1,11 @@
 package org.mule.extension.whisperer.internal.connection;
 
+import org.mule.extension.whisperer.api.ModelSwapResult;
+import org.mule.extension.whisperer.api.STTParamsLiveStream;
 import org.mule.extension.whisperer.api.STTParamsModelDetails;
+import org.mule.extension.whisperer.api.TranscriptionHypothesis;
+import org.mule.extension.whisperer.api.TranscriptionSegment;
+import org.mule.extension.whisperer.internal.error.ConnectionIncompatibleException;
 import org.mule.runtime.api.metadata.TypedValue;
 import org.mule.runtime.extension.api.runtime.operation.Result;
 
@@ -9,4 +14,32 @@ import java.util.concurrent.CompletableFuture;
 
 public interface SpeechToTextConnection {
     CompletableFuture<Result<String, Object>> transcribe(TypedValue<InputStream> audioContent, String fineTuningPrompt, STTParamsModelDetails params);
+
+    /**
+     * Starts a transcription whose segments are delivered through the returned stream as they are produced.
+     */
+    default TranscriptionSegmentStream<TranscriptionSegment> transcribeSegments(TypedValue<InputStream> audioContent, String fineTuningPrompt, STTParamsModelDetails params) {
+        throw new ConnectionIncompatibleException("Segment streaming is only supported by the Whisper JNI connections");
+    }
+
+    /**
+     * Starts transcribing an unbounded raw PCM stream; partial and final hypotheses are delivered through the
+     * returned stream until the audio ends or the stream is closed.
+     */
+    default TranscriptionSegmentStream<TranscriptionHypothesis> transcribeLive(InputStream pcm, String fineTuningPrompt,
+                                                                              STTParamsModelDetails params, STTParamsLiveStream liveParams) {
+        throw new ConnectionIncompatibleException("Live transcription is only supported by the Whisper JNI connections");
+    }
+
+    /**
+     * Loads another model in the background and switches new transcriptions to it once it is ready; running
+     * transcriptions finish on the previous model.
+     *
+     * @param model          name of the model to replace, or {@code null} for the default model
+     * @param location       path, {@code classpath://} resource or URL of the new model
+     * @param expectedSha256 checksum a downloaded model must have, or {@code null}
+     */
+    default CompletableFuture<ModelSwapResult> swapModel(String model, String location, String expectedSha256) {
+        throw new ConnectionIncompatibleException("Model swapping is only supported by the Whisper JNI connections");
+    }
 }
@@ -0,0 +1,80 @@
+package org.mule.extension.whisperer.internal.connection;
+
+import org.mule.extension.whisperer.api.TranscriptionSegment;
+import org.mule.extension.whisperer.internal.error.TranscriptionException;
+import org.mule.runtime.extension.api.exception.ModuleException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Hands transcription segments from the thread producing them to the thread paging through them, batch by batch.
+ *
+ * <p>The producer {@link #publish}es each batch as soon as it is final and ends with {@link #complete} or
+ * {@link #fail}. The consumer takes batches with {@link #next}, which returns an empty list once the
+ * transcription is over. Closing the stream makes further {@link #publish} calls throw, so the producer can stop
+ * work nobody will read.
+ */
+public final class TranscriptionSegmentStream<T extends TranscriptionSegment> implements AutoCloseable {
+
+    private final List<T> endOfStream = Collections.emptyList();
+    private final BlockingQueue<List<T>> batches = new LinkedBlockingQueue<>();
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    private boolean ended;
+
+    public void publish(List<T> segments) {
+        if (closed) {
+            throw new CancellationException("Transcription segment stream was closed by its consumer");
+        }
+        // An empty batch would read as the end of the stream
+        if (!segments.isEmpty()) {
+            batches.add(segments);
+        }
+    }
+
+    public void complete() {
+        batches.add(endOfStream);
+    }
+
+    public void fail(Throwable cause) {
+        failure = cause;
+        batches.add(endOfStream);
+    }
+
+    /**
+     * Waits for the next batch of segments.
+     *
+     * @return the batch, or an empty list when all segments have been delivered
+     * @throws ModuleException if the transcription failed
+     */
+    public List<T> next() {
+        if (ended) {
+            return endOfStream;
+        }
+        List<T> batch;
+        try {
+            batch = batches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TranscriptionException("Interrupted while waiting for transcription segments", e);
+        }
+        if (batch == endOfStream) {
+            ended = true;
+            if (failure instanceof ModuleException) {
+                throw (ModuleException) failure;
+            } else if (failure != null) {
+                throw new TranscriptionException(failure);
+            }
+        }
+        return batch;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
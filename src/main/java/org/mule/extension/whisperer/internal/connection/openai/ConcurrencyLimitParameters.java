@@ -0,0 +1,109 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimitParameters {
+
+  @Parameter
+  @DisplayName("Limit concurrency")
+  @Summary("Share an adaptive limit on in-flight requests among all configurations using the same API key. It grows while requests succeed and shrinks on rate limits or when OpenAI reports few requests or tokens left, and requests over it wait in a queue.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "true")
+  @Placement(order = 1)
+  private boolean limitConcurrency;
+
+  @Parameter
+  @DisplayName("Initial concurrency")
+  @Summary("In-flight requests allowed before any response has been seen.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "8")
+  @Placement(order = 2)
+  private int initialConcurrency;
+
+  @Parameter
+  @DisplayName("Max concurrency")
+  @Summary("The limit never grows past this many in-flight requests.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "64")
+  @Placement(order = 3)
+  private int maxConcurrency;
+
+  @Parameter
+  @DisplayName("Request queue capacity")
+  @Summary("How many requests may wait for the limit before further ones fail with WHISPERER:TIMEOUT.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "256")
+  @Placement(order = 4)
+  private int requestQueueCapacity;
+
+  @Parameter
+  @DisplayName("Queue timeout")
+  @Summary("How long a request waits for the limit before failing with WHISPERER:TIMEOUT.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "60")
+  @Placement(order = 5)
+  private long queueTimeout;
+
+  @Parameter
+  @DisplayName("Queue timeout unit")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "SECONDS")
+  @Placement(order = 6)
+  private TimeUnit queueTimeoutUnit;
+
+  public boolean isLimitConcurrency() {
+    return limitConcurrency;
+  }
+
+  public void setLimitConcurrency(boolean limitConcurrency) {
+    this.limitConcurrency = limitConcurrency;
+  }
+
+  public int getInitialConcurrency() {
+    return initialConcurrency;
+  }
+
+  public void setInitialConcurrency(int initialConcurrency) {
+    this.initialConcurrency = initialConcurrency;
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public void setMaxConcurrency(int maxConcurrency) {
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  public int getRequestQueueCapacity() {
+    return requestQueueCapacity;
+  }
+
+  public void setRequestQueueCapacity(int requestQueueCapacity) {
+    this.requestQueueCapacity = requestQueueCapacity;
+  }
+
+  public long getQueueTimeout() {
+    return queueTimeout;
+  }
+
+  public void setQueueTimeout(long queueTimeout) {
+    this.queueTimeout = queueTimeout;
+  }
+
+  public TimeUnit getQueueTimeoutUnit() {
+    return queueTimeoutUnit;
+  }
+
+  public void setQueueTimeoutUnit(TimeUnit queueTimeoutUnit) {
+    this.queueTimeoutUnit = queueTimeoutUnit;
+  }
+}
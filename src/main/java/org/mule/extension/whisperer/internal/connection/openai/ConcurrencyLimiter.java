@@ -0,0 +1,345 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import org.mule.extension.whisperer.api.error.ConnectorError;
+import org.mule.extension.whisperer.internal.helpers.Sha256;
+import org.mule.runtime.extension.api.exception.ModuleException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive limit on the OpenAI requests in flight for one API key, shared by every configuration using that key.
+ *
+ * <p>The limit follows additive increase, multiplicative decrease: it grows by about one for every limit's worth
+ * of successful requests sent while it was full, halves on a 429, and shrinks by a quarter when a response reports
+ * less than a tenth of the requests or tokens left through {@code x-ratelimit-remaining-*}. A decrease only applies
+ * to requests sent before the last one, so a burst of throttled responses to the same window shrinks the limit
+ * once. Requests over the limit wait in a bounded first-in, first-out queue, and none overtakes a waiting one.
+ */
+public final class ConcurrencyLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    private static final Map<String, SharedEntry> SHARED = new HashMap<>();
+
+    private static final int MIN_LIMIT = 1;
+    private static final double THROTTLED_DECREASE = 0.5;
+    private static final double LOW_REMAINING_DECREASE = 0.75;
+    private static final double LOW_REMAINING_FRACTION = 0.1;
+
+    private final boolean adaptive;
+    private final int maxLimit;
+    private final int queueCapacity;
+    private final long queueTimeoutMillis;
+
+    private final ArrayDeque<CompletableFuture<Permit>> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long window;
+
+    private final LongAdder throttledRequests = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+    private final LongAdder rateLimitedResponses = new LongAdder();
+
+    ConcurrencyLimiter(int initialLimit, int maxLimit, int queueCapacity, long queueTimeout, TimeUnit queueTimeoutUnit) {
+        this(true, initialLimit, maxLimit, queueCapacity, queueTimeoutUnit.toMillis(queueTimeout));
+    }
+
+    private ConcurrencyLimiter(boolean adaptive, int initialLimit, int maxLimit, int queueCapacity, long queueTimeoutMillis) {
+        if (initialLimit < MIN_LIMIT || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= initial <= max, got initial " + initialLimit
+                                                   + " and max " + maxLimit);
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("Request queue capacity must not be negative, got " + queueCapacity);
+        }
+        this.adaptive = adaptive;
+        this.limit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.queueCapacity = queueCapacity;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    static ConcurrencyLimiter create(ConcurrencyLimitParameters parameters) {
+        return new ConcurrencyLimiter(parameters.getInitialConcurrency(), parameters.getMaxConcurrency(),
+                                      parameters.getRequestQueueCapacity(), parameters.getQueueTimeout(),
+                                      parameters.getQueueTimeoutUnit());
+    }
+
+    /**
+     * @return a limiter that never holds a request back, for configurations that opt out
+     */
+    static ConcurrencyLimiter unlimited() {
+        return new ConcurrencyLimiter(false, Integer.MAX_VALUE, Integer.MAX_VALUE, 0, 0);
+    }
+
+    /**
+     * Shares one limiter among every configuration using {@code apiKey}. The first creates it through
+     * {@code factory}, so its settings apply until the last configuration releases it.
+     *
+     * @return the shared limiter, which must be handed back through {@link Shared#release()}
+     */
+    static Shared share(String apiKey, Supplier<ConcurrencyLimiter> factory) {
+        // Keyed by a hash so the registry never holds the key itself
+        String key = fingerprint(apiKey);
+        synchronized (SHARED) {
+            SharedEntry entry = SHARED.get(key);
+            if (entry == null) {
+                entry = new SharedEntry(factory.get());
+                SHARED.put(key, entry);
+            } else {
+                LOGGER.debug("Sharing the OpenAI concurrency limit of an API key with {} other configurations", entry.references);
+            }
+            entry.references++;
+            return new Shared(key, entry.limiter);
+        }
+    }
+
+    private static String fingerprint(String apiKey) {
+        return Sha256.of(String.valueOf(apiKey).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Waits for room under the limit.
+     *
+     * @return a permit to send one request, to be released with its outcome; fails with
+     *         {@link ConnectorError#TIMEOUT} if the queue is full or the wait takes longer than the queue timeout
+     */
+    CompletableFuture<Permit> acquire() {
+        CompletableFuture<Permit> waiter;
+        synchronized (this) {
+            if (queue.isEmpty() && inFlight < currentLimit()) {
+                inFlight++;
+                return CompletableFuture.completedFuture(new Permit(window, inFlight >= currentLimit()));
+            }
+            if (queue.size() >= queueCapacity) {
+                rejectedRequests.increment();
+                CompletableFuture<Permit> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(new ModuleException("OpenAI request queue for this API key is full with "
+                                                                       + queue.size() + " requests waiting", ConnectorError.TIMEOUT));
+                return rejected;
+            }
+            waiter = new CompletableFuture<>();
+            queue.add(waiter);
+            throttledRequests.increment();
+        }
+        CompletableFuture.delayedExecutor(queueTimeoutMillis, TimeUnit.MILLISECONDS).execute(() -> expire(waiter));
+        return waiter;
+    }
+
+    private void expire(CompletableFuture<Permit> waiter) {
+        synchronized (this) {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+            rejectedRequests.increment();
+        }
+        waiter.completeExceptionally(new ModuleException("Timed out after " + queueTimeoutMillis
+                                                             + " ms waiting for the OpenAI concurrency limit of this API key",
+                                                         ConnectorError.TIMEOUT));
+    }
+
+    private void release(Permit permit, int statusCode, RetryPolicy.HeaderReader headers) {
+        List<CompletableFuture<Permit>> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            if (statusCode == 429) {
+                rateLimitedResponses.increment();
+                decrease(permit, THROTTLED_DECREASE);
+            } else if (statusCode >= 200 && statusCode < 300) {
+                if (isRunningLow(headers)) {
+                    decrease(permit, LOW_REMAINING_DECREASE);
+                } else if (adaptive && permit.saturated && limit < maxLimit) {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+            while (!queue.isEmpty() && inFlight < currentLimit()) {
+                inFlight++;
+                granted.add(queue.poll());
+            }
+        }
+        // Completed outside the lock, since the waiters go on to send their requests
+        for (CompletableFuture<Permit> waiter : granted) {
+            waiter.complete(new Permit(window, true));
+        }
+    }
+
+    private void decrease(Permit permit, double factor) {
+        if (!adaptive || permit.window != window) {
+            return;
+        }
+        double previous = limit;
+        limit = Math.max(MIN_LIMIT, limit * factor);
+        window++;
+        LOGGER.debug("Lowered the OpenAI concurrency limit from {} to {}", (int) previous, currentLimit());
+    }
+
+    private static boolean isRunningLow(RetryPolicy.HeaderReader headers) {
+        return isRunningLow(headers, "requests") || isRunningLow(headers, "tokens");
+    }
+
+    private static boolean isRunningLow(RetryPolicy.HeaderReader headers, String kind) {
+        long remaining = parseLong(headers.header("x-ratelimit-remaining-" + kind));
+        if (remaining < 0) {
+            return false;
+        }
+        long total = parseLong(headers.header("x-ratelimit-limit-" + kind));
+        return total > 0 ? remaining < total * LOW_REMAINING_FRACTION : remaining == 0;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    public synchronized Metrics getMetrics() {
+        return new Metrics(currentLimit(), inFlight, queue.size(), throttledRequests.sum(), rejectedRequests.sum(),
+                           rateLimitedResponses.sum());
+    }
+
+    /**
+     * Room for one request under the limit.
+     */
+    final class Permit {
+        private final long window;
+        // Whether the limit was reached when this request was sent, the only time a success says it could be higher
+        private final boolean saturated;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long window, boolean saturated) {
+            this.window = window;
+            this.saturated = saturated;
+        }
+
+        /**
+         * Hands the room back, adjusting the limit by the response; a second release is ignored.
+         *
+         * @param statusCode status code of the response, or {@code -1} if none came back
+         */
+        void release(int statusCode, RetryPolicy.HeaderReader headers) {
+            if (released.compareAndSet(false, true)) {
+                ConcurrencyLimiter.this.release(this, statusCode, headers);
+            }
+        }
+    }
+
+    /**
+     * A configuration's reference to a shared limiter.
+     */
+    static final class Shared {
+        private final String key;
+        private final ConcurrencyLimiter limiter;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Shared(String key, ConcurrencyLimiter limiter) {
+            this.key = key;
+            this.limiter = limiter;
+        }
+
+        ConcurrencyLimiter get() {
+            return limiter;
+        }
+
+        void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (SHARED) {
+                SharedEntry entry = SHARED.get(key);
+                if (entry != null && entry.limiter == limiter && --entry.references == 0) {
+                    SHARED.remove(key);
+                }
+            }
+        }
+    }
+
+    private static final class SharedEntry {
+        private final ConcurrencyLimiter limiter;
+        private int references;
+
+        private SharedEntry(ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of the limiter.
+     */
+    public static final class Metrics {
+        private final int limit;
+        private final int inFlight;
+        private final int queueDepth;
+        private final long throttledRequests;
+        private final long rejectedRequests;
+        private final long rateLimitedResponses;
+
+        Metrics(int limit, int inFlight, int queueDepth, long throttledRequests, long rejectedRequests, long rateLimitedResponses) {
+            this.limit = limit;
+            this.inFlight = inFlight;
+            this.queueDepth = queueDepth;
+            this.throttledRequests = throttledRequests;
+            this.rejectedRequests = rejectedRequests;
+            this.rateLimitedResponses = rateLimitedResponses;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        /**
+         * @return requests that had to wait in the queue
+         */
+        public long getThrottledRequests() {
+            return throttledRequests;
+        }
+
+        /**
+         * @return requests that failed because the queue was full or they waited too long
+         */
+        public long getRejectedRequests() {
+            return rejectedRequests;
+        }
+
+        /**
+         * @return responses with status code 429
+         */
+        public long getRateLimitedResponses() {
+            return rateLimitedResponses;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("limit=%d, inFlight=%d, queued=%d, throttled=%d, rejected=%d, rateLimited=%d",
+                                 limit, inFlight, queueDepth, throttledRequests, rejectedRequests, rateLimitedResponses);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A {@code multipart/form-data} body that is read from its parts as it is sent, instead of being assembled on
+ * the heap first.
+ *
+ * <p>Fields are small and kept as bytes; file content is only referenced, and is read by whoever consumes
+ * {@link #toInputStream()}, through that consumer's own buffer. The length of the body is known when the
+ * length of every file is.
+ */
+final class MultipartFormData {
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final String boundary = "whisperer-" + UUID.randomUUID().toString().replace("-", "");
+    private final List<InputStream> sections = new ArrayList<>();
+    private long contentLength;
+
+    /**
+     * Adds a text field.
+     */
+    MultipartFormData field(String name, String value) {
+        byte[] content = value.getBytes(StandardCharsets.UTF_8);
+        addHeader("Content-Disposition: form-data; name=\"" + name + "\"\r\n"
+                      + "Content-Type: text/plain; charset=UTF-8\r\n");
+        addSection(new ByteArrayInputStream(content), content.length);
+        addSection(new ByteArrayInputStream(CRLF), CRLF.length);
+        return this;
+    }
+
+    /**
+     * Adds a file whose content is read when the body is sent.
+     *
+     * @param length length of {@code content} in bytes, or {@code -1} if unknown
+     */
+    MultipartFormData file(String name, String fileName, String contentType, InputStream content, long length) {
+        addHeader("Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + fileName + "\"\r\n"
+                      + "Content-Type: " + contentType + "\r\n");
+        addSection(content, length);
+        addSection(new ByteArrayInputStream(CRLF), CRLF.length);
+        return this;
+    }
+
+    /**
+     * @return the value of the {@code Content-Type} header for this body
+     */
+    String getContentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    /**
+     * @return the length of the body in bytes, or {@code -1} if a file of unknown length was added
+     */
+    long getContentLength() {
+        return contentLength < 0 ? -1 : contentLength + closingDelimiter().length;
+    }
+
+    /**
+     * @return the body, reading each file only once the parts before it have been read; can be called once
+     */
+    InputStream toInputStream() {
+        List<InputStream> body = new ArrayList<>(sections);
+        body.add(new ByteArrayInputStream(closingDelimiter()));
+        return new SequenceInputStream(Collections.enumeration(body));
+    }
+
+    private void addHeader(String headers) {
+        byte[] header = ("--" + boundary + "\r\n" + headers + "\r\n").getBytes(StandardCharsets.UTF_8);
+        addSection(new ByteArrayInputStream(header), header.length);
+    }
+
+    private void addSection(InputStream section, long length) {
+        sections.add(section);
+        contentLength = contentLength < 0 || length < 0 ? -1 : contentLength + length;
+    }
+
+    private byte[] closingDelimiter() {
+        return ("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+}
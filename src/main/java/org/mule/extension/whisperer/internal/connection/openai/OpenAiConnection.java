@@ -2,22 +2,27 @@ package org.mule.extension.whisperer.internal.connection.openai;
 
 import org.mule.extension.whisperer.api.OpenAiTranscriptionAttributes;
 import org.mule.extension.whisperer.api.STTParamsModelDetails;
+import org.mule.extension.whisperer.api.TranscriptionSegment;
 import org.mule.extension.whisperer.api.TTSParamsModelDetails;
+import org.mule.extension.whisperer.internal.cache.TranscriptionCache;
 import org.mule.extension.whisperer.internal.connection.SpeechToTextConnection;
 import org.mule.extension.whisperer.internal.connection.TextToSpeechConnection;
 import org.mule.extension.whisperer.internal.error.GenerationException;
 import org.mule.extension.whisperer.internal.error.TranscriptionException;
 import org.mule.extension.whisperer.internal.helpers.audio.AudioUtils;
+import org.mule.extension.whisperer.internal.helpers.audio.BufferedAudio;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.mule.runtime.api.connection.ConnectionException;
+import org.mule.runtime.api.metadata.MediaType;
 import org.mule.runtime.api.metadata.TypedValue;
+import org.mule.runtime.api.streaming.bytes.CursorStream;
+import org.mule.runtime.api.streaming.bytes.CursorStreamProvider;
 import org.mule.runtime.core.api.util.IOUtils;
-import org.mule.runtime.extension.api.annotation.param.MediaType;
 import org.mule.runtime.extension.api.runtime.operation.Result;
 import org.mule.runtime.http.api.client.HttpClient;
 import org.mule.runtime.http.api.domain.entity.ByteArrayHttpEntity;
-import org.mule.runtime.http.api.domain.entity.multipart.HttpPart;
-import org.mule.runtime.http.api.domain.entity.multipart.MultipartHttpEntity;
+import org.mule.runtime.http.api.domain.entity.InputStreamHttpEntity;
 import org.mule.runtime.http.api.domain.message.request.HttpRequest;
 import org.mule.runtime.http.api.domain.message.response.HttpResponse;
 import org.slf4j.Logger;
@@ -26,9 +31,15 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.mule.runtime.http.api.HttpConstants.Method.GET;
 import static org.mule.runtime.http.api.HttpConstants.Method.POST;
@@ -38,10 +49,24 @@ public class OpenAiConnection implements SpeechToTextConnection, TextToSpeechCon
     private final String apiKey;
     private final HttpClient httpClient;
     private final URI apiUri;
-    public OpenAiConnection(String apiKey, HttpClient httpClient, URI apiUri) {
+    private final TranscriptionCache transcriptionCache;
+    private final UploadTranscodingParameters uploadTranscoding;
+    private final OversizedAudioParameters oversizedAudio;
+    private final long spillThreshold;
+    private final RetryPolicy retryPolicy;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    public OpenAiConnection(String apiKey, HttpClient httpClient, URI apiUri, TranscriptionCache transcriptionCache,
+                            UploadTranscodingParameters uploadTranscoding, OversizedAudioParameters oversizedAudio,
+                            long spillThreshold, RetryPolicy retryPolicy, ConcurrencyLimiter concurrencyLimiter) {
         this.apiKey = apiKey;
         this.httpClient = httpClient;
         this.apiUri = apiUri;
+        this.transcriptionCache = transcriptionCache;
+        this.uploadTranscoding = uploadTranscoding;
+        this.oversizedAudio = oversizedAudio;
+        this.spillThreshold = spillThreshold;
+        this.retryPolicy = retryPolicy;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     public void validate() throws ConnectionException {
@@ -68,47 +93,294 @@ public class OpenAiConnection implements SpeechToTextConnection, TextToSpeechCon
 
     @Override
     public CompletableFuture<Result<String, Object>> transcribe(TypedValue<InputStream> audioContent, String fineTuningPrompt, STTParamsModelDetails params) {
-        URI transcriptionEndpoint = apiUri.resolve("audio/transcriptions");
+        MediaType audioMediaType = audioContent.getDataType().getMediaType();
+        InputStream audioStream = audioContent.getValue();
+        long audioLength = audioContent.getByteLength().orElse(-1);
+        boolean splitting = oversizedAudio.isSplitOversizedAudio();
+        String cacheKey = null;
+        if (audioStream instanceof CursorStream && splitting && audioLength < 0) {
+            // A repeatable stream of unknown length is measured through a cursor of its own, so oversized audio is
+            // recognised before anything is read from the stream itself. Being read in full anyway, it is hashed
+            // too when caching, so a cached result skips the upload
+            MessageDigest audioDigest = transcriptionCache.isEnabled() ? TranscriptionCache.newAudioDigest() : null;
+            try (InputStream cursor = ((CursorStream) audioStream).getProvider().openCursor()) {
+                audioLength = digest(cursor, audioDigest);
+            } catch (IOException e) {
+                return failed(new TranscriptionException("Unable to read audio content", e));
+            }
+            if (audioDigest != null) {
+                cacheKey = cacheKey(audioDigest, fineTuningPrompt, params);
+                Result<String, Object> cached = transcriptionCache.get(cacheKey);
+                if (cached != null) {
+                    return CompletableFuture.completedFuture(cached);
+                }
+            }
+        }
 
-        String responseFormat = "text";
-        if (params.isVerbose()) {
-            responseFormat = "verbose_json";
+        boolean oversized = splitting && audioLength > oversizedAudio.getUploadSizeLimitBytes();
+        if (uploadTranscoding.isTranscodeBeforeUpload() || oversized) {
+            return transcribeBuffered(audioContent, audioLength, cacheKey, fineTuningPrompt, params);
         }
 
-        byte[] audioBytes = IOUtils.toByteArray(audioContent.getValue());
-        ArrayList<HttpPart> parts = new ArrayList<>();
+        // A repeatable stream is read through a new cursor on every attempt, a stream that can be read once is
+        // sent once. Unless already hashed, the audio is hashed as it uploads, and only its result is cached; each
+        // attempt hashes afresh, so the digest is the one of the attempt that succeeded
+        boolean repeatable = audioStream instanceof CursorStream;
+        boolean hashing = transcriptionCache.isEnabled() && cacheKey == null;
+        AtomicReference<MessageDigest> uploadDigest = new AtomicReference<>();
+        AudioSource audio;
+        if (repeatable) {
+            CursorStreamProvider cursorProvider = ((CursorStream) audioStream).getProvider();
+            audio = () -> hashing ? digesting(cursorProvider.openCursor(), uploadDigest) : cursorProvider.openCursor();
+        } else {
+            InputStream oneShotStream = hashing ? digesting(audioStream, uploadDigest) : audioStream;
+            audio = () -> oneShotStream;
+        }
+        String requestCacheKey = cacheKey;
+        return send(audio, repeatable, audioLength, "speech." + AudioUtils.guessAudioFileExtension(audioMediaType),
+                    audioMediaType.toString(), fineTuningPrompt, params)
+                .whenComplete((result, e) -> {
+                    if (null != e) {
+                        return;
+                    }
+                    MessageDigest resultDigest = uploadDigest.get();
+                    String resultCacheKey = null != resultDigest ? cacheKey(resultDigest, fineTuningPrompt, params) : requestCacheKey;
+                    if (null != resultCacheKey) {
+                        transcriptionCache.put(resultCacheKey, result);
+                    }
+                });
+    }
 
-        parts.add(new HttpPart("model", params.getModelName().getBytes(), MediaType.TEXT_PLAIN, params.getModelName().getBytes().length));
-        parts.add(new HttpPart("response_format", responseFormat.getBytes(), MediaType.TEXT_PLAIN, responseFormat.getBytes().length));
-        parts.add(new HttpPart("file", "speech." + AudioUtils.guessAudioFileExtension(audioContent.getDataType().getMediaType()), audioBytes, audioContent.getDataType().getMediaType().toString(), audioBytes.length));
+    /**
+     * Buffers the whole payload to transcode it, split it if it is over the upload limit, or both, then uploads
+     * the chunks with bounded parallelism and joins their transcriptions in order.
+     *
+     * @param cacheKey the cache key if the payload was already hashed, otherwise {@code null}
+     */
+    private CompletableFuture<Result<String, Object>> transcribeBuffered(TypedValue<InputStream> audioContent, long audioLength,
+                                                                         String cacheKey, String fineTuningPrompt,
+                                                                         STTParamsModelDetails params) {
+        MediaType audioMediaType = audioContent.getDataType().getMediaType();
+        long start = System.nanoTime();
+        // Hashed as it is buffered unless a cursor already did
+        MessageDigest audioDigest = transcriptionCache.isEnabled() && cacheKey == null ? TranscriptionCache.newAudioDigest() : null;
+        BufferedAudio original;
+        try {
+            original = BufferedAudio.buffer(audioContent.getValue(), audioLength, spillThreshold, audioDigest);
+        } catch (IOException e) {
+            return failed(new TranscriptionException("Unable to read audio content", e));
+        }
+        if (audioDigest != null) {
+            cacheKey = cacheKey(audioDigest, fineTuningPrompt, params);
+            Result<String, Object> cached = transcriptionCache.get(cacheKey);
+            if (cached != null) {
+                original.close();
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
 
-        if (null != fineTuningPrompt && !fineTuningPrompt.isEmpty()) {
-            parts.add(new HttpPart("prompt", fineTuningPrompt.getBytes(), MediaType.TEXT_PLAIN, fineTuningPrompt.getBytes().length));
+        long originalSize = original.size();
+        String audioFormat = AudioUtils.guessAudioFormat(audioMediaType);
+        UploadAudio upload = uploadTranscoding.isTranscodeBeforeUpload()
+            ? UploadAudio.transcode(original, audioFormat, audioMediaType.toString(), uploadTranscoding.getUploadFormat())
+            : UploadAudio.original(original, audioFormat, audioMediaType.toString(), uploadTranscoding.getUploadFormat());
+        List<UploadAudio> chunks;
+        if (oversizedAudio.isSplitOversizedAudio()) {
+            try {
+                chunks = upload.split(oversizedAudio.getUploadSizeLimitBytes(), oversizedAudio.getChunkParallelism());
+            } catch (IOException | RuntimeException e) {
+                upload.close();
+                return failed(new TranscriptionException("Unable to split audio over the upload size limit", e));
+            }
+        } else {
+            chunks = Collections.singletonList(upload);
         }
-        if (params.getTemperature().floatValue() > 0) {
-            parts.add(new HttpPart("temperature", params.getTemperature().toString().getBytes(), MediaType.TEXT_PLAIN, params.getTemperature().toString().getBytes().length));
+        long preparationMillis = (System.nanoTime() - start) / 1_000_000;
+        if (chunks.size() > 1) {
+            LOGGER.debug("Transcribing {} bytes of audio as {} chunks", originalSize, chunks.size());
         }
-        if (null != params.getLanguage() && !params.getLanguage().isEmpty()) {
-            parts.add(new HttpPart("language", params.getLanguage().getBytes(), MediaType.TEXT_PLAIN, params.getLanguage().getBytes().length));
+
+        String requestCacheKey = cacheKey;
+        return sendChunks(chunks, fineTuningPrompt, params)
+                .thenApply(results -> {
+                    Result<String, Object> result = join(chunks, results, params);
+                    OpenAiTranscriptionAttributes attributes = (OpenAiTranscriptionAttributes) result.getAttributes().get();
+                    long uploadedBytes = 0;
+                    for (UploadAudio chunk : chunks) {
+                        uploadedBytes += chunk.size();
+                    }
+                    attributes.setUploadedBytes(uploadedBytes);
+                    attributes.setBytesSaved(Math.max(0, originalSize - uploadedBytes));
+                    attributes.setTranscodeMillis(preparationMillis);
+                    attributes.setUploadChunks(chunks.size());
+                    return result;
+                })
+                .whenComplete((result, e) -> {
+                    if (null == e && null != requestCacheKey) {
+                        transcriptionCache.put(requestCacheKey, result);
+                    }
+                });
+    }
+
+    /**
+     * Uploads chunks with at most the configured number in flight, closing each once its request completes.
+     * After a failure the remaining chunks are not uploaded.
+     *
+     * @return the transcription of each chunk, in order
+     */
+    private CompletableFuture<List<Result<String, Object>>> sendChunks(List<UploadAudio> chunks, String fineTuningPrompt,
+                                                                      STTParamsModelDetails params) {
+        List<CompletableFuture<Result<String, Object>>> results = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            results.add(new CompletableFuture<>());
         }
-        HttpRequest request = HttpRequest.builder()
-                .addHeader("Authorization", "Bearer " + apiKey)
-                .method(POST)
-                .uri(transcriptionEndpoint)
-                .entity(new MultipartHttpEntity(parts))
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        int parallelism = Math.max(1, Math.min(oversizedAudio.getChunkParallelism(), chunks.size()));
+        for (int i = 0; i < parallelism; i++) {
+            sendNextChunk(chunks, results, next, failed, fineTuningPrompt, params);
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<Result<String, Object>> transcribed = new ArrayList<>(results.size());
+                    for (CompletableFuture<Result<String, Object>> result : results) {
+                        transcribed.add(result.join());
+                    }
+                    return transcribed;
+                });
+    }
+
+    private void sendNextChunk(List<UploadAudio> chunks, List<CompletableFuture<Result<String, Object>>> results,
+                               AtomicInteger next, AtomicBoolean failed, String fineTuningPrompt, STTParamsModelDetails params) {
+        int index;
+        while ((index = next.getAndIncrement()) < chunks.size()) {
+            UploadAudio chunk = chunks.get(index);
+            CompletableFuture<Result<String, Object>> result = results.get(index);
+            if (failed.get()) {
+                chunk.close();
+                result.completeExceptionally(new TranscriptionException("Transcription of an earlier part of the audio failed"));
+                continue;
+            }
+            send(chunk::openStream, true, chunk.size(), chunk.getFileName(), chunk.getMediaType(), fineTuningPrompt, params)
+                .whenComplete((transcribed, e) -> {
+                    chunk.close();
+                    if (null != e) {
+                        failed.set(true);
+                        result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+                    } else {
+                        result.complete(transcribed);
+                    }
+                    sendNextChunk(chunks, results, next, failed, fineTuningPrompt, params);
+                });
+            return;
+        }
+    }
+
+    /**
+     * Joins the transcriptions of consecutive chunks, shifting verbose segment times by where each chunk starts.
+     */
+    private static Result<String, Object> join(List<UploadAudio> chunks, List<Result<String, Object>> results,
+                                               STTParamsModelDetails params) {
+        StringBuilder text = new StringBuilder();
+        OpenAiTranscriptionAttributes joined = new OpenAiTranscriptionAttributes();
+        List<TranscriptionSegment> segments = new ArrayList<>();
+        int retries = 0;
+        for (int i = 0; i < results.size(); i++) {
+            String chunkText = results.get(i).getOutput().trim();
+            if (!chunkText.isEmpty()) {
+                text.append(text.length() > 0 ? " " : "").append(chunkText);
+            }
+            OpenAiTranscriptionAttributes attributes = (OpenAiTranscriptionAttributes) results.get(i).getAttributes().orElse(null);
+            if (attributes == null) {
+                continue;
+            }
+            if (attributes.getRetries() != null) {
+                retries += attributes.getRetries();
+            }
+            double offset = chunks.get(i).getStartSeconds();
+            if (joined.getLanguage() == null || joined.getLanguage().isEmpty()) {
+                joined.setLanguage(attributes.getLanguage());
+            }
+            if (attributes.getDuration() != null && !attributes.getDuration().isNaN()) {
+                joined.setDuration(offset + attributes.getDuration());
+            }
+            if (attributes.getSegments() != null) {
+                for (TranscriptionSegment segment : attributes.getSegments()) {
+                    segments.add(new TranscriptionSegment(segments.size(),
+                                                          segment.getStart() != null ? segment.getStart() + offset : null,
+                                                          segment.getEnd() != null ? segment.getEnd() + offset : null,
+                                                          segment.getText()));
+                }
+            }
+        }
+        if (params.isVerbose()) {
+            joined.setSegments(segments);
+        }
+        joined.setRetries(retries);
+        // A single chunk keeps the text exactly as OpenAI returned it
+        String output = results.size() == 1 ? results.get(0).getOutput() : text.toString();
+        return Result.<String, Object>builder()
+                .output(output)
+                .attributes(joined)
                 .build();
-        return httpClient.sendAsync(request)
-                .thenApply(response -> {
+    }
+
+    /**
+     * Uploads one audio file, reading it as the request is written so it is never held on the heap in full, and
+     * retries the upload as {@link RetryPolicy} allows.
+     *
+     * @param repeatable whether {@code audio} can be opened again for a retry
+     */
+    private CompletableFuture<Result<String, Object>> send(AudioSource audio, boolean repeatable, long audioLength,
+                                                           String fileName, String mediaType, String fineTuningPrompt,
+                                                           STTParamsModelDetails params) {
+        URI transcriptionEndpoint = apiUri.resolve("audio/transcriptions");
+
+        String responseFormat = "text";
+        if (params.isVerbose()) {
+            responseFormat = "verbose_json";
+        }
+        String requestResponseFormat = responseFormat;
+
+        RequestFactory requestFactory = () -> {
+            MultipartFormData form = new MultipartFormData()
+                    .field("model", params.getModelName())
+                    .field("response_format", requestResponseFormat)
+                    .file("file", fileName, mediaType, audio.open(), audioLength);
+            if (null != fineTuningPrompt && !fineTuningPrompt.isEmpty()) {
+                form.field("prompt", fineTuningPrompt);
+            }
+            if (params.getTemperature().floatValue() > 0) {
+                form.field("temperature", params.getTemperature().toString());
+            }
+            if (null != params.getLanguage() && !params.getLanguage().isEmpty()) {
+                form.field("language", params.getLanguage());
+            }
+            long contentLength = form.getContentLength();
+            return HttpRequest.builder()
+                    .addHeader("Authorization", "Bearer " + apiKey)
+                    .addHeader("Content-Type", form.getContentType())
+                    .method(POST)
+                    .uri(transcriptionEndpoint)
+                    .entity(contentLength >= 0 ? new InputStreamHttpEntity(form.toInputStream(), contentLength)
+                                               : new InputStreamHttpEntity(form.toInputStream()))
+                    .build();
+        };
+        return retryPolicy.execute(new HttpExchange(requestFactory), repeatable)
+                .thenApply(retried -> {
+                    HttpResponse response = retried.getResponse();
                     if (200 != response.getStatusCode()) {
                         LOGGER.error(IOUtils.toString(response.getEntity().getContent()));
-                        throw new TranscriptionException("Unexpected status code " + response.getStatusCode() + " from OpenAI API");
+                        throw new TranscriptionException(unexpectedStatus(retried));
                     }
+                    OpenAiTranscriptionAttributes attributes = new OpenAiTranscriptionAttributes();
+                    attributes.setRetries(retried.getRetries());
                     if (params.isVerbose()) {
                         JSONObject responseObject = new JSONObject(IOUtils.toString(response.getEntity().getContent()));
-                        OpenAiTranscriptionAttributes attributes = new OpenAiTranscriptionAttributes();
                         attributes.setLanguage(responseObject.optString("language"));
                         attributes.setDuration(responseObject.optDouble("duration"));
-                        // not yet supporting words and segments arrays
+                        attributes.setSegments(segments(responseObject.optJSONArray("segments")));
+                        // not yet supporting the words array
                         return Result.<String, Object>builder()
                                 .output(responseObject.getString("text"))
                                 .attributes(attributes)
@@ -116,11 +388,83 @@ public class OpenAiConnection implements SpeechToTextConnection, TextToSpeechCon
                     } else {
                         return Result.<String, Object>builder()
                                 .output(IOUtils.toString(response.getEntity().getContent()))
+                                .attributes(attributes)
                                 .build();
                     }
                 });
     }
 
+    private static String unexpectedStatus(RetryPolicy.Retried<HttpResponse> retried) {
+        String message = "Unexpected status code " + retried.getResponse().getStatusCode() + " from OpenAI API";
+        return retried.getRetries() > 0 ? message + " after " + retried.getRetries() + " retries" : message;
+    }
+
+    private static List<TranscriptionSegment> segments(JSONArray segmentArray) {
+        List<TranscriptionSegment> segments = new ArrayList<>();
+        if (segmentArray == null) {
+            return segments;
+        }
+        for (int i = 0; i < segmentArray.length(); i++) {
+            JSONObject segment = segmentArray.getJSONObject(i);
+            segments.add(new TranscriptionSegment(segment.optInt("id", i), segment.optDouble("start"), segment.optDouble("end"),
+                                                  segment.optString("text")));
+        }
+        return segments;
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        // Wrapped like a failure of a dependent stage, which callers unwrap with getCause()
+        CompletableFuture<T> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new CompletionException(e));
+        return failed;
+    }
+
+    private static String cacheKey(MessageDigest audioDigest, String fineTuningPrompt, STTParamsModelDetails params) {
+        return TranscriptionCache.key(audioDigest.digest(), params.getModelName(), params.getLanguage(), params.getTemperature(),
+                                      fineTuningPrompt, false, params.isVerbose());
+    }
+
+    /**
+     * @return {@code audio}, hashed into a fresh digest as it is read, which replaces the one of any earlier attempt
+     */
+    private static InputStream digesting(InputStream audio, AtomicReference<MessageDigest> uploadDigest) {
+        MessageDigest audioDigest = TranscriptionCache.newAudioDigest();
+        uploadDigest.set(audioDigest);
+        return new DigestInputStream(audio, audioDigest);
+    }
+
+    /**
+     * @return the length of the rest of {@code audio}, hashed into {@code audioDigest} unless it is {@code null}
+     */
+    private static long digest(InputStream audio, MessageDigest audioDigest) throws IOException {
+        byte[] buffer = new byte[8192];
+        long length = 0;
+        for (int read; (read = audio.read(buffer)) != -1; length += read) {
+            if (audioDigest != null) {
+                audioDigest.update(buffer, 0, read);
+            }
+        }
+        return length;
+    }
+
+    public TranscriptionCache.Metrics getTranscriptionCacheMetrics() {
+        return transcriptionCache.getMetrics();
+    }
+
+    /**
+     * @return retries of the requests of every connection of this configuration
+     */
+    public RetryPolicy.Metrics getRetryMetrics() {
+        return retryPolicy.getMetrics();
+    }
+
+    /**
+     * @return the concurrency limit shared by every configuration using this API key
+     */
+    public ConcurrencyLimiter.Metrics getConcurrencyLimitMetrics() {
+        return concurrencyLimiter.getMetrics();
+    }
+
     @Override
     public CompletableFuture<InputStream> generate(String text, TTSParamsModelDetails params) {
         URI speechEndpoint = apiUri.resolve("audio/speech");
@@ -132,21 +476,97 @@ public class OpenAiConnection implements SpeechToTextConnection, TextToSpeechCon
         requestObject.put("response_format", params.getResponseFormat());
         requestObject.put("speed", params.getSpeed());
 
-        HttpRequest request = HttpRequest.builder()
+        byte[] requestBody = requestObject.toString().getBytes();
+        RequestFactory requestFactory = () -> HttpRequest.builder()
                 .addHeader("Authorization", "Bearer " + apiKey)
                 .method(POST)
                 .uri(speechEndpoint)
                 .addHeader("Content-Type", "application/json")
-                .entity(new ByteArrayHttpEntity(requestObject.toString().getBytes()))
+                .entity(new ByteArrayHttpEntity(requestBody))
                 .build();
 
-        return httpClient.sendAsync(request).thenApply(response -> {
+        return retryPolicy.execute(new HttpExchange(requestFactory), true).thenApply(retried -> {
+            HttpResponse response = retried.getResponse();
             if (200 != response.getStatusCode()) {
                 LOGGER.error(IOUtils.toString(response.getEntity().getContent()));
-                throw new GenerationException("Unexpected status code " + response.getStatusCode() + " from OpenAI API");
+                throw new GenerationException(unexpectedStatus(retried));
             }
             return response.getEntity().getContent();
         });
     }
 
+    /**
+     * Opens the audio of a request, once per attempt.
+     */
+    @FunctionalInterface
+    private interface AudioSource {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Builds a request with a fresh body, once per attempt.
+     */
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest create() throws IOException;
+    }
+
+    private final class HttpExchange implements RetryPolicy.Exchange<HttpResponse> {
+        private final RequestFactory requestFactory;
+
+        private HttpExchange(RequestFactory requestFactory) {
+            this.requestFactory = requestFactory;
+        }
+
+        /**
+         * Sends one attempt once the concurrency limit has room for it, holding the room until the response
+         * arrives; the body is only opened then.
+         */
+        @Override
+        public CompletableFuture<HttpResponse> send() {
+            return concurrencyLimiter.acquire().thenCompose(permit -> {
+                HttpRequest request;
+                try {
+                    request = requestFactory.create();
+                } catch (IOException e) {
+                    permit.release(-1, name -> null);
+                    return failed(new TranscriptionException("Unable to read audio content", e));
+                }
+                CompletableFuture<HttpResponse> response;
+                try {
+                    response = httpClient.sendAsync(request);
+                } catch (RuntimeException e) {
+                    permit.release(-1, name -> null);
+                    throw e;
+                }
+                return response.whenComplete((sent, e) -> {
+                    if (sent != null) {
+                        permit.release(sent.getStatusCode(), sent::getHeaderValue);
+                    } else {
+                        permit.release(-1, name -> null);
+                    }
+                });
+            });
+        }
+
+        @Override
+        public int statusCode(HttpResponse response) {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String header(HttpResponse response, String name) {
+            return response.getHeaderValue(name);
+        }
+
+        @Override
+        public void discard(HttpResponse response) {
+            try {
+                response.getEntity().getContent().close();
+            } catch (IOException e) {
+                LOGGER.debug("Failed to release a retried OpenAI response", e);
+            }
+        }
+    }
+
 }
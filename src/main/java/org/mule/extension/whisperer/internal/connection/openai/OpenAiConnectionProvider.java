@@ -1,5 +1,8 @@
 package org.mule.extension.whisperer.internal.connection.openai;
 
+import org.mule.extension.whisperer.internal.cache.TranscriptionCache;
+import org.mule.extension.whisperer.internal.cache.TranscriptionCacheParameters;
+import org.mule.extension.whisperer.internal.connection.whisperjni.AudioBufferingParameters;
 import org.mule.runtime.api.connection.CachedConnectionProvider;
 import org.mule.runtime.api.connection.ConnectionException;
 import org.mule.runtime.api.connection.ConnectionValidationResult;
@@ -7,16 +10,20 @@ import org.mule.runtime.api.exception.MuleException;
 import org.mule.runtime.api.lifecycle.Startable;
 import org.mule.runtime.api.lifecycle.Stoppable;
 import org.mule.runtime.api.tls.TlsContextFactory;
+import org.mule.runtime.core.api.lifecycle.StartException;
 import org.mule.runtime.extension.api.annotation.Alias;
 import org.mule.runtime.extension.api.annotation.param.Optional;
 import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.ParameterGroup;
 import org.mule.runtime.extension.api.annotation.param.RefName;
 import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
 import org.mule.runtime.http.api.HttpService;
 import org.mule.runtime.http.api.client.HttpClient;
 import org.mule.runtime.http.api.client.HttpClientConfiguration;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 
@@ -39,10 +46,41 @@ public class OpenAiConnectionProvider implements CachedConnectionProvider<OpenAi
     @Optional
     private TlsContextFactory tlsContext;
 
+    @ParameterGroup(name = "Transcription cache")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private TranscriptionCacheParameters transcriptionCacheParameters;
+
+    @ParameterGroup(name = "Upload transcoding")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private UploadTranscodingParameters uploadTranscoding;
+
+    @ParameterGroup(name = "Oversized audio")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private OversizedAudioParameters oversizedAudio;
+
+    @ParameterGroup(name = "Retries")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private RetryParameters retryParameters;
+
+    @ParameterGroup(name = "Concurrency limit")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private ConcurrencyLimitParameters concurrencyLimit;
+
+    @ParameterGroup(name = "Audio buffering")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private AudioBufferingParameters audioBuffering;
+
+    private TranscriptionCache transcriptionCache = TranscriptionCache.disabled();
+    private RetryPolicy retryPolicy;
+    private ConcurrencyLimiter.Shared sharedLimiter;
+    private ConcurrencyLimiter concurrencyLimiter;
+
     @Override
     public OpenAiConnection connect() throws ConnectionException {
         try {
-            return new OpenAiConnection(apiKey, httpClient, new URI(API_URL));
+            return new OpenAiConnection(apiKey, httpClient, new URI(API_URL), transcriptionCache, uploadTranscoding,
+                                        oversizedAudio, audioBuffering.getSpillThresholdBytes(), retryPolicy,
+                                        concurrencyLimiter);
         } catch (URISyntaxException e) {
             throw new ConnectionException(e);
         }
@@ -65,9 +103,29 @@ public class OpenAiConnectionProvider implements CachedConnectionProvider<OpenAi
 
     @Override
     public void start() throws MuleException {
+        try {
+            retryPolicy = RetryPolicy.create(retryParameters);
+            if (concurrencyLimit.isLimitConcurrency()) {
+                sharedLimiter = ConcurrencyLimiter.share(apiKey, () -> ConcurrencyLimiter.create(concurrencyLimit));
+                concurrencyLimiter = sharedLimiter.get();
+            } else {
+                concurrencyLimiter = ConcurrencyLimiter.unlimited();
+            }
+        } catch (IllegalArgumentException e) {
+            throw new StartException(e, this);
+        }
         HttpClientConfiguration config = createClientConfiguration();
         httpClient = httpService.getClientFactory().create(config);
         httpClient.start();
+        try {
+            transcriptionCache = TranscriptionCache.create(transcriptionCacheParameters);
+        } catch (IOException e) {
+            if (sharedLimiter != null) {
+                sharedLimiter.release();
+                sharedLimiter = null;
+            }
+            throw new StartException(e, this);
+        }
     }
 
     private HttpClientConfiguration createClientConfiguration() {
@@ -87,6 +145,11 @@ public class OpenAiConnectionProvider implements CachedConnectionProvider<OpenAi
         if (httpClient != null) {
             httpClient.stop();
         }
+        transcriptionCache.close();
+        if (sharedLimiter != null) {
+            sharedLimiter.release();
+            sharedLimiter = null;
+        }
     }
 
     public String getApiKey() {
@@ -0,0 +1,80 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.api.util.DataUnit;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+public class OversizedAudioParameters {
+
+  @Parameter
+  @DisplayName("Split oversized audio")
+  @Summary("Cut audio larger than the upload limit at silences into 16 kHz mono chunks, transcribe them in parallel and join the text in order. Without it such audio is rejected by OpenAI.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "true")
+  @Placement(order = 1)
+  private boolean splitOversizedAudio;
+
+  @Parameter
+  @DisplayName("Upload size limit")
+  @Summary("Largest audio file OpenAI accepts in one request.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "25")
+  @Placement(order = 2)
+  private int uploadSizeLimit;
+
+  @Parameter
+  @DisplayName("Upload size limit unit")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "MB")
+  @Placement(order = 3)
+  private DataUnit uploadSizeLimitUnit;
+
+  @Parameter
+  @DisplayName("Parallel chunk uploads")
+  @Summary("How many chunks of one recording are transcribed at the same time.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "4")
+  @Placement(order = 4)
+  private int chunkParallelism;
+
+  public long getUploadSizeLimitBytes() {
+    return uploadSizeLimitUnit.toBytes(uploadSizeLimit);
+  }
+
+  public boolean isSplitOversizedAudio() {
+    return splitOversizedAudio;
+  }
+
+  public void setSplitOversizedAudio(boolean splitOversizedAudio) {
+    this.splitOversizedAudio = splitOversizedAudio;
+  }
+
+  public int getUploadSizeLimit() {
+    return uploadSizeLimit;
+  }
+
+  public void setUploadSizeLimit(int uploadSizeLimit) {
+    this.uploadSizeLimit = uploadSizeLimit;
+  }
+
+  public DataUnit getUploadSizeLimitUnit() {
+    return uploadSizeLimitUnit;
+  }
+
+  public void setUploadSizeLimitUnit(DataUnit uploadSizeLimitUnit) {
+    this.uploadSizeLimitUnit = uploadSizeLimitUnit;
+  }
+
+  public int getChunkParallelism() {
+    return chunkParallelism;
+  }
+
+  public void setChunkParallelism(int chunkParallelism) {
+    this.chunkParallelism = chunkParallelism;
+  }
+}
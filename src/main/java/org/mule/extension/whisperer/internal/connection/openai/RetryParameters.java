@@ -0,0 +1,93 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+import java.util.concurrent.TimeUnit;
+
+public class RetryParameters {
+
+  @Parameter
+  @DisplayName("Max retries")
+  @Summary("How many times a request is retried after a rate limit, a transient server error or a network error. 0 disables retries.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "3")
+  @Placement(order = 1)
+  private int maxRetries;
+
+  @Parameter
+  @DisplayName("Initial backoff")
+  @Summary("Wait before the first retry, doubled on every further retry and randomized so concurrent requests spread out. A longer wait asked for by OpenAI through Retry-After or x-ratelimit-reset headers wins.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "500")
+  @Placement(order = 2)
+  private long initialBackoff;
+
+  @Parameter
+  @DisplayName("Max backoff")
+  @Summary("Longest computed wait between two attempts.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "20000")
+  @Placement(order = 3)
+  private long maxBackoff;
+
+  @Parameter
+  @DisplayName("Retry budget")
+  @Summary("Longest time one request may spend across all its attempts and waits. No retry is made that would wait past it.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "60000")
+  @Placement(order = 4)
+  private long retryBudget;
+
+  @Parameter
+  @DisplayName("Backoff and budget unit")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "MILLISECONDS")
+  @Placement(order = 5)
+  private TimeUnit retryTimeUnit;
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  public void setMaxRetries(int maxRetries) {
+    this.maxRetries = maxRetries;
+  }
+
+  public long getInitialBackoff() {
+    return initialBackoff;
+  }
+
+  public void setInitialBackoff(long initialBackoff) {
+    this.initialBackoff = initialBackoff;
+  }
+
+  public long getMaxBackoff() {
+    return maxBackoff;
+  }
+
+  public void setMaxBackoff(long maxBackoff) {
+    this.maxBackoff = maxBackoff;
+  }
+
+  public long getRetryBudget() {
+    return retryBudget;
+  }
+
+  public void setRetryBudget(long retryBudget) {
+    this.retryBudget = retryBudget;
+  }
+
+  public TimeUnit getRetryTimeUnit() {
+    return retryTimeUnit;
+  }
+
+  public void setRetryTimeUnit(TimeUnit retryTimeUnit) {
+    this.retryTimeUnit = retryTimeUnit;
+  }
+}
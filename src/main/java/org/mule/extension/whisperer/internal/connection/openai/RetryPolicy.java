@@ -0,0 +1,358 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Retries OpenAI requests that fail with a rate limit, a transient server error or a network error.
+ *
+ * <p>Each retry waits an exponential backoff with random jitter, so requests throttled together do not come back
+ * together, or longer if the response says when to come back through {@code retry-after-ms}, {@code Retry-After} or
+ * the {@code x-ratelimit-reset-*} headers. A request gives up once it has used its retries or the next wait would
+ * take it past its time budget, and the last response or error is handed to the caller as it is.
+ *
+ * <p>One policy is shared by the connections of a configuration so its metrics cover all of them. It is not tied
+ * to an HTTP client: an {@link Exchange} sends the attempts and reads their responses.
+ */
+public final class RetryPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryPolicy.class);
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    // Durations such as "1s", "6m0s", "20ms" or "1h2m3.5s"
+    private static final Pattern RESET_DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long budgetMillis;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder throttledResponses = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder networkErrors = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder backoffMillis = new LongAdder();
+
+    RetryPolicy(int maxRetries, long initialBackoff, long maxBackoff, long budget, TimeUnit unit) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries must not be negative, got " + maxRetries);
+        }
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = Math.max(1, unit.toMillis(initialBackoff));
+        this.maxBackoffMillis = Math.max(initialBackoffMillis, unit.toMillis(maxBackoff));
+        this.budgetMillis = unit.toMillis(budget);
+    }
+
+    static RetryPolicy create(RetryParameters parameters) {
+        return new RetryPolicy(parameters.getMaxRetries(), parameters.getInitialBackoff(), parameters.getMaxBackoff(),
+                               parameters.getRetryBudget(), parameters.getRetryTimeUnit());
+    }
+
+    /**
+     * Sends a request, retrying it as long as the policy allows.
+     *
+     * @param repeatable whether {@code exchange} can send the request body again; a body read from a stream that
+     *                   cannot be reopened is sent once
+     * @return the last response, with how many retries it took; fails with the last error if no response came back
+     */
+    <R> CompletableFuture<Retried<R>> execute(Exchange<R> exchange, boolean repeatable) {
+        requests.increment();
+        CompletableFuture<Retried<R>> result = new CompletableFuture<>();
+        attempt(exchange, repeatable ? maxRetries : 0, 0, System.nanoTime(), result);
+        return result;
+    }
+
+    private <R> void attempt(Exchange<R> exchange, int allowedRetries, int retry, long startNanos,
+                             CompletableFuture<Retried<R>> result) {
+        CompletableFuture<R> sent;
+        try {
+            sent = exchange.send();
+        } catch (RuntimeException e) {
+            sent = new CompletableFuture<>();
+            sent.completeExceptionally(e);
+        }
+        sent.whenComplete((response, e) -> {
+            Throwable error = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            String reason;
+            long hintMillis = -1;
+            if (error != null) {
+                if (!(error instanceof IOException || error instanceof TimeoutException)) {
+                    result.completeExceptionally(error);
+                    return;
+                }
+                networkErrors.increment();
+                reason = error.getClass().getSimpleName() + ": " + error.getMessage();
+            } else {
+                int statusCode = exchange.statusCode(response);
+                if (!isRetryable(statusCode)) {
+                    result.complete(new Retried<>(response, retry));
+                    return;
+                }
+                if (statusCode == TOO_MANY_REQUESTS) {
+                    throttledResponses.increment();
+                } else {
+                    serverErrors.increment();
+                }
+                reason = "status code " + statusCode;
+                hintMillis = serverDelayMillis(name -> exchange.header(response, name));
+            }
+
+            long delay = Math.max(backoffMillis(retry), hintMillis);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            if (retry >= allowedRetries || elapsed + delay > budgetMillis) {
+                if (allowedRetries > 0) {
+                    exhausted.increment();
+                    LOGGER.warn("Giving up on OpenAI request after {} retries in {} ms, last failed with {}", retry, elapsed,
+                                reason);
+                }
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(new Retried<>(response, retry));
+                }
+                return;
+            }
+
+            if (response != null) {
+                exchange.discard(response);
+            }
+            retries.increment();
+            backoffMillis.add(delay);
+            LOGGER.debug("OpenAI request failed with {}, retry {} of {} in {} ms", reason, retry + 1, allowedRetries, delay);
+            CompletableFuture.runAsync(() -> attempt(exchange, allowedRetries, retry + 1, startNanos, result),
+                                       CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+        });
+    }
+
+    static boolean isRetryable(int statusCode) {
+        return statusCode == 408 || statusCode == 409 || statusCode == TOO_MANY_REQUESTS
+            || (statusCode >= 500 && statusCode != 501 && statusCode != 505);
+    }
+
+    /**
+     * @return a random wait between half and all of the exponential backoff for the {@code retry}th retry, counting
+     *         from 0, so there is always some wait but concurrent requests spread out
+     */
+    long backoffMillis(int retry) {
+        long backoff = initialBackoffMillis;
+        for (int i = 0; i < retry && backoff < maxBackoffMillis; i++) {
+            backoff <<= 1;
+        }
+        backoff = Math.min(backoff, maxBackoffMillis);
+        return ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+    }
+
+    /**
+     * @return how long the response asks to wait before retrying, or {@code -1} if it does not say
+     */
+    static long serverDelayMillis(HeaderReader headers) {
+        String retryAfterMillis = headers.header("retry-after-ms");
+        if (retryAfterMillis != null) {
+            try {
+                return Math.max(0, (long) Double.parseDouble(retryAfterMillis.trim()));
+            } catch (NumberFormatException e) {
+                // fall through to the other headers
+            }
+        }
+        String retryAfter = headers.header("Retry-After");
+        if (retryAfter != null) {
+            long delay = parseRetryAfter(retryAfter.trim());
+            if (delay >= 0) {
+                return delay;
+            }
+        }
+        // Wait for the limit that ran out, or the sooner one if the response does not say which
+        long requestsReset = parseResetDuration(headers.header("x-ratelimit-reset-requests"));
+        long tokensReset = parseResetDuration(headers.header("x-ratelimit-reset-tokens"));
+        boolean requestsExhausted = "0".equals(trim(headers.header("x-ratelimit-remaining-requests")));
+        boolean tokensExhausted = "0".equals(trim(headers.header("x-ratelimit-remaining-tokens")));
+        if (requestsExhausted || tokensExhausted) {
+            return Math.max(requestsExhausted ? requestsReset : -1, tokensExhausted ? tokensReset : -1);
+        }
+        if (requestsReset >= 0 && tokensReset >= 0) {
+            return Math.min(requestsReset, tokensReset);
+        }
+        return Math.max(requestsReset, tokensReset);
+    }
+
+    private static long parseRetryAfter(String value) {
+        try {
+            return Math.max(0, (long) (Double.parseDouble(value) * 1000));
+        } catch (NumberFormatException e) {
+            // an HTTP date
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    static long parseResetDuration(String value) {
+        value = trim(value);
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        Matcher matcher = RESET_DURATION_PART.matcher(value);
+        double millis = 0;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            double amount = Double.parseDouble(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "h":
+                    millis += amount * 3_600_000;
+                    break;
+                case "m":
+                    millis += amount * 60_000;
+                    break;
+                case "s":
+                    millis += amount * 1000;
+                    break;
+                default:
+                    millis += amount;
+                    break;
+            }
+            end = matcher.end();
+        }
+        return end == value.length() ? (long) Math.ceil(millis) : -1;
+    }
+
+    private static String trim(String value) {
+        return value != null ? value.trim() : null;
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(requests.sum(), retries.sum(), throttledResponses.sum(), serverErrors.sum(),
+                           networkErrors.sum(), exhausted.sum(), backoffMillis.sum());
+    }
+
+    /**
+     * Sends the attempts of one request and reads their responses.
+     */
+    interface Exchange<R> {
+
+        /**
+         * @return the response to one attempt, with a fresh copy of the request body
+         */
+        CompletableFuture<R> send();
+
+        int statusCode(R response);
+
+        String header(R response, String name);
+
+        /**
+         * Releases a response that is retried instead of being handed to the caller.
+         */
+        void discard(R response);
+    }
+
+    @FunctionalInterface
+    interface HeaderReader {
+        String header(String name);
+    }
+
+    /**
+     * The last response to a request, and how many retries it took to get it.
+     */
+    static final class Retried<R> {
+        private final R response;
+        private final int retries;
+
+        Retried(R response, int retries) {
+            this.response = response;
+            this.retries = retries;
+        }
+
+        R getResponse() {
+            return response;
+        }
+
+        int getRetries() {
+            return retries;
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of retries since the configuration started.
+     */
+    public static final class Metrics {
+        private final long requests;
+        private final long retries;
+        private final long throttledResponses;
+        private final long serverErrors;
+        private final long networkErrors;
+        private final long exhausted;
+        private final long backoffMillis;
+
+        Metrics(long requests, long retries, long throttledResponses, long serverErrors, long networkErrors, long exhausted,
+                long backoffMillis) {
+            this.requests = requests;
+            this.retries = retries;
+            this.throttledResponses = throttledResponses;
+            this.serverErrors = serverErrors;
+            this.networkErrors = networkErrors;
+            this.exhausted = exhausted;
+            this.backoffMillis = backoffMillis;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getRetries() {
+            return retries;
+        }
+
+        /**
+         * @return responses with status code 429
+         */
+        public long getThrottledResponses() {
+            return throttledResponses;
+        }
+
+        /**
+         * @return responses with a retryable status code other than 429
+         */
+        public long getServerErrors() {
+            return serverErrors;
+        }
+
+        public long getNetworkErrors() {
+            return networkErrors;
+        }
+
+        /**
+         * @return requests that still failed when out of retries or budget
+         */
+        public long getExhausted() {
+            return exhausted;
+        }
+
+        public long getBackoffMillis() {
+            return backoffMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d, retries=%d, throttled=%d, serverErrors=%d, networkErrors=%d, exhausted=%d, backoff=%dms",
+                                 requests, retries, throttledResponses, serverErrors, networkErrors, exhausted, backoffMillis);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import org.mule.extension.whisperer.api.UploadAudioFormat;
+import org.mule.extension.whisperer.internal.helpers.audio.AudioConverter;
+import org.mule.extension.whisperer.internal.helpers.audio.BufferedAudio;
+import org.mule.extension.whisperer.internal.helpers.audio.ByteDecoEncoder;
+import org.mule.extension.whisperer.internal.helpers.audio.FloatSampleBuffer;
+import org.mule.extension.whisperer.internal.helpers.audio.MonoResampler;
+import org.mule.extension.whisperer.internal.helpers.audio.SilenceFinder;
+import org.mule.extension.whisperer.internal.helpers.audio.WavEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An audio file of an OpenAI transcription request: the caller's payload as it is, a compact 16kHz mono copy
+ * of it, or one chunk of it cut at a silence. Copies and chunks live in temporary files, deleted on
+ * {@link #close()}.
+ */
+final class UploadAudio implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UploadAudio.class);
+
+    private static final int SAMPLE_RATE = MonoResampler.TARGET_SAMPLE_RATE;
+    private static final double SILENCE_SEARCH_FRACTION = 0.2;
+    // Chunks are sized as if encoded as 16-bit WAV, the largest encoding, less this margin
+    private static final double CHUNK_SIZE_MARGIN = 0.95;
+    // Shorter chunks would cost more in per-request overhead and lost context than they save in parallelism
+    private static final int MIN_CHUNK_SAMPLES = 60 * SAMPLE_RATE;
+
+    private final BufferedAudio original;
+    private final Path file;
+    private final String format;
+    private final UploadAudioFormat target;
+    private final String extension;
+    private final String mediaType;
+    private final long size;
+    private final long originalSize;
+    private final double startSeconds;
+
+    private UploadAudio(BufferedAudio original, Path file, String format, UploadAudioFormat target, String extension,
+                        String mediaType, long size, long originalSize, double startSeconds) {
+        this.original = original;
+        this.file = file;
+        this.format = format;
+        this.target = target;
+        this.extension = extension;
+        this.mediaType = mediaType;
+        this.size = size;
+        this.originalSize = originalSize;
+        this.startSeconds = startSeconds;
+    }
+
+    /**
+     * Uploads {@code original} as it is, closing it with the returned audio.
+     *
+     * @param format audio format of {@code original}, or {@code null} if unknown
+     * @param target encoding of the chunks if the audio has to be {@link #split}
+     */
+    static UploadAudio original(BufferedAudio original, String format, String mediaType, UploadAudioFormat target) {
+        return new UploadAudio(original, null, format, target, format != null ? format : "unknown", mediaType,
+                               original.size(), original.size(), 0);
+    }
+
+    /**
+     * Decodes {@code original} to 16kHz mono and re-encodes it in {@code target}, falling back to WAV when ByteDeco
+     * FFmpeg cannot encode it. The original is kept for upload when it cannot be decoded or the copy would not be
+     * smaller. Either way {@code original} is closed with the returned audio.
+     *
+     * @param format audio format of {@code original}, or {@code null} if unknown
+     */
+    static UploadAudio transcode(BufferedAudio original, String format, String mediaType, UploadAudioFormat target) {
+        if (format == null) {
+            return original(original, null, mediaType, target);
+        }
+        long start = System.nanoTime();
+        Path file = null;
+        try {
+            FloatSampleBuffer samples = AudioConverter.decodeToSamples(original, format);
+            UploadAudioFormat encoding = availableEncoding(target);
+            file = Files.createTempFile("whisperer-upload-", "." + extension(encoding));
+            encoding = encode(samples.array(), 0, samples.size(), encoding, file);
+            long transcodedSize = Files.size(file);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            if (transcodedSize >= original.size()) {
+                LOGGER.debug("Uploading {} bytes of {} audio as is, 16kHz mono {} would take {} bytes", original.size(),
+                             format, encoding, transcodedSize);
+                delete(file);
+                return new UploadAudio(original, null, format, target, format, mediaType, original.size(), original.size(), 0);
+            }
+            LOGGER.debug("Transcoded {} bytes of {} audio to {} bytes of 16kHz mono {} in {} ms", original.size(), format,
+                         transcodedSize, encoding, millis);
+            return new UploadAudio(original, file, format, target, extension(encoding), mediaType(encoding), transcodedSize,
+                                   original.size(), 0);
+        } catch (IOException | RuntimeException e) {
+            // OpenAI decodes more than the connector does, so an undecodable payload is still worth uploading
+            LOGGER.warn("Unable to transcode {} audio before upload, uploading it as is: {}", format, e.getMessage());
+            delete(file);
+            return new UploadAudio(original, null, format, target, format, mediaType, original.size(), original.size(), 0);
+        }
+    }
+
+    /**
+     * Cuts the audio at silences into 16kHz mono chunks of at most {@code maxBytes} each, encoded like
+     * {@link #transcode}, and closes this audio. Chunks are made no shorter than a minute, and otherwise short
+     * enough for {@code parallelism} of them to cover the recording, so they finish together.
+     *
+     * @return this audio alone if it is no larger than {@code maxBytes}, otherwise the chunks in recording order
+     * @throws IOException if the audio cannot be decoded or a chunk cannot be written
+     */
+    List<UploadAudio> split(long maxBytes, int parallelism) throws IOException {
+        if (size <= maxBytes) {
+            return Collections.singletonList(this);
+        }
+        if (format == null) {
+            throw new IOException("Audio of an unknown format cannot be decoded to split it");
+        }
+        long start = System.nanoTime();
+        List<UploadAudio> chunks = new ArrayList<>();
+        try {
+            // A transcoded copy that is still too large is split from the original, which decodes best
+            FloatSampleBuffer samples = AudioConverter.decodeToSamples(original, format);
+            float[] audio = samples.array();
+            int total = samples.size();
+            int maxSamples = (int) Math.min(Integer.MAX_VALUE, (long) ((maxBytes * CHUNK_SIZE_MARGIN - 44) / 2));
+            int chunkSamples = Math.min(maxSamples, Math.max(MIN_CHUNK_SAMPLES, (total + parallelism - 1) / parallelism));
+            UploadAudioFormat encoding = availableEncoding(target);
+
+            int chunkStart = 0;
+            while (chunkStart < total) {
+                int chunkEnd = total;
+                if (total - chunkStart > chunkSamples) {
+                    int nominalEnd = chunkStart + chunkSamples;
+                    chunkEnd = SilenceFinder.quietestPoint(audio, nominalEnd - (int) (chunkSamples * SILENCE_SEARCH_FRACTION),
+                                                           nominalEnd);
+                }
+                Path chunkFile = Files.createTempFile("whisperer-upload-", "." + extension(encoding));
+                UploadAudioFormat chunkEncoding;
+                try {
+                    chunkEncoding = encode(audio, chunkStart, chunkEnd - chunkStart, encoding, chunkFile);
+                } catch (IOException | RuntimeException e) {
+                    delete(chunkFile);
+                    throw e;
+                }
+                chunks.add(new UploadAudio(null, chunkFile, format, target, extension(chunkEncoding),
+                                           mediaType(chunkEncoding), Files.size(chunkFile), 0,
+                                           (double) chunkStart / SAMPLE_RATE));
+                chunkStart = chunkEnd;
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            LOGGER.debug("Split {} bytes of {} audio into {} chunks of 16kHz mono {} in {} ms", originalSize, format,
+                         chunks.size(), encoding, millis);
+            close();
+            return chunks;
+        } catch (IOException | RuntimeException e) {
+            for (UploadAudio chunk : chunks) {
+                chunk.close();
+            }
+            throw e;
+        }
+    }
+
+    private static UploadAudioFormat availableEncoding(UploadAudioFormat target) {
+        if (target != UploadAudioFormat.WAV && !AudioConverter.isByteDecoAvailable()) {
+            return UploadAudioFormat.WAV;
+        }
+        if (target == UploadAudioFormat.OPUS && !ByteDecoEncoder.isOpusAvailable()) {
+            return UploadAudioFormat.FLAC;
+        }
+        return target;
+    }
+
+    /**
+     * @return the encoding written, WAV if {@code encoding} failed
+     */
+    private static UploadAudioFormat encode(float[] samples, int offset, int length, UploadAudioFormat encoding, Path file)
+        throws IOException {
+        try {
+            switch (encoding) {
+                case FLAC:
+                    ByteDecoEncoder.encodeFlac(samples, offset, length, file.toString());
+                    return encoding;
+                case OPUS:
+                    ByteDecoEncoder.encodeOpus(samples, offset, length, file.toString());
+                    return encoding;
+                default:
+                    break;
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Encoding upload audio as {} failed, using WAV instead: {}", encoding, e.getMessage());
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            WavEncoder.write(samples, offset, length, out);
+        }
+        return UploadAudioFormat.WAV;
+    }
+
+    private static String extension(UploadAudioFormat encoding) {
+        switch (encoding) {
+            case FLAC:
+                return "flac";
+            case OPUS:
+                return "ogg";
+            default:
+                return "wav";
+        }
+    }
+
+    private static String mediaType(UploadAudioFormat encoding) {
+        return "audio/" + extension(encoding);
+    }
+
+    /**
+     * @return a fresh stream over the audio to upload; the caller closes it
+     */
+    InputStream openStream() throws IOException {
+        return file != null ? Files.newInputStream(file) : original.openStream();
+    }
+
+    String getFileName() {
+        return "speech." + extension;
+    }
+
+    String getMediaType() {
+        return mediaType;
+    }
+
+    long size() {
+        return size;
+    }
+
+    boolean isTranscoded() {
+        return file != null;
+    }
+
+    /**
+     * @return size of the caller's payload, {@code 0} for a chunk
+     */
+    long getOriginalSize() {
+        return originalSize;
+    }
+
+    /**
+     * @return where this chunk starts in the recording, {@code 0} for a whole recording
+     */
+    double getStartSeconds() {
+        return startSeconds;
+    }
+
+    @Override
+    public void close() {
+        delete(file);
+        if (original != null) {
+            original.close();
+        }
+    }
+
+    private static void delete(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete upload audio {}", file, e);
+        }
+    }
+}
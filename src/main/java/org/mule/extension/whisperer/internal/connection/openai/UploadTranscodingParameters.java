@@ -0,0 +1,45 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import org.mule.extension.whisperer.api.UploadAudioFormat;
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+public class UploadTranscodingParameters {
+
+  @Parameter
+  @DisplayName("Transcode before upload")
+  @Summary("Downmix and resample audio to 16 kHz mono and re-encode it compactly before uploading, which is all Whisper uses. The original is uploaded when it is already smaller or cannot be decoded.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "false")
+  @Placement(order = 1)
+  private boolean transcodeBeforeUpload;
+
+  @Parameter
+  @DisplayName("Upload format")
+  @Summary("FLAC and Opus need ByteDeco FFmpeg in the application; without it audio is uploaded as 16-bit WAV.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "FLAC")
+  @Placement(order = 2)
+  private UploadAudioFormat uploadFormat;
+
+  public boolean isTranscodeBeforeUpload() {
+    return transcodeBeforeUpload;
+  }
+
+  public void setTranscodeBeforeUpload(boolean transcodeBeforeUpload) {
+    this.transcodeBeforeUpload = transcodeBeforeUpload;
+  }
+
+  public UploadAudioFormat getUploadFormat() {
+    return uploadFormat;
+  }
+
+  public void setUploadFormat(UploadAudioFormat uploadFormat) {
+    this.uploadFormat = uploadFormat;
+  }
+}
@@ -0,0 +1,55 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.extension.whisperer.internal.helpers.audio.BufferedAudio;
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.api.util.DataUnit;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+public class AudioBufferingParameters {
+
+  @Parameter
+  @DisplayName("Spill to disk threshold")
+  @Summary("Audio payloads larger than this are buffered in a temporary file instead of memory. Leave empty to always buffer in memory.")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional
+  @Placement(order = 1)
+  private Integer spillThreshold;
+
+  @Parameter
+  @DisplayName("Spill to disk threshold unit")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "MB")
+  @Placement(order = 2)
+  private DataUnit spillThresholdUnit;
+
+  /**
+   * @return the threshold in bytes, or {@link BufferedAudio#NEVER_SPILL} when spilling is disabled
+   */
+  public long getSpillThresholdBytes() {
+    if (spillThreshold == null) {
+      return BufferedAudio.NEVER_SPILL;
+    }
+    return spillThresholdUnit.toBytes(spillThreshold);
+  }
+
+  public Integer getSpillThreshold() {
+    return spillThreshold;
+  }
+
+  public void setSpillThreshold(Integer spillThreshold) {
+    this.spillThreshold = spillThreshold;
+  }
+
+  public DataUnit getSpillThresholdUnit() {
+    return spillThresholdUnit;
+  }
+
+  public void setSpillThresholdUnit(DataUnit spillThresholdUnit) {
+    this.spillThresholdUnit = spillThresholdUnit;
+  }
+}
@@ -0,0 +1,103 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.extension.whisperer.internal.error.TranscriptionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Creates and tears down the bounded executors that run local decoding and inference.
+ *
+ * <p>Work is queued up to a fixed capacity and rejected beyond it, so a burst of requests fails fast
+ * instead of piling unbounded audio buffers onto the heap.
+ */
+public final class InferenceExecutors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InferenceExecutors.class);
+
+    private InferenceExecutors() {
+    }
+
+    public static ThreadPoolExecutor create(String threadNamePrefix, int threads, int queueCapacity) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Inference executor needs at least 1 thread, got " + threads);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Inference queue capacity must be at least 1, got " + queueCapacity);
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                                                             60L, TimeUnit.SECONDS,
+                                                             new ArrayBlockingQueue<>(queueCapacity),
+                                                             new NamedThreadFactory(threadNamePrefix),
+                                                             new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        LOGGER.debug("Created inference executor '{}' with {} thread(s) and queue capacity {}", threadNamePrefix, threads, queueCapacity);
+        return executor;
+    }
+
+    /**
+     * Runs {@code task} on {@code executor}.
+     *
+     * @return the task's result, or a future failed with a {@link TranscriptionException} if the executor's queue is
+     * full or it has shut down
+     */
+    static <T> CompletableFuture<T> supplyAsync(Supplier<T> task, ExecutorService executor) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            // Wrapped like a failure of the task itself, which callers unwrap with getCause()
+            rejected.completeExceptionally(new CompletionException(
+                new TranscriptionException(executor.isShutdown()
+                                               ? "Local Whisper inference has shut down, rejecting transcription request"
+                                               : "Local Whisper inference queue is full, rejecting transcription request", e)));
+            return rejected;
+        }
+    }
+
+    /**
+     * Stops accepting new work and gives in-flight transcriptions a grace period to finish before interrupting them.
+     */
+    public static void shutdown(ThreadPoolExecutor executor, long gracePeriod, TimeUnit unit) {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(gracePeriod, unit)) {
+                LOGGER.warn("Inference executor did not terminate within {} {}, interrupting {} active task(s)",
+                            gracePeriod, unit, executor.getActiveCount());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.extension.whisperer.api.error.ConnectorError;
+import org.mule.runtime.extension.api.exception.ModuleException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Fixed set of resources lent to one request at a time, with the wait and usage figures reported as
+ * {@link WhisperStatePool.Metrics}.
+ *
+ * <p>Closing the pool refuses further borrows and waits for every lent resource to come back before closing them
+ * all, since a decoder state running native inference can neither be interrupted nor closed under it.
+ *
+ * @param <S> the pooled resource
+ */
+final class LeasePool<S> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeasePool.class);
+
+    private final int size;
+    private final long borrowTimeoutMillis;
+    private final Consumer<S> closer;
+    private final BlockingQueue<S> idle;
+    private final long createdAtNanos = System.nanoTime();
+
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder busyNanos = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * @param resources what the pool lends out, all idle to begin with
+     * @param closer closes one resource once the pool is closed and every resource is back
+     */
+    LeasePool(List<S> resources, long borrowTimeout, TimeUnit borrowTimeoutUnit, Consumer<S> closer) {
+        if (resources.isEmpty()) {
+            throw new IllegalArgumentException("Decoder state pool size must be at least 1, got 0");
+        }
+        this.size = resources.size();
+        this.borrowTimeoutMillis = borrowTimeoutUnit.toMillis(borrowTimeout);
+        this.closer = closer;
+        this.idle = new ArrayBlockingQueue<>(size, false, resources);
+    }
+
+    /**
+     * Takes an idle resource, waiting up to the borrow timeout for one to be released.
+     *
+     * @return a lease on the resource, which must be handed back through {@link #release(Lease)}
+     * @throws ModuleException with {@link ConnectorError#TIMEOUT} if none became available in time
+     */
+    Lease<S> borrow() {
+        if (closed) {
+            throw new ModuleException("Whisper decoder state pool is closed", ConnectorError.TRANSCRIPTION);
+        }
+        long waitStart = System.nanoTime();
+        S resource;
+        try {
+            resource = idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModuleException("Interrupted while waiting for a Whisper decoder state", ConnectorError.TRANSCRIPTION, e);
+        }
+        long waited = System.nanoTime() - waitStart;
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        if (resource == null) {
+            timeoutCount.increment();
+            throw new ModuleException(String.format("No Whisper decoder state became available within %d ms (pool size %d, all in use)",
+                                                    borrowTimeoutMillis, size),
+                                      ConnectorError.TIMEOUT);
+        }
+        borrowCount.increment();
+        inUse.incrementAndGet();
+        return new Lease<>(resource, System.nanoTime(), waited);
+    }
+
+    void release(Lease<S> lease) {
+        busyNanos.add(System.nanoTime() - lease.borrowedAtNanos);
+        inUse.decrementAndGet();
+        synchronized (this) {
+            idle.offer(lease.resource);
+            if (closed) {
+                notifyAll();
+            }
+        }
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    WhisperStatePool.Metrics getMetrics() {
+        long borrows = borrowCount.sum();
+        long elapsed = Math.max(1, System.nanoTime() - createdAtNanos);
+        return new WhisperStatePool.Metrics(size,
+                                            inUse.get(),
+                                            borrows,
+                                            timeoutCount.sum(),
+                                            borrows == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum() / borrows),
+                                            TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()),
+                                            (double) busyNanos.sum() / ((double) elapsed * size));
+    }
+
+    /**
+     * Refuses further borrows, waits for every lent resource to be released and closes them all.
+     */
+    void close() {
+        List<S> returned = new ArrayList<>(size);
+        boolean interrupted = false;
+        synchronized (this) {
+            closed = true;
+            idle.drainTo(returned);
+            if (returned.size() < size) {
+                LOGGER.info("Waiting for {} Whisper decoder state(s) still in use before closing them.", size - returned.size());
+            }
+            while (returned.size() < size) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    // Closing a state still in use would crash the native code, so keep waiting
+                    interrupted = true;
+                }
+                idle.drainTo(returned);
+            }
+        }
+        returned.forEach(closer);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A borrowed resource along with the bookkeeping needed to account for it on release.
+     */
+    static final class Lease<S> {
+        private final S resource;
+        private final long borrowedAtNanos;
+        private final long waitNanos;
+
+        private Lease(S resource, long borrowedAtNanos, long waitNanos) {
+            this.resource = resource;
+            this.borrowedAtNanos = borrowedAtNanos;
+            this.waitNanos = waitNanos;
+        }
+
+        S get() {
+            return resource;
+        }
+
+        long getWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs live transcription streams on threads of their own, so an open stream never holds an inference thread
+ * and only takes one for each step it transcribes.
+ *
+ * <p>Every stream gets a thread that steps through its audio and one that reads it. Streams beyond the
+ * configured maximum are rejected rather than queued, since a queued stream would only fall further behind the
+ * audio it is sent. A stream counts against the maximum until both of its threads are done.
+ *
+ * <p>An open stream only ends when its audio does, so shutting down ends the audio of every open stream; each
+ * finishes transcribing what it has received, and shutdown returns as soon as all of them are done.
+ */
+final class LiveStreamExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LiveStreamExecutor.class);
+
+    private final ThreadPoolExecutor threads;
+    private final Semaphore streams;
+    private final int maxStreams;
+    private final Set<OpenStream> openStreams = ConcurrentHashMap.newKeySet();
+
+    LiveStreamExecutor(String threadNamePrefix, int maxStreams) {
+        if (maxStreams < 1) {
+            throw new IllegalArgumentException("Live streams must be at least 1, got " + maxStreams);
+        }
+        // The semaphore is the budget; the pool only reuses threads between streams
+        this.threads = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                                              new InferenceExecutors.NamedThreadFactory(threadNamePrefix));
+        this.streams = new Semaphore(maxStreams);
+        this.maxStreams = maxStreams;
+        LOGGER.debug("Created live stream executor '{}' for {} stream(s)", threadNamePrefix, maxStreams);
+    }
+
+    /**
+     * Starts {@code stream} on a thread of its own, handing it an executor for its reader.
+     *
+     * @param end ends the stream's audio early, run if the executor shuts down while the stream is open
+     * @throws RejectedExecutionException if the maximum number of streams are open or the executor is shut down
+     */
+    void start(Stream stream, Runnable end) {
+        if (!streams.tryAcquire()) {
+            throw new RejectedExecutionException("All " + maxStreams + " live transcription streams are in use");
+        }
+        OpenStream open = new OpenStream(end);
+        openStreams.add(open);
+        Executor readers = reader -> {
+            open.running.incrementAndGet();
+            try {
+                threads.execute(() -> {
+                    try {
+                        reader.run();
+                    } finally {
+                        finish(open);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                finish(open);
+                throw e;
+            }
+        };
+        try {
+            threads.execute(() -> {
+                try {
+                    stream.run(readers);
+                } finally {
+                    finish(open);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            finish(open);
+            throw e;
+        }
+    }
+
+    private void finish(OpenStream open) {
+        if (open.running.decrementAndGet() == 0) {
+            openStreams.remove(open);
+            streams.release();
+        }
+    }
+
+    int getOpenStreams() {
+        return maxStreams - streams.availablePermits();
+    }
+
+    /**
+     * Stops accepting streams and ends the audio of open ones, giving them a grace period to finish transcribing it
+     * before interrupting them.
+     */
+    void shutdown(long gracePeriod, TimeUnit unit) {
+        // Streams starting from here on are rejected, so none is missed
+        threads.shutdown();
+        for (OpenStream open : openStreams) {
+            try {
+                open.end.run();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Failed to end a live transcription stream", e);
+            }
+        }
+        InferenceExecutors.shutdown(threads, gracePeriod, unit);
+    }
+
+    /**
+     * The work of one live stream.
+     */
+    @FunctionalInterface
+    interface Stream {
+
+        /**
+         * @param readers runs the thread reading the stream's audio
+         */
+        void run(Executor readers);
+    }
+
+    /**
+     * A started stream, counting its threads that are still running.
+     */
+    private static final class OpenStream {
+
+        private final AtomicInteger running = new AtomicInteger(1);
+        private final Runnable end;
+
+        OpenStream(Runnable end) {
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.extension.whisperer.api.TranscriptionHypothesis;
+import org.mule.extension.whisperer.internal.connection.TranscriptionSegmentStream;
+import org.mule.extension.whisperer.internal.error.TranscriptionException;
+import org.mule.extension.whisperer.internal.helpers.audio.FloatRingBuffer;
+import org.mule.extension.whisperer.internal.helpers.audio.FloatSampleBuffer;
+import org.mule.extension.whisperer.internal.helpers.audio.MonoResampler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Transcribes an unbounded stream of raw PCM as it arrives, emitting partial and final hypotheses.
+ *
+ * <p>A reader resamples the incoming 16-bit little-endian mono PCM to 16kHz and appends it to an
+ * off-heap {@link FloatRingBuffer}. The transcribing thread wakes up every step, transcribes the audio from the
+ * last final hypothesis up to the newest sample (never more than one window) and splits the result: segments
+ * that ended more than the latency target ago become final and move the window start past them, the rest is
+ * emitted as a single partial hypothesis that the next step replaces. The tail of the final text is passed as
+ * the prompt of the next step, so context carries across windows.
+ *
+ * <p>Each step always works on the newest audio, so a slow step delays the next one but never builds up a
+ * backlog; lag is measured from the arrival of the newest sample to the emission of its hypotheses.
+ */
+public final class LiveTranscriber {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LiveTranscriber.class);
+
+    private static final int SAMPLE_RATE = MonoResampler.TARGET_SAMPLE_RATE;
+    // whisper.cpp skips anything shorter than a second
+    private static final int MIN_INFERENCE_SAMPLES = SAMPLE_RATE + SAMPLE_RATE / 10;
+    private static final int READ_CHUNK_BYTES = 3200;
+    private static final int CONTEXT_CHARACTERS = 200;
+    private static final long IDLE_RECHECK_MILLIS = 1000;
+
+    /**
+     * Runs inference on one step's audio.
+     */
+    interface StepInference {
+
+        /**
+         * @param offsetCentis position of the samples in the stream, to be added to every timestamp
+         * @param prompt       text preceding the samples, or {@code null}
+         */
+        List<WhisperSegment> transcribe(float[] samples, int count, long offsetCentis, String prompt);
+    }
+
+    private final int sourceSampleRate;
+    private final int stepSamples;
+    private final int windowSamples;
+    private final int latencySamples;
+    private final long latencyTargetMillis;
+    private final Stats stats;
+    // The ring of the running stream, closed to end its audio early
+    private final AtomicReference<FloatRingBuffer> ring = new AtomicReference<>();
+    private volatile boolean ended;
+
+    LiveTranscriber(int sourceSampleRate, int stepMillis, int windowSeconds, int latencyTargetMillis, Stats stats) {
+        if (sourceSampleRate <= 0 || stepMillis <= 0 || latencyTargetMillis < 0) {
+            throw new IllegalArgumentException("Sample rate and step must be positive and the latency target not negative");
+        }
+        if ((long) windowSeconds * 1000 < latencyTargetMillis + 2L * stepMillis || windowSeconds * SAMPLE_RATE < MIN_INFERENCE_SAMPLES) {
+            throw new IllegalArgumentException("Window (" + windowSeconds + " s) must cover the latency target (" + latencyTargetMillis
+                + " ms) plus two steps (" + stepMillis + " ms each)");
+        }
+        this.sourceSampleRate = sourceSampleRate;
+        this.stepSamples = (int) ((long) stepMillis * SAMPLE_RATE / 1000);
+        this.windowSamples = windowSeconds * SAMPLE_RATE;
+        this.latencySamples = (int) ((long) latencyTargetMillis * SAMPLE_RATE / 1000);
+        this.latencyTargetMillis = latencyTargetMillis;
+        this.stats = stats;
+    }
+
+    /**
+     * Transcribes {@code pcm} until it ends or the consumer closes {@code hypotheses}, on the calling thread.
+     *
+     * @param readers runs the reader, which blocks on {@code pcm} for as long as the stream lasts
+     */
+    void run(InputStream pcm, String prompt, StepInference inference, TranscriptionSegmentStream<TranscriptionHypothesis> hypotheses,
+             Executor readers) {
+        // Room for a full window plus as much again of audio arriving while a step runs
+        FloatRingBuffer ring = new FloatRingBuffer(2 * windowSamples);
+        this.ring.set(ring);
+        if (ended) {
+            ring.close();
+        }
+        AtomicReference<IOException> readFailure = new AtomicReference<>();
+        try {
+            readers.execute(() -> read(pcm, ring, readFailure));
+        } catch (RejectedExecutionException e) {
+            ring.close();
+            closeQuietly(pcm);
+            throw new TranscriptionException("Unable to start reading the live audio stream", e);
+        }
+
+        stats.active.incrementAndGet();
+        try {
+            transcribe(ring, prompt, inference, hypotheses);
+        } finally {
+            stats.active.decrementAndGet();
+            // Unblocks the reader if the consumer stopped before the stream ended
+            closeQuietly(pcm);
+            ring.close();
+        }
+        if (readFailure.get() != null) {
+            throw new TranscriptionException("Unable to read the live audio stream", readFailure.get());
+        }
+    }
+
+    /**
+     * Ends the stream as if its audio had ended: what has arrived is still transcribed and finalized, and no more
+     * is read.
+     */
+    void end() {
+        ended = true;
+        FloatRingBuffer running = ring.get();
+        if (running != null) {
+            running.close();
+        }
+    }
+
+    private void read(InputStream pcm, FloatRingBuffer ring, AtomicReference<IOException> readFailure) {
+        MonoResampler resampler = new MonoResampler(sourceSampleRate, 1);
+        FloatSampleBuffer chunk = new FloatSampleBuffer(READ_CHUNK_BYTES);
+        byte[] bytes = new byte[READ_CHUNK_BYTES];
+        short[] samples = new short[READ_CHUNK_BYTES / 2];
+        int pending = 0;
+        try {
+            int read;
+            while ((read = pcm.read(bytes, pending, bytes.length - pending)) != -1) {
+                pending += read;
+                int whole = pending & ~1;
+                for (int i = 0, j = 0; i < whole; i += 2, j++) {
+                    samples[j] = (short) ((bytes[i + 1] << 8) | (bytes[i] & 0xff));
+                }
+                resampler.process(samples, 0, whole / 2, chunk);
+                ring.write(chunk.array(), 0, chunk.size());
+                chunk.truncate(0);
+                if (whole < pending) {
+                    bytes[0] = bytes[whole];
+                }
+                pending -= whole;
+            }
+            resampler.flush(chunk);
+            ring.write(chunk.array(), 0, chunk.size());
+        } catch (IOException e) {
+            if (!ring.isClosed()) {
+                readFailure.set(e);
+            }
+        } catch (IllegalStateException e) {
+            // The transcribing side closed the ring, nobody needs the rest of the audio
+        } finally {
+            ring.close();
+        }
+    }
+
+    private void transcribe(FloatRingBuffer ring, String prompt, StepInference inference,
+                            TranscriptionSegmentStream<TranscriptionHypothesis> hypotheses) {
+        float[] window = new float[windowSamples];
+        long committed = 0;
+        long processed = 0;
+        int nextId = 0;
+        StringBuilder finalText = new StringBuilder();
+
+        while (true) {
+            try {
+                ring.awaitWritten(processed + stepSamples, IDLE_RECHECK_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TranscriptionException("Interrupted while waiting for live audio", e);
+            }
+            boolean ended = ring.isClosed();
+            long end = ring.written();
+            long endArrivalNanos = ring.lastWriteNanos();
+            if (ended && end <= committed) {
+                break;
+            }
+            if (!ended && end - processed < stepSamples) {
+                // The source is slower than real time or has gone quiet; keep the last hypothesis until a step's
+                // worth of audio arrives
+                continue;
+            }
+            if (!ended && end - committed < MIN_INFERENCE_SAMPLES) {
+                processed = end;
+                continue;
+            }
+
+            // A live stream skips audio that fell out of the window to keep latency bounded; once the stream has
+            // ended, the remaining audio is worked through window by window instead
+            if (ended && committed < end - ring.capacity()) {
+                // Audio arrived faster than it could be transcribed and the ring has already overwritten it
+                stats.droppedSamples.addAndGet(end - ring.capacity() - committed);
+                committed = end - ring.capacity();
+            }
+            long stepEnd = ended ? Math.min(end, committed + windowSamples) : end;
+            boolean last = ended && stepEnd == end;
+            long start = Math.max(committed, stepEnd - windowSamples);
+            if (start > committed) {
+                stats.droppedSamples.addAndGet(start - committed);
+            }
+            int count = (int) (stepEnd - start);
+            ring.read(start, window, 0, count);
+            if (count < MIN_INFERENCE_SAMPLES) {
+                // Only at the very end of the stream: pad with silence so the last words are not skipped
+                Arrays.fill(window, count, MIN_INFERENCE_SAMPLES, 0f);
+                count = MIN_INFERENCE_SAMPLES;
+            }
+            processed = end;
+
+            String stepPrompt = context(prompt, finalText);
+            List<WhisperSegment> segments = inference.transcribe(window, count, start / WhisperSegment.SAMPLES_PER_CENTISECOND, stepPrompt);
+            long lagMillis = (System.nanoTime() - endArrivalNanos) / 1_000_000;
+
+            // Final: everything once the stream has ended, otherwise the segments that ended before the latency target
+            int finals = 0;
+            long finalizeBeforeCentis = ended ? Long.MAX_VALUE : (stepEnd - latencySamples) / WhisperSegment.SAMPLES_PER_CENTISECOND;
+            while (finals < segments.size() && segments.get(finals).getEndCentis() <= finalizeBeforeCentis) {
+                finals++;
+            }
+            if (finals == 0 && segments.size() > 1 && stepEnd - start >= windowSamples - stepSamples) {
+                // The window is about to overflow, settle all but the newest segment
+                finals = segments.size() - 1;
+            }
+
+            List<TranscriptionHypothesis> batch = new ArrayList<>(finals + 1);
+            for (int i = 0; i < finals; i++) {
+                WhisperSegment segment = segments.get(i);
+                batch.add(new TranscriptionHypothesis(nextId++, segment.getStartCentis() / 100d, segment.getEndCentis() / 100d,
+                                                      segment.getText(), false, lagMillis));
+                finalText.append(segment.getText());
+            }
+            if (finals < segments.size()) {
+                StringBuilder partialText = new StringBuilder();
+                for (int i = finals; i < segments.size(); i++) {
+                    partialText.append(segments.get(i).getText());
+                }
+                batch.add(new TranscriptionHypothesis(nextId, segments.get(finals).getStartCentis() / 100d,
+                                                      segments.get(segments.size() - 1).getEndCentis() / 100d,
+                                                      partialText.toString(), true, lagMillis));
+            }
+
+            long previouslyCommitted = committed;
+            if (finals > 0) {
+                committed = Math.max(committed, Math.min(stepEnd, segments.get(finals - 1).getEndCentis() * WhisperSegment.SAMPLES_PER_CENTISECOND));
+            } else if (segments.isEmpty()) {
+                // Nothing was said, no need to look at this audio again
+                committed = Math.max(committed, stepEnd - latencySamples);
+            }
+            if (ended && committed <= previouslyCommitted) {
+                // Always make progress through the remaining audio
+                committed = stepEnd;
+            }
+            stats.record(lagMillis, lagMillis > latencyTargetMillis);
+            hypotheses.publish(batch);
+
+            if (last) {
+                break;
+            }
+        }
+        LOGGER.debug("Live transcription finished after {} final hypotheses.", nextId);
+    }
+
+    private static String context(String prompt, StringBuilder finalText) {
+        if (finalText.length() == 0) {
+            return prompt;
+        }
+        String tail = finalText.substring(Math.max(0, finalText.length() - CONTEXT_CHARACTERS));
+        return prompt == null ? tail : prompt + " " + tail;
+    }
+
+    private static void closeQuietly(InputStream pcm) {
+        try {
+            pcm.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close the live audio stream.", e);
+        }
+    }
+
+    /**
+     * Running totals across every live transcription of a connection.
+     */
+    static final class Stats {
+        private final AtomicLong active = new AtomicLong();
+        private final AtomicLong steps = new AtomicLong();
+        private final AtomicLong lateSteps = new AtomicLong();
+        private final AtomicLong totalLagMillis = new AtomicLong();
+        private final AtomicLong maxLagMillis = new AtomicLong();
+        private final AtomicLong droppedSamples = new AtomicLong();
+
+        void record(long lagMillis, boolean late) {
+            steps.incrementAndGet();
+            if (late) {
+                lateSteps.incrementAndGet();
+            }
+            totalLagMillis.addAndGet(lagMillis);
+            maxLagMillis.accumulateAndGet(lagMillis, Math::max);
+        }
+
+        Metrics snapshot() {
+            long stepCount = steps.get();
+            return new Metrics(active.get(), stepCount, lateSteps.get(), stepCount == 0 ? 0 : totalLagMillis.get() / stepCount,
+                               maxLagMillis.get(), droppedSamples.get() * 1000 / SAMPLE_RATE);
+        }
+    }
+
+    /**
+     * Snapshot of live transcription activity and lag.
+     */
+    public static final class Metrics {
+        private final long activeStreams;
+        private final long steps;
+        private final long lateSteps;
+        private final long averageLagMillis;
+        private final long maxLagMillis;
+        private final long droppedAudioMillis;
+
+        Metrics(long activeStreams, long steps, long lateSteps, long averageLagMillis, long maxLagMillis, long droppedAudioMillis) {
+            this.activeStreams = activeStreams;
+            this.steps = steps;
+            this.lateSteps = lateSteps;
+            this.averageLagMillis = averageLagMillis;
+            this.maxLagMillis = maxLagMillis;
+            this.droppedAudioMillis = droppedAudioMillis;
+        }
+
+        public long getActiveStreams() {
+            return activeStreams;
+        }
+
+        public long getSteps() {
+            return steps;
+        }
+
+        /**
+         * @return steps whose lag exceeded the latency target
+         */
+        public long getLateSteps() {
+            return lateSteps;
+        }
+
+        public long getAverageLagMillis() {
+            return averageLagMillis;
+        }
+
+        public long getMaxLagMillis() {
+            return maxLagMillis;
+        }
+
+        /**
+         * @return audio skipped because it fell out of the window before it could be finalized
+         */
+        public long getDroppedAudioMillis() {
+            return droppedAudioMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "LiveTranscription{active=" + activeStreams + ", steps=" + steps + ", lateSteps=" + lateSteps
+                + ", averageLagMillis=" + averageLagMillis + ", maxLagMillis=" + maxLagMillis
+                + ", droppedAudioMillis=" + droppedAudioMillis + "}";
+        }
+    }
+}
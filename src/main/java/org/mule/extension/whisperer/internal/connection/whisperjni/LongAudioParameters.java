@@ -0,0 +1,76 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+public class LongAudioParameters {
+
+  @Parameter
+  @DisplayName("Split long audio")
+  @Summary("Transcribe long recordings as overlapping windows in parallel, one per free decoder state, and merge the segments in order")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "false")
+  @Placement(order = 1)
+  private boolean splitLongAudio;
+
+  @Parameter
+  @DisplayName("Split threshold (seconds)")
+  @Summary("Only audio longer than this is split")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "120")
+  @Placement(order = 2)
+  private int splitThresholdSeconds;
+
+  @Parameter
+  @DisplayName("Window length (seconds)")
+  @Summary("Nominal window length. Each window is cut at the quietest point of its last fifth.")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "60")
+  @Placement(order = 3)
+  private int windowSeconds;
+
+  @Parameter
+  @DisplayName("Window overlap (seconds)")
+  @Summary("Audio shared by consecutive windows so words at a cut are heard whole by one of them")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "2")
+  @Placement(order = 4)
+  private int overlapSeconds;
+
+  public boolean isSplitLongAudio() {
+    return splitLongAudio;
+  }
+
+  public void setSplitLongAudio(boolean splitLongAudio) {
+    this.splitLongAudio = splitLongAudio;
+  }
+
+  public int getSplitThresholdSeconds() {
+    return splitThresholdSeconds;
+  }
+
+  public void setSplitThresholdSeconds(int splitThresholdSeconds) {
+    this.splitThresholdSeconds = splitThresholdSeconds;
+  }
+
+  public int getWindowSeconds() {
+    return windowSeconds;
+  }
+
+  public void setWindowSeconds(int windowSeconds) {
+    this.windowSeconds = windowSeconds;
+  }
+
+  public int getOverlapSeconds() {
+    return overlapSeconds;
+  }
+
+  public void setOverlapSeconds(int overlapSeconds) {
+    this.overlapSeconds = overlapSeconds;
+  }
+}
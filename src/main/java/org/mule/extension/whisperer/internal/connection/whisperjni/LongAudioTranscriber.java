@@ -0,0 +1,229 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.extension.whisperer.internal.helpers.audio.SilenceFinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Transcribes long recordings as overlapping windows in parallel and merges the segments back in order.
+ *
+ * <p>Each window ends at the quietest 10 ms of its last fifth, so cuts rarely land mid-word, and the next window
+ * starts {@code overlap} before the cut. Windows are handed out from a shared counter: the calling thread always
+ * works through them itself, and up to {@code parallelism - 1} helpers on the inference executor join in when
+ * threads are free. Helpers that have not started by the time the caller runs out of windows are cancelled, so
+ * a busy executor never blocks a request on its own helpers.
+ *
+ * <p>Segments are shifted by their window's start. Inside an overlap, each segment is kept by the window whose
+ * half of the overlap contains the segment's midpoint, which drops the duplicate from the other window.
+ */
+final class LongAudioTranscriber {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LongAudioTranscriber.class);
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final double SILENCE_SEARCH_FRACTION = 0.2;
+
+    private static final int HELPER_QUEUED = 0;
+    private static final int HELPER_RUNNING = 1;
+    private static final int HELPER_CANCELLED = 2;
+
+    /**
+     * Runs inference on one window.
+     */
+    interface WindowInference {
+
+        /**
+         * @param samples      window samples; only the first {@code count} are valid
+         * @param offsetCentis position of the window in the recording, to be added to every timestamp
+         */
+        List<WhisperSegment> transcribe(float[] samples, int count, long offsetCentis);
+    }
+
+    private final int thresholdSamples;
+    private final int windowSamples;
+    private final int overlapSamples;
+    private final int parallelism;
+    private final Executor helperExecutor;
+
+    LongAudioTranscriber(int thresholdSeconds, int windowSeconds, int overlapSeconds, int parallelism, Executor helperExecutor) {
+        if (windowSeconds < 1 || overlapSeconds < 0 || overlapSeconds * 2 >= windowSeconds) {
+            throw new IllegalArgumentException("Window overlap (" + overlapSeconds + " s) must be less than half the window length ("
+                + windowSeconds + " s)");
+        }
+        this.thresholdSamples = Math.max(thresholdSeconds, windowSeconds) * SAMPLE_RATE;
+        this.windowSamples = windowSeconds * SAMPLE_RATE;
+        this.overlapSamples = overlapSeconds * SAMPLE_RATE;
+        this.parallelism = Math.max(1, parallelism);
+        this.helperExecutor = helperExecutor;
+    }
+
+    /**
+     * @return the transcriber for the given settings, or {@code null} when long audio is not split
+     */
+    static LongAudioTranscriber create(LongAudioParameters parameters, int parallelism, Executor helperExecutor) {
+        if (!parameters.isSplitLongAudio()) {
+            return null;
+        }
+        return new LongAudioTranscriber(parameters.getSplitThresholdSeconds(), parameters.getWindowSeconds(),
+                                        parameters.getOverlapSeconds(), parallelism, helperExecutor);
+    }
+
+    boolean shouldSplit(int size) {
+        return size > thresholdSamples;
+    }
+
+    List<WhisperSegment> transcribe(float[] samples, int size, WindowInference inference) {
+        List<WhisperSegment> merged = new ArrayList<>();
+        transcribe(samples, size, inference, merged::addAll);
+        return merged;
+    }
+
+    /**
+     * Transcribes the windows and hands each window's share of the merged segments to {@code listener} as soon
+     * as it and every earlier window are done, so the caller sees segments in recording order while later
+     * windows are still running. If the listener throws, remaining windows are abandoned and the exception is
+     * rethrown.
+     */
+    void transcribe(float[] samples, int size, WindowInference inference, Consumer<List<WhisperSegment>> listener) {
+        List<Window> windows = plan(samples, size);
+        int helpers = Math.min(windows.size(), parallelism) - 1;
+        LOGGER.debug("Transcribing {} s of audio as {} windows with up to {} parallel workers",
+                     size / SAMPLE_RATE, windows.size(), helpers + 1);
+
+        AtomicInteger nextWindow = new AtomicInteger();
+        AtomicReferenceArray<List<WhisperSegment>> results = new AtomicReferenceArray<>(windows.size());
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        int[] nextToDeliver = {0};
+        Runnable worker = () -> {
+            float[] buffer = new float[windowSamples];
+            int index;
+            while (failure.get() == null && (index = nextWindow.getAndIncrement()) < windows.size()) {
+                Window window = windows.get(index);
+                try {
+                    System.arraycopy(samples, window.start, buffer, 0, window.length());
+                    long offsetCentis = window.start / WhisperSegment.SAMPLES_PER_CENTISECOND;
+                    results.set(index, inference.transcribe(buffer, window.length(), offsetCentis));
+                    synchronized (nextToDeliver) {
+                        // Whoever completes the oldest outstanding window delivers it and any finished ones after it
+                        while (nextToDeliver[0] < windows.size() && results.get(nextToDeliver[0]) != null && failure.get() == null) {
+                            int ready = nextToDeliver[0]++;
+                            listener.accept(keep(windows, ready, results.get(ready)));
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+
+        List<AtomicInteger> helperStates = new ArrayList<>(helpers);
+        List<CompletableFuture<Void>> helperDone = new ArrayList<>(helpers);
+        for (int i = 0; i < helpers; i++) {
+            AtomicInteger state = new AtomicInteger(HELPER_QUEUED);
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            try {
+                helperExecutor.execute(() -> {
+                    if (state.compareAndSet(HELPER_QUEUED, HELPER_RUNNING)) {
+                        try {
+                            worker.run();
+                        } finally {
+                            done.complete(null);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The executor is saturated; the windows are simply shared among fewer workers
+                break;
+            }
+            helperStates.add(state);
+            helperDone.add(done);
+        }
+
+        worker.run();
+
+        for (int i = 0; i < helperStates.size(); i++) {
+            if (!helperStates.get(i).compareAndSet(HELPER_QUEUED, HELPER_CANCELLED)) {
+                helperDone.get(i).join();
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Splits {@code size} samples into windows of at most the configured length, each ending at the quietest
+     * frame of its last fifth and overlapping the next by the configured overlap.
+     */
+    List<Window> plan(float[] samples, int size) {
+        List<Window> windows = new ArrayList<>();
+        int start = 0;
+        while (size - start > windowSamples) {
+            int nominalEnd = start + windowSamples;
+            int searchStart = nominalEnd - (int) (windowSamples * SILENCE_SEARCH_FRACTION);
+            int cut = SilenceFinder.quietestPoint(samples, searchStart, nominalEnd);
+            windows.add(new Window(start, cut));
+            start = cut - overlapSamples;
+        }
+        windows.add(new Window(start, size));
+        return windows;
+    }
+
+    /**
+     * Keeps each segment only in the window that owns its midpoint and returns them in recording order.
+     */
+    static List<WhisperSegment> merge(List<Window> windows, List<List<WhisperSegment>> perWindow) {
+        List<WhisperSegment> merged = new ArrayList<>();
+        for (int i = 0; i < windows.size(); i++) {
+            merged.addAll(keep(windows, i, perWindow.get(i)));
+        }
+        return merged;
+    }
+
+    private static List<WhisperSegment> keep(List<Window> windows, int index, List<WhisperSegment> segments) {
+        long from = index == 0 ? Long.MIN_VALUE : boundaryCentis(windows.get(index - 1), windows.get(index));
+        long to = index == windows.size() - 1 ? Long.MAX_VALUE : boundaryCentis(windows.get(index), windows.get(index + 1));
+        List<WhisperSegment> kept = new ArrayList<>(segments.size());
+        for (WhisperSegment segment : segments) {
+            long midpoint = segment.getMidpointCentis();
+            if (midpoint >= from && midpoint < to) {
+                kept.add(segment);
+            }
+        }
+        return kept;
+    }
+
+    private static long boundaryCentis(Window earlier, Window later) {
+        // Middle of the audio both windows heard
+        return ((long) later.start + earlier.end) / 2 / WhisperSegment.SAMPLES_PER_CENTISECOND;
+    }
+
+    static final class Window {
+        final int start;
+        final int end;
+
+        Window(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        int length() {
+            return end - start;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + ")";
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.extension.whisperer.internal.helpers.Sha256;
+import org.mule.extension.whisperer.internal.helpers.models.ArtifactCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Locates model files configured as file system paths or {@code classpath://} resources.
+ *
+ * <p>Classpath resources that are plain files, as in an exploded application, are used where they are.
+ * Resources packed in a jar are extracted once into an {@link ArtifactCache} entry keyed by their content, so
+ * restarts and redeploys of an unchanged model reuse the verified copy instead of writing it again.
+ */
+final class ModelFiles {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModelFiles.class);
+
+    static final String CLASSPATH_PREFIX = "classpath://";
+
+    // Used when no shared cache is configured; models only accumulate here when they change
+    private static final Path DEFAULT_EXTRACTION_DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "whisperer-models");
+    private static final long DEFAULT_EXTRACTION_QUOTA_BYTES = 10L * 1024 * 1024 * 1024;
+
+    private ModelFiles() {
+    }
+
+    /**
+     * Resolves the model file path, handling both classpath resources and file system paths.
+     *
+     * @param modelPath The model file path (can be classpath:// or absolute file path)
+     * @param cache     cache to extract packed classpath resources into, or {@code null} for a private one under
+     *                  the temporary directory
+     * @return the model file, to be closed once the model is no longer loaded
+     * @throws IOException if the file cannot be resolved or extracted
+     */
+    static ResolvedModel resolve(String modelPath, ArtifactCache cache) throws IOException {
+        if (!modelPath.startsWith(CLASSPATH_PREFIX)) {
+            // Regular file system path
+            Path filePath = Paths.get(modelPath);
+            if (!Files.exists(filePath)) {
+                throw new IOException("Model file not found: " + modelPath);
+            }
+            return new ResolvedModel(filePath, null);
+        }
+
+        String resourcePath = modelPath.substring(CLASSPATH_PREFIX.length());
+        URL resource = Thread.currentThread().getContextClassLoader().getResource(resourcePath);
+        if (resource == null) {
+            throw new IOException("Model file not found in classpath: " + resourcePath);
+        }
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                Path filePath = Paths.get(resource.toURI());
+                LOGGER.info("Using classpath model {} in place from {}", resourcePath, filePath);
+                return new ResolvedModel(filePath, null);
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                LOGGER.debug("Classpath model {} is not a plain file, extracting it: {}", resourcePath, e.getMessage());
+            }
+        }
+
+        long start = System.nanoTime();
+        String fileName = Paths.get(resourcePath).getFileName().toString();
+        ZipEntry jarEntry = jarEntry(resource);
+        String key;
+        Verifier verifier;
+        if (jarEntry != null) {
+            // The jar records size and CRC-32 of every entry, which identifies the content without reading it
+            key = ArtifactCache.key("classpath-model", fileName, String.valueOf(jarEntry.getSize()), Long.toHexString(jarEntry.getCrc()));
+            verifier = new Crc32Verifier(jarEntry.getSize(), jarEntry.getCrc());
+        } else {
+            String sha256;
+            try (InputStream in = resource.openStream()) {
+                sha256 = Sha256.of(in);
+            }
+            key = ArtifactCache.key("classpath-model", fileName, sha256);
+            verifier = new Sha256Verifier(sha256);
+        }
+
+        ArtifactCache extractionCache = cache != null ? cache : ArtifactCache.open(DEFAULT_EXTRACTION_DIRECTORY, DEFAULT_EXTRACTION_QUOTA_BYTES);
+        boolean[] extracted = new boolean[1];
+        ArtifactCache.Lease lease = extractionCache.obtain(key, directory -> {
+            extract(resource, directory.resolve(fileName), verifier);
+            extracted[0] = true;
+        });
+        Path extractedModel = lease.getDirectory().resolve(fileName);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        if (extracted[0]) {
+            LOGGER.info("Extracted classpath model {} ({} bytes) to {} in {} ms", resourcePath, Files.size(extractedModel),
+                        extractedModel, elapsedMillis);
+        } else {
+            LOGGER.info("Reusing extracted classpath model {} from {}, resolved in {} ms", resourcePath, extractedModel, elapsedMillis);
+        }
+        return new ResolvedModel(extractedModel, lease);
+    }
+
+    /**
+     * Copies a resource to {@code target}, checking it against {@code verifier} while writing.
+     */
+    private static void extract(URL resource, Path target, Verifier verifier) throws IOException {
+        try (InputStream in = resource.openStream();
+             OutputStream out = Files.newOutputStream(target)) {
+            byte[] buffer = new byte[1024 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                verifier.update(buffer, read);
+            }
+        }
+        verifier.verify(resource);
+    }
+
+    /**
+     * @return the zip entry a {@code jar:file:} URL points to, read from the central directory, or {@code null}
+     */
+    private static ZipEntry jarEntry(URL resource) {
+        if (!"jar".equals(resource.getProtocol())) {
+            return null;
+        }
+        String spec = resource.getPath();
+        int separator = spec.indexOf("!/");
+        if (separator < 0 || !spec.startsWith("file:")) {
+            return null;
+        }
+        try (ZipFile jar = new ZipFile(Paths.get(new URL(spec.substring(0, separator)).toURI()).toFile())) {
+            ZipEntry entry = jar.getEntry(spec.substring(separator + 2));
+            return entry != null && entry.getSize() >= 0 && entry.getCrc() >= 0 ? entry : null;
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            LOGGER.debug("Could not read jar entry of {}: {}", resource, e.getMessage());
+            return null;
+        }
+    }
+
+    private interface Verifier {
+
+        void update(byte[] buffer, int length);
+
+        void verify(URL resource) throws IOException;
+    }
+
+    private static final class Crc32Verifier implements Verifier {
+
+        private final long expectedSize;
+        private final long expectedCrc;
+        private final CRC32 crc = new CRC32();
+        private long size;
+
+        Crc32Verifier(long expectedSize, long expectedCrc) {
+            this.expectedSize = expectedSize;
+            this.expectedCrc = expectedCrc;
+        }
+
+        @Override
+        public void update(byte[] buffer, int length) {
+            crc.update(buffer, 0, length);
+            size += length;
+        }
+
+        @Override
+        public void verify(URL resource) throws IOException {
+            if (size != expectedSize || crc.getValue() != expectedCrc) {
+                throw new IOException("Extracted copy of " + resource + " does not match its jar entry");
+            }
+        }
+    }
+
+    private static final class Sha256Verifier implements Verifier {
+
+        private final String expected;
+        private final MessageDigest digest = Sha256.newDigest();
+
+        Sha256Verifier(String expected) {
+            this.expected = expected;
+        }
+
+        @Override
+        public void update(byte[] buffer, int length) {
+            digest.update(buffer, 0, length);
+        }
+
+        @Override
+        public void verify(URL resource) throws IOException {
+            if (!expected.equals(Sha256.hex(digest.digest()))) {
+                throw new IOException("Extracted copy of " + resource + " does not match its SHA-256");
+            }
+        }
+    }
+
+    /**
+     * A model file on disk, holding its cache entry while in use.
+     */
+    static final class ResolvedModel implements AutoCloseable {
+
+        private final Path path;
+        private final ArtifactCache.Lease lease;
+
+        private ResolvedModel(Path path, ArtifactCache.Lease lease) {
+            this.path = path;
+            this.lease = lease;
+        }
+
+        Path getPath() {
+            return path;
+        }
+
+        /**
+         * Releases the cache entry, logging rather than failing if it cannot.
+         */
+        @Override
+        public void close() {
+            if (lease != null) {
+                try {
+                    lease.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to release extracted model {}", path, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.extension.whisperer.api.ModelSwapResult;
+import org.mule.extension.whisperer.api.error.ConnectorError;
+import org.mule.runtime.api.connection.ConnectionException;
+import org.mule.runtime.api.connection.ConnectionValidationResult;
+import org.mule.runtime.extension.api.exception.ModuleException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out the loaded models of a connection provider, which may still be loading on a background thread or
+ * be replaced while the application runs.
+ *
+ * <p>Requests that arrive while the models load either wait for them, up to a timeout, or fail straight away
+ * with {@link ConnectorError#MODEL_NOT_READY}. A failed load fails every request with
+ * {@link ConnectorError#MODEL_SETUP_FAILURE}. The time spent in each stage of loading is logged once it
+ * completes.
+ *
+ * <p>Each set of loaded models is a generation that requests hold a {@link Lease} on for as long as they run.
+ * {@link #swap} loads a new generation in the background and, once it is ready, makes it the one new requests
+ * get. The previous generation keeps serving the requests that already hold it and is released when the last
+ * of them finishes, so no request is dropped or sees its model closed under it.
+ */
+final class ModelLoader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModelLoader.class);
+
+    private final String configName;
+    private final Task task;
+    private final long waitMillis;
+    private final CompletableFuture<Void> loading = new CompletableFuture<>();
+    private final AtomicReference<Generation> current = new AtomicReference<>();
+    private final AtomicReference<Thread> swapping = new AtomicReference<>();
+    private volatile Thread thread;
+    private volatile boolean closed;
+
+    private ModelLoader(String configName, Task task, long waitMillis) {
+        this.configName = configName;
+        this.task = task;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Loads the models on the calling thread.
+     *
+     * @throws Exception whatever loading threw
+     */
+    static ModelLoader load(String configName, Task task) throws Exception {
+        ModelLoader loader = new ModelLoader(configName, task, 0);
+        loader.current.set(loader.loadGeneration(null, new Stages()));
+        loader.loading.complete(null);
+        return loader;
+    }
+
+    /**
+     * Starts loading the models on a new thread and returns straight away.
+     *
+     * @param waitMillis how long requests wait for the models, {@code 0} to fail them while loading
+     */
+    static ModelLoader loadInBackground(String configName, long waitMillis, Task task) {
+        ModelLoader loader = new ModelLoader(configName, task, waitMillis);
+        loader.thread = loader.startThread("whisperer-model-loader-" + configName, () -> {
+            Stages stages = new Stages();
+            try {
+                loader.current.set(loader.loadGeneration(null, stages));
+                loader.loading.complete(null);
+            } catch (Throwable e) {
+                LOGGER.error("Loading the Whisper model for {} failed after {}.", configName, stages, e);
+                loader.loading.completeExceptionally(e);
+            }
+        });
+        LOGGER.info("Loading the Whisper model for {} in the background.", configName);
+        return loader;
+    }
+
+    /**
+     * Loads {@code swap} on a new thread and makes it serve new requests once it is ready.
+     *
+     * @return the swap, completing exceptionally with a {@link ModuleException} if it could not be loaded
+     */
+    CompletableFuture<ModelSwapResult> swap(ModelSwap swap) {
+        CompletableFuture<ModelSwapResult> result = new CompletableFuture<>();
+        if (!loading.isDone() || loading.isCompletedExceptionally()) {
+            result.completeExceptionally(new ModuleException("The Whisper model cannot be swapped before it has loaded",
+                                                             ConnectorError.MODEL_NOT_READY));
+            return result;
+        }
+        synchronized (swapping) {
+            if (closed || swapping.get() != null) {
+                result.completeExceptionally(new ModuleException(closed ? "The Whisper connection is stopping"
+                                                                        : "Another Whisper model swap is still in progress",
+                                                                 ConnectorError.MODEL_SETUP_FAILURE));
+                return result;
+            }
+            swapping.set(startThread("whisperer-model-swap-" + configName, () -> {
+                Stages stages = new Stages();
+                try {
+                    Generation next = loadGeneration(swap, stages);
+                    Generation previous = current.getAndSet(next);
+                    int draining = previous.retire();
+                    LOGGER.info("Whisper model {} for {} swapped to {} after {}, {} request(s) still draining from the previous model.",
+                                swap.getModel(), configName, swap.getLocation(), stages, draining);
+                    result.complete(new ModelSwapResult(swap.getModel(), swap.getLocation(), stages.elapsedMillis(), draining));
+                } catch (Throwable e) {
+                    LOGGER.error("Swapping Whisper model {} for {} to {} failed after {}.", swap.getModel(), configName,
+                                 swap.getLocation(), stages, e);
+                    result.completeExceptionally(new ModuleException("Unable to load Whisper model from " + swap.getLocation()
+                                                                         + ": " + e.getMessage(),
+                                                                     ConnectorError.MODEL_SETUP_FAILURE, e));
+                } finally {
+                    synchronized (swapping) {
+                        swapping.set(null);
+                    }
+                }
+            }));
+        }
+        return result;
+    }
+
+    private Generation loadGeneration(ModelSwap swap, Stages stages) throws Exception {
+        Resources resources = new Resources();
+        try {
+            ModelRouter router = task.load(swap, stages, resources);
+            if (swap == null) {
+                LOGGER.info("Whisper model for {} loaded in {}.", configName, stages);
+            }
+            return new Generation(router, resources);
+        } catch (Throwable e) {
+            resources.close();
+            throw e;
+        }
+    }
+
+    private Thread startThread(String name, Runnable runnable) {
+        Thread started = new Thread(runnable, name);
+        // Created on a thread of the application, so it inherits the application's class loader
+        started.setDaemon(true);
+        started.start();
+        return started;
+    }
+
+    /**
+     * @return a lease on the current models, completing exceptionally with a {@link ModuleException} if they
+     * are not loaded within the wait timeout or failed to load
+     */
+    CompletableFuture<Lease> whenLoaded() {
+        CompletableFuture<Lease> loaded = new CompletableFuture<>();
+        loading.whenComplete((ignored, e) -> {
+            if (e != null) {
+                loaded.completeExceptionally(new ModuleException("The Whisper model failed to load: " + e.getMessage(),
+                                                                 ConnectorError.MODEL_SETUP_FAILURE, e));
+            } else if (!loaded.isDone()) {
+                Lease lease;
+                try {
+                    lease = acquire();
+                } catch (ModuleException stopped) {
+                    // Thrown out of this callback it would be lost, leaving the request to time out
+                    loaded.completeExceptionally(stopped);
+                    return;
+                }
+                if (!loaded.complete(lease)) {
+                    // Timed out meanwhile
+                    lease.close();
+                }
+            }
+        });
+        if (!loaded.isDone()) {
+            ModuleException notReady = new ModuleException(waitMillis > 0
+                                                               ? String.format("The Whisper model did not finish loading within %d ms", waitMillis)
+                                                               : "The Whisper model is still loading",
+                                                           ConnectorError.MODEL_NOT_READY);
+            if (waitMillis > 0) {
+                CompletableFuture.delayedExecutor(waitMillis, TimeUnit.MILLISECONDS).execute(() -> loaded.completeExceptionally(notReady));
+            } else {
+                loaded.completeExceptionally(notReady);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Blocking variant of {@link #whenLoaded()}.
+     */
+    Lease await() {
+        try {
+            return whenLoaded().join();
+        } catch (CompletionException e) {
+            throw (ModuleException) e.getCause();
+        }
+    }
+
+    /**
+     * @return a lease on the current models if they are loaded, otherwise {@code null}
+     */
+    Lease leaseIfLoaded() {
+        return loading.isDone() && !loading.isCompletedExceptionally() ? acquire() : null;
+    }
+
+    private Lease acquire() {
+        while (true) {
+            Generation generation = current.get();
+            if (generation == null) {
+                throw new ModuleException("The Whisper connection is stopped", ConnectorError.MODEL_NOT_READY);
+            }
+            // A generation retired between reading and acquiring it has been replaced, so read again
+            if (generation.tryAcquire()) {
+                return new Lease(generation);
+            }
+        }
+    }
+
+    /**
+     * @return the current models for inspection, without holding them; waits like {@link #await()}
+     */
+    ModelRouter router() {
+        try (Lease lease = await()) {
+            return lease.getRouter();
+        }
+    }
+
+    /**
+     * @return success once loaded, a failure while loading or if loading failed
+     */
+    ConnectionValidationResult validate() {
+        if (!loading.isDone()) {
+            return ConnectionValidationResult.failure("Whisper model is still loading",
+                                                      new ConnectionException("Whisper model is still loading"));
+        }
+        if (loading.isCompletedExceptionally()) {
+            Throwable cause = loading.handle((ignored, e) -> e instanceof CompletionException ? e.getCause() : e).join();
+            return ConnectionValidationResult.failure("Whisper model failed to load: " + cause.getMessage(),
+                                                      new ConnectionException("Whisper model failed to load", cause));
+        }
+        return ConnectionValidationResult.success();
+    }
+
+    /**
+     * Waits for background loads and swaps to finish, then releases the current models once the requests holding
+     * them are done. A model download is interrupted; native loading cannot be and is waited for.
+     */
+    void close() {
+        Thread swap;
+        synchronized (swapping) {
+            closed = true;
+            swap = swapping.get();
+        }
+        join(thread);
+        join(swap);
+        Generation generation = current.getAndSet(null);
+        if (generation != null) {
+            generation.retire();
+        }
+    }
+
+    private static void join(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loads the models of a provider, timing each stage and registering everything that must be released with
+     * them.
+     */
+    @FunctionalInterface
+    interface Task {
+
+        /**
+         * @param swap the model to replace, or {@code null} to load the configured models
+         */
+        ModelRouter load(ModelSwap swap, Stages stages, Resources resources) throws Exception;
+    }
+
+    /**
+     * One set of loaded models and the requests using it.
+     */
+    private static final class Generation {
+
+        private final ModelRouter router;
+        private final Resources resources;
+        private int inFlight;
+        private boolean retired;
+
+        Generation(ModelRouter router, Resources resources) {
+            this.router = router;
+            this.resources = resources;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (retired) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        }
+
+        void release() {
+            boolean drained;
+            synchronized (this) {
+                drained = --inFlight == 0 && retired;
+            }
+            if (drained) {
+                resources.close();
+            }
+        }
+
+        /**
+         * @return the requests still holding this generation; it is released when the last finishes
+         */
+        int retire() {
+            int holding;
+            synchronized (this) {
+                retired = true;
+                holding = inFlight;
+            }
+            if (holding == 0) {
+                resources.close();
+            }
+            return holding;
+        }
+    }
+
+    /**
+     * Keeps one generation of models open for a request.
+     */
+    static final class Lease implements AutoCloseable {
+
+        private final Generation generation;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Generation generation) {
+            this.generation = generation;
+        }
+
+        ModelRouter getRouter() {
+            return generation.router;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                generation.release();
+            }
+        }
+    }
+
+    /**
+     * What a generation holds open, released in reverse order of registration.
+     */
+    static final class Resources {
+
+        private final Deque<AutoCloseable> closers = new ArrayDeque<>();
+
+        /**
+         * @return {@code resource}, closed by {@code closer} when the generation is released
+         */
+        synchronized <T> T add(T resource, AutoCloseable closer) {
+            closers.push(closer);
+            return resource;
+        }
+
+        synchronized void close() {
+            while (!closers.isEmpty()) {
+                try {
+                    closers.pop().close();
+                } catch (Exception e) {
+                    LOGGER.warn("Failed to release a Whisper model resource", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Times the stages of loading.
+     */
+    static final class Stages {
+
+        private final long start = System.nanoTime();
+        private final List<String> timings = new ArrayList<>();
+
+        <T> T time(String stage, Stage<T> work) throws Exception {
+            long stageStart = System.nanoTime();
+            try {
+                return work.run();
+            } finally {
+                synchronized (timings) {
+                    timings.add(stage + " " + (System.nanoTime() - stageStart) / 1_000_000 + " ms");
+                }
+            }
+        }
+
+        long elapsedMillis() {
+            return (System.nanoTime() - start) / 1_000_000;
+        }
+
+        @Override
+        public String toString() {
+            synchronized (timings) {
+                return elapsedMillis() + " ms (" + String.join(", ", timings) + ")";
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Stage<T> {
+
+        T run() throws Exception;
+    }
+}
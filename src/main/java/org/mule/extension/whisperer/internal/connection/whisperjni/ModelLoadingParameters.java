@@ -0,0 +1,65 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+import java.util.concurrent.TimeUnit;
+
+public class ModelLoadingParameters {
+
+  @Parameter
+  @DisplayName("Load model in background")
+  @Summary("Let the application start while the native libraries and model are loaded on a separate thread. Requests arriving before the model is ready wait for it, and connection validation reports it as not ready.")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "false")
+  @Placement(order = 1)
+  private boolean loadInBackground;
+
+  @Parameter
+  @DisplayName("Model load wait timeout")
+  @Summary("How long a request waits for a model still loading in the background before failing with WHISPERER:MODEL_NOT_READY. 0 fails such requests immediately.")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "60")
+  @Placement(order = 2)
+  private long loadWaitTimeout;
+
+  @Parameter
+  @DisplayName("Model load wait timeout unit")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "SECONDS")
+  @Placement(order = 3)
+  private TimeUnit loadWaitTimeoutUnit;
+
+  public boolean isLoadInBackground() {
+    return loadInBackground;
+  }
+
+  public void setLoadInBackground(boolean loadInBackground) {
+    this.loadInBackground = loadInBackground;
+  }
+
+  public long getLoadWaitTimeout() {
+    return loadWaitTimeout;
+  }
+
+  public void setLoadWaitTimeout(long loadWaitTimeout) {
+    this.loadWaitTimeout = loadWaitTimeout;
+  }
+
+  public TimeUnit getLoadWaitTimeoutUnit() {
+    return loadWaitTimeoutUnit;
+  }
+
+  public void setLoadWaitTimeoutUnit(TimeUnit loadWaitTimeoutUnit) {
+    this.loadWaitTimeoutUnit = loadWaitTimeoutUnit;
+  }
+
+  public long getLoadWaitTimeoutMillis() {
+    return loadWaitTimeoutUnit.toMillis(loadWaitTimeout);
+  }
+}
@@ -0,0 +1,276 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import io.github.givimad.whisperjni.WhisperContext;
+import org.mule.extension.whisperer.internal.helpers.Sha256;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Reference-counted registry of loaded models, so every configuration pointing at the same model file shares one
+ * copy of its weights in native memory.
+ *
+ * <p>Models are keyed by their canonical path plus a SHA-256 of the file, so a file replaced in place is loaded
+ * afresh instead of being served from a stale copy. Hashing a large model takes a moment, so checksums are
+ * remembered for as long as the file's size and modification time stay the same. The first acquirer loads the
+ * model, later ones wait for it and share it, and the model is closed when the last one releases it.
+ *
+ * @param <M> the loaded model type
+ */
+public final class ModelRegistry<M> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModelRegistry.class);
+
+    private static final ModelRegistry<WhisperContext> WHISPER_CONTEXTS = new ModelRegistry<>(WhisperContext::close);
+
+    private final Consumer<M> closer;
+    private final Map<String, Entry<M>> entries = new LinkedHashMap<>();
+    private final Map<String, String> checksums = new HashMap<>();
+
+    ModelRegistry(Consumer<M> closer) {
+        this.closer = closer;
+    }
+
+    /**
+     * @return the registry shared by every Whisper JNI connection provider loaded by this connector
+     */
+    public static ModelRegistry<WhisperContext> whisperContexts() {
+        return WHISPER_CONTEXTS;
+    }
+
+    /**
+     * Loads a model, or shares the copy that is already loaded from the same file.
+     *
+     * @return the shared model, which must be handed back through {@link SharedModel#release()}
+     * @throws IOException if the file cannot be read or the model fails to load
+     */
+    SharedModel<M> acquire(Path modelFile, Loader<M> loader) throws IOException {
+        Path canonical = modelFile.toRealPath();
+        long size = Files.size(canonical);
+        String checksum = checksum(canonical, size);
+        String key = canonical + "#" + checksum;
+
+        Entry<M> entry;
+        synchronized (this) {
+            entry = entries.computeIfAbsent(key, k -> new Entry<>(key, canonical, checksum, size));
+            entry.references++;
+        }
+        try {
+            entry.load(loader);
+        } catch (IOException | RuntimeException e) {
+            release(entry);
+            throw e;
+        }
+        return new SharedModel<>(this, entry);
+    }
+
+    private void release(Entry<M> entry) {
+        synchronized (this) {
+            if (--entry.references > 0) {
+                LOGGER.debug("Released a reference to model {}, {} remaining.", entry.path, entry.references);
+                return;
+            }
+            entries.remove(entry.key);
+        }
+        M model = entry.unload();
+        if (model != null) {
+            closer.accept(model);
+            LOGGER.info("Closed model {} after its last user released it.", entry.path);
+        }
+    }
+
+    private String checksum(Path canonical, long size) throws IOException {
+        String fingerprint = canonical + "|" + size + "|" + Files.getLastModifiedTime(canonical).toMillis();
+        synchronized (checksums) {
+            String known = checksums.get(fingerprint);
+            if (known != null) {
+                return known;
+            }
+        }
+        long start = System.nanoTime();
+        String hex = Sha256.of(canonical);
+        LOGGER.debug("Hashed model {} ({} bytes) in {} ms.", canonical, size, (System.nanoTime() - start) / 1_000_000);
+        synchronized (checksums) {
+            checksums.put(fingerprint, hex);
+        }
+        return hex;
+    }
+
+    /**
+     * @return the models loaded right now, in the order they were first acquired
+     */
+    public synchronized Metrics snapshot() {
+        List<ModelMetrics> models = new ArrayList<>(entries.size());
+        for (Entry<M> entry : entries.values()) {
+            models.add(new ModelMetrics(entry.path.toString(), entry.checksum, entry.references, entry.size, entry.loadMillis));
+        }
+        return new Metrics(models);
+    }
+
+    /**
+     * Loads a model from a file on disk.
+     */
+    @FunctionalInterface
+    interface Loader<M> {
+        M load(Path modelFile) throws IOException;
+    }
+
+    /**
+     * One configuration's reference to a shared model.
+     */
+    static final class SharedModel<M> {
+
+        private final ModelRegistry<M> registry;
+        private final Entry<M> entry;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private SharedModel(ModelRegistry<M> registry, Entry<M> entry) {
+            this.registry = registry;
+            this.entry = entry;
+        }
+
+        M get() {
+            return entry.model;
+        }
+
+        /**
+         * @return SHA-256 of the model file, in hex
+         */
+        String getChecksum() {
+            return entry.checksum;
+        }
+
+        /**
+         * Drops this reference, closing the model if it was the last one. Releasing twice has no effect.
+         */
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                registry.release(entry);
+            }
+        }
+    }
+
+    private static final class Entry<M> {
+
+        private final String key;
+        private final Path path;
+        private final String checksum;
+        private final long size;
+        // Guarded by the registry
+        private int references;
+        private volatile M model;
+        private volatile long loadMillis;
+
+        private Entry(String key, Path path, String checksum, long size) {
+            this.key = key;
+            this.path = path;
+            this.checksum = checksum;
+            this.size = size;
+        }
+
+        private synchronized void load(Loader<M> loader) throws IOException {
+            if (model != null) {
+                LOGGER.info("Sharing already loaded model {}.", path);
+                return;
+            }
+            long start = System.nanoTime();
+            model = loader.load(path);
+            loadMillis = (System.nanoTime() - start) / 1_000_000;
+            LOGGER.info("Loaded model {} ({} MB) in {} ms.", path, size / (1024 * 1024), loadMillis);
+        }
+
+        private synchronized M unload() {
+            M loaded = model;
+            model = null;
+            return loaded;
+        }
+    }
+
+    /**
+     * Point-in-time view of the loaded models.
+     */
+    public static final class Metrics {
+
+        private final List<ModelMetrics> models;
+
+        private Metrics(List<ModelMetrics> models) {
+            this.models = Collections.unmodifiableList(models);
+        }
+
+        public List<ModelMetrics> getModels() {
+            return models;
+        }
+
+        /**
+         * @return approximate native memory held by the weights of all loaded models
+         */
+        public long getTotalNativeBytes() {
+            long total = 0;
+            for (ModelMetrics model : models) {
+                total += model.getNativeBytes();
+            }
+            return total;
+        }
+    }
+
+    /**
+     * One loaded model.
+     */
+    public static final class ModelMetrics {
+
+        private final String path;
+        private final String checksum;
+        private final int references;
+        private final long nativeBytes;
+        private final long loadMillis;
+
+        private ModelMetrics(String path, String checksum, int references, long nativeBytes, long loadMillis) {
+            this.path = path;
+            this.checksum = checksum;
+            this.references = references;
+            this.nativeBytes = nativeBytes;
+            this.loadMillis = loadMillis;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return SHA-256 of the model file, in hex
+         */
+        public String getChecksum() {
+            return checksum;
+        }
+
+        /**
+         * @return configurations currently sharing the model
+         */
+        public int getReferences() {
+            return references;
+        }
+
+        /**
+         * @return approximate native memory held by the weights, which whisper.cpp reads fully into memory; the
+         * per-state decoding buffers come on top of this and are reported by each decoder state pool
+         */
+        public long getNativeBytes() {
+            return nativeBytes;
+        }
+
+        public long getLoadMillis() {
+            return loadMillis;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Picks which loaded Whisper model serves a transcription.
+ *
+ * <p>Rules are checked in order and the first one whose conditions all hold wins. A rule can require the audio
+ * to be at most a given length, the requested language to be one of a set, and the inference queue to be at
+ * least a given depth. The last condition is what lets a flow degrade to a smaller, faster model under
+ * overload: put a queue depth rule for it first. Requests that no rule matches go to the default model.
+ */
+public final class ModelRouter {
+
+    private final Map<String, WhisperStatePool> models;
+    private final String defaultModel;
+    private final List<Rule> rules;
+    private final IntSupplier queueDepth;
+    private final String cacheId;
+    private final Map<String, LongAdder> routed = new LinkedHashMap<>();
+    private final LongAdder ruleRoutes = new LongAdder();
+    private final LongAdder overloadRoutes = new LongAdder();
+
+    /**
+     * @param models       state pools by model name, in declaration order
+     * @param defaultModel model used when no rule matches
+     * @param rules        routing rules, checked in order
+     * @param queueDepth   number of requests currently waiting for an inference thread
+     * @param cacheId      identity of the model set by the content of its files, used in transcription cache keys
+     * @throws IllegalArgumentException if the default model or a rule names a model that is not loaded
+     */
+    ModelRouter(Map<String, WhisperStatePool> models, String defaultModel, List<Rule> rules, IntSupplier queueDepth, String cacheId) {
+        this.models = Collections.unmodifiableMap(new LinkedHashMap<>(models));
+        this.defaultModel = defaultModel;
+        this.rules = new ArrayList<>(rules);
+        this.queueDepth = queueDepth;
+        this.cacheId = cacheId;
+        if (!models.containsKey(defaultModel)) {
+            throw new IllegalArgumentException("Default model '" + defaultModel + "' is not one of " + models.keySet());
+        }
+        for (Rule rule : rules) {
+            if (!models.containsKey(rule.model)) {
+                throw new IllegalArgumentException("Routing rule targets unknown model '" + rule.model + "', expected one of "
+                    + models.keySet());
+            }
+        }
+        for (String name : models.keySet()) {
+            routed.put(name, new LongAdder());
+        }
+    }
+
+    /**
+     * @param modelId  where the model was loaded from, reported as the model of every transcription
+     * @param checksum SHA-256 of the model file, so cached transcriptions never outlive a change to it
+     * @return a router that always picks the one model a provider loaded
+     */
+    static ModelRouter single(String modelId, String checksum, WhisperStatePool statePool) {
+        return new ModelRouter(Collections.singletonMap(modelId, statePool), modelId, Collections.emptyList(), () -> 0,
+                               "sha256:" + checksum);
+    }
+
+    /**
+     * @param durationSeconds length of the audio that will be transcribed
+     * @param language        requested language, or {@code null} when not specified
+     */
+    Route route(double durationSeconds, String language) {
+        int depth = queueDepth.getAsInt();
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            if (rule.matches(durationSeconds, language, depth)) {
+                routed.get(rule.model).increment();
+                ruleRoutes.increment();
+                if (rule.minQueueDepth != null) {
+                    overloadRoutes.increment();
+                }
+                return new Route(rule.model, models.get(rule.model),
+                                 "rule " + (i + 1) + rule.describe(durationSeconds, language, depth), rule.minQueueDepth != null);
+            }
+        }
+        routed.get(defaultModel).increment();
+        return new Route(defaultModel, models.get(defaultModel), rules.isEmpty() ? "only model" : "default model", false);
+    }
+
+    String getDefaultModel() {
+        return defaultModel;
+    }
+
+    String getCacheId() {
+        return cacheId;
+    }
+
+    WhisperStatePool getDefaultStatePool() {
+        return models.get(defaultModel);
+    }
+
+    /**
+     * @return the state pool of the named model, or {@code null} if no such model is loaded
+     */
+    WhisperStatePool getStatePool(String model) {
+        return models.get(model);
+    }
+
+    Metrics snapshot() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        routed.forEach((name, count) -> counts.put(name, count.sum()));
+        return new Metrics(counts, ruleRoutes.sum(), overloadRoutes.sum(), queueDepth.getAsInt());
+    }
+
+    /**
+     * One routing rule. Conditions left {@code null} or empty always hold.
+     */
+    static final class Rule {
+
+        private final String model;
+        private final Double maxDurationSeconds;
+        private final Set<String> languages;
+        private final Integer minQueueDepth;
+
+        Rule(String model, Double maxDurationSeconds, Set<String> languages, Integer minQueueDepth) {
+            this.model = model;
+            this.maxDurationSeconds = maxDurationSeconds;
+            this.languages = new TreeSet<>();
+            if (languages != null) {
+                for (String language : languages) {
+                    this.languages.add(language.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+            this.minQueueDepth = minQueueDepth;
+        }
+
+        private boolean matches(double durationSeconds, String language, int depth) {
+            if (maxDurationSeconds != null && durationSeconds > maxDurationSeconds) {
+                return false;
+            }
+            if (!languages.isEmpty() && (language == null || !languages.contains(language.toLowerCase(Locale.ROOT)))) {
+                return false;
+            }
+            return minQueueDepth == null || depth >= minQueueDepth;
+        }
+
+        private String describe(double durationSeconds, String language, int depth) {
+            StringBuilder reason = new StringBuilder();
+            if (maxDurationSeconds != null) {
+                reason.append(reason.length() == 0 ? ": " : ", ")
+                    .append(String.format(Locale.ROOT, "duration %.1f s <= %s s", durationSeconds, maxDurationSeconds));
+            }
+            if (!languages.isEmpty()) {
+                reason.append(reason.length() == 0 ? ": " : ", ").append("language ").append(language);
+            }
+            if (minQueueDepth != null) {
+                reason.append(reason.length() == 0 ? ": " : ", ").append("queue depth ").append(depth).append(" >= ").append(minQueueDepth);
+            }
+            return reason.toString();
+        }
+    }
+
+    /**
+     * The model picked for one transcription and why.
+     */
+    static final class Route {
+
+        private final String model;
+        private final WhisperStatePool statePool;
+        private final String reason;
+        private final boolean overload;
+
+        private Route(String model, WhisperStatePool statePool, String reason, boolean overload) {
+            this.model = model;
+            this.statePool = statePool;
+            this.reason = reason;
+            this.overload = overload;
+        }
+
+        String getModel() {
+            return model;
+        }
+
+        WhisperStatePool getStatePool() {
+            return statePool;
+        }
+
+        String getReason() {
+            return reason;
+        }
+
+        /**
+         * @return whether a queue depth rule picked the model, so the same request could go elsewhere once the
+         *         load drops
+         */
+        boolean isOverload() {
+            return overload;
+        }
+    }
+
+    /**
+     * Point-in-time routing statistics.
+     */
+    public static final class Metrics {
+
+        private final Map<String, Long> routedRequests;
+        private final long ruleRoutes;
+        private final long overloadRoutes;
+        private final int queueDepth;
+
+        private Metrics(Map<String, Long> routedRequests, long ruleRoutes, long overloadRoutes, int queueDepth) {
+            this.routedRequests = Collections.unmodifiableMap(routedRequests);
+            this.ruleRoutes = ruleRoutes;
+            this.overloadRoutes = overloadRoutes;
+            this.queueDepth = queueDepth;
+        }
+
+        /**
+         * @return transcriptions served per model name, in declaration order
+         */
+        public Map<String, Long> getRoutedRequests() {
+            return routedRequests;
+        }
+
+        /**
+         * @return transcriptions routed by a rule rather than to the default model
+         */
+        public long getRuleRoutes() {
+            return ruleRoutes;
+        }
+
+        /**
+         * @return transcriptions routed by a rule with a queue depth condition, i.e. degraded under load
+         */
+        public long getOverloadRoutes() {
+            return overloadRoutes;
+        }
+
+        /**
+         * @return requests waiting for an inference thread right now
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+    }
+}
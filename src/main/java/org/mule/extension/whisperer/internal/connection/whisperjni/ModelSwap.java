@@ -0,0 +1,34 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+/**
+ * A request to replace one of the loaded models.
+ */
+final class ModelSwap {
+
+    private final String model;
+    private final String location;
+    private final String expectedSha256;
+
+    /**
+     * @param model          name of the model to replace
+     * @param location       path, {@code classpath://} resource or URL of the new model
+     * @param expectedSha256 checksum a downloaded model must have, or {@code null}
+     */
+    ModelSwap(String model, String location, String expectedSha256) {
+        this.model = model;
+        this.location = location;
+        this.expectedSha256 = expectedSha256;
+    }
+
+    String getModel() {
+        return model;
+    }
+
+    String getLocation() {
+        return location;
+    }
+
+    String getExpectedSha256() {
+        return expectedSha256;
+    }
+}
@@ -0,0 +1,187 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import io.github.givimad.whisperjni.WhisperFullParams;
+import io.github.givimad.whisperjni.WhisperJNI;
+import org.mule.extension.whisperer.internal.helpers.audio.AudioConverter;
+import org.mule.extension.whisperer.internal.helpers.audio.BufferedAudio;
+import org.mule.extension.whisperer.internal.helpers.audio.FloatSampleBuffer;
+import org.mule.runtime.api.connection.ConnectionException;
+import org.mule.runtime.api.connection.ConnectionValidationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Pays the first-request costs of a freshly loaded model before real traffic arrives.
+ *
+ * <p>A short synthetic 44.1kHz stereo WAV is decoded through the same path as a request, which loads the audio
+ * classes and lets the JIT compile the resampler, and the result is transcribed once. That inference touches
+ * every weight page of the model and allocates the decoder state's compute buffers. Until it completes,
+ * {@link #validate()} reports the connection as not ready.
+ */
+final class ModelWarmUp {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModelWarmUp.class);
+
+    private static final float SOURCE_SAMPLE_RATE = 44100f;
+    private static final int SOURCE_CHANNELS = 2;
+    // whisper.cpp skips inputs shorter than one second, so this must stay above it
+    private static final int DURATION_MILLIS = 2000;
+
+    private final CompletableFuture<Long> completion;
+
+    private ModelWarmUp(CompletableFuture<Long> completion) {
+        this.completion = completion;
+    }
+
+    /**
+     * @return a warm-up that is already complete, for providers that skip it
+     */
+    static ModelWarmUp skipped() {
+        return new ModelWarmUp(CompletableFuture.completedFuture(0L));
+    }
+
+    /**
+     * Runs the warm-up on {@code executor}, ahead of any request queued after it.
+     */
+    static ModelWarmUp start(WhisperStatePool statePool, Executor executor, int threads, String configName) {
+        return start(Collections.singletonList(statePool), executor, threads, configName);
+    }
+
+    /**
+     * Warms up several models one after the other in a single task, so start-up never takes more than one
+     * inference thread away from requests.
+     */
+    static ModelWarmUp start(List<WhisperStatePool> statePools, Executor executor, int threads, String configName) {
+        return start(statePools.size() == 1 ? "model" : statePools.size() + " models", () -> {
+            for (WhisperStatePool statePool : statePools) {
+                run(statePool, threads);
+            }
+        }, executor, configName);
+    }
+
+    /**
+     * Runs {@code task} as the warm-up of {@code models}, as named in the log.
+     */
+    static ModelWarmUp start(String models, Task task, Executor executor, String configName) {
+        CompletableFuture<Long> completion = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                    long millis = (System.nanoTime() - start) / 1_000_000;
+                    LOGGER.info("Whisper {} for {} warmed up in {} ms.", models, configName, millis);
+                    completion.complete(millis);
+                } catch (Throwable e) {
+                    LOGGER.warn("Whisper model warm-up for {} failed.", configName, e);
+                    completion.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Whisper model warm-up for {} could not be queued: {}", configName, e.getMessage());
+            completion.completeExceptionally(e);
+        }
+        return new ModelWarmUp(completion);
+    }
+
+    private static void run(WhisperStatePool statePool, int threads) throws IOException {
+        FloatSampleBuffer samples;
+        try (BufferedAudio audio = BufferedAudio.buffer(new ByteArrayInputStream(syntheticWav()), -1, BufferedAudio.NEVER_SPILL)) {
+            samples = AudioConverter.decodeToSamples(audio, "wav");
+        }
+
+        WhisperFullParams params = new WhisperFullParams();
+        params.nThreads = threads;
+        params.language = "en";
+        params.noContext = true;
+        params.singleSegment = true;
+
+        WhisperJNI whisper = statePool.getWhisper();
+        WhisperStatePool.Lease lease = statePool.borrow();
+        try {
+            int result = whisper.fullWithState(statePool.getContext(), lease.getState(), params, samples.array(), samples.size());
+            if (result != 0) {
+                throw new IOException("Warm-up inference failed with code " + result);
+            }
+        } finally {
+            statePool.release(lease);
+        }
+    }
+
+    private static byte[] syntheticWav() throws IOException {
+        int frames = (int) (SOURCE_SAMPLE_RATE * DURATION_MILLIS / 1000);
+        byte[] pcm = new byte[frames * SOURCE_CHANNELS * 2];
+        for (int frame = 0, i = 0; frame < frames; frame++) {
+            // A quiet 440 Hz tone, so the encoder runs over non-trivial input
+            short value = (short) (Math.sin(2 * Math.PI * 440 * frame / SOURCE_SAMPLE_RATE) * 3000);
+            for (int channel = 0; channel < SOURCE_CHANNELS; channel++) {
+                pcm[i++] = (byte) value;
+                pcm[i++] = (byte) (value >> 8);
+            }
+        }
+        AudioFormat format = new AudioFormat(SOURCE_SAMPLE_RATE, 16, SOURCE_CHANNELS, true, false);
+        ByteArrayOutputStream wav = new ByteArrayOutputStream(pcm.length + 44);
+        try (AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(pcm), format, frames)) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, wav);
+        }
+        return wav.toByteArray();
+    }
+
+    /**
+     * Waits for the warm-up to finish, successfully or not.
+     *
+     * @throws InterruptedException if interrupted first, as when the executor is shut down before running it
+     */
+    void awaitCompletion() throws InterruptedException {
+        try {
+            completion.get();
+        } catch (ExecutionException e) {
+            // A failed warm-up only means the first request pays the start-up costs itself
+        }
+    }
+
+    /**
+     * @return why the warm-up failed, or {@code null} while it runs or if it succeeded
+     */
+    Throwable getFailure() {
+        return completion.isCompletedExceptionally()
+            ? completion.handle((ignored, e) -> e instanceof CompletionException ? e.getCause() : e).join()
+            : null;
+    }
+
+    /**
+     * @return success once warm-up has finished, successfully or not, and a failure while it is still running
+     */
+    ConnectionValidationResult validate() {
+        if (!completion.isDone()) {
+            return ConnectionValidationResult.failure("Whisper model warm-up is still in progress",
+                                                      new ConnectionException("Whisper model warm-up is still in progress"));
+        }
+        // A failed warm-up only means the first request pays the start-up costs itself
+        return ConnectionValidationResult.success();
+    }
+
+    /**
+     * The work of a warm-up.
+     */
+    @FunctionalInterface
+    interface Task {
+
+        void run() throws Exception;
+    }
+}
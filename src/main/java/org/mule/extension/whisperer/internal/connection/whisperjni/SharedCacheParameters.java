@@ -0,0 +1,65 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.api.util.DataUnit;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+public class SharedCacheParameters {
+
+  @Parameter
+  @DisplayName("Shared cache directory")
+  @Summary("Directory where downloaded models and extracted native libraries are kept for every application and process on the node, so each is fetched once. Leave empty to keep the per-application behaviour.")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional
+  @Placement(order = 1)
+  private String cacheDirectory;
+
+  @Parameter
+  @DisplayName("Shared cache quota")
+  @Summary("Disk space above which the least recently used artifacts not in use are deleted")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "10")
+  @Placement(order = 2)
+  private int cacheQuota;
+
+  @Parameter
+  @DisplayName("Shared cache quota unit")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "GB")
+  @Placement(order = 3)
+  private DataUnit cacheQuotaUnit;
+
+  public String getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  public void setCacheDirectory(String cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  public int getCacheQuota() {
+    return cacheQuota;
+  }
+
+  public void setCacheQuota(int cacheQuota) {
+    this.cacheQuota = cacheQuota;
+  }
+
+  public DataUnit getCacheQuotaUnit() {
+    return cacheQuotaUnit;
+  }
+
+  public void setCacheQuotaUnit(DataUnit cacheQuotaUnit) {
+    this.cacheQuotaUnit = cacheQuotaUnit;
+  }
+
+  public long getCacheQuotaBytes() {
+    // Via KB, since toBytes would overflow an int above 2GB
+    return 1024L * cacheQuotaUnit.toKB(cacheQuota);
+  }
+}
@@ -0,0 +1,76 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+public class VoiceActivityParameters {
+
+  @Parameter
+  @DisplayName("Skip silence")
+  @Summary("Remove long silences before inference. Segment times still refer to the original audio, and audio without speech returns an empty transcription.")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "false")
+  @Placement(order = 1)
+  private boolean skipSilence;
+
+  @Parameter
+  @DisplayName("Silence threshold (dBFS)")
+  @Summary("Audio quieter than this is never treated as speech, however quiet the rest of the recording is")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "-45")
+  @Placement(order = 2)
+  private int silenceThresholdDb;
+
+  @Parameter
+  @DisplayName("Minimum silence (ms)")
+  @Summary("Shorter pauses are kept so words and sentences are not run together")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "1000")
+  @Placement(order = 3)
+  private int minSilenceMillis;
+
+  @Parameter
+  @DisplayName("Speech padding (ms)")
+  @Summary("Audio kept before and after detected speech")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "250")
+  @Placement(order = 4)
+  private int speechPaddingMillis;
+
+  public boolean isSkipSilence() {
+    return skipSilence;
+  }
+
+  public void setSkipSilence(boolean skipSilence) {
+    this.skipSilence = skipSilence;
+  }
+
+  public int getSilenceThresholdDb() {
+    return silenceThresholdDb;
+  }
+
+  public void setSilenceThresholdDb(int silenceThresholdDb) {
+    this.silenceThresholdDb = silenceThresholdDb;
+  }
+
+  public int getMinSilenceMillis() {
+    return minSilenceMillis;
+  }
+
+  public void setMinSilenceMillis(int minSilenceMillis) {
+    this.minSilenceMillis = minSilenceMillis;
+  }
+
+  public int getSpeechPaddingMillis() {
+    return speechPaddingMillis;
+  }
+
+  public void setSpeechPaddingMillis(int speechPaddingMillis) {
+    this.speechPaddingMillis = speechPaddingMillis;
+  }
+}
@@ -0,0 +1,125 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+import java.util.concurrent.TimeUnit;
+
+public class WhisperJNIConcurrencyParameters {
+
+  @Parameter
+  @DisplayName("Decoder states")
+  @Summary("Number of concurrent transcriptions the loaded model can serve. Each state allocates its own decoding buffers.")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "1")
+  @Placement(order = 1)
+  private int decoderStates;
+
+  @Parameter
+  @DisplayName("Decoder state wait timeout")
+  @Summary("How long a transcription waits for a free decoder state before failing with WHISPERER:TIMEOUT")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "60")
+  @Placement(order = 2)
+  private long stateWaitTimeout;
+
+  @Parameter
+  @DisplayName("Decoder state wait timeout unit")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Optional(defaultValue = "SECONDS")
+  @Placement(order = 3)
+  private TimeUnit stateWaitTimeoutUnit;
+
+  @Parameter
+  @DisplayName("Inference threads")
+  @Summary("Threads that decode audio and run inference. Defaults to the number of decoder states.")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional
+  @Placement(order = 4)
+  private Integer inferenceThreads;
+
+  @Parameter
+  @DisplayName("Inference queue capacity")
+  @Summary("Transcriptions allowed to wait for an inference thread before new requests are rejected")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "64")
+  @Placement(order = 5)
+  private int inferenceQueueCapacity;
+
+  @Parameter
+  @DisplayName("Inference thread name prefix")
+  @Summary("Prefix for inference thread names, followed by the configuration name and a counter")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "whisperer-inference")
+  @Placement(order = 6)
+  private String inferenceThreadNamePrefix;
+
+  @Parameter
+  @DisplayName("Max live streams")
+  @Summary("Live transcriptions that may be open at once; further ones are rejected. Each runs on two threads of its own and takes an inference thread only while a step transcribes.")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "4")
+  @Placement(order = 7)
+  private int maxLiveStreams;
+
+  public int getDecoderStates() {
+    return decoderStates;
+  }
+
+  public void setDecoderStates(int decoderStates) {
+    this.decoderStates = decoderStates;
+  }
+
+  public long getStateWaitTimeout() {
+    return stateWaitTimeout;
+  }
+
+  public void setStateWaitTimeout(long stateWaitTimeout) {
+    this.stateWaitTimeout = stateWaitTimeout;
+  }
+
+  public TimeUnit getStateWaitTimeoutUnit() {
+    return stateWaitTimeoutUnit;
+  }
+
+  public void setStateWaitTimeoutUnit(TimeUnit stateWaitTimeoutUnit) {
+    this.stateWaitTimeoutUnit = stateWaitTimeoutUnit;
+  }
+
+  public int getInferenceThreads() {
+    return inferenceThreads != null ? inferenceThreads : decoderStates;
+  }
+
+  public void setInferenceThreads(Integer inferenceThreads) {
+    this.inferenceThreads = inferenceThreads;
+  }
+
+  public int getInferenceQueueCapacity() {
+    return inferenceQueueCapacity;
+  }
+
+  public void setInferenceQueueCapacity(int inferenceQueueCapacity) {
+    this.inferenceQueueCapacity = inferenceQueueCapacity;
+  }
+
+  public String getInferenceThreadNamePrefix() {
+    return inferenceThreadNamePrefix;
+  }
+
+  public void setInferenceThreadNamePrefix(String inferenceThreadNamePrefix) {
+    this.inferenceThreadNamePrefix = inferenceThreadNamePrefix;
+  }
+
+  public int getMaxLiveStreams() {
+    return maxLiveStreams;
+  }
+
+  public void setMaxLiveStreams(int maxLiveStreams) {
+    this.maxLiveStreams = maxLiveStreams;
+  }
+}
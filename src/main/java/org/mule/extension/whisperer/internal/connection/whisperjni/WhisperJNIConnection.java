@@ -1,43 +1,200 @@
 package org.mule.extension.whisperer.internal.connection.whisperjni;
 
+import org.mule.extension.whisperer.api.ModelSwapResult;
+import org.mule.extension.whisperer.api.STTParamsLiveStream;
 import org.mule.extension.whisperer.api.STTParamsModelDetails;
+import org.mule.extension.whisperer.api.TranscriptionHypothesis;
+import org.mule.extension.whisperer.api.TranscriptionSegment;
+import org.mule.extension.whisperer.api.WhisperJNITranscriptionAttributes;
 import org.mule.extension.whisperer.api.error.ConnectorError;
+import org.mule.extension.whisperer.internal.cache.TranscriptionCache;
 import org.mule.extension.whisperer.internal.connection.SpeechToTextConnection;
+import org.mule.extension.whisperer.internal.connection.TranscriptionSegmentStream;
 import org.mule.extension.whisperer.internal.error.TranscriptionException;
-import org.mule.extension.whisperer.internal.helpers.audio.AudioFileReader;
+import org.mule.extension.whisperer.internal.helpers.audio.AudioConverter;
+import org.mule.extension.whisperer.internal.helpers.audio.BufferedAudio;
+import org.mule.extension.whisperer.internal.helpers.audio.FloatSampleBuffer;
 import org.mule.extension.whisperer.internal.helpers.audio.AudioUtils;
+import org.mule.extension.whisperer.internal.helpers.audio.VoiceActivityDetector;
 import io.github.givimad.whisperjni.WhisperContext;
 import io.github.givimad.whisperjni.WhisperFullParams;
 import io.github.givimad.whisperjni.WhisperJNI;
+import io.github.givimad.whisperjni.WhisperState;
 import org.mule.runtime.api.metadata.TypedValue;
 import org.mule.runtime.extension.api.runtime.operation.Result;
 import org.mule.runtime.extension.api.exception.ModuleException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.sound.sampled.UnsupportedAudioFileException;
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 public class WhisperJNIConnection implements SpeechToTextConnection {
     private static final Logger LOGGER = LoggerFactory.getLogger(WhisperJNIConnection.class);
 
-    private final WhisperJNI whisper;
-    private final WhisperContext whisperContext;
+    // Segment streaming without long-audio settings delivers one Whisper context window at a time
+    private static final int STREAMING_WINDOW_SECONDS = 30;
+    private static final int STREAMING_OVERLAP_SECONDS = 2;
+
+    private final ModelLoader modelLoader;
+    private final ExecutorService inferenceExecutor;
+    private final LiveStreamExecutor liveStreamExecutor;
     private final int threads;
     private final boolean translate;
     private final boolean printProgress;
+    private final long spillThreshold;
+    private final TranscriptionCache transcriptionCache;
+    private final LongAudioTranscriber longAudioTranscriber;
+    private final VoiceActivityDetector voiceActivityDetector;
+    private final LongAudioTranscriber segmentTranscriber;
+    private final LiveTranscriber.Stats liveStats;
 
-    public WhisperJNIConnection(WhisperJNI whisper, WhisperContext whisperContext, int threads, boolean translate, boolean printProgress) {
-        this.whisper = whisper;
-        this.whisperContext = whisperContext;
+    WhisperJNIConnection(ModelLoader modelLoader, ExecutorService inferenceExecutor, LiveStreamExecutor liveStreamExecutor,
+                                int threads, boolean translate, boolean printProgress,
+                                long spillThreshold, TranscriptionCache transcriptionCache,
+                                LongAudioTranscriber longAudioTranscriber, VoiceActivityDetector voiceActivityDetector,
+                                LiveTranscriber.Stats liveStats) {
+        this.modelLoader = modelLoader;
+        this.inferenceExecutor = inferenceExecutor;
+        this.liveStreamExecutor = liveStreamExecutor;
         this.threads = threads;
         this.translate = translate;
         this.printProgress = printProgress;
+        this.spillThreshold = spillThreshold;
+        this.transcriptionCache = transcriptionCache;
+        this.longAudioTranscriber = longAudioTranscriber;
+        this.voiceActivityDetector = voiceActivityDetector;
+        this.segmentTranscriber = longAudioTranscriber != null
+            ? longAudioTranscriber
+            : new LongAudioTranscriber(0, STREAMING_WINDOW_SECONDS, STREAMING_OVERLAP_SECONDS, 1, inferenceExecutor);
+        this.liveStats = liveStats;
     }
 
     @Override
     public CompletableFuture<Result<String, Object>> transcribe(TypedValue<InputStream> audioContent, String fineTuningPrompt, STTParamsModelDetails params) {
+        ModelLoader.Lease models = modelLoader.leaseIfLoaded();
+        if (models == null) {
+            // Waits for a model loading in the background without holding the caller's thread
+            return modelLoader.whenLoaded().thenCompose(loaded -> transcribe(loaded, audioContent, fineTuningPrompt, params));
+        }
+        return transcribe(models, audioContent, fineTuningPrompt, params);
+    }
+
+    /**
+     * Holds {@code models} until the transcription completes, so a model swap closes them only afterwards.
+     */
+    private CompletableFuture<Result<String, Object>> transcribe(ModelLoader.Lease models, TypedValue<InputStream> audioContent,
+                                                                 String fineTuningPrompt, STTParamsModelDetails params) {
+        WhisperFullParams whisperParams = whisperParams(fineTuningPrompt, params);
+
+        // Buffering, decoding and inference all block for a long time, so none of it may run on the caller's thread
+        return InferenceExecutors.supplyAsync(() -> runTranscription(models.getRouter(), audioContent, fineTuningPrompt, params,
+                                                                     whisperParams, null),
+                                              inferenceExecutor)
+            .whenComplete((result, e) -> models.close());
+    }
+
+    @Override
+    public TranscriptionSegmentStream<TranscriptionSegment> transcribeSegments(TypedValue<InputStream> audioContent, String fineTuningPrompt,
+                                                         STTParamsModelDetails params) {
+        WhisperFullParams whisperParams = whisperParams(fineTuningPrompt, params);
+        TranscriptionSegmentStream<TranscriptionSegment> segmentStream = new TranscriptionSegmentStream<>();
+        ModelLoader.Lease models = modelLoader.await();
+        try {
+            inferenceExecutor.execute(() -> {
+                try {
+                    runTranscription(models.getRouter(), audioContent, fineTuningPrompt, params, whisperParams, segmentStream);
+                    segmentStream.complete();
+                } catch (Throwable e) {
+                    segmentStream.fail(e);
+                } finally {
+                    models.close();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            models.close();
+            throw new TranscriptionException("Local Whisper inference queue is full, rejecting transcription request", e);
+        }
+        return segmentStream;
+    }
+
+    /**
+     * Runs the live transcription on a live stream thread for as long as the stream lasts. Only the inference of
+     * each step is queued on the inference threads and borrows a decoder state, so other requests use both in
+     * between steps.
+     */
+    @Override
+    public TranscriptionSegmentStream<TranscriptionHypothesis> transcribeLive(InputStream pcm, String fineTuningPrompt,
+                                                                             STTParamsModelDetails params, STTParamsLiveStream liveParams) {
+        LiveTranscriber transcriber;
+        try {
+            transcriber = new LiveTranscriber(liveParams.getSampleRate(), liveParams.getStepMillis(), liveParams.getWindowSeconds(),
+                                              liveParams.getLatencyTargetMillis(), liveStats);
+        } catch (IllegalArgumentException e) {
+            throw new TranscriptionException("Invalid live transcription options: " + e.getMessage(), e);
+        }
+        // The stream keeps its model for as long as it runs, even if another is swapped in meanwhile
+        ModelLoader.Lease models = modelLoader.await();
+        // Every step transcribes at most one window, so that is the duration the stream is routed by
+        ModelRouter.Route route = models.getRouter().route(liveParams.getWindowSeconds(), params.getLanguage());
+        LOGGER.debug("Live transcription routed to model {} ({}).", route.getModel(), route.getReason());
+        TranscriptionSegmentStream<TranscriptionHypothesis> hypotheses = new TranscriptionSegmentStream<>();
+        LiveTranscriber.StepInference inference = (samples, count, offsetCentis, prompt) ->
+            inferStep(route.getStatePool(), whisperParams(prompt, params), samples, count, offsetCentis);
+        try {
+            liveStreamExecutor.start(readers -> {
+                try {
+                    transcriber.run(pcm, fineTuningPrompt, inference, hypotheses, readers);
+                    hypotheses.complete();
+                } catch (Throwable e) {
+                    hypotheses.fail(e);
+                } finally {
+                    models.close();
+                }
+            }, transcriber::end);
+        } catch (RejectedExecutionException e) {
+            models.close();
+            throw new TranscriptionException("Unable to start live transcription: " + e.getMessage(), e);
+        }
+        return hypotheses;
+    }
+
+    /**
+     * Runs one live step's inference on an inference thread, queued behind other requests, and waits for it.
+     */
+    private List<WhisperSegment> inferStep(WhisperStatePool statePool, WhisperFullParams whisperParams, float[] samples, int count,
+                                           long offsetCentis) {
+        Future<List<WhisperSegment>> step;
+        try {
+            step = inferenceExecutor.submit(() -> infer(statePool, whisperParams, samples, count, offsetCentis));
+        } catch (RejectedExecutionException e) {
+            throw new TranscriptionException("Local Whisper inference queue is full, rejecting live transcription step", e);
+        }
+        try {
+            return step.get();
+        } catch (InterruptedException e) {
+            // The stream is being stopped, a step that has not started yet need not run
+            step.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new TranscriptionException("Interrupted while waiting for live transcription inference", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new TranscriptionException("Live transcription inference failed", e.getCause());
+        }
+    }
+
+    private WhisperFullParams whisperParams(String fineTuningPrompt, STTParamsModelDetails params) {
         WhisperFullParams whisperParams = new WhisperFullParams();
         whisperParams.nThreads = threads;
         whisperParams.translate = translate;
@@ -45,101 +202,215 @@ public class WhisperJNIConnection implements SpeechToTextConnection {
         whisperParams.language = params.getLanguage();
         whisperParams.temperature = params.getTemperature().floatValue();
         whisperParams.initialPrompt = fineTuningPrompt;
+        return whisperParams;
+    }
 
-        LOGGER.debug("Whisper context initialized successfully. Processing audio input.");
+    /**
+     * @param segmentStream when not {@code null}, receives the segments in order as each window of audio finishes
+     */
+    private Result<String, Object> runTranscription(ModelRouter modelRouter, TypedValue<InputStream> audioContent, String fineTuningPrompt,
+                                                    STTParamsModelDetails params, WhisperFullParams whisperParams,
+                                                    TranscriptionSegmentStream<TranscriptionSegment> segmentStream) {
+        LOGGER.debug("Processing audio input on inference thread {}.", Thread.currentThread().getName());
 
-        // Save InputStream content to a temporary file
-        String appHomePath = System.getProperty("app.home");
-        File tempAudioFile = new File(appHomePath, "audio." + AudioUtils.guessAudioFileExtension(audioContent.getDataType().getMediaType()));
+        String audioFormat = AudioUtils.guessAudioFormat(audioContent.getDataType().getMediaType());
+        if (audioFormat == null) {
+            throw new ModuleException("Audio format not supported: " + audioContent.getDataType().getMediaType().toString(),
+                                      ConnectorError.AUDIO_FORMAT_NOT_SUPPORTED);
+        }
+
+        // Streamed segments are also returned in the attributes, so they share verbose cache entries
+        boolean verbose = params.isVerbose() || segmentStream != null;
 
-        try (OutputStream outStream = new FileOutputStream(tempAudioFile)) {
-            byte[] buffer = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = audioContent.getValue().read(buffer)) != -1) {
-                outStream.write(buffer, 0, bytesRead);
+        // Buffer the payload once (in memory unless it exceeds the spill threshold), hashing it on the way when
+        // caching, and decode it straight to samples
+        FloatSampleBuffer samples;
+        String cacheKey = null;
+        MessageDigest audioDigest = transcriptionCache.isEnabled() ? TranscriptionCache.newAudioDigest() : null;
+        long expectedLength = audioContent.getByteLength().orElse(-1L);
+        try (BufferedAudio audio = BufferedAudio.buffer(audioContent.getValue(), expectedLength, spillThreshold, audioDigest)) {
+            LOGGER.trace("Buffered {} bytes of {} audio (spilled to disk: {}).", audio.size(), audioFormat, audio.isSpilled());
+            if (audioDigest != null) {
+                cacheKey = TranscriptionCache.key(audioDigest.digest(), modelRouter.getCacheId(), params.getLanguage(), params.getTemperature(),
+                                                  fineTuningPrompt, translate, verbose);
+                Result<String, Object> cached = transcriptionCache.get(cacheKey);
+                if (cached != null) {
+                    if (segmentStream != null) {
+                        WhisperJNITranscriptionAttributes cachedAttributes = (WhisperJNITranscriptionAttributes) cached.getAttributes().get();
+                        segmentStream.publish(cachedAttributes.getSegments());
+                    }
+                    return cached;
+                }
             }
+            samples = AudioConverter.decodeToSamples(audio, audioFormat);
+        } catch (UnsupportedOperationException e) {
+            throw new ModuleException(e.getMessage(), ConnectorError.AUDIO_FORMAT_NOT_SUPPORTED, e);
         } catch (IOException e) {
-            return CompletableFuture.supplyAsync(() -> {
-                throw new TranscriptionException("Unable to buffer audio data for transcription", e);
-            });
+            throw new TranscriptionException("Unable to decode audio data for transcription", e);
         }
-        LOGGER.trace("Audio file successfully saved to temporary file: {}", tempAudioFile.getAbsolutePath());
+        LOGGER.debug("Decoded {} samples ({} s of audio).", samples.size(), samples.size() / 16000f);
 
-        // Convert audio to WAV if necessary
-        String processedFilePath = tempAudioFile.getAbsolutePath();
-
-        String audioFormat = AudioUtils.guessAudioFormat(audioContent.getDataType().getMediaType());
+        WhisperJNITranscriptionAttributes attributes = new WhisperJNITranscriptionAttributes();
+        attributes.setDuration(samples.size() / 16000d);
+        attributes.setSkippedDuration(0d);
 
-        if(audioFormat != null) {
-
-            try {
-
-                LOGGER.trace("Converting audio file to WAV format.");
-                String wavFilePath = processedFilePath.replaceAll("\\.\\w+$", ".wav");
-
-                switch (audioFormat) {
-                    case "wav":
-                        break;
-                    case "mp3":
-                        AudioFileReader.convertMp3ToWav(processedFilePath, wavFilePath);
-                        processedFilePath = wavFilePath;
-                        break;
-                    case "m4a":
-                        AudioFileReader.convertM4AToWav(processedFilePath, wavFilePath);
-                        processedFilePath = wavFilePath;
-                        break;
-                    default:
-                        throw new ModuleException("Audio format not supported: " + audioFormat,
-                                                  ConnectorError.AUDIO_FORMAT_NOT_SUPPORTED);
-                }
+        VoiceActivityDetector.SpeechMap speech = voiceActivityDetector != null ? voiceActivityDetector.compact(samples) : null;
+        if (speech != null) {
+            attributes.setSkippedDuration(speech.getSkippedSamples() / 16000d);
+            LOGGER.debug("Voice activity detection kept {} s of speech in {} regions, skipped {} s.",
+                         speech.getKeptSamples() / 16000f, speech.getRegionCount(), speech.getSkippedSamples() / 16000f);
+        }
 
-                LOGGER.debug("Audio file converted to WAV format: {}", wavFilePath);
+        // Route by the audio that will actually be transcribed, after any silence was removed
+        ModelRouter.Route route = modelRouter.route(samples.size() / 16000d, params.getLanguage());
+        attributes.setModel(route.getModel());
+        attributes.setRoutingReason(route.getReason());
+        LOGGER.debug("Transcription routed to model {} ({}).", route.getModel(), route.getReason());
+        WhisperStatePool statePool = route.getStatePool();
 
-            } catch (UnsupportedAudioFileException | IOException e) {
-                return CompletableFuture.supplyAsync(() -> {
-                    throw new TranscriptionException("Error converting audio content to wav format", e);
-                });
+        // Segments arrive in recording order, a whole transcription or one window at a time
+        List<WhisperSegment> segments = new ArrayList<>();
+        Consumer<List<WhisperSegment>> collector = batch -> {
+            List<WhisperSegment> mapped = speech != null ? toOriginalTime(batch, speech) : batch;
+            if (segmentStream != null) {
+                segmentStream.publish(toTranscriptionSegments(mapped, segments.size()));
             }
-
+            segments.addAll(mapped);
+        };
+        LongAudioTranscriber.WindowInference inference = (window, count, offsetCentis) ->
+            infer(statePool, whisperParams, window, count, offsetCentis);
+        if (speech != null && speech.isSilent()) {
+            // Nothing to transcribe, skip inference altogether
+        } else if (segmentStream != null) {
+            segmentTranscriber.transcribe(samples.array(), samples.size(), inference, collector);
+        } else if (longAudioTranscriber != null && longAudioTranscriber.shouldSplit(samples.size())) {
+            longAudioTranscriber.transcribe(samples.array(), samples.size(), inference, collector);
         } else {
+            // The decoder's buffer is passed untrimmed, only the first size() samples are read
+            collector.accept(infer(statePool, whisperParams, samples.array(), samples.size(), 0));
+        }
 
-            throw new ModuleException("Audio format not supported: " + audioContent.getDataType().getMediaType().toString(),
-                                      ConnectorError.AUDIO_FORMAT_NOT_SUPPORTED);
+        // Collect the transcribed text from all segments
+        StringBuilder transcription = new StringBuilder();
+        for (WhisperSegment segment : segments) {
+            transcription.append(segment.getText()).append(" ");
+        }
+        if (verbose) {
+            attributes.setSegments(toTranscriptionSegments(segments, 0));
         }
 
-        // Read audio file and extract samples
-        LOGGER.trace("Reading audio file and extracting samples.");
-        try {
-            float[] samples = AudioFileReader.readFile(new File(processedFilePath));
+        Result<String, Object> result = Result.<String, Object>builder()
+            .output(transcription.toString())
+            .attributes(attributes)
+            .build();
+        // The cache key does not depend on load, so only what routing picks without overload is cached
+        if (cacheKey != null && !route.isOverload()) {
+            transcriptionCache.put(cacheKey, result);
+        }
+        return result;
+    }
 
-            // Perform transcription
-            LOGGER.debug("Performing speech-to-text operation with local Whisper.");
-            int result = whisper.full(whisperContext, whisperParams, samples, samples.length);
+    private static List<WhisperSegment> toOriginalTime(List<WhisperSegment> segments, VoiceActivityDetector.SpeechMap speech) {
+        List<WhisperSegment> mapped = new ArrayList<>(segments.size());
+        for (WhisperSegment segment : segments) {
+            mapped.add(new WhisperSegment(toOriginalCentis(segment.getStartCentis(), speech),
+                                          toOriginalCentis(segment.getEndCentis(), speech),
+                                          segment.getText()));
+        }
+        return mapped;
+    }
 
-            if (result != 0) {
-                return CompletableFuture.supplyAsync(() -> {
-                    throw new TranscriptionException("Transcription failed with code " + result);
-                });
-            }
+    private static List<TranscriptionSegment> toTranscriptionSegments(List<WhisperSegment> segments, int firstId) {
+        List<TranscriptionSegment> converted = new ArrayList<>(segments.size());
+        for (WhisperSegment segment : segments) {
+            converted.add(new TranscriptionSegment(firstId + converted.size(), segment.getStartCentis() / 100d,
+                                                   segment.getEndCentis() / 100d, segment.getText()));
+        }
+        return converted;
+    }
+
+    private static long toOriginalCentis(long centis, VoiceActivityDetector.SpeechMap speech) {
+        long sample = centis * WhisperSegment.SAMPLES_PER_CENTISECOND;
+        return speech.toOriginalSample(sample) / WhisperSegment.SAMPLES_PER_CENTISECOND;
+    }
+
+    /**
+     * Runs inference on a decoder state of its own, so concurrent requests and windows can share the model.
+     */
+    private List<WhisperSegment> infer(WhisperStatePool statePool, WhisperFullParams whisperParams, float[] samples, int count, long offsetCentis) {
+        WhisperJNI whisper = statePool.getWhisper();
+        WhisperStatePool.Lease lease = statePool.borrow();
+        try {
+            LOGGER.debug("Performing speech-to-text operation with local Whisper after waiting {} ms for a decoder state.",
+                         lease.getWaitMillis());
+            WhisperState state = lease.getState();
+            int result = whisper.fullWithState(statePool.getContext(), state, whisperParams, samples, count);
 
-            int segments = whisper.fullNSegments(whisperContext);
-            // Collect the transcribed text from all segments
-            // TODO: add segments attribute similar to OpenAI verbose
-            StringBuilder transcription = new StringBuilder();
-            for (int i = 0; i < segments; ++i) {
-                transcription.append(whisper.fullGetSegmentText(whisperContext, i)).append(" ");
+            if (result != 0) {
+                throw new TranscriptionException("Transcription failed with code " + result);
             }
+            return WhisperSegment.collect(whisper, state, offsetCentis);
+        } finally {
+            statePool.release(lease);
+        }
+    }
 
-            return CompletableFuture.supplyAsync(() -> Result.<String, Object>builder()
-                .output(transcription.toString())
-                .build());
-        } catch (UnsupportedAudioFileException | IOException e) {
-            return CompletableFuture.supplyAsync(() -> {
-                throw new TranscriptionException(e);
-            });
+    /**
+     * Loads a new model in the background and switches new transcriptions to it once it is ready.
+     *
+     * @param model name of the model to replace, or {@code null} for the default model
+     */
+    @Override
+    public CompletableFuture<ModelSwapResult> swapModel(String model, String location, String expectedSha256) {
+        String name;
+        try {
+            name = model != null ? model : modelLoader.router().getDefaultModel();
+        } catch (ModuleException e) {
+            CompletableFuture<ModelSwapResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
         }
+        return modelLoader.swap(new ModelSwap(name, location, expectedSha256));
     }
+
+    /**
+     * @return the context of the default model
+     */
     public WhisperContext getWhisperContext() {
-        return whisperContext;
+        return modelLoader.router().getDefaultStatePool().getContext();
+    }
+
+    /**
+     * @return the decoder state pool statistics of the default model
+     */
+    public WhisperStatePool.Metrics getStatePoolMetrics() {
+        return modelLoader.router().getDefaultStatePool().getMetrics();
+    }
+
+    /**
+     * @return the decoder state pool statistics of the named model, or {@code null} if no such model is loaded
+     */
+    public WhisperStatePool.Metrics getStatePoolMetrics(String model) {
+        WhisperStatePool statePool = modelLoader.router().getStatePool(model);
+        return statePool != null ? statePool.getMetrics() : null;
+    }
+
+    /**
+     * @return the models loaded by every Whisper JNI configuration of this connector, with the native memory each holds
+     */
+    public ModelRegistry.Metrics getModelRegistryMetrics() {
+        return ModelRegistry.whisperContexts().snapshot();
+    }
+
+    public ModelRouter.Metrics getModelRoutingMetrics() {
+        return modelLoader.router().snapshot();
+    }
+
+    public LiveTranscriber.Metrics getLiveTranscriptionMetrics() {
+        return liveStats.snapshot();
+    }
+
+    public TranscriptionCache.Metrics getTranscriptionCacheMetrics() {
+        return transcriptionCache.getMetrics();
     }
 }
@@ -2,7 +2,8 @@ package org.mule.extension.whisperer.internal.connection.whisperjni;
 
 import io.github.givimad.whisperjni.WhisperContext;
 import io.github.givimad.whisperjni.WhisperJNI;
-import org.mule.extension.whisperer.internal.helpers.models.WhisperJNICloudhubConfigurer;
+import org.mule.extension.whisperer.internal.cache.TranscriptionCacheParameters;
+import org.mule.extension.whisperer.internal.helpers.models.ArtifactCache;
 import org.mule.runtime.api.connection.CachedConnectionProvider;
 import org.mule.runtime.api.connection.ConnectionException;
 import org.mule.runtime.api.connection.ConnectionValidationResult;
@@ -16,16 +17,15 @@ import org.mule.runtime.extension.api.annotation.Expression;
 import org.mule.runtime.extension.api.annotation.param.Optional;
 import org.mule.runtime.extension.api.annotation.param.Parameter;
 import org.mule.runtime.extension.api.annotation.param.ParameterGroup;
+import org.mule.runtime.extension.api.annotation.param.RefName;
 import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.Collections;
 
 @Alias("whisperjnifile")
 @DisplayName("Whisper JNI (Local .bin)")
@@ -48,17 +48,53 @@ public class WhisperJNILocalConnectionProvider implements CachedConnectionProvid
     @Optional(defaultValue = "false")
     private boolean printProgress;
 
+    @Parameter
+    @Expression(ExpressionSupport.NOT_SUPPORTED)
+    @Optional(defaultValue = "false")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    @Summary("Run a short synthetic transcription at start so the first request does not pay for loading the model pages and audio path. The connection reports as not ready until it finishes.")
+    private boolean warmUp;
+
     @ParameterGroup(name ="Model")
     @Expression(ExpressionSupport.SUPPORTED)
     private WhisperJNILocalModelParameters model;
 
-    private WhisperJNI whisper;
-    private WhisperContext whisperContext;
-    private Path tempModelFile;
+    @ParameterGroup(name = "Concurrency")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private WhisperJNIConcurrencyParameters concurrency;
+
+    @ParameterGroup(name = "Audio buffering")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private AudioBufferingParameters audioBuffering;
+
+    @ParameterGroup(name = "Transcription cache")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private TranscriptionCacheParameters transcriptionCacheParameters;
+
+    @ParameterGroup(name = "Long audio")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private LongAudioParameters longAudio;
+
+    @ParameterGroup(name = "Voice activity detection")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private VoiceActivityParameters voiceActivity;
+
+    @ParameterGroup(name = "Shared cache")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private SharedCacheParameters sharedCache;
+
+    @ParameterGroup(name = "Model loading")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private ModelLoadingParameters modelLoading;
+
+    private WhisperJNIServices services;
+
+    @RefName
+    private String configName;
 
     @Override
     public WhisperJNIConnection connect() throws ConnectionException {
-        return new WhisperJNIConnection(whisper, whisperContext, threads, translate, printProgress);
+        return services.connect(threads, translate, printProgress, audioBuffering.getSpillThresholdBytes());
     }
 
     @Override
@@ -67,95 +103,51 @@ public class WhisperJNILocalConnectionProvider implements CachedConnectionProvid
 
     @Override
     public ConnectionValidationResult validate(WhisperJNIConnection whisperJNIConnection) {
-        return ConnectionValidationResult.success();
-    }
-
-    /**
-     * Resolves the model file path, handling both classpath resources and file system paths.
-     * If the path starts with "classpath://", the resource is extracted to a temporary file.
-     *
-     * @param modelPath The model file path (can be classpath:// or absolute file path)
-     * @return Path to the model file on the file system
-     * @throws IOException if the file cannot be resolved or extracted
-     */
-    private Path resolveModelPath(String modelPath) throws IOException {
-        if (modelPath.startsWith("classpath://")) {
-            String resourcePath = modelPath.substring("classpath://".length());
-            LOGGER.debug("Loading model from classpath resource: {}", resourcePath);
-
-            InputStream resourceStream = Thread.currentThread().getContextClassLoader()
-                .getResourceAsStream(resourcePath);
-
-            if (resourceStream == null) {
-                throw new IOException("Model file not found in classpath: " + resourcePath);
-            }
-
-            // Extract to temporary file
-            String fileName = Paths.get(resourcePath).getFileName().toString();
-            tempModelFile = Files.createTempFile("whisper-model-", "-" + fileName);
-
-            LOGGER.debug("Extracting classpath model to temporary file: {}", tempModelFile);
-            Files.copy(resourceStream, tempModelFile, StandardCopyOption.REPLACE_EXISTING);
-            resourceStream.close();
-
-            // Mark for deletion on JVM exit as backup cleanup
-            tempModelFile.toFile().deleteOnExit();
-
-            return tempModelFile;
-        } else {
-            // Regular file system path
-            Path filePath = Paths.get(modelPath);
-            if (!Files.exists(filePath)) {
-                throw new IOException("Model file not found: " + modelPath);
-            }
-            return filePath;
-        }
+        return services.validate();
     }
 
     @Override
     public void start() throws MuleException {
         try {
-
-            if(WhisperJNICloudhubConfigurer.isCloudHubDeployment()) {
-                LOGGER.info("CloudHub deployment detected. Performing CloudHub specific setup.");
-                Path dependenciesPath = Paths.get(WhisperJNICloudhubConfigurer.WHISPER_DEPENDENCY_LIBS_PATH);
-                if(!Files.exists(dependenciesPath)) {
-                    synchronized (WhisperJNIRemoteConnectionProvider.class) {
-                        if (!Files.exists(dependenciesPath)) {
-                            WhisperJNICloudhubConfigurer.setup();;
-                        }
-                    }
-                }
-            }
-
-            WhisperJNI.loadLibrary();
-            whisper = new WhisperJNI();
-
-            // Resolve model path (handles both classpath and file system paths)
-            Path modelPath = resolveModelPath(model.getModelFilePath());
-            whisperContext = whisper.init(modelPath);
-
-            LOGGER.info("WhisperJNI initialized successfully with model: {}", modelPath);
-
-        } catch (IOException e) {
+            services = WhisperJNIServices.start(configName, concurrency, transcriptionCacheParameters, longAudio, voiceActivity);
+            services.loadModels(modelLoading, this::loadModel);
+        } catch (Exception e) {
             throw new StartException(e, this);
         }
     }
 
+    /**
+     * Loads the configured model, or the one a swap asks for.
+     */
+    private ModelRouter loadModel(ModelSwap swap, ModelLoader.Stages stages, ModelLoader.Resources resources) throws Exception {
+        String modelFilePath = swap != null ? swap.getLocation() : model.getModelFilePath();
+        ArtifactCache artifactCache = WhisperJNIServices.openArtifactCache(sharedCache);
+        WhisperJNI whisper = stages.time("native libraries", () -> services.whisper(artifactCache));
+
+        // Resolve model path (handles both classpath and file system paths)
+        ModelFiles.ResolvedModel resolvedModel = stages.time("model file", () -> ModelFiles.resolve(modelFilePath, artifactCache));
+        resources.add(resolvedModel, resolvedModel);
+        Path modelPath = resolvedModel.getPath();
+        ModelRegistry.SharedModel<WhisperContext> sharedModel =
+            stages.time("whisper.init", () -> ModelRegistry.whisperContexts().acquire(modelPath, whisper::init));
+        resources.add(sharedModel, sharedModel::release);
+        WhisperContext whisperContext = sharedModel.get();
+        WhisperStatePool statePool = stages.time("decoder states", () -> new WhisperStatePool(whisper, whisperContext,
+                                                                                             concurrency.getDecoderStates(),
+                                                                                             concurrency.getStateWaitTimeout(),
+                                                                                             concurrency.getStateWaitTimeoutUnit()));
+        resources.add(statePool, statePool::close);
+        services.warmUp(swap, Collections.singletonList(statePool), warmUp, threads, stages);
+
+        LOGGER.info("WhisperJNI initialized successfully with model: {}", modelPath);
+        return ModelRouter.single(modelFilePath, sharedModel.getChecksum(), statePool);
+    }
+
     @Override
     public void stop() throws MuleException {
-        if (null != whisperContext) {
-            whisperContext.close();
-        }
-
-        // Clean up temporary model file if it was created
-        if (tempModelFile != null && Files.exists(tempModelFile)) {
-            try {
-                Files.delete(tempModelFile);
-                LOGGER.info("Deleted temporary model file: {}", tempModelFile);
-            } catch (IOException e) {
-                LOGGER.warn("Failed to delete temporary model file: {}", tempModelFile, e);
-            }
+        if (services != null) {
+            // Releases the model once requests still holding it finish
+            services.stop();
         }
     }
 }
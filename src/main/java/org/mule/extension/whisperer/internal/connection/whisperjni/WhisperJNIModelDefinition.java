@@ -0,0 +1,56 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Example;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+public class WhisperJNIModelDefinition {
+
+  @Parameter
+  @DisplayName("Name")
+  @Summary("Name routing rules and transcription attributes refer to this model by")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Example("tiny.en")
+  private String name;
+
+  @Parameter
+  @DisplayName("File path")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Example("\"classpath://models/ggml-model-whisper-tiny.en-q8_0.bin\"")
+  private String modelFilePath;
+
+  @Parameter
+  @DisplayName("Decoder states")
+  @Summary("Concurrent transcriptions this model can serve. Defaults to the decoder states of the Concurrency settings.")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional
+  private Integer decoderStates;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getModelFilePath() {
+    return modelFilePath;
+  }
+
+  public void setModelFilePath(String modelFilePath) {
+    this.modelFilePath = modelFilePath;
+  }
+
+  public Integer getDecoderStates() {
+    return decoderStates;
+  }
+
+  public void setDecoderStates(Integer decoderStates) {
+    this.decoderStates = decoderStates;
+  }
+}
@@ -0,0 +1,278 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import io.github.givimad.whisperjni.WhisperContext;
+import io.github.givimad.whisperjni.WhisperJNI;
+import org.mule.extension.whisperer.internal.cache.TranscriptionCacheParameters;
+import org.mule.extension.whisperer.internal.helpers.models.ArtifactCache;
+import org.mule.runtime.api.connection.CachedConnectionProvider;
+import org.mule.runtime.api.connection.ConnectionException;
+import org.mule.runtime.api.connection.ConnectionValidationResult;
+import org.mule.runtime.api.exception.MuleException;
+import org.mule.runtime.api.lifecycle.Startable;
+import org.mule.runtime.api.lifecycle.Stoppable;
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.core.api.lifecycle.StartException;
+import org.mule.runtime.extension.api.annotation.Alias;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.NullSafe;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.ParameterGroup;
+import org.mule.runtime.extension.api.annotation.param.RefName;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Loads several local Whisper models side by side and routes every transcription to one of them by audio
+ * duration, requested language and inference queue depth. The models share the inference threads, while each
+ * has its own decoder states.
+ */
+@Alias("whisperjnimulti")
+@DisplayName("Whisper JNI (Multiple models)")
+public class WhisperJNIMultiModelConnectionProvider
+    implements CachedConnectionProvider<WhisperJNIConnection>, Startable, Stoppable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WhisperJNIMultiModelConnectionProvider.class);
+
+    @Parameter
+    @Expression(ExpressionSupport.SUPPORTED)
+    @Optional(defaultValue = "4")
+    private int threads;
+
+    @Parameter
+    @Expression(ExpressionSupport.SUPPORTED)
+    @Optional(defaultValue = "false")
+    private boolean translate;
+
+    @Parameter
+    @Expression(ExpressionSupport.SUPPORTED)
+    @Optional(defaultValue = "false")
+    private boolean printProgress;
+
+    @Parameter
+    @Expression(ExpressionSupport.NOT_SUPPORTED)
+    @Optional(defaultValue = "false")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    @Summary("Run a short synthetic transcription on every model at start so the first request does not pay for loading the model pages and audio path. The connection reports as not ready until it finishes.")
+    private boolean warmUp;
+
+    @Parameter
+    @Expression(ExpressionSupport.NOT_SUPPORTED)
+    @Summary("Models to load. Transcriptions no routing rule matches go to the first one.")
+    private List<WhisperJNIModelDefinition> models;
+
+    @Parameter
+    @Expression(ExpressionSupport.NOT_SUPPORTED)
+    @Optional
+    @NullSafe
+    @Summary("Rules checked in order; the first one whose conditions all hold picks the model")
+    private List<WhisperJNIRoutingRule> routingRules;
+
+    @ParameterGroup(name = "Concurrency")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private WhisperJNIConcurrencyParameters concurrency;
+
+    @ParameterGroup(name = "Audio buffering")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private AudioBufferingParameters audioBuffering;
+
+    @ParameterGroup(name = "Transcription cache")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private TranscriptionCacheParameters transcriptionCacheParameters;
+
+    @ParameterGroup(name = "Long audio")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private LongAudioParameters longAudio;
+
+    @ParameterGroup(name = "Voice activity detection")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private VoiceActivityParameters voiceActivity;
+
+    @ParameterGroup(name = "Shared cache")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private SharedCacheParameters sharedCache;
+
+    @ParameterGroup(name = "Model loading")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private ModelLoadingParameters modelLoading;
+
+    // Model locations by name, as configured and as replaced by swaps
+    private volatile Map<String, String> modelLocations;
+    // The models of the current generation by name, for the next swap to carry over
+    private volatile Map<String, LoadedModel> loadedModels = Collections.emptyMap();
+    private WhisperJNIServices services;
+
+    @RefName
+    private String configName;
+
+    @Override
+    public WhisperJNIConnection connect() throws ConnectionException {
+        return services.connect(threads, translate, printProgress, audioBuffering.getSpillThresholdBytes());
+    }
+
+    @Override
+    public void disconnect(WhisperJNIConnection whisperJNIConnection) {
+    }
+
+    @Override
+    public ConnectionValidationResult validate(WhisperJNIConnection whisperJNIConnection) {
+        return services.validate();
+    }
+
+    @Override
+    public void start() throws MuleException {
+        if (models == null || models.isEmpty()) {
+            throw new StartException(new IllegalArgumentException("At least one model must be configured"), this);
+        }
+        Map<String, String> locations = new LinkedHashMap<>();
+        for (WhisperJNIModelDefinition definition : models) {
+            if (locations.put(definition.getName(), definition.getModelFilePath()) != null) {
+                throw new StartException(new IllegalArgumentException("Model name '" + definition.getName() + "' is configured more than once"), this);
+            }
+        }
+        modelLocations = locations;
+
+        try {
+            services = WhisperJNIServices.start(configName, concurrency, transcriptionCacheParameters, longAudio, voiceActivity);
+            services.loadModels(modelLoading, this::loadModels);
+        } catch (Exception e) {
+            throw new StartException(e, this);
+        }
+    }
+
+    /**
+     * Loads every configured model, with the one a swap asks for in place of its current location. Models that
+     * did not change keep the decoder states of the previous generation, so a swap only loads and warms up the
+     * one it replaces.
+     */
+    private ModelRouter loadModels(ModelSwap swap, ModelLoader.Stages stages, ModelLoader.Resources resources) throws Exception {
+        Map<String, String> locations = new LinkedHashMap<>(modelLocations);
+        if (swap != null) {
+            if (!locations.containsKey(swap.getModel())) {
+                throw new IllegalArgumentException("No model named '" + swap.getModel() + "' is configured, expected one of " + locations.keySet());
+            }
+            locations.put(swap.getModel(), swap.getLocation());
+        }
+        ArtifactCache artifactCache = WhisperJNIServices.openArtifactCache(sharedCache);
+        WhisperJNI whisper = stages.time("native libraries", () -> services.whisper(artifactCache));
+
+        // The cache serves a result whichever model routing picked, so its key covers the whole model set; results
+        // degraded under overload are never cached
+        StringBuilder cacheId = new StringBuilder("models");
+        Map<String, WhisperStatePool> statePools = new LinkedHashMap<>();
+        Map<String, LoadedModel> loaded = new LinkedHashMap<>();
+        List<WhisperStatePool> created = new ArrayList<>();
+        for (WhisperJNIModelDefinition definition : models) {
+            String modelFilePath = locations.get(definition.getName());
+            LoadedModel previous = loadedModels.get(definition.getName());
+            LoadedModel model;
+            if (previous != null && previous.location.equals(modelFilePath) && previous.retain()) {
+                model = previous;
+            } else {
+                model = loadModel(whisper, definition, modelFilePath, artifactCache, stages);
+                created.add(model.statePool);
+            }
+            resources.add(model, model::release);
+            loaded.put(definition.getName(), model);
+            statePools.put(definition.getName(), model.statePool);
+            cacheId.append(';').append(definition.getName()).append("=sha256:").append(model.checksum);
+        }
+
+        List<ModelRouter.Rule> rules = new ArrayList<>(routingRules.size());
+        for (WhisperJNIRoutingRule routingRule : routingRules) {
+            rules.add(routingRule.toRule());
+        }
+        ThreadPoolExecutor executor = services.getInferenceExecutor();
+        ModelRouter modelRouter = new ModelRouter(statePools, models.get(0).getName(), rules, () -> executor.getQueue().size(),
+                                                  cacheId.toString());
+        // A model swapped to where it already was is carried over warm, so only the ones this load created warm up
+        services.warmUp(swap, created, warmUp, threads, stages);
+        modelLocations = locations;
+        loadedModels = loaded;
+        return modelRouter;
+    }
+
+    private LoadedModel loadModel(WhisperJNI whisper, WhisperJNIModelDefinition definition, String modelFilePath,
+                                  ArtifactCache artifactCache, ModelLoader.Stages stages) throws Exception {
+        ModelLoader.Resources resources = new ModelLoader.Resources();
+        try {
+            ModelFiles.ResolvedModel resolvedModel = stages.time(definition.getName() + " model file",
+                                                                 () -> ModelFiles.resolve(modelFilePath, artifactCache));
+            resources.add(resolvedModel, resolvedModel);
+            Path modelPath = resolvedModel.getPath();
+            ModelRegistry.SharedModel<WhisperContext> sharedModel =
+                stages.time(definition.getName() + " whisper.init", () -> ModelRegistry.whisperContexts().acquire(modelPath, whisper::init));
+            resources.add(sharedModel, sharedModel::release);
+            WhisperContext whisperContext = sharedModel.get();
+            int decoderStates = definition.getDecoderStates() != null ? definition.getDecoderStates() : concurrency.getDecoderStates();
+            WhisperStatePool statePool = stages.time(definition.getName() + " decoder states",
+                                                     () -> new WhisperStatePool(whisper, whisperContext, decoderStates,
+                                                                                concurrency.getStateWaitTimeout(),
+                                                                                concurrency.getStateWaitTimeoutUnit()));
+            resources.add(statePool, statePool::close);
+            LOGGER.info("WhisperJNI loaded model {} with {} decoder state(s) from: {}", definition.getName(), decoderStates, modelPath);
+            return new LoadedModel(modelFilePath, sharedModel.getChecksum(), statePool, resources);
+        } catch (Throwable e) {
+            resources.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void stop() throws MuleException {
+        if (services != null) {
+            services.stop();
+        }
+    }
+
+    /**
+     * One model with its decoder states, held by every generation that has not swapped it out.
+     */
+    private static final class LoadedModel {
+
+        private final String location;
+        private final String checksum;
+        private final WhisperStatePool statePool;
+        private final ModelLoader.Resources resources;
+        private int references = 1;
+
+        LoadedModel(String location, String checksum, WhisperStatePool statePool, ModelLoader.Resources resources) {
+            this.location = location;
+            this.checksum = checksum;
+            this.statePool = statePool;
+            this.resources = resources;
+        }
+
+        /**
+         * @return whether the model is still open and now held once more
+         */
+        synchronized boolean retain() {
+            if (references == 0) {
+                return false;
+            }
+            references++;
+            return true;
+        }
+
+        void release() {
+            boolean last;
+            synchronized (this) {
+                last = --references == 0;
+            }
+            if (last) {
+                resources.close();
+            }
+        }
+    }
+}
@@ -2,7 +2,8 @@ package org.mule.extension.whisperer.internal.connection.whisperjni;
 
 import io.github.givimad.whisperjni.WhisperContext;
 import io.github.givimad.whisperjni.WhisperJNI;
-import org.mule.extension.whisperer.internal.helpers.models.WhisperJNICloudhubConfigurer;
+import org.mule.extension.whisperer.internal.cache.TranscriptionCacheParameters;
+import org.mule.extension.whisperer.internal.helpers.models.ArtifactCache;
 import org.mule.extension.whisperer.internal.helpers.models.WhisperJNIModelConfigurer;
 import org.mule.runtime.api.connection.CachedConnectionProvider;
 import org.mule.runtime.api.connection.ConnectionException;
@@ -17,14 +18,20 @@ import org.mule.runtime.extension.api.annotation.Expression;
 import org.mule.runtime.extension.api.annotation.param.Optional;
 import org.mule.runtime.extension.api.annotation.param.Parameter;
 import org.mule.runtime.extension.api.annotation.param.ParameterGroup;
+import org.mule.runtime.extension.api.annotation.param.RefName;
 import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Locale;
 
 @Alias("whisperjniurl")
 @DisplayName("Whisper JNI (Remote .bin)")
@@ -33,6 +40,8 @@ public class WhisperJNIRemoteConnectionProvider
 
     private static final Logger LOGGER = LoggerFactory.getLogger(WhisperJNIRemoteConnectionProvider.class);
 
+    private static final String CACHED_MODEL_FILE_NAME = "model.bin";
+
     @Parameter
     @Expression(ExpressionSupport.SUPPORTED)
     @Optional(defaultValue = "4")
@@ -48,15 +57,53 @@ public class WhisperJNIRemoteConnectionProvider
     @Optional(defaultValue = "false")
     private boolean printProgress;
 
+    @Parameter
+    @Expression(ExpressionSupport.NOT_SUPPORTED)
+    @Optional(defaultValue = "false")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    @Summary("Run a short synthetic transcription at start so the first request does not pay for loading the model pages and audio path. The connection reports as not ready until it finishes.")
+    private boolean warmUp;
+
     @ParameterGroup(name ="Model")
     @Expression(ExpressionSupport.SUPPORTED)
     private WhisperJNIRemoteModelParameters model;
 
-    private WhisperJNI whisper;
-    private WhisperContext whisperContext;
+    @ParameterGroup(name = "Concurrency")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private WhisperJNIConcurrencyParameters concurrency;
+
+    @ParameterGroup(name = "Audio buffering")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private AudioBufferingParameters audioBuffering;
+
+    @ParameterGroup(name = "Transcription cache")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private TranscriptionCacheParameters transcriptionCacheParameters;
+
+    @ParameterGroup(name = "Long audio")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private LongAudioParameters longAudio;
+
+    @ParameterGroup(name = "Voice activity detection")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private VoiceActivityParameters voiceActivity;
+
+    @ParameterGroup(name = "Shared cache")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private SharedCacheParameters sharedCache;
+
+    @ParameterGroup(name = "Model loading")
+    @Placement(tab = Placement.ADVANCED_TAB)
+    private ModelLoadingParameters modelLoading;
+
+    private WhisperJNIServices services;
+
+    @RefName
+    private String configName;
+
     @Override
     public WhisperJNIConnection connect() throws ConnectionException {
-        return new WhisperJNIConnection(whisper, whisperContext, threads, translate, printProgress);
+        return services.connect(threads, translate, printProgress, audioBuffering.getSpillThresholdBytes());
     }
 
     @Override
@@ -65,48 +112,98 @@ public class WhisperJNIRemoteConnectionProvider
 
     @Override
     public ConnectionValidationResult validate(WhisperJNIConnection whisperJNIConnection) {
-        return ConnectionValidationResult.success();
+        return services.validate();
     }
 
     @Override
     public void start() throws MuleException {
         try {
-            String modelFilePathString = model.getInstallationFilePath();
-            Path modelFilePath = Paths.get(modelFilePathString);
+            services = WhisperJNIServices.start(configName, concurrency, transcriptionCacheParameters, longAudio, voiceActivity);
+            services.loadModels(modelLoading, this::loadModel);
+        } catch (Exception e) {
+            throw new StartException(e, this);
+        }
+    }
 
-            if (!Files.exists(modelFilePath)) {
-                synchronized (WhisperJNIRemoteConnectionProvider.class) {
-                    if (!Files.exists(modelFilePath)) {
-                        WhisperJNIModelConfigurer.setup(model.getModelURL(), model.getInstallationFilePath());
-                    }
-                }
+    /**
+     * Downloads and loads the configured model, or the one a swap asks for.
+     */
+    private ModelRouter loadModel(ModelSwap swap, ModelLoader.Stages stages, ModelLoader.Resources resources) throws Exception {
+        String modelURL = swap != null ? swap.getLocation() : model.getModelURL();
+        String expectedSha256 = swap != null ? swap.getExpectedSha256() : model.getExpectedSha256();
+        ArtifactCache artifactCache = WhisperJNIServices.openArtifactCache(sharedCache);
+
+        Path modelFilePath = stages.time("model download", () -> {
+            if (artifactCache != null) {
+                ArtifactCache.Lease modelLease = obtainCachedModel(artifactCache, modelURL, expectedSha256);
+                resources.add(modelLease, modelLease);
+                return modelLease.getDirectory().resolve(CACHED_MODEL_FILE_NAME);
             }
-
-            if(WhisperJNICloudhubConfigurer.isCloudHubDeployment()) {
-                LOGGER.info("CloudHub deployment detected. Performing CloudHub specific setup.");
-                Path dependenciesPath = Paths.get(WhisperJNICloudhubConfigurer.WHISPER_DEPENDENCY_LIBS_PATH);
-                if(!Files.exists(dependenciesPath)) {
-                    synchronized (WhisperJNIRemoteConnectionProvider.class) {
-                        if (!Files.exists(dependenciesPath)) {
-                            WhisperJNICloudhubConfigurer.setup();
-                        }
-                    }
+            if (model.getInstallationFilePath() == null) {
+                throw new IOException("Either an installation file path or a shared cache directory is required for " + modelURL);
+            }
+            String installationFilePath = swap != null ? swapInstallationFilePath(modelURL) : model.getInstallationFilePath();
+            // Only complete downloads are ever renamed onto the installation path; with a checksum, an installed
+            // copy is verified as well
+            if (!Files.exists(Paths.get(installationFilePath)) || expectedSha256 != null) {
+                synchronized (WhisperJNIRemoteConnectionProvider.class) {
+                    WhisperJNIModelConfigurer.setup(modelURL, installationFilePath, expectedSha256, model.getDownloadConnections());
                 }
             }
+            return Paths.get(installationFilePath);
+        });
+
+        WhisperJNI whisper = stages.time("native libraries", () -> services.whisper(artifactCache));
+        ModelRegistry.SharedModel<WhisperContext> sharedModel =
+            stages.time("whisper.init", () -> ModelRegistry.whisperContexts().acquire(modelFilePath, whisper::init));
+        resources.add(sharedModel, sharedModel::release);
+        WhisperContext whisperContext = sharedModel.get();
+        WhisperStatePool statePool = stages.time("decoder states", () -> new WhisperStatePool(whisper, whisperContext,
+                                                                                             concurrency.getDecoderStates(),
+                                                                                             concurrency.getStateWaitTimeout(),
+                                                                                             concurrency.getStateWaitTimeoutUnit()));
+        resources.add(statePool, statePool::close);
+        services.warmUp(swap, Collections.singletonList(statePool), warmUp, threads, stages);
+        return ModelRouter.single(modelURL, sharedModel.getChecksum(), statePool);
+    }
 
-            WhisperJNI.loadLibrary();
-            whisper = new WhisperJNI();
-            whisperContext = whisper.init(modelFilePath);
-
-        } catch (IOException e) {
-            throw new StartException(e, this);
+    /**
+     * @return where a swapped-in model is installed without a shared cache: next to the configured model, named
+     * by its URL so that a file installed from another URL is never taken for it, with the file name in the URL
+     * kept as a suffix to tell the files apart
+     */
+    private String swapInstallationFilePath(String modelURL) throws IOException {
+        Path urlFileName = Paths.get(new URL(modelURL).getPath()).getFileName();
+        String fileName = ArtifactCache.key("model-url", modelURL);
+        if (urlFileName != null && !urlFileName.toString().isEmpty()) {
+            fileName += "-" + urlFileName;
+        } else {
+            fileName += ".bin";
         }
+        return Paths.get(model.getInstallationFilePath()).resolveSibling(fileName).toString();
+    }
+
+    /**
+     * Downloads the model into the shared cache unless another application or process already has. The cache
+     * entry is keyed by the expected checksum when there is one, so any URL serving the same model shares it.
+     */
+    private ArtifactCache.Lease obtainCachedModel(ArtifactCache artifactCache, String modelURL, String expectedSha256) throws IOException {
+        String key = expectedSha256 != null
+            ? ArtifactCache.key("model-sha256", expectedSha256.trim().toLowerCase(Locale.ROOT))
+            : ArtifactCache.key("model-url", modelURL);
+        return artifactCache.obtain(key, directory -> {
+            // Downloaded into the entry's work directory first, so an interrupted download resumes
+            Path download = artifactCache.workDirectory(key).resolve(CACHED_MODEL_FILE_NAME);
+            WhisperJNIModelConfigurer.setup(modelURL, download.toString(), expectedSha256, model.getDownloadConnections());
+            Files.move(download, directory.resolve(CACHED_MODEL_FILE_NAME));
+        });
     }
 
     @Override
     public void stop() throws MuleException {
-        if (null != whisperContext) {
-            whisperContext.close();
+        if (services != null) {
+            // Releases the model once requests still holding it finish
+            services.stop();
         }
     }
 }
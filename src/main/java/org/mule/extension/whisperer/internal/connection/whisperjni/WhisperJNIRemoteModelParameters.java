@@ -2,10 +2,12 @@ package org.mule.extension.whisperer.internal.connection.whisperjni;
 
 import org.mule.runtime.api.meta.ExpressionSupport;
 import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
 import org.mule.runtime.extension.api.annotation.param.Parameter;
 import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
 import org.mule.runtime.extension.api.annotation.param.display.Example;
 import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
 
 public class WhisperJNIRemoteModelParameters {
 
@@ -18,11 +20,29 @@ public class WhisperJNIRemoteModelParameters {
 
   @Parameter
   @DisplayName("Installation file path")
+  @Summary("Where the model is installed. Required unless a shared cache directory is configured, which then holds the model instead.")
   @Expression(ExpressionSupport.SUPPORTED)
+  @Optional
   @Placement(order = 2)
   @Example("mule.home ++ \"/apps/\" ++ app.name ++ \"/model.bin\"")
   private String installationFilePath;
 
+  @Parameter
+  @DisplayName("Expected SHA-256")
+  @Summary("Hex SHA-256 of the model file. When set, the download and any installed copy are verified against it, and a copy that does not match is downloaded again.")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional
+  @Placement(order = 3)
+  private String expectedSha256;
+
+  @Parameter
+  @DisplayName("Download connections")
+  @Summary("Parallel HTTP range requests used to download the model")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional(defaultValue = "4")
+  @Placement(order = 4)
+  private int downloadConnections;
+
   public String getModelURL() {
     return modelURL;
   }
@@ -39,6 +59,22 @@ public class WhisperJNIRemoteModelParameters {
     this.installationFilePath = installationFilePath;
   }
 
+  public String getExpectedSha256() {
+    return expectedSha256;
+  }
+
+  public void setExpectedSha256(String expectedSha256) {
+    this.expectedSha256 = expectedSha256;
+  }
+
+  public int getDownloadConnections() {
+    return downloadConnections;
+  }
+
+  public void setDownloadConnections(int downloadConnections) {
+    this.downloadConnections = downloadConnections;
+  }
+
   private String getModelFileName() {
 
     try {
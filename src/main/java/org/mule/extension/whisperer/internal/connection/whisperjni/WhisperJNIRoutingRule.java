@@ -0,0 +1,88 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.mule.runtime.api.meta.ExpressionSupport;
+import org.mule.runtime.extension.api.annotation.Expression;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Example;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class WhisperJNIRoutingRule {
+
+  @Parameter
+  @DisplayName("Model")
+  @Summary("Name of the model that serves transcriptions matching this rule")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  @Example("large-v3-turbo")
+  private String model;
+
+  @Parameter
+  @DisplayName("Max duration (seconds)")
+  @Summary("Match only audio at most this long, after any silence was removed")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional
+  private Double maxDurationSeconds;
+
+  @Parameter
+  @DisplayName("Languages")
+  @Summary("Comma-separated languages to match, compared with the language requested by the operation")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional
+  @Example("en")
+  private String languages;
+
+  @Parameter
+  @DisplayName("Min queue depth")
+  @Summary("Match only while at least this many requests wait for an inference thread, to degrade to a faster model under load")
+  @Expression(ExpressionSupport.SUPPORTED)
+  @Optional
+  private Integer minQueueDepth;
+
+  public String getModel() {
+    return model;
+  }
+
+  public void setModel(String model) {
+    this.model = model;
+  }
+
+  public Double getMaxDurationSeconds() {
+    return maxDurationSeconds;
+  }
+
+  public void setMaxDurationSeconds(Double maxDurationSeconds) {
+    this.maxDurationSeconds = maxDurationSeconds;
+  }
+
+  public String getLanguages() {
+    return languages;
+  }
+
+  public void setLanguages(String languages) {
+    this.languages = languages;
+  }
+
+  public Integer getMinQueueDepth() {
+    return minQueueDepth;
+  }
+
+  public void setMinQueueDepth(Integer minQueueDepth) {
+    this.minQueueDepth = minQueueDepth;
+  }
+
+  ModelRouter.Rule toRule() {
+    Set<String> languageSet = new LinkedHashSet<>();
+    if (languages != null) {
+      for (String language : languages.split(",")) {
+        if (!language.trim().isEmpty()) {
+          languageSet.add(language);
+        }
+      }
+    }
+    return new ModelRouter.Rule(model, maxDurationSeconds, languageSet, minQueueDepth);
+  }
+}
@@ -0,0 +1,167 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import io.github.givimad.whisperjni.WhisperJNI;
+import org.mule.extension.whisperer.internal.cache.TranscriptionCache;
+import org.mule.extension.whisperer.internal.cache.TranscriptionCacheParameters;
+import org.mule.extension.whisperer.internal.helpers.audio.VoiceActivityDetector;
+import org.mule.extension.whisperer.internal.helpers.models.ArtifactCache;
+import org.mule.extension.whisperer.internal.helpers.models.WhisperJNICloudhubConfigurer;
+import org.mule.runtime.api.connection.ConnectionValidationResult;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What every Whisper JNI connection provider runs besides its models: the inference and live stream executors, the
+ * transcription cache, long-audio splitting, silence detection, the native library and the model loader.
+ *
+ * <p>A provider starts one when it starts, loads its models through {@link #loadModels}, and stops it when it
+ * stops, which winds everything down in order.
+ */
+final class WhisperJNIServices {
+
+    private static final long SHUTDOWN_GRACE_SECONDS = 30;
+
+    private final String configName;
+    private final ThreadPoolExecutor inferenceExecutor;
+    private final LiveStreamExecutor liveStreamExecutor;
+    private final TranscriptionCache transcriptionCache;
+    private final LongAudioTranscriber longAudioTranscriber;
+    private final VoiceActivityDetector voiceActivityDetector;
+    private final LiveTranscriber.Stats liveStats = new LiveTranscriber.Stats();
+    private volatile WhisperJNI whisper;
+    private volatile ModelLoader modelLoader;
+    // Assigned by a background load, read by validation
+    private volatile ModelWarmUp modelWarmUp = ModelWarmUp.skipped();
+
+    private WhisperJNIServices(String configName, ThreadPoolExecutor inferenceExecutor, LiveStreamExecutor liveStreamExecutor,
+                               TranscriptionCache transcriptionCache, LongAudioTranscriber longAudioTranscriber,
+                               VoiceActivityDetector voiceActivityDetector) {
+        this.configName = configName;
+        this.inferenceExecutor = inferenceExecutor;
+        this.liveStreamExecutor = liveStreamExecutor;
+        this.transcriptionCache = transcriptionCache;
+        this.longAudioTranscriber = longAudioTranscriber;
+        this.voiceActivityDetector = voiceActivityDetector;
+    }
+
+    /**
+     * Starts the executors and sets up the cache, long-audio splitting and silence detection as configured.
+     *
+     * @throws IOException if the transcription cache's disk tier cannot be opened
+     */
+    static WhisperJNIServices start(String configName, WhisperJNIConcurrencyParameters concurrency,
+                                    TranscriptionCacheParameters transcriptionCacheParameters, LongAudioParameters longAudio,
+                                    VoiceActivityParameters voiceActivity) throws IOException {
+        ThreadPoolExecutor inferenceExecutor = InferenceExecutors.create(concurrency.getInferenceThreadNamePrefix() + "-" + configName,
+                                                                         concurrency.getInferenceThreads(),
+                                                                         concurrency.getInferenceQueueCapacity());
+        LiveStreamExecutor liveStreamExecutor = new LiveStreamExecutor(concurrency.getInferenceThreadNamePrefix() + "-live-" + configName,
+                                                                       concurrency.getMaxLiveStreams());
+        TranscriptionCache transcriptionCache;
+        try {
+            transcriptionCache = TranscriptionCache.create(transcriptionCacheParameters);
+        } catch (IOException e) {
+            liveStreamExecutor.shutdown(0, TimeUnit.SECONDS);
+            InferenceExecutors.shutdown(inferenceExecutor, 0, TimeUnit.SECONDS);
+            throw e;
+        }
+        // Windows of one request run side by side only as far as both decoder states and threads allow
+        LongAudioTranscriber longAudioTranscriber =
+            LongAudioTranscriber.create(longAudio, Math.min(concurrency.getDecoderStates(), concurrency.getInferenceThreads()),
+                                        inferenceExecutor);
+        VoiceActivityDetector voiceActivityDetector = voiceActivity.isSkipSilence()
+            ? new VoiceActivityDetector(voiceActivity.getSilenceThresholdDb(), voiceActivity.getMinSilenceMillis(),
+                                        voiceActivity.getSpeechPaddingMillis())
+            : null;
+        return new WhisperJNIServices(configName, inferenceExecutor, liveStreamExecutor, transcriptionCache,
+                                      longAudioTranscriber, voiceActivityDetector);
+    }
+
+    /**
+     * Loads the models with {@code task}, on the calling thread or in the background as configured.
+     *
+     * @throws Exception whatever loading on the calling thread threw
+     */
+    void loadModels(ModelLoadingParameters modelLoading, ModelLoader.Task task) throws Exception {
+        modelLoader = modelLoading.isLoadInBackground()
+            ? ModelLoader.loadInBackground(configName, modelLoading.getLoadWaitTimeoutMillis(), task)
+            : ModelLoader.load(configName, task);
+    }
+
+    /**
+     * @return the shared cache directory if one is configured, otherwise {@code null}
+     */
+    static ArtifactCache openArtifactCache(SharedCacheParameters sharedCache) throws IOException {
+        return sharedCache.getCacheDirectory() != null
+            ? ArtifactCache.open(Paths.get(sharedCache.getCacheDirectory()), sharedCache.getCacheQuotaBytes())
+            : null;
+    }
+
+    /**
+     * @return the Whisper native library, set up and loaded by the first call
+     */
+    synchronized WhisperJNI whisper(ArtifactCache artifactCache) throws IOException {
+        if (whisper == null) {
+            WhisperJNICloudhubConfigurer.ensureSetup(artifactCache);
+            WhisperJNI.loadLibrary();
+            whisper = new WhisperJNI();
+        }
+        return whisper;
+    }
+
+    /**
+     * Warms up the decoder states a load created. A swapped-in model takes over from a warm one, so it always warms
+     * up before taking traffic; the configured models warm up in the background when {@code warmUp} is set.
+     */
+    void warmUp(ModelSwap swap, List<WhisperStatePool> created, boolean warmUp, int threads, ModelLoader.Stages stages)
+        throws Exception {
+        if (created.isEmpty()) {
+            return;
+        }
+        if (swap != null) {
+            ModelWarmUp swapWarmUp = ModelWarmUp.start(created, inferenceExecutor, threads, configName);
+            stages.time("warm-up", () -> {
+                swapWarmUp.awaitCompletion();
+                return null;
+            });
+        } else if (warmUp) {
+            modelWarmUp = ModelWarmUp.start(created, inferenceExecutor, threads, configName);
+        }
+    }
+
+    WhisperJNIConnection connect(int threads, boolean translate, boolean printProgress, long spillThresholdBytes) {
+        return new WhisperJNIConnection(modelLoader, inferenceExecutor, liveStreamExecutor, threads, translate, printProgress,
+                                        spillThresholdBytes, transcriptionCache, longAudioTranscriber, voiceActivityDetector,
+                                        liveStats);
+    }
+
+    /**
+     * @return a failure while the models load or warm up, or if they failed to load
+     */
+    ConnectionValidationResult validate() {
+        ConnectionValidationResult loading = modelLoader.validate();
+        return loading.isValid() ? modelWarmUp.validate() : loading;
+    }
+
+    ThreadPoolExecutor getInferenceExecutor() {
+        return inferenceExecutor;
+    }
+
+    /**
+     * Gives open live streams and then in-flight transcriptions a grace period to finish, closes the cache and
+     * releases the models once the requests still holding them are done.
+     */
+    void stop() {
+        // Live streams first, so none queues another step while inference winds down
+        liveStreamExecutor.shutdown(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS);
+        InferenceExecutors.shutdown(inferenceExecutor, SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS);
+        transcriptionCache.close();
+        if (modelLoader != null) {
+            modelLoader.close();
+        }
+    }
+}
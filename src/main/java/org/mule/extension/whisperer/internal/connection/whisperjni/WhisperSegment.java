@@ -0,0 +1,63 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import io.github.givimad.whisperjni.WhisperJNI;
+import io.github.givimad.whisperjni.WhisperState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One decoded segment, with whisper.cpp timestamps in centiseconds from the start of the whole recording.
+ */
+final class WhisperSegment {
+
+    /** whisper.cpp reports timestamps in 10 ms units, 160 samples at 16kHz. */
+    static final int SAMPLES_PER_CENTISECOND = 160;
+
+    private final long startCentis;
+    private final long endCentis;
+    private final String text;
+
+    WhisperSegment(long startCentis, long endCentis, String text) {
+        this.startCentis = startCentis;
+        this.endCentis = endCentis;
+        this.text = text;
+    }
+
+    /**
+     * Reads every segment of the last {@code fullWithState} run on {@code state}.
+     *
+     * @param offsetCentis position of the transcribed samples within the recording, added to each timestamp
+     */
+    static List<WhisperSegment> collect(WhisperJNI whisper, WhisperState state, long offsetCentis) {
+        int count = whisper.fullNSegmentsFromState(state);
+        List<WhisperSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            segments.add(new WhisperSegment(offsetCentis + whisper.fullGetSegmentTimestamp0FromState(state, i),
+                                            offsetCentis + whisper.fullGetSegmentTimestamp1FromState(state, i),
+                                            whisper.fullGetSegmentTextFromState(state, i)));
+        }
+        return segments;
+    }
+
+    long getStartCentis() {
+        return startCentis;
+    }
+
+    long getEndCentis() {
+        return endCentis;
+    }
+
+    long getMidpointCentis() {
+        return (startCentis + endCentis) / 2;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + startCentis + "-" + endCentis + "] " + text;
+    }
+}
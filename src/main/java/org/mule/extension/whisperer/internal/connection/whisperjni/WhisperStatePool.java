@@ -0,0 +1,179 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import io.github.givimad.whisperjni.WhisperContext;
+import io.github.givimad.whisperjni.WhisperJNI;
+import io.github.givimad.whisperjni.WhisperState;
+import org.mule.extension.whisperer.api.error.ConnectorError;
+import org.mule.runtime.extension.api.exception.ModuleException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-size pool of {@link WhisperState} decoder states sharing one loaded {@link WhisperContext}.
+ *
+ * <p>The model weights live once in the context, while every state holds its own KV cache and decoding
+ * buffers. Borrowing a state per request lets several transcriptions run against the same model at the
+ * same time via {@code fullWithState}, instead of serializing on (or corrupting) the context's default state.
+ */
+public class WhisperStatePool implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WhisperStatePool.class);
+
+    private final WhisperJNI whisper;
+    private final WhisperContext context;
+    private final LeasePool<WhisperState> states;
+
+    public WhisperStatePool(WhisperJNI whisper, WhisperContext context, int size, long borrowTimeout, TimeUnit borrowTimeoutUnit) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Decoder state pool size must be at least 1, got " + size);
+        }
+        this.whisper = whisper;
+        this.context = context;
+
+        // States are allocated eagerly so a model that cannot fit N states fails at start() rather than mid-flow
+        List<WhisperState> allStates = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                allStates.add(whisper.initState(context));
+            }
+        } catch (RuntimeException e) {
+            allStates.forEach(WhisperState::close);
+            throw e;
+        }
+        this.states = new LeasePool<>(allStates, borrowTimeout, borrowTimeoutUnit, WhisperState::close);
+        LOGGER.debug("Initialized {} Whisper decoder state(s)", size);
+    }
+
+    /**
+     * Takes an idle decoder state, waiting up to the configured borrow timeout for one to be released.
+     *
+     * @return a lease on the state, which must be handed back through {@link #release(Lease)}
+     * @throws ModuleException with {@link ConnectorError#TIMEOUT} if no state became available in time
+     */
+    public Lease borrow() {
+        try {
+            return new Lease(states.borrow());
+        } catch (ModuleException e) {
+            if (e.getType() == ConnectorError.TIMEOUT) {
+                LOGGER.warn("{} Decoder states: {}", e.getMessage(), getMetrics());
+            }
+            throw e;
+        }
+    }
+
+    public void release(Lease lease) {
+        states.release(lease.lease);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Released Whisper decoder state. {}", getMetrics());
+        }
+    }
+
+    public WhisperJNI getWhisper() {
+        return whisper;
+    }
+
+    public WhisperContext getContext() {
+        return context;
+    }
+
+    public int getSize() {
+        return states.getSize();
+    }
+
+    public Metrics getMetrics() {
+        return states.getMetrics();
+    }
+
+    /**
+     * Refuses further borrows, waits for borrowed decoder states to be released and closes every state, so the
+     * context can be freed once this returns.
+     */
+    @Override
+    public void close() {
+        states.close();
+        LOGGER.info("Closed Whisper decoder state pool. {}", getMetrics());
+    }
+
+    /**
+     * A borrowed decoder state along with the bookkeeping needed to account for it on release.
+     */
+    public static final class Lease {
+        private final LeasePool.Lease<WhisperState> lease;
+
+        private Lease(LeasePool.Lease<WhisperState> lease) {
+            this.lease = lease;
+        }
+
+        public WhisperState getState() {
+            return lease.get();
+        }
+
+        public long getWaitMillis() {
+            return lease.getWaitMillis();
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of pool usage.
+     */
+    public static final class Metrics {
+        private final int size;
+        private final int inUse;
+        private final long borrowCount;
+        private final long timeoutCount;
+        private final long averageWaitMillis;
+        private final long maxWaitMillis;
+        private final double utilization;
+
+        Metrics(int size, int inUse, long borrowCount, long timeoutCount, long averageWaitMillis, long maxWaitMillis, double utilization) {
+            this.size = size;
+            this.inUse = inUse;
+            this.borrowCount = borrowCount;
+            this.timeoutCount = timeoutCount;
+            this.averageWaitMillis = averageWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+            this.utilization = utilization;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getInUse() {
+            return inUse;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        public long getTimeoutCount() {
+            return timeoutCount;
+        }
+
+        public long getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        /**
+         * @return fraction of the pool's total state-time spent borrowed since the pool was created (0..1)
+         */
+        public double getUtilization() {
+            return utilization;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("inUse=%d/%d, borrows=%d, timeouts=%d, avgWait=%dms, maxWait=%dms, utilization=%.1f%%",
+                                 inUse, size, borrowCount, timeoutCount, averageWaitMillis, maxWaitMillis, utilization * 100);
+        }
+    }
+}
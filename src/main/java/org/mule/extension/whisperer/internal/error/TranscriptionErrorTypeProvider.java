@@ -15,6 +15,8 @@ public class TranscriptionErrorTypeProvider implements ErrorTypeProvider {
         errorTypes.add(ConnectorError.TIMEOUT);
         errorTypes.add(ConnectorError.AUDIO_FORMAT_NOT_SUPPORTED);
         errorTypes.add(ConnectorError.MODEL_SETUP_FAILURE);
+        errorTypes.add(ConnectorError.MODEL_NOT_READY);
+        errorTypes.add(ConnectorError.CONNECTION_INCOMPATIBLE);
         return errorTypes;
     }
 }
@@ -3,7 +3,12 @@ package org.mule.extension.whisperer.internal.helpers.audio;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Orchestrates audio format conversion using pure Java decoders with optional ByteDeco FFmpeg.
@@ -117,6 +122,61 @@ public class AudioConverter {
         }
     }
 
+    /**
+     * Decodes a buffered audio payload straight into the 16kHz mono float samples WhisperJNI consumes,
+     * without writing intermediate WAV files.
+     *
+     * @param audio Buffered audio payload
+     * @param format Audio format (mp3, m4a, aac, flac, ogg, webm, wav)
+     * @return samples between -1.0f and 1.0f
+     * @throws IOException if decoding fails
+     * @throws UnsupportedOperationException if the format is unknown or requires ByteDeco but it's not available
+     */
+    public static FloatSampleBuffer decodeToSamples(BufferedAudio audio, String format) throws IOException {
+        String normalizedFormat = format.toLowerCase();
+
+        LOGGER.debug("Decoding {} bytes of {} audio in memory", audio.size(), normalizedFormat);
+
+        switch (normalizedFormat) {
+            case "wav":
+                // AudioSystem needs mark/reset to sniff the header, which spill file streams don't support
+                try (InputStream in = new BufferedInputStream(audio.openStream());
+                     AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(in)) {
+                    return AudioFileReader.readSamples(audioInputStream);
+                } catch (UnsupportedAudioFileException e) {
+                    throw new IOException("WAV file format not supported", e);
+                }
+
+            case "mp3":
+                // Use JLayer (always available), streaming frame by frame into the output buffer
+                try (InputStream in = new BufferedInputStream(audio.openStream())) {
+                    return Mp3Decoder.decode(in, audio.size());
+                }
+
+            case "m4a":
+            case "aac":
+            case "mp4":
+            case "flac":
+            case "ogg":
+            case "webm":
+            case "weba":
+                if (!BYTEDECO_AVAILABLE) {
+                    throw new UnsupportedOperationException(getExtendedFormatMissingDependencyMessage(normalizedFormat));
+                }
+                // FFmpeg reads the in-memory payload through a seekable custom AVIOContext, or the spill file directly
+                if (audio.isSpilled()) {
+                    return ByteDecoConverter.decode(audio.getSpillFile().toString());
+                }
+                return ByteDecoConverter.decode(audio.asByteBuffer());
+
+            default:
+                throw new UnsupportedOperationException(
+                    "Unsupported audio format: " + format + ". " +
+                    "Supported formats: MP3, M4A, AAC, WAV (core) and FLAC, OGG, WEBM (with ByteDeco FFmpeg)"
+                );
+        }
+    }
+
     private static String getExtendedFormatMissingDependencyMessage(String format) {
         return format.toUpperCase() + " format requires ByteDeco FFmpeg. Add this dependency to your Mule app pom.xml:\n" +
                "<dependency>\n" +
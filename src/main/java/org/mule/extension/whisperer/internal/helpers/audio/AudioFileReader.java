@@ -1,12 +1,12 @@
 package org.mule.extension.whisperer.internal.helpers.audio;
 
-import javazoom.jl.decoder.*;
 import javax.sound.sampled.*;
 import java.io.*;
-import java.nio.*;
 
 public class AudioFileReader {
 
+    private static final int CHUNK_FRAMES = 8192;
+
     /**
      * Reads an audio file from InputStream and converts its data into an array of float samples.
      *
@@ -16,66 +16,96 @@ public class AudioFileReader {
      * @throws IOException                   if an I/O error occurs during file reading.
      */
     public static float[] readFile(File audioFile) throws UnsupportedAudioFileException, IOException {
-
-        // Open the audio file and create an AudioInputStream
-        AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(audioFile);
-
-        // Check if the audio is in the correct format (Mono and 16kHz)
-        AudioFormat format = audioInputStream.getFormat();
-        if (format.getChannels() != 1 || format.getSampleRate() != 16000) {
-            // If not Mono or 16kHz, convert it using FFmpeg
-            File convertedFile = convertToMono16kHz(audioFile);
-            return readFile(convertedFile); // Recursively read the converted file
+        try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(audioFile)) {
+            return readSamples(audioInputStream).toArray();
         }
+    }
 
-        // Create a ByteBuffer to read the audio data into
-        ByteBuffer captureBuffer = ByteBuffer.allocate(audioInputStream.available());
-        captureBuffer.order(ByteOrder.LITTLE_ENDIAN); // Ensure the buffer uses little-endian byte order
+    /**
+     * Reads an audio stream chunk by chunk into 16kHz mono float samples, downmixing and resampling with
+     * {@link MonoResampler} as it goes.
+     *
+     * @param audioInputStream the decoded audio stream; it is consumed but not closed.
+     * @return the samples, values between -1.0f and 1.0f.
+     * @throws IOException if an I/O error occurs or the encoding cannot be read as 16-bit PCM.
+     */
+    public static FloatSampleBuffer readSamples(AudioInputStream audioInputStream) throws IOException {
+        AudioInputStream pcmStream = toPcm16(audioInputStream);
+        AudioFormat format = pcmStream.getFormat();
+        int channels = format.getChannels();
+        boolean bigEndian = format.isBigEndian();
+
+        MonoResampler resampler = new MonoResampler(Math.round(format.getSampleRate()), channels);
+        long frameLength = pcmStream.getFrameLength();
+        FloatSampleBuffer samples = frameLength > 0
+            ? new FloatSampleBuffer((int) Math.min(Integer.MAX_VALUE - 8, resampler.outputLength(frameLength)))
+            : new FloatSampleBuffer();
+
+        int frameSize = 2 * channels;
+        byte[] bytes = new byte[CHUNK_FRAMES * frameSize];
+        short[] pcm = new short[CHUNK_FRAMES * channels];
+        int pending = 0;
+        int read;
+        while ((read = pcmStream.read(bytes, pending, bytes.length - pending)) != -1) {
+            pending += read;
+            int whole = pending - pending % frameSize;
+            for (int i = 0, j = 0; i < whole; i += 2, j++) {
+                pcm[j] = bigEndian
+                    ? (short) ((bytes[i] << 8) | (bytes[i + 1] & 0xff))
+                    : (short) ((bytes[i + 1] << 8) | (bytes[i] & 0xff));
+            }
+            resampler.process(pcm, 0, whole / 2, samples);
 
-        // Read the audio data into the buffer
-        int bytesRead = audioInputStream.read(captureBuffer.array());
-        if (bytesRead == -1) {
-            throw new IOException("Unable to read audio file: " + audioFile.getAbsolutePath());
+            // Keep a trailing partial frame for the next read
+            System.arraycopy(bytes, whole, bytes, 0, pending - whole);
+            pending -= whole;
         }
+        resampler.flush(samples);
 
-        // Convert the ByteBuffer to a ShortBuffer for easier processing
-        ShortBuffer shortBuffer = captureBuffer.asShortBuffer();
-
-        // Create a float array to store the converted audio samples
-        float[] samples = new float[shortBuffer.capacity()];
-        int i = 0;
-
-        // Convert each short sample to a float value between -1.0f and 1.0f
-        while (shortBuffer.hasRemaining()) {
-            samples[i++] = Math.max(-1f, Math.min(((float) shortBuffer.get()) / (float) Short.MAX_VALUE, 1f));
+        if (samples.size() == 0) {
+            throw new IOException("Audio stream contains no samples");
         }
+        return samples;
+    }
 
-        return samples; // Return the array of audio samples
+    /**
+     * Decodes other encodings (8/24/32-bit, float, u-law...) to 16-bit signed PCM at the original rate and
+     * channel count. Rate and channel conversion is left to {@link MonoResampler}.
+     */
+    private static AudioInputStream toPcm16(AudioInputStream audioInputStream) throws IOException {
+        AudioFormat format = audioInputStream.getFormat();
+        if (AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()) && format.getSampleSizeInBits() == 16) {
+            return audioInputStream;
+        }
+        AudioFormat pcm16 = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+                                            format.getChannels(), 2 * format.getChannels(), format.getSampleRate(), false);
+        try {
+            return AudioSystem.getAudioInputStream(pcm16, audioInputStream);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("No converter available from " + format + " to " + pcm16, e);
+        }
     }
 
+    /**
+     * Converts an audio file to a 16kHz mono 16-bit PCM WAV file next to it.
+     *
+     * @param inputFile the audio file to convert.
+     * @return the converted file, {@code converted_16kHz_mono.wav} in the same directory.
+     * @throws UnsupportedAudioFileException if the audio file format is not supported.
+     * @throws IOException                   if an I/O error occurs during conversion.
+     */
     public static File convertToMono16kHz(File inputFile) throws UnsupportedAudioFileException, IOException {
         File outputFile = new File(inputFile.getParent(), "converted_16kHz_mono.wav");
 
-        // Load the audio file
-        AudioInputStream inputStream = AudioSystem.getAudioInputStream(inputFile);
-
-        // Create a new audio format with 16kHz sample rate and Mono
-        AudioFormat originalFormat = inputStream.getFormat();
-        AudioFormat targetFormat = new AudioFormat(
-            AudioFormat.Encoding.PCM_SIGNED,
-            16000, // Sample rate set to 16kHz
-            16,    // 16-bit
-            1,     // Mono
-            2,     // 2 bytes per frame (16-bit)
-            16000, // Frame rate matching the sample rate
-            false  // Little Endian
-        );
-
-        // Convert the stream to the new audio format
-        AudioInputStream convertedStream = AudioSystem.getAudioInputStream(targetFormat, inputStream);
+        FloatSampleBuffer samples;
+        try (AudioInputStream inputStream = AudioSystem.getAudioInputStream(inputFile)) {
+            samples = readSamples(inputStream);
+        }
 
         // Write the converted file
-        AudioSystem.write(convertedStream, AudioFileFormat.Type.WAVE, outputFile);
+        try (OutputStream wavStream = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            WavEncoder.write(samples, wavStream);
+        }
 
         return outputFile;
     }
@@ -130,52 +160,16 @@ public class AudioFileReader {
 
 class Mp3ToWavConverter {
 
+    /**
+     * Converts an MP3 file to a 16kHz mono 16-bit PCM WAV file, decoding and resampling frame by frame.
+     */
     public static void convertMp3ToWav(String mp3FilePath, String wavFilePath) throws IOException, UnsupportedAudioFileException {
-        try (FileInputStream mp3Stream = new FileInputStream(mp3FilePath);
-            FileOutputStream wavStream = new FileOutputStream(wavFilePath)) {
-
-            Bitstream bitstream = new Bitstream(mp3Stream);
-            Decoder decoder = new Decoder();
-
-            AudioFormat baseFormat = null;
-
-            ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
-            long totalFrames = 0;
-            Header header;
-
-            while ((header = bitstream.readFrame()) != null) {
-                SampleBuffer output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
-
-                if (baseFormat == null) {
-                    baseFormat = new AudioFormat(
-                        (float) header.frequency(),
-                        16, // 16-bit samples
-                        output.getChannelCount(),
-                        true, // signed
-                        false // little-endian
-                    );
-                }
-
-                byte[] buffer = new byte[output.getBufferLength() * 2]; // Buffer size * 2 for bytes
-                for (int i = 0; i < output.getBufferLength(); i++) {
-                    short val = output.getBuffer()[i];
-                    buffer[2 * i] = (byte) (val & 0x00ff);
-                    buffer[2 * i + 1] = (byte) ((val & 0xff00) >> 8);
-                }
-                byteOutputStream.write(buffer, 0, buffer.length); // write all bytes
-                totalFrames += output.getBufferLength(); // Use buffer length directly
-
-                bitstream.closeFrame();
-            }
-
-            byte[] audioData = byteOutputStream.toByteArray();
-            InputStream byteInputStream = new ByteArrayInputStream(audioData);
-            AudioInputStream audioInputStream = new AudioInputStream(byteInputStream, baseFormat, audioData.length / baseFormat.getFrameSize());
-
-            AudioSystem.write(audioInputStream, AudioFileFormat.Type.WAVE, wavStream);
-
-        } catch (JavaLayerException e) {
-            e.printStackTrace();
+        FloatSampleBuffer samples;
+        try (InputStream mp3Stream = new BufferedInputStream(new FileInputStream(mp3FilePath))) {
+            samples = Mp3Decoder.decode(mp3Stream, new File(mp3FilePath).length());
+        }
+        try (OutputStream wavStream = new BufferedOutputStream(new FileOutputStream(wavFilePath))) {
+            WavEncoder.write(samples, wavStream);
         }
     }
 }
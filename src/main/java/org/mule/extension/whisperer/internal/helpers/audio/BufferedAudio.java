@@ -0,0 +1,161 @@
+package org.mule.extension.whisperer.internal.helpers.audio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * An audio payload read once from its source stream and held in memory, or spilled to a private
+ * temporary file once it grows beyond a configured threshold.
+ *
+ * <p>Every instance owns its storage, so concurrent requests never share (or overwrite) each other's files.
+ * Closing the instance releases the memory reference and deletes any spill file.
+ */
+public class BufferedAudio implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BufferedAudio.class);
+
+    /** Pass as spill threshold to keep payloads in memory regardless of size. */
+    public static final long NEVER_SPILL = Long.MAX_VALUE;
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+
+    private byte[] data;
+    private int length;
+    private Path spillFile;
+    private long spilledLength;
+
+    private BufferedAudio() {
+    }
+
+    /**
+     * Reads the whole stream.
+     *
+     * @param input          the audio stream; it is fully consumed but not closed
+     * @param expectedLength length hint used to presize the memory buffer, or a negative value if unknown
+     * @param spillThreshold size in bytes above which the payload is moved to a temporary file
+     */
+    public static BufferedAudio buffer(InputStream input, long expectedLength, long spillThreshold) throws IOException {
+        return buffer(input, expectedLength, spillThreshold, null);
+    }
+
+    /**
+     * Reads the whole stream, feeding every byte to {@code digest} on the way so the payload can be hashed
+     * without a second pass.
+     *
+     * @param digest digest to update, or {@code null} to skip hashing
+     */
+    public static BufferedAudio buffer(InputStream input, long expectedLength, long spillThreshold, MessageDigest digest)
+        throws IOException {
+        BufferedAudio audio = new BufferedAudio();
+        try {
+            audio.readFrom(digest != null ? new DigestInputStream(input, digest) : input, expectedLength, spillThreshold);
+        } catch (IOException | RuntimeException e) {
+            audio.close();
+            throw e;
+        }
+        return audio;
+    }
+
+    private void readFrom(InputStream input, long expectedLength, long spillThreshold) throws IOException {
+        int initialCapacity = expectedLength > 0 && expectedLength <= spillThreshold && expectedLength < Integer.MAX_VALUE - 8
+            ? (int) expectedLength + 1
+            : INITIAL_CAPACITY;
+        data = new byte[initialCapacity];
+
+        int read;
+        while ((read = input.read(data, length, Math.min(data.length - length, COPY_BUFFER_SIZE))) != -1) {
+            length += read;
+            if (length > spillThreshold) {
+                spill(input);
+                return;
+            }
+            if (length == data.length) {
+                if (data.length >= Integer.MAX_VALUE - 8) {
+                    throw new IOException("Audio payload exceeds the maximum in-memory size, configure a spill threshold");
+                }
+                data = Arrays.copyOf(data, (int) Math.min((long) data.length * 2, Integer.MAX_VALUE - 8));
+            }
+        }
+    }
+
+    private void spill(InputStream remaining) throws IOException {
+        spillFile = Files.createTempFile("whisperer-audio-", ".tmp");
+        LOGGER.debug("Audio payload exceeded spill threshold after {} bytes, spilling to {}", length, spillFile);
+        try (OutputStream out = Files.newOutputStream(spillFile)) {
+            out.write(data, 0, length);
+            spilledLength = length;
+            data = null;
+            length = 0;
+
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = remaining.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                spilledLength += read;
+            }
+        }
+    }
+
+    public long size() {
+        return spillFile != null ? spilledLength : length;
+    }
+
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * @return a fresh stream over the whole payload; the caller closes it
+     */
+    public InputStream openStream() throws IOException {
+        if (spillFile != null) {
+            return Files.newInputStream(spillFile);
+        }
+        return new ByteArrayInputStream(data, 0, length);
+    }
+
+    /**
+     * @return a read-only view of the in-memory payload, without copying it
+     * @throws IllegalStateException if the payload was spilled to disk
+     */
+    public ByteBuffer asByteBuffer() {
+        if (spillFile != null) {
+            throw new IllegalStateException("Audio payload was spilled to disk, read it from the spill file");
+        }
+        return ByteBuffer.wrap(data, 0, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the file holding the payload, or {@code null} while it is held in memory
+     */
+    public Path getSpillFile() {
+        return spillFile;
+    }
+
+    @Override
+    public void close() {
+        data = null;
+        length = 0;
+        if (spillFile != null) {
+            try {
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to delete audio spill file {}", spillFile, e);
+            }
+            spillFile = null;
+        }
+    }
+}
@@ -4,29 +4,30 @@ import org.bytedeco.ffmpeg.avcodec.AVCodec;
 import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
 import org.bytedeco.ffmpeg.avcodec.AVPacket;
 import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avformat.AVIOContext;
+import org.bytedeco.ffmpeg.avformat.AVInputFormat;
 import org.bytedeco.ffmpeg.avformat.AVStream;
+import org.bytedeco.ffmpeg.avformat.Read_packet_Pointer_BytePointer_int;
+import org.bytedeco.ffmpeg.avformat.Seek_Pointer_long_int;
+import org.bytedeco.ffmpeg.avformat.Write_packet_Pointer_BytePointer_int;
 import org.bytedeco.ffmpeg.avutil.AVFrame;
 import org.bytedeco.ffmpeg.swresample.SwrContext;
 import org.bytedeco.javacpp.BytePointer;
-import org.bytedeco.javacpp.DoublePointer;
-import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacpp.FloatPointer;
 import org.bytedeco.javacpp.Loader;
+import org.bytedeco.javacpp.Pointer;
 import org.bytedeco.javacpp.PointerPointer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.sound.sampled.AudioFileFormat;
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import java.io.ByteArrayInputStream;
-import java.io.File;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.ShortBuffer;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.bytedeco.ffmpeg.global.avcodec.*;
 import static org.bytedeco.ffmpeg.global.avformat.*;
@@ -38,6 +39,9 @@ import static org.bytedeco.ffmpeg.global.swresample.*;
  * This class is only used when ByteDeco FFmpeg is available in the classpath.
  *
  * Uses ByteDeco's Java API (not command-line execution), eliminating PATH dependencies.
+ * Audio can be read from a file, a {@link ByteBuffer} or an {@link InputStream}; the latter two go through a
+ * custom AVIOContext so nothing is written to disk. Output is resampled by FFmpeg straight to 16kHz mono
+ * float samples, copied once from native memory into a {@link FloatSampleBuffer}.
  */
 public class ByteDecoConverter {
 
@@ -45,7 +49,20 @@ public class ByteDecoConverter {
 
     private static final int TARGET_SAMPLE_RATE = 16000;  // 16kHz required by WhisperJNI
     private static final int TARGET_CHANNELS = 1;          // Mono required by WhisperJNI
-    private static final int TARGET_SAMPLE_FORMAT = AV_SAMPLE_FMT_S16;  // 16-bit PCM
+    private static final int TARGET_SAMPLE_FORMAT = AV_SAMPLE_FMT_FLT;  // 32-bit float, what WhisperJNI consumes
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_OUTPUT_SAMPLES = 8192;
+    // Headroom on the container's duration estimate, which is approximate for some formats
+    private static final double CAPACITY_HEADROOM = 1.02;
+    // errno.h; the same value on every platform FFmpeg builds for
+    private static final int EIO = 5;
+
+    // JavaCPP caps the number of live callback thunks, so one shared pair serves every custom AVIOContext.
+    // The opaque pointer FFmpeg hands back (the format context's address) identifies the source being read.
+    private static final Map<Long, IoSource> IO_SOURCES = new ConcurrentHashMap<>();
+    private static final ReadCallback READ_CALLBACK;
+    private static final SeekCallback SEEK_CALLBACK;
 
     static {
         // Initialize FFmpeg libraries
@@ -59,6 +76,9 @@ public class ByteDecoConverter {
             // Formats and codecs are registered automatically
             avformat_network_init();
 
+            READ_CALLBACK = new ReadCallback().retainReference();
+            SEEK_CALLBACK = new SeekCallback().retainReference();
+
             LOGGER.debug("ByteDeco FFmpeg libraries loaded successfully");
         } catch (Exception e) {
             LOGGER.error("Failed to load ByteDeco FFmpeg libraries", e);
@@ -76,26 +96,124 @@ public class ByteDecoConverter {
     public static void convertToWav(String inputPath, String outputPath) throws IOException {
         LOGGER.debug("Starting audio conversion using ByteDeco FFmpeg: {} -> {}", inputPath, outputPath);
 
-        AVFormatContext formatContext = null;
+        FloatSampleBuffer samples = decode(inputPath);
+
+        try (OutputStream wavStream = new BufferedOutputStream(new FileOutputStream(outputPath))) {
+            WavEncoder.write(samples, wavStream);
+        }
+
+        LOGGER.debug("Successfully converted {} to {}", inputPath, outputPath);
+    }
+
+    /**
+     * Decodes an audio file straight into 16kHz mono float samples.
+     *
+     * @param inputPath Path to input audio file (M4A, AAC, FLAC, OGG, WEBM, etc.)
+     * @return samples between -1.0f and 1.0f
+     * @throws IOException if decoding fails
+     */
+    public static FloatSampleBuffer decode(String inputPath) throws IOException {
+        AVFormatContext formatContext = avformat_alloc_context();
+        if (avformat_open_input(formatContext, inputPath, (AVInputFormat) null, (PointerPointer<?>) null) < 0) {
+            avformat_free_context(formatContext);
+            throw new IOException("Could not open input file: " + inputPath);
+        }
+        try {
+            return decodeOpened(formatContext);
+        } finally {
+            avformat_close_input(formatContext);
+        }
+    }
+
+    /**
+     * Decodes audio held in memory. The buffer is read through a seekable custom AVIOContext, so containers
+     * that keep their index at the end (such as M4A with a trailing moov atom) work without a temp file.
+     *
+     * @param audio encoded audio from its position to its limit; the buffer itself is not modified
+     * @return samples between -1.0f and 1.0f
+     * @throws IOException if decoding fails
+     */
+    public static FloatSampleBuffer decode(ByteBuffer audio) throws IOException {
+        return decodeCustomIo(new ByteBufferSource(audio.slice()));
+    }
+
+    /**
+     * Decodes audio from a stream as it is read. The stream cannot seek, so this suits streamable formats
+     * (OGG, WEBM, FLAC, ADTS AAC); M4A files with a trailing index need {@link #decode(ByteBuffer)}.
+     *
+     * @param audio encoded audio; it is consumed but not closed
+     * @return samples between -1.0f and 1.0f
+     * @throws IOException if decoding fails
+     */
+    public static FloatSampleBuffer decode(InputStream audio) throws IOException {
+        return decodeCustomIo(new InputStreamSource(audio));
+    }
+
+    private static FloatSampleBuffer decodeCustomIo(IoSource source) throws IOException {
+        AVFormatContext formatContext = avformat_alloc_context();
+        BytePointer ioBuffer = new BytePointer(av_malloc(IO_BUFFER_SIZE)).capacity(IO_BUFFER_SIZE);
+        AVIOContext ioContext = avio_alloc_context(ioBuffer, IO_BUFFER_SIZE, 0, formatContext, READ_CALLBACK,
+                                                   (Write_packet_Pointer_BytePointer_int) null,
+                                                   source.isSeekable() ? SEEK_CALLBACK : null);
+        long sourceKey = formatContext.address();
+        IO_SOURCES.put(sourceKey, source);
+
+        boolean opened = false;
+        try {
+            formatContext.pb(ioContext);
+            formatContext.flags(formatContext.flags() | AVFMT_FLAG_CUSTOM_IO);
+            if (avformat_open_input(formatContext, (String) null, (AVInputFormat) null, (PointerPointer<?>) null) < 0) {
+                throw new IOException("Could not open audio stream", source.getFailure());
+            }
+            opened = true;
+            FloatSampleBuffer samples;
+            try {
+                samples = decodeOpened(formatContext);
+            } catch (IOException e) {
+                throw readFailureOr(source, e);
+            }
+            // FFmpeg stops reading packets on a read error as it does at the end of the input, so a stream that
+            // failed part way through decodes cleanly up to that point unless its failure is checked
+            if (source.getFailure() != null) {
+                throw source.getFailure();
+            }
+            return samples;
+        } finally {
+            // On failure avformat_open_input has already freed the format context; the IO context is always ours
+            if (opened) {
+                avformat_close_input(formatContext);
+            }
+            IO_SOURCES.remove(sourceKey);
+            // FFmpeg may have replaced the IO buffer while reading, so free whichever one the context holds now
+            av_free(ioContext.buffer());
+            avio_context_free(ioContext);
+        }
+    }
+
+    private static IOException readFailureOr(IoSource source, IOException decodeFailure) {
+        IOException failure = source.getFailure();
+        if (failure == null) {
+            return decodeFailure;
+        }
+        failure.addSuppressed(decodeFailure);
+        return failure;
+    }
+
+    private static FloatSampleBuffer decodeOpened(AVFormatContext formatContext) throws IOException {
         AVCodecContext codecContext = null;
         SwrContext swrContext = null;
         AVFrame frame = null;
-        AVFrame resampledFrame = null;
         AVPacket packet = null;
+        FloatPointer outputBuffer = null;
+        PointerPointer<FloatPointer> outputPlanes = null;
 
         try {
-            // Step 1: Open input file
-            formatContext = avformat_alloc_context();
-            if (avformat_open_input(formatContext, inputPath, null, null) < 0) {
-                throw new IOException("Could not open input file: " + inputPath);
-            }
-
-            // Step 2: Find stream information
+            // Step 1: Find stream information
             if (avformat_find_stream_info(formatContext, (PointerPointer<?>) null) < 0) {
                 throw new IOException("Could not find stream information");
             }
 
-            // Step 3: Find audio stream
+            // Step 2: Find audio stream
             int audioStreamIndex = -1;
             AVStream audioStream = null;
             for (int i = 0; i < formatContext.nb_streams(); i++) {
@@ -111,19 +229,19 @@ public class ByteDecoConverter {
                 throw new IOException("Could not find audio stream in file");
             }
 
-            // Step 4: Find decoder
+            // Step 3: Find decoder
             AVCodec codec = avcodec_find_decoder(audioStream.codecpar().codec_id());
             if (codec == null) {
                 throw new IOException("Unsupported audio codec");
             }
 
-            // Step 5: Allocate codec context
+            // Step 4: Allocate codec context
             codecContext = avcodec_alloc_context3(codec);
             if (avcodec_parameters_to_context(codecContext, audioStream.codecpar()) < 0) {
                 throw new IOException("Could not copy codec parameters to context");
             }
 
-            // Step 6: Open codec
+            // Step 5: Open codec
             if (avcodec_open2(codecContext, codec, (PointerPointer<?>) null) < 0) {
                 throw new IOException("Could not open codec");
             }
@@ -133,11 +251,11 @@ public class ByteDecoConverter {
                     codecContext.channels(),
                     codecContext.sample_fmt());
 
-            // Step 7: Setup resampler for 16kHz mono conversion
+            // Step 6: Setup resampler for 16kHz mono float conversion
             swrContext = swr_alloc_set_opts(
                     null,
                     av_get_default_channel_layout(TARGET_CHANNELS),  // Output channel layout (mono)
-                    TARGET_SAMPLE_FORMAT,                            // Output sample format (16-bit PCM)
+                    TARGET_SAMPLE_FORMAT,                            // Output sample format (32-bit float)
                     TARGET_SAMPLE_RATE,                              // Output sample rate (16kHz)
                     av_get_default_channel_layout(codecContext.channels()), // Input channel layout
                     codecContext.sample_fmt(),                       // Input sample format
@@ -149,23 +267,14 @@ public class ByteDecoConverter {
                 throw new IOException("Could not initialize resampler");
             }
 
-            // Step 8: Allocate frames and packet
+            // Step 7: Allocate frame, packet and the native output buffer, and presize the Java output
             frame = av_frame_alloc();
-            resampledFrame = av_frame_alloc();
             packet = av_packet_alloc();
+            outputBuffer = new FloatPointer(INITIAL_OUTPUT_SAMPLES);
+            outputPlanes = new PointerPointer<FloatPointer>(1).put(0, outputBuffer);
+            FloatSampleBuffer samples = new FloatSampleBuffer(estimateSampleCount(formatContext.duration()));
 
-            // Configure resampled frame
-            resampledFrame.format(TARGET_SAMPLE_FORMAT);
-            resampledFrame.channel_layout(av_get_default_channel_layout(TARGET_CHANNELS));
-            resampledFrame.sample_rate(TARGET_SAMPLE_RATE);
-            resampledFrame.nb_samples(TARGET_SAMPLE_RATE); // 1 second buffer
-
-            av_frame_get_buffer(resampledFrame, 0);
-
-            // Step 9: Read and decode all frames
-            List<short[]> audioData = new ArrayList<>();
-            int totalSamples = 0;
-
+            // Step 8: Read, decode and resample all frames
             while (av_read_frame(formatContext, packet) >= 0) {
                 if (packet.stream_index() == audioStreamIndex) {
                     // Send packet to decoder
@@ -185,30 +294,7 @@ public class ByteDecoConverter {
                             throw new IOException("Error during decoding");
                         }
 
-                        // Resample to 16kHz mono
-                        int outSamples = swr_convert(
-                                swrContext,
-                                resampledFrame.data(),
-                                resampledFrame.nb_samples(),
-                                frame.data(),
-                                frame.nb_samples()
-                        );
-
-                        if (outSamples > 0) {
-                            // Convert to short array (16-bit PCM samples)
-                            BytePointer dataPointer = resampledFrame.data(0);
-                            short[] samples = new short[outSamples];
-                            byte[] bytes = new byte[outSamples * 2];
-                            dataPointer.position(0).get(bytes);
-                            // Use ByteBuffer for proper little-endian conversion
-                            ByteBuffer.wrap(bytes)
-                                    .order(ByteOrder.LITTLE_ENDIAN)
-                                    .asShortBuffer()
-                                    .get(samples);
-                            audioData.add(samples);
-                            totalSamples += outSamples;
-                        }
-
+                        outputBuffer = resample(swrContext, frame.data(), frame.nb_samples(), outputBuffer, outputPlanes, samples);
                         av_frame_unref(frame);
                     }
                 }
@@ -218,89 +304,224 @@ public class ByteDecoConverter {
             // Flush decoder
             avcodec_send_packet(codecContext, null);
             while (avcodec_receive_frame(codecContext, frame) >= 0) {
-                int outSamples = swr_convert(
-                        swrContext,
-                        resampledFrame.data(),
-                        resampledFrame.nb_samples(),
-                        frame.data(),
-                        frame.nb_samples()
-                );
-
-                if (outSamples > 0) {
-                    BytePointer dataPointer = resampledFrame.data(0);
-                    short[] samples = new short[outSamples];
-                    byte[] bytes = new byte[outSamples * 2];
-                    dataPointer.position(0).get(bytes);
-                    // Use ByteBuffer for proper little-endian conversion
-                    ByteBuffer.wrap(bytes)
-                            .order(ByteOrder.LITTLE_ENDIAN)
-                            .asShortBuffer()
-                            .get(samples);
-                    audioData.add(samples);
-                    totalSamples += outSamples;
-                }
-
+                outputBuffer = resample(swrContext, frame.data(), frame.nb_samples(), outputBuffer, outputPlanes, samples);
                 av_frame_unref(frame);
             }
 
-            LOGGER.debug("Decoded {} total samples", totalSamples);
-
-            // Step 10: Combine all audio data
-            short[] allSamples = new short[totalSamples];
-            int offset = 0;
-            for (short[] chunk : audioData) {
-                System.arraycopy(chunk, 0, allSamples, offset, chunk.length);
-                offset += chunk.length;
-            }
-
-            // Step 11: Convert to bytes (little-endian)
-            byte[] audioBytes = new byte[allSamples.length * 2];
-            ByteBuffer.wrap(audioBytes)
-                    .order(ByteOrder.LITTLE_ENDIAN)
-                    .asShortBuffer()
-                    .put(allSamples);
-
-            // Step 12: Write WAV file using Java Sound API
-            AudioFormat audioFormat = new AudioFormat(
-                    TARGET_SAMPLE_RATE,     // Sample rate
-                    16,                      // Sample size in bits
-                    TARGET_CHANNELS,         // Channels
-                    true,                    // Signed
-                    false                    // Little-endian
-            );
+            // Flush samples still buffered in the resampler's filter
+            int before;
+            do {
+                before = samples.size();
+                outputBuffer = resample(swrContext, null, 0, outputBuffer, outputPlanes, samples);
+            } while (samples.size() > before);
 
-            try (AudioInputStream audioInputStream = new AudioInputStream(
-                    new ByteArrayInputStream(audioBytes),
-                    audioFormat,
-                    allSamples.length
-            )) {
-                AudioSystem.write(audioInputStream, AudioFileFormat.Type.WAVE, new File(outputPath));
-            }
+            LOGGER.debug("Decoded {} total samples", samples.size());
+            return samples;
 
-            LOGGER.debug("Successfully converted {} to {}", inputPath, outputPath);
-
-        } catch (Exception e) {
-            throw new IOException("Failed to convert audio file using ByteDeco FFmpeg: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to decode audio file using ByteDeco FFmpeg: " + e.getMessage(), e);
         } finally {
-            // Step 13: Clean up all resources
+            // Step 9: Clean up all resources
             if (packet != null) {
                 av_packet_free(packet);
             }
             if (frame != null) {
                 av_frame_free(frame);
             }
-            if (resampledFrame != null) {
-                av_frame_free(resampledFrame);
-            }
             if (swrContext != null) {
                 swr_free(swrContext);
             }
             if (codecContext != null) {
                 avcodec_free_context(codecContext);
             }
-            if (formatContext != null) {
-                avformat_close_input(formatContext);
+            if (outputPlanes != null) {
+                outputPlanes.close();
+            }
+            if (outputBuffer != null) {
+                outputBuffer.close();
+            }
+        }
+    }
+
+    /**
+     * Resamples one decoded frame (or, with no input, whatever the resampler still holds) into the native
+     * output buffer and copies the result to the end of {@code samples}.
+     *
+     * @return the output buffer, replaced by a larger one if the frame did not fit
+     */
+    private static FloatPointer resample(SwrContext swrContext, PointerPointer<?> input, int inputSamples,
+                                         FloatPointer outputBuffer, PointerPointer<FloatPointer> outputPlanes,
+                                         FloatSampleBuffer samples) throws IOException {
+        int needed = swr_get_out_samples(swrContext, inputSamples);
+        if (needed > outputBuffer.capacity()) {
+            outputBuffer.close();
+            outputBuffer = new FloatPointer(needed);
+            outputPlanes.put(0, outputBuffer);
+        }
+
+        int outSamples = swr_convert(swrContext, outputPlanes, (int) outputBuffer.capacity(), input, inputSamples);
+        if (outSamples < 0) {
+            throw new IOException("Error during resampling");
+        }
+        if (outSamples > 0) {
+            samples.ensureCapacity(samples.size() + outSamples);
+            outputBuffer.position(0).get(samples.array(), samples.size(), outSamples);
+            samples.commit(outSamples);
+        }
+        return outputBuffer;
+    }
+
+    private static int estimateSampleCount(long durationMicros) {
+        if (durationMicros <= 0) {
+            return TARGET_SAMPLE_RATE * 30;
+        }
+        double seconds = durationMicros / (double) AV_TIME_BASE;
+        return (int) Math.min(Integer.MAX_VALUE - 8, seconds * TARGET_SAMPLE_RATE * CAPACITY_HEADROOM);
+    }
+
+    /**
+     * Encoded audio that FFmpeg pulls through the shared read and seek callbacks.
+     */
+    private interface IoSource {
+
+        /**
+         * Copies up to {@code length} bytes into the native buffer.
+         *
+         * @return the number of bytes copied, or -1 at end of input
+         */
+        int read(ByteBuffer target, int length) throws IOException;
+
+        boolean isSeekable();
+
+        /**
+         * @return the new position, the total size for {@code AVSEEK_SIZE}, or a negative value if unsupported
+         */
+        long seek(long offset, int whence);
+
+        /**
+         * @return the last read error, so it can be reported instead of FFmpeg's generic failure
+         */
+        IOException getFailure();
+    }
+
+    private static final class ByteBufferSource implements IoSource {
+        private final ByteBuffer audio;
+
+        private ByteBufferSource(ByteBuffer audio) {
+            this.audio = audio;
+        }
+
+        @Override
+        public int read(ByteBuffer target, int length) {
+            if (!audio.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, audio.remaining());
+            ByteBuffer chunk = audio.duplicate();
+            chunk.limit(chunk.position() + count);
+            target.put(chunk);
+            audio.position(audio.position() + count);
+            return count;
+        }
+
+        @Override
+        public boolean isSeekable() {
+            return true;
+        }
+
+        @Override
+        public long seek(long offset, int whence) {
+            long position;
+            switch (whence & ~AVSEEK_FORCE) {
+                case AVSEEK_SIZE:
+                    return audio.limit();
+                case 0: // SEEK_SET
+                    position = offset;
+                    break;
+                case 1: // SEEK_CUR
+                    position = audio.position() + offset;
+                    break;
+                case 2: // SEEK_END
+                    position = audio.limit() + offset;
+                    break;
+                default:
+                    return -1;
+            }
+            if (position < 0 || position > audio.limit()) {
+                return -1;
+            }
+            audio.position((int) position);
+            return position;
+        }
+
+        @Override
+        public IOException getFailure() {
+            return null;
+        }
+    }
+
+    private static final class InputStreamSource implements IoSource {
+        private final InputStream audio;
+        private final byte[] chunk = new byte[IO_BUFFER_SIZE];
+        private IOException failure;
+
+        private InputStreamSource(InputStream audio) {
+            this.audio = audio;
+        }
+
+        @Override
+        public int read(ByteBuffer target, int length) throws IOException {
+            try {
+                int count = audio.read(chunk, 0, Math.min(length, chunk.length));
+                if (count > 0) {
+                    target.put(chunk, 0, count);
+                }
+                return count;
+            } catch (IOException e) {
+                failure = e;
+                throw e;
             }
         }
+
+        @Override
+        public boolean isSeekable() {
+            return false;
+        }
+
+        @Override
+        public long seek(long offset, int whence) {
+            return -1;
+        }
+
+        @Override
+        public IOException getFailure() {
+            return failure;
+        }
+    }
+
+    private static final class ReadCallback extends Read_packet_Pointer_BytePointer_int {
+        @Override
+        public int call(Pointer opaque, BytePointer buffer, int bufferSize) {
+            IoSource source = IO_SOURCES.get(opaque.address());
+            if (source == null) {
+                return AVERROR_EOF;
+            }
+            try {
+                int count = source.read(buffer.capacity(bufferSize).asByteBuffer(), bufferSize);
+                return count <= 0 ? AVERROR_EOF : count;
+            } catch (IOException | RuntimeException e) {
+                // An error rather than end of input, so FFmpeg does not take a truncated stream as complete
+                LOGGER.debug("Failed to read audio for FFmpeg", e);
+                return AVERROR(EIO);
+            }
+        }
+    }
+
+    private static final class SeekCallback extends Seek_Pointer_long_int {
+        @Override
+        public long call(Pointer opaque, long offset, int whence) {
+            IoSource source = IO_SOURCES.get(opaque.address());
+            return source == null ? -1 : source.seek(offset, whence);
+        }
     }
-}
\ No newline at end of file
+}
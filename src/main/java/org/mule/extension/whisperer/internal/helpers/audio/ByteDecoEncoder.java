@@ -0,0 +1,216 @@
+package org.mule.extension.whisperer.internal.helpers.audio;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodec;
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avformat.AVIOContext;
+import org.bytedeco.ffmpeg.avformat.AVOutputFormat;
+import org.bytedeco.ffmpeg.avformat.AVStream;
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.javacpp.PointerPointer;
+import org.bytedeco.javacpp.ShortPointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+import static org.bytedeco.ffmpeg.global.avcodec.*;
+import static org.bytedeco.ffmpeg.global.avformat.*;
+import static org.bytedeco.ffmpeg.global.avutil.*;
+
+/**
+ * ByteDeco FFmpeg-based encoder that writes 16kHz mono samples as compact FLAC or Ogg Opus files.
+ * This class is only used when ByteDeco FFmpeg is available in the classpath.
+ *
+ * <p>Samples are converted to 16-bit PCM one encoder frame at a time, so encoding never holds a second
+ * full-size copy of the audio.
+ */
+public class ByteDecoEncoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ByteDecoEncoder.class);
+
+    private static final int SAMPLE_RATE = MonoResampler.TARGET_SAMPLE_RATE;
+    // Used by encoders that accept frames of any size, such as FLAC
+    private static final int DEFAULT_FRAME_SAMPLES = 4096;
+    // Opus keeps speech intelligible for recognition well below this
+    private static final long OPUS_BIT_RATE = 32_000;
+
+    static {
+        try {
+            Loader.load(org.bytedeco.ffmpeg.global.avutil.class);
+            Loader.load(org.bytedeco.ffmpeg.global.avcodec.class);
+            Loader.load(org.bytedeco.ffmpeg.global.avformat.class);
+        } catch (Exception e) {
+            LOGGER.error("Failed to load ByteDeco FFmpeg libraries", e);
+            throw new RuntimeException("ByteDeco FFmpeg initialization failed", e);
+        }
+    }
+
+    /**
+     * @return whether this FFmpeg build can encode Opus; FLAC is always built in
+     */
+    public static boolean isOpusAvailable() {
+        return avcodec_find_encoder_by_name("libopus") != null;
+    }
+
+    /**
+     * Encodes 16kHz mono samples as a FLAC file.
+     *
+     * @param samples samples between -1.0f and 1.0f
+     * @param outputPath Path where the {@code .flac} file should be written
+     * @throws IOException if encoding fails
+     */
+    public static void encodeFlac(FloatSampleBuffer samples, String outputPath) throws IOException {
+        encodeFlac(samples.array(), 0, samples.size(), outputPath);
+    }
+
+    public static void encodeFlac(float[] samples, int offset, int length, String outputPath) throws IOException {
+        encode(samples, offset, length, outputPath, "flac", avcodec_find_encoder(AV_CODEC_ID_FLAC), 0);
+    }
+
+    /**
+     * Encodes 16kHz mono samples as an Ogg Opus file.
+     *
+     * @param samples samples between -1.0f and 1.0f
+     * @param outputPath Path where the {@code .ogg} file should be written
+     * @throws IOException if encoding fails or this FFmpeg build has no Opus encoder
+     */
+    public static void encodeOpus(FloatSampleBuffer samples, String outputPath) throws IOException {
+        encodeOpus(samples.array(), 0, samples.size(), outputPath);
+    }
+
+    public static void encodeOpus(float[] samples, int offset, int length, String outputPath) throws IOException {
+        encode(samples, offset, length, outputPath, "ogg", avcodec_find_encoder_by_name("libopus"), OPUS_BIT_RATE);
+    }
+
+    private static void encode(float[] samples, int offset, int length, String outputPath, String containerName,
+                               AVCodec codec, long bitRate) throws IOException {
+        if (codec == null) {
+            throw new IOException("This FFmpeg build has no " + containerName + " audio encoder");
+        }
+        AVFormatContext formatContext = new AVFormatContext(null);
+        AVCodecContext codecContext = null;
+        AVFrame frame = null;
+        AVPacket packet = null;
+        boolean opened = false;
+
+        try {
+            // Step 1: Allocate the output container
+            if (avformat_alloc_output_context2(formatContext, (AVOutputFormat) null, containerName, outputPath) < 0) {
+                throw new IOException("Could not allocate " + containerName + " output");
+            }
+
+            // Step 2: Configure and open the encoder for 16kHz mono 16-bit PCM input
+            codecContext = avcodec_alloc_context3(codec);
+            codecContext.sample_rate(SAMPLE_RATE);
+            codecContext.sample_fmt(AV_SAMPLE_FMT_S16);
+            av_channel_layout_default(codecContext.ch_layout(), 1);
+            codecContext.time_base(av_make_q(1, SAMPLE_RATE));
+            if (bitRate > 0) {
+                codecContext.bit_rate(bitRate);
+            }
+            if ((formatContext.oformat().flags() & AVFMT_GLOBALHEADER) != 0) {
+                codecContext.flags(codecContext.flags() | AV_CODEC_FLAG_GLOBAL_HEADER);
+            }
+            if (avcodec_open2(codecContext, codec, (PointerPointer<?>) null) < 0) {
+                throw new IOException("Could not open " + codec.name().getString() + " encoder");
+            }
+
+            // Step 3: Add the audio stream and open the output file
+            AVStream stream = avformat_new_stream(formatContext, null);
+            if (stream == null || avcodec_parameters_from_context(stream.codecpar(), codecContext) < 0) {
+                throw new IOException("Could not add audio stream");
+            }
+            stream.time_base(codecContext.time_base());
+            AVIOContext ioContext = new AVIOContext(null);
+            if (avio_open(ioContext, outputPath, AVIO_FLAG_WRITE) < 0) {
+                throw new IOException("Could not open output file: " + outputPath);
+            }
+            formatContext.pb(ioContext);
+            opened = true;
+            if (avformat_write_header(formatContext, (PointerPointer<?>) null) < 0) {
+                throw new IOException("Could not write " + containerName + " header");
+            }
+
+            // Step 4: Encode the samples one encoder frame at a time
+            int frameSamples = codecContext.frame_size() > 0 ? codecContext.frame_size() : DEFAULT_FRAME_SAMPLES;
+            frame = av_frame_alloc();
+            packet = av_packet_alloc();
+            short[] pcm = new short[frameSamples];
+            for (int position = 0; position < length; position += frameSamples) {
+                int count = Math.min(frameSamples, length - position);
+                frame.nb_samples(count);
+                frame.format(AV_SAMPLE_FMT_S16);
+                frame.sample_rate(SAMPLE_RATE);
+                av_channel_layout_copy(frame.ch_layout(), codecContext.ch_layout());
+                if (av_frame_get_buffer(frame, 0) < 0) {
+                    throw new IOException("Could not allocate audio frame");
+                }
+                for (int i = 0; i < count; i++) {
+                    float sample = Math.max(-1f, Math.min(samples[offset + position + i], 1f));
+                    pcm[i] = (short) Math.round(sample * Short.MAX_VALUE);
+                }
+                new ShortPointer(frame.data(0)).put(pcm, 0, count);
+                frame.pts(position);
+                sendFrame(formatContext, codecContext, stream, frame, packet);
+                av_frame_unref(frame);
+            }
+
+            // Step 5: Flush the encoder and finish the container
+            sendFrame(formatContext, codecContext, stream, null, packet);
+            if (av_write_trailer(formatContext) < 0) {
+                throw new IOException("Could not write " + containerName + " trailer");
+            }
+            LOGGER.debug("Encoded {} samples with {} to {}", length, codec.name().getString(), outputPath);
+
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to encode audio using ByteDeco FFmpeg: " + e.getMessage(), e);
+        } finally {
+            // Step 6: Clean up all resources
+            if (packet != null) {
+                av_packet_free(packet);
+            }
+            if (frame != null) {
+                av_frame_free(frame);
+            }
+            if (codecContext != null) {
+                avcodec_free_context(codecContext);
+            }
+            if (opened) {
+                avio_closep(formatContext.pb());
+            }
+            if (!formatContext.isNull()) {
+                avformat_free_context(formatContext);
+            }
+        }
+    }
+
+    /**
+     * Sends one frame, or the end of input when {@code frame} is {@code null}, and writes every packet the
+     * encoder has ready.
+     */
+    private static void sendFrame(AVFormatContext formatContext, AVCodecContext codecContext, AVStream stream,
+                                  AVFrame frame, AVPacket packet) throws IOException {
+        if (avcodec_send_frame(codecContext, frame) < 0) {
+            throw new IOException("Error sending audio frame to encoder");
+        }
+        while (true) {
+            int ret = avcodec_receive_packet(codecContext, packet);
+            if (ret == AVERROR_EAGAIN() || ret == AVERROR_EOF) {
+                return;
+            } else if (ret < 0) {
+                throw new IOException("Error during encoding");
+            }
+            av_packet_rescale_ts(packet, codecContext.time_base(), stream.time_base());
+            packet.stream_index(stream.index());
+            // Takes ownership of the packet's data and unreferences it
+            if (av_interleaved_write_frame(formatContext, packet) < 0) {
+                throw new IOException("Error writing encoded audio");
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.mule.extension.whisperer.internal.helpers.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Fixed-size off-heap ring of float samples for audio that arrives without end.
+ *
+ * <p>One thread appends, overwriting the oldest samples once the ring is full, and another reads any range of
+ * the most recent {@link #capacity()} samples by absolute position. Live streams therefore hold a bounded amount
+ * of native memory however long they run, and none of it adds to heap pressure. The ring also remembers when
+ * the newest sample arrived, so readers can measure how far behind real time they are.
+ */
+public final class FloatRingBuffer {
+
+    private final FloatBuffer samples;
+    private final int capacity;
+    private long written;
+    private long lastWriteNanos;
+    private boolean closed;
+
+    public FloatRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ring capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.samples = ByteBuffer.allocateDirect(capacity * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Appends samples, overwriting the oldest ones when the ring is full, and wakes up waiting readers.
+     */
+    public synchronized void write(float[] source, int offset, int length) {
+        if (closed) {
+            throw new IllegalStateException("Ring buffer is closed");
+        }
+        if (length > capacity) {
+            // Only the newest capacity samples could survive anyway
+            offset += length - capacity;
+            written += length - capacity;
+            length = capacity;
+        }
+        int position = (int) (written % capacity);
+        int first = Math.min(length, capacity - position);
+        samples.put(position, source, offset, first);
+        samples.put(0, source, offset + first, length - first);
+        written += length;
+        lastWriteNanos = System.nanoTime();
+        notifyAll();
+    }
+
+    /**
+     * Copies samples {@code [from, from + length)} into {@code target}.
+     *
+     * @throws IllegalArgumentException if part of the range was already overwritten or has not been written yet
+     */
+    public synchronized void read(long from, float[] target, int offset, int length) {
+        if (from < written - capacity || from + length > written) {
+            throw new IllegalArgumentException("Samples [" + from + ", " + (from + length) + ") are not in the ring, which holds ["
+                + Math.max(0, written - capacity) + ", " + written + ")");
+        }
+        int position = (int) (from % capacity);
+        int first = Math.min(length, capacity - position);
+        samples.get(position, target, offset, first);
+        samples.get(0, target, offset + first, length - first);
+    }
+
+    /**
+     * Waits until at least {@code target} samples have been written in total, the ring is closed or the timeout
+     * expires.
+     *
+     * @return the total number of samples written so far
+     */
+    public synchronized long awaitWritten(long target, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        long remaining;
+        while (written < target && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+            wait(Math.max(1, remaining / 1_000_000));
+        }
+        return written;
+    }
+
+    /**
+     * @return the total number of samples ever written, which is also the position of the next one
+     */
+    public synchronized long written() {
+        return written;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the newest sample arrived
+     */
+    public synchronized long lastWriteNanos() {
+        return lastWriteNanos;
+    }
+
+    /**
+     * Marks the end of the stream; waiting readers return and further writes fail.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+}
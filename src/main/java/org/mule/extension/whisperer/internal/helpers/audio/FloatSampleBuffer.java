@@ -0,0 +1,108 @@
+package org.mule.extension.whisperer.internal.helpers.audio;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of mono float samples that decoders write into chunk by chunk.
+ *
+ * <p>The backing array is handed to WhisperJNI as-is together with {@link #size()}, so a well-sized initial
+ * capacity means the decoded audio is held exactly once, with no final trimming copy.
+ */
+public class FloatSampleBuffer {
+
+    private static final int DEFAULT_CAPACITY = 16000 * 30;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private float[] samples;
+    private int size;
+
+    public FloatSampleBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FloatSampleBuffer(int initialCapacity) {
+        this.samples = new float[Math.max(1, initialCapacity)];
+    }
+
+    private FloatSampleBuffer(float[] samples, int size) {
+        this.samples = samples;
+        this.size = size;
+    }
+
+    /**
+     * Wraps an already decoded array without copying it.
+     */
+    public static FloatSampleBuffer wrap(float[] samples) {
+        return new FloatSampleBuffer(samples, samples.length);
+    }
+
+    public void add(float sample) {
+        if (size == samples.length) {
+            grow(size + 1);
+        }
+        samples[size++] = sample;
+    }
+
+    public void add(float[] source, int offset, int length) {
+        ensureCapacity(size + length);
+        System.arraycopy(source, offset, samples, size, length);
+        size += length;
+    }
+
+    /**
+     * Marks {@code count} samples that a native decoder copied into {@link #array()} starting at {@link #size()}
+     * as written. Callers must {@link #ensureCapacity} first.
+     */
+    public void commit(int count) {
+        if (count < 0 || size + count > samples.length) {
+            throw new IllegalArgumentException("Cannot commit " + count + " samples at " + size + " of " + samples.length);
+        }
+        size += count;
+    }
+
+    /**
+     * Drops every sample from {@code newSize} on, keeping the backing array for reuse.
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IllegalArgumentException("Cannot truncate " + size + " samples to " + newSize);
+        }
+        size = newSize;
+    }
+
+    /**
+     * Makes room for at least {@code capacity} samples so a caller that knows its output size avoids regrowth.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > samples.length) {
+            grow(capacity);
+        }
+    }
+
+    private void grow(int minCapacity) {
+        if (minCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Decoded audio exceeds the maximum sample buffer size");
+        }
+        // Grow by half rather than doubling: long recordings are where the headroom would hurt most
+        int newCapacity = (int) Math.min(MAX_CAPACITY, Math.max(minCapacity, samples.length + (samples.length >> 1)));
+        samples = Arrays.copyOf(samples, newCapacity);
+    }
+
+    /**
+     * @return the backing array; only the first {@link #size()} entries are valid
+     */
+    public float[] array() {
+        return samples;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a copy trimmed to the number of samples written
+     */
+    public float[] toArray() {
+        return size == samples.length ? samples : Arrays.copyOf(samples, size);
+    }
+}
@@ -0,0 +1,267 @@
+package org.mule.extension.whisperer.internal.helpers.audio;
+
+/**
+ * Streaming converter from interleaved 16-bit PCM at any sample rate and channel count to the
+ * 16kHz mono float samples WhisperJNI consumes.
+ *
+ * <p>The conversion ratio is reduced to {@code L/M} (for example 1/3 for 48kHz, 160/441 for 44.1kHz) and a
+ * windowed-sinc low-pass filter is precomputed as a bank of {@code L} polyphase rows, so each output sample
+ * costs one short dot product. Integer decimation ratios ({@code L == 1}, e.g. 48kHz or 32kHz) use a single
+ * row with a fixed input stride, and 16kHz input is passed through untouched.
+ *
+ * <p>Chunks are processed as they arrive and written straight into a {@link FloatSampleBuffer}; the
+ * stereo-to-mono downmix happens in the same pass that loads the filter history. Only the filter history is
+ * carried across chunk boundaries, and no memory is allocated per chunk once the working buffer has grown to
+ * the chunk size.
+ */
+public class MonoResampler {
+
+    public static final int TARGET_SAMPLE_RATE = 16000;
+
+    private static final float PCM16_SCALE = 1f / 32768f;
+
+    // Zero crossings of the sinc kept on each side of the center. With the Kaiser window below, aliases are
+    // rejected by about 70 dB: short of 16-bit noise (~96 dB), but well below anything that affects recognition,
+    // at 66 taps per output sample for 48kHz input
+    private static final int ZERO_CROSSINGS = 10;
+    // Passband edge as a fraction of the lower Nyquist frequency, leaving room for the transition band
+    private static final double ROLLOFF = 0.92;
+    // Kaiser's design formula gives a stopband of roughly beta / 0.1102 + 8.7 = 72 dB
+    private static final double KAISER_BETA = 7.0;
+
+    private final int channels;
+    private final int interpolation;
+    private final int decimation;
+    private final int taps;
+    private final int leftTaps;
+    private final float[][] filterBank;
+    private final boolean passthrough;
+
+    // Mono input samples not yet consumed by the filter. window[0] is input frame windowStart.
+    private float[] window;
+    private int windowLength;
+    private long windowStart;
+
+    // Next output sample is centered on input frame nextBase plus nextPhase / interpolation
+    private long nextBase;
+    private int nextPhase;
+
+    private long framesIn;
+    private long samplesOut;
+
+    public MonoResampler(int inputSampleRate, int channels) {
+        if (inputSampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("Invalid input format: " + inputSampleRate + " Hz, " + channels + " channel(s)");
+        }
+        this.channels = channels;
+
+        int gcd = gcd(inputSampleRate, TARGET_SAMPLE_RATE);
+        this.interpolation = TARGET_SAMPLE_RATE / gcd;
+        this.decimation = inputSampleRate / gcd;
+        this.passthrough = interpolation == 1 && decimation == 1;
+
+        if (passthrough) {
+            this.taps = 0;
+            this.leftTaps = 0;
+            this.filterBank = null;
+            return;
+        }
+
+        // Cutoff in cycles per input sample: below the Nyquist frequency of whichever rate is lower
+        double cutoff = ROLLOFF * Math.min(1d, (double) interpolation / decimation) / 2d;
+        int halfWidth = (int) Math.ceil(ZERO_CROSSINGS / (2d * cutoff));
+        this.taps = 2 * halfWidth;
+        this.leftTaps = halfWidth - 1;
+        this.filterBank = designFilterBank(interpolation, taps, leftTaps, cutoff, halfWidth);
+
+        // The first output is centered on frame 0, so the history to its left starts out as silence
+        this.window = new float[taps + 4096];
+        this.windowLength = leftTaps;
+        this.windowStart = -leftTaps;
+    }
+
+    /**
+     * Converts one chunk of interleaved samples.
+     *
+     * @param interleaved PCM samples, {@code channels} values per frame
+     * @param offset      index of the first sample to read
+     * @param length      number of interleaved samples to read; must be a whole number of frames
+     * @param out         destination for the 16kHz mono samples
+     */
+    public void process(short[] interleaved, int offset, int length, FloatSampleBuffer out) {
+        int frames = length / channels;
+        if (frames == 0) {
+            return;
+        }
+        framesIn += frames;
+
+        if (passthrough) {
+            out.ensureCapacity(out.size() + frames);
+            for (int frame = 0; frame < frames; frame++) {
+                out.add(mono(interleaved, offset, frame));
+            }
+            samplesOut += frames;
+            return;
+        }
+
+        ensureWindowCapacity(windowLength + frames);
+        for (int frame = 0; frame < frames; frame++) {
+            window[windowLength++] = mono(interleaved, offset, frame);
+        }
+        emit(out, Long.MAX_VALUE);
+    }
+
+    /**
+     * Emits the output still held back waiting for right-hand filter context, treating the input as
+     * followed by silence. Call once after the last chunk; the resampler cannot be reused afterwards.
+     */
+    public void flush(FloatSampleBuffer out) {
+        if (passthrough) {
+            return;
+        }
+        long expected = (framesIn * interpolation + decimation - 1) / decimation;
+        int padding = taps - leftTaps;
+        ensureWindowCapacity(windowLength + padding);
+        for (int i = 0; i < padding; i++) {
+            window[windowLength++] = 0f;
+        }
+        emit(out, expected);
+    }
+
+    /**
+     * @return the number of 16kHz samples produced for {@code inputFrames} input frames once flushed
+     */
+    public long outputLength(long inputFrames) {
+        return (inputFrames * interpolation + decimation - 1) / decimation;
+    }
+
+    private void emit(FloatSampleBuffer out, long limit) {
+        // Input frames available to the right of windowStart; an output centered on base needs base + taps - leftTaps - 1
+        long lastFrame = windowStart + windowLength - 1;
+        int rightTaps = taps - leftTaps - 1;
+
+        long available = lastFrame - rightTaps - nextBase;
+        if (available >= 0) {
+            long pending = (available * interpolation + (interpolation - nextPhase) - 1) / decimation + 1;
+            out.ensureCapacity((int) Math.min(Integer.MAX_VALUE - 8, out.size() + Math.min(pending, limit - samplesOut)));
+        }
+
+        if (interpolation == 1) {
+            // Integer decimation: one filter row, fixed stride through the input
+            float[] row = filterBank[0];
+            while (samplesOut < limit && nextBase + rightTaps <= lastFrame) {
+                int start = (int) (nextBase - leftTaps - windowStart);
+                out.add(dot(row, window, start));
+                nextBase += decimation;
+                samplesOut++;
+            }
+        } else {
+            while (samplesOut < limit && nextBase + rightTaps <= lastFrame) {
+                int start = (int) (nextBase - leftTaps - windowStart);
+                out.add(dot(filterBank[nextPhase], window, start));
+                nextPhase += decimation;
+                nextBase += nextPhase / interpolation;
+                nextPhase %= interpolation;
+                samplesOut++;
+            }
+        }
+
+        // Drop input the next output no longer needs, keeping its left-hand history
+        int consumed = (int) Math.max(0, Math.min(windowLength, nextBase - leftTaps - windowStart));
+        if (consumed > 0) {
+            System.arraycopy(window, consumed, window, 0, windowLength - consumed);
+            windowLength -= consumed;
+            windowStart += consumed;
+        }
+    }
+
+    private static float dot(float[] row, float[] samples, int start) {
+        // Four independent accumulators let the JIT overlap the multiply-adds; taps is always even
+        float sum0 = 0f;
+        float sum1 = 0f;
+        float sum2 = 0f;
+        float sum3 = 0f;
+        int tap = 0;
+        for (; tap + 3 < row.length; tap += 4) {
+            sum0 += row[tap] * samples[start + tap];
+            sum1 += row[tap + 1] * samples[start + tap + 1];
+            sum2 += row[tap + 2] * samples[start + tap + 2];
+            sum3 += row[tap + 3] * samples[start + tap + 3];
+        }
+        for (; tap < row.length; tap++) {
+            sum0 += row[tap] * samples[start + tap];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    private void ensureWindowCapacity(int capacity) {
+        if (capacity > window.length) {
+            float[] grown = new float[Math.max(capacity, window.length + (window.length >> 1))];
+            System.arraycopy(window, 0, grown, 0, windowLength);
+            window = grown;
+        }
+    }
+
+    private float mono(short[] interleaved, int offset, int frame) {
+        int base = offset + frame * channels;
+        if (channels == 1) {
+            return interleaved[base] * PCM16_SCALE;
+        }
+        int sum = 0;
+        for (int channel = 0; channel < channels; channel++) {
+            sum += interleaved[base + channel];
+        }
+        return sum * PCM16_SCALE / channels;
+    }
+
+    /**
+     * Builds one row per phase: row {@code p} holds the Kaiser-windowed sinc sampled at input offsets
+     * {@code -leftTaps .. taps - leftTaps - 1} relative to an output positioned {@code p / phases} of a frame
+     * after its base frame. Each row is normalized to unity DC gain.
+     */
+    private static float[][] designFilterBank(int phases, int taps, int leftTaps, double cutoff, int halfWidth) {
+        float[][] bank = new float[phases][taps];
+        double denominator = besselI0(KAISER_BETA);
+        for (int phase = 0; phase < phases; phase++) {
+            double fraction = (double) phase / phases;
+            double sum = 0;
+            for (int tap = 0; tap < taps; tap++) {
+                double t = tap - leftTaps - fraction;
+                double ratio = t / halfWidth;
+                double window = Math.abs(ratio) >= 1 ? 0 : besselI0(KAISER_BETA * Math.sqrt(1 - ratio * ratio)) / denominator;
+                double x = 2 * cutoff * t;
+                double sinc = x == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+                double coefficient = 2 * cutoff * sinc * window;
+                bank[phase][tap] = (float) coefficient;
+                sum += coefficient;
+            }
+            for (int tap = 0; tap < taps; tap++) {
+                bank[phase][tap] /= (float) sum;
+            }
+        }
+        return bank;
+    }
+
+    private static double besselI0(double x) {
+        double sum = 1;
+        double term = 1;
+        double halfX = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (halfX / k) * (halfX / k);
+            sum += term;
+            if (term < 1e-12 * sum) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
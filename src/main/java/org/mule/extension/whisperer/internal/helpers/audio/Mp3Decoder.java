@@ -0,0 +1,80 @@
+package org.mule.extension.whisperer.internal.helpers.audio;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.decoder.SampleBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming JLayer-based MP3 decoder that downmixes and resamples each frame as it is decoded,
+ * producing 16kHz mono float samples without ever holding the full-rate PCM.
+ *
+ * <p>JLayer reuses its output {@link SampleBuffer} across frames, so decoding allocates nothing per frame.
+ */
+final class Mp3Decoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Mp3Decoder.class);
+
+    // Headroom on the size estimate for VBR files whose first frame under-represents the average bitrate
+    private static final double CAPACITY_HEADROOM = 1.05;
+
+    private Mp3Decoder() {
+    }
+
+    /**
+     * Decodes a whole MP3 stream.
+     *
+     * @param mp3Stream     the MP3 data; it is consumed but not closed
+     * @param expectedBytes size of the stream if known (used to presize the output), or a negative value
+     * @return the 16kHz mono samples
+     * @throws IOException if the stream is not valid MP3 data
+     */
+    static FloatSampleBuffer decode(InputStream mp3Stream, long expectedBytes) throws IOException {
+        Bitstream bitstream = new Bitstream(mp3Stream);
+        Decoder decoder = new Decoder();
+        MonoResampler resampler = null;
+        FloatSampleBuffer out = null;
+        int frames = 0;
+
+        try {
+            Header header;
+            while ((header = bitstream.readFrame()) != null) {
+                SampleBuffer output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+
+                if (resampler == null) {
+                    resampler = new MonoResampler(header.frequency(), output.getChannelCount());
+                    out = new FloatSampleBuffer(estimateSampleCount(expectedBytes, header.bitrate()));
+                    LOGGER.debug("Decoding MP3: {} Hz, {} channel(s), {} bps", header.frequency(), output.getChannelCount(), header.bitrate());
+                }
+
+                resampler.process(output.getBuffer(), 0, output.getBufferLength(), out);
+                frames++;
+
+                bitstream.closeFrame();
+            }
+        } catch (JavaLayerException e) {
+            throw new IOException("Failed to decode MP3 audio", e);
+        }
+
+        if (resampler == null) {
+            throw new IOException("No MP3 frames found in audio stream");
+        }
+        resampler.flush(out);
+        LOGGER.debug("Decoded {} MP3 frames into {} samples", frames, out.size());
+        return out;
+    }
+
+    private static int estimateSampleCount(long expectedBytes, int bitrate) {
+        if (expectedBytes <= 0 || bitrate <= 0) {
+            return MonoResampler.TARGET_SAMPLE_RATE * 30;
+        }
+        double seconds = expectedBytes * 8d / bitrate;
+        return (int) Math.min(Integer.MAX_VALUE - 8, seconds * MonoResampler.TARGET_SAMPLE_RATE * CAPACITY_HEADROOM);
+    }
+}
@@ -0,0 +1,34 @@
+package org.mule.extension.whisperer.internal.helpers.audio;
+
+/**
+ * Finds where 16kHz mono audio can be cut with the least chance of landing mid-word.
+ */
+public final class SilenceFinder {
+
+    // 10 ms at 16kHz
+    private static final int ENERGY_FRAME_SAMPLES = 160;
+
+    private SilenceFinder() {
+    }
+
+    /**
+     * @return the middle of the 10 ms frame with the least energy between {@code from} and {@code to}, the latest
+     * such frame on ties, or {@code to} if the range is shorter than a frame
+     */
+    public static int quietestPoint(float[] samples, int from, int to) {
+        int quietest = to;
+        double lowestEnergy = Double.MAX_VALUE;
+        for (int frame = from; frame + ENERGY_FRAME_SAMPLES <= to; frame += ENERGY_FRAME_SAMPLES) {
+            double energy = 0;
+            for (int i = frame; i < frame + ENERGY_FRAME_SAMPLES; i++) {
+                energy += samples[i] * samples[i];
+            }
+            // Prefer later frames on ties so cuts stay as late as possible
+            if (energy <= lowestEnergy) {
+                lowestEnergy = energy;
+                quietest = frame + ENERGY_FRAME_SAMPLES / 2;
+            }
+        }
+        return quietest;
+    }
+}
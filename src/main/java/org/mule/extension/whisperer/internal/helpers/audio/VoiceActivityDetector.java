@@ -0,0 +1,230 @@
+package org.mule.extension.whisperer.internal.helpers.audio;
+
+import java.util.Arrays;
+
+/**
+ * Energy and zero-crossing voice activity detection over 16kHz mono samples.
+ *
+ * <p>Audio is scored in 30 ms frames. A frame is voiced when its energy clears the configured threshold and, in
+ * recordings whose noise floor (their 10th percentile frame energy) is itself below the threshold, clears that
+ * floor by a margin. A floor at or above the threshold may be the quieter voice of a recording with little
+ * silence, so it is not trusted and the threshold alone applies. Quieter frames with a high
+ * zero-crossing rate, typical of fricatives such as "s" and "f", extend an adjacent voiced run, and every run is
+ * padded on both sides. Only silences longer than the configured minimum are removed, so natural pauses between
+ * words stay in place.
+ *
+ * <p>{@link #compact} removes the silences in place and returns a {@link SpeechMap} that converts positions in
+ * the compacted audio back to the original recording.
+ */
+public final class VoiceActivityDetector {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_SAMPLES = 480;
+    private static final double NOISE_FLOOR_PERCENTILE = 0.1;
+    private static final double NOISE_FLOOR_MARGIN_DB = 10;
+    private static final double UNVOICED_MARGIN_DB = 10;
+    private static final double UNVOICED_MIN_ZERO_CROSSING_RATE = 0.25;
+    private static final double SILENCE_DB = -100;
+
+    private final double thresholdDb;
+    private final int minSilenceFrames;
+    private final int paddingFrames;
+
+    /**
+     * @param thresholdDb      frame energy in dBFS below which audio is never considered voiced
+     * @param minSilenceMillis shortest silence worth removing
+     * @param paddingMillis    audio kept on each side of detected speech
+     */
+    public VoiceActivityDetector(double thresholdDb, int minSilenceMillis, int paddingMillis) {
+        this.thresholdDb = thresholdDb;
+        this.minSilenceFrames = Math.max(1, millisToFrames(minSilenceMillis));
+        this.paddingFrames = Math.max(0, millisToFrames(paddingMillis));
+    }
+
+    /**
+     * Removes long silences from {@code samples} in place and truncates it to the speech that remains.
+     */
+    public SpeechMap compact(FloatSampleBuffer samples) {
+        float[] data = samples.array();
+        int size = samples.size();
+        int frames = (size + FRAME_SAMPLES - 1) / FRAME_SAMPLES;
+        boolean[] speech = detect(data, size, frames);
+
+        // Copy the kept runs down over the removed silences; the write position never passes the read position
+        int[] originalStarts = new int[frames / 2 + 1];
+        int[] compactedStarts = new int[originalStarts.length];
+        int regions = 0;
+        int written = 0;
+        int frame = 0;
+        while (frame < frames) {
+            if (!speech[frame]) {
+                frame++;
+                continue;
+            }
+            int runStart = frame;
+            while (frame < frames && speech[frame]) {
+                frame++;
+            }
+            int from = runStart * FRAME_SAMPLES;
+            int length = Math.min(frame * FRAME_SAMPLES, size) - from;
+            if (written != from) {
+                System.arraycopy(data, from, data, written, length);
+            }
+            originalStarts[regions] = from;
+            compactedStarts[regions] = written;
+            regions++;
+            written += length;
+        }
+        samples.truncate(written);
+        return new SpeechMap(Arrays.copyOf(originalStarts, regions), Arrays.copyOf(compactedStarts, regions), size, written);
+    }
+
+    private boolean[] detect(float[] data, int size, int frames) {
+        double[] energyDb = new double[frames];
+        double[] zeroCrossingRate = new double[frames];
+        for (int f = 0; f < frames; f++) {
+            int from = f * FRAME_SAMPLES;
+            int to = Math.min(from + FRAME_SAMPLES, size);
+            double sumSquares = 0;
+            int crossings = 0;
+            for (int i = from; i < to; i++) {
+                float sample = data[i];
+                sumSquares += sample * sample;
+                if (i > from && (sample >= 0) != (data[i - 1] >= 0)) {
+                    crossings++;
+                }
+            }
+            double meanSquare = sumSquares / (to - from);
+            energyDb[f] = meanSquare > 0 ? Math.max(SILENCE_DB, 10 * Math.log10(meanSquare)) : SILENCE_DB;
+            zeroCrossingRate[f] = (double) crossings / (to - from);
+        }
+
+        double gateDb = gateDb(noiseFloorDb(energyDb));
+        double unvoicedGateDb = gateDb - UNVOICED_MARGIN_DB;
+        boolean[] speech = new boolean[frames];
+        for (int f = 0; f < frames; f++) {
+            speech[f] = energyDb[f] >= gateDb;
+        }
+
+        // Let voiced runs absorb neighbouring unvoiced consonants, forwards then backwards
+        boolean[] extended = speech.clone();
+        for (int f = 1; f < frames; f++) {
+            if (!extended[f] && extended[f - 1] && isUnvoiced(energyDb[f], zeroCrossingRate[f], unvoicedGateDb)) {
+                extended[f] = true;
+            }
+        }
+        for (int f = frames - 2; f >= 0; f--) {
+            if (!extended[f] && extended[f + 1] && isUnvoiced(energyDb[f], zeroCrossingRate[f], unvoicedGateDb)) {
+                extended[f] = true;
+            }
+        }
+
+        // Pad every run, then give back silences too short to be worth removing
+        boolean[] padded = new boolean[frames];
+        for (int f = 0; f < frames; f++) {
+            if (extended[f]) {
+                Arrays.fill(padded, Math.max(0, f - paddingFrames), Math.min(frames, f + paddingFrames + 1), true);
+            }
+        }
+        int f = 0;
+        while (f < frames) {
+            if (padded[f]) {
+                f++;
+                continue;
+            }
+            int gapStart = f;
+            while (f < frames && !padded[f]) {
+                f++;
+            }
+            // Leading and trailing silence is always removed, it separates nothing
+            boolean inner = gapStart > 0 && f < frames;
+            if (inner && f - gapStart < minSilenceFrames) {
+                Arrays.fill(padded, gapStart, f, true);
+            }
+        }
+        return padded;
+    }
+
+    /**
+     * Raises the threshold above the noise floor only when the floor is quieter than the threshold, and so cannot
+     * be speech. Requiring it to sit a whole margin lower would never move the gate at all.
+     */
+    double gateDb(double noiseFloorDb) {
+        if (noiseFloorDb >= thresholdDb) {
+            return thresholdDb;
+        }
+        return Math.max(thresholdDb, noiseFloorDb + NOISE_FLOOR_MARGIN_DB);
+    }
+
+    private static boolean isUnvoiced(double energyDb, double zeroCrossingRate, double unvoicedGateDb) {
+        return energyDb >= unvoicedGateDb && zeroCrossingRate >= UNVOICED_MIN_ZERO_CROSSING_RATE;
+    }
+
+    private static double noiseFloorDb(double[] energyDb) {
+        if (energyDb.length == 0) {
+            return SILENCE_DB;
+        }
+        double[] sorted = energyDb.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) (NOISE_FLOOR_PERCENTILE * (sorted.length - 1))];
+    }
+
+    private static int millisToFrames(int millis) {
+        return (int) ((long) millis * SAMPLE_RATE / 1000 / FRAME_SAMPLES);
+    }
+
+    /**
+     * The speech kept by {@link #compact}, as runs of the original recording laid end to end.
+     */
+    public static final class SpeechMap {
+
+        private final int[] originalStarts;
+        private final int[] compactedStarts;
+        private final int originalSamples;
+        private final int keptSamples;
+
+        SpeechMap(int[] originalStarts, int[] compactedStarts, int originalSamples, int keptSamples) {
+            this.originalStarts = originalStarts;
+            this.compactedStarts = compactedStarts;
+            this.originalSamples = originalSamples;
+            this.keptSamples = keptSamples;
+        }
+
+        /**
+         * @return whether no speech was found at all
+         */
+        public boolean isSilent() {
+            return keptSamples == 0;
+        }
+
+        public int getOriginalSamples() {
+            return originalSamples;
+        }
+
+        public int getKeptSamples() {
+            return keptSamples;
+        }
+
+        public int getSkippedSamples() {
+            return originalSamples - keptSamples;
+        }
+
+        public int getRegionCount() {
+            return originalStarts.length;
+        }
+
+        /**
+         * Maps a position in the compacted audio to the same point of the original recording.
+         */
+        public long toOriginalSample(long compactedSample) {
+            if (originalStarts.length == 0) {
+                return compactedSample;
+            }
+            int region = Arrays.binarySearch(compactedStarts, (int) Math.min(compactedSample, Integer.MAX_VALUE));
+            if (region < 0) {
+                region = Math.max(0, -region - 2);
+            }
+            return originalStarts[region] + (compactedSample - compactedStarts[region]);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.mule.extension.whisperer.internal.helpers.audio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes 16kHz mono float samples as a 16-bit PCM WAV stream.
+ *
+ * <p>Samples are converted through a small fixed buffer, so encoding never materializes a second
+ * full-size copy of the audio.
+ */
+public final class WavEncoder {
+
+    private static final int HEADER_SIZE = 44;
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final int CHUNK_SAMPLES = 8192;
+
+    private WavEncoder() {
+    }
+
+    /**
+     * @return the size in bytes of the WAV stream {@link #write} produces for {@code sampleCount} samples
+     */
+    public static long encodedSize(int sampleCount) {
+        return HEADER_SIZE + (long) sampleCount * BYTES_PER_SAMPLE;
+    }
+
+    public static void write(FloatSampleBuffer samples, OutputStream out) throws IOException {
+        write(samples.array(), 0, samples.size(), out);
+    }
+
+    public static void write(float[] samples, int offset, int length, OutputStream out) throws IOException {
+        int sampleRate = MonoResampler.TARGET_SAMPLE_RATE;
+        int dataSize = length * BYTES_PER_SAMPLE;
+
+        byte[] header = new byte[HEADER_SIZE];
+        putAscii(header, 0, "RIFF");
+        putInt(header, 4, 36 + dataSize);
+        putAscii(header, 8, "WAVE");
+        putAscii(header, 12, "fmt ");
+        putInt(header, 16, 16);                              // PCM fmt chunk size
+        putShort(header, 20, 1);                             // PCM
+        putShort(header, 22, 1);                             // Mono
+        putInt(header, 24, sampleRate);
+        putInt(header, 28, sampleRate * BYTES_PER_SAMPLE);   // Byte rate
+        putShort(header, 32, BYTES_PER_SAMPLE);              // Block align
+        putShort(header, 34, 16);                            // Bits per sample
+        putAscii(header, 36, "data");
+        putInt(header, 40, dataSize);
+        out.write(header);
+
+        byte[] chunk = new byte[Math.min(length, CHUNK_SAMPLES) * BYTES_PER_SAMPLE];
+        int written = 0;
+        while (written < length) {
+            int count = Math.min(CHUNK_SAMPLES, length - written);
+            for (int i = 0; i < count; i++) {
+                float sample = Math.max(-1f, Math.min(samples[offset + written + i], 1f));
+                short pcm = (short) Math.round(sample * Short.MAX_VALUE);
+                chunk[2 * i] = (byte) (pcm & 0xff);
+                chunk[2 * i + 1] = (byte) ((pcm >> 8) & 0xff);
+            }
+            out.write(chunk, 0, count * BYTES_PER_SAMPLE);
+            written += count;
+        }
+    }
+
+    private static void putAscii(byte[] target, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            target[offset + i] = (byte) value.charAt(i);
+        }
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >> 8);
+        target[offset + 2] = (byte) (value >> 16);
+        target[offset + 3] = (byte) (value >> 24);
+    }
+
+    private static void putShort(byte[] target, int offset, int value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >> 8);
+    }
+}
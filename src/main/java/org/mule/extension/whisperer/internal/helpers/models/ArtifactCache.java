@@ -0,0 +1,395 @@
+package org.mule.extension.whisperer.internal.helpers.models;
+
+import org.mule.extension.whisperer.internal.helpers.Sha256;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache for downloaded models and extracted native libraries, shared by every Mule application and process
+ * on a node.
+ *
+ * <p>Entries are directories named by a content key, so identical artifacts are stored once. Processes coordinate
+ * through OS file locks: whoever holds an entry's lock populates it in a private staging directory and moves it
+ * into place, so others either wait and reuse it or find it already complete.
+ *
+ * <p>File locks belong to the process, and closing any channel to a file releases all of them, so applications
+ * in the same JVM must never open a file another one may hold locked. They take turns on a lock file through a
+ * monitor that is the same object in every application, and never open a lease file of their own JVM.
+ *
+ * <p>Every user of an entry holds a {@link Lease}, itself a locked file. When the cache grows beyond its quota,
+ * the least recently used entries without live leases are deleted. Leases left behind by a crashed process are
+ * no longer locked and are cleaned up during eviction.
+ *
+ * <pre>
+ * root/entries/&lt;key&gt;/        artifact files
+ * root/entries/&lt;key&gt;.entry   completion marker; its modification time is the last use
+ * root/locks/&lt;key&gt;.lock      held while populating or evicting the entry
+ * root/leases/&lt;key&gt;/&lt;jvm&gt;-&lt;id&gt;  one locked file per live user, named after its JVM
+ * root/staging/                 entries being populated, and per-entry scratch space
+ * </pre>
+ */
+public final class ArtifactCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactCache.class);
+
+    private static final String MARKER_SUFFIX = ".entry";
+    // Process ID and start time, so a later JVM that reuses the process ID does not take stale leases for its own
+    private static final String JVM_ID = jvmId();
+
+    private final Path root;
+    private final Path entries;
+    private final Path locks;
+    private final Path leases;
+    private final Path staging;
+    private final long quotaBytes;
+
+    private ArtifactCache(Path root, long quotaBytes) {
+        this.root = root;
+        this.entries = root.resolve("entries");
+        this.locks = root.resolve("locks");
+        this.leases = root.resolve("leases");
+        this.staging = root.resolve("staging");
+        this.quotaBytes = quotaBytes;
+    }
+
+    /**
+     * @param quotaBytes disk space above which least recently used entries are evicted
+     */
+    public static ArtifactCache open(Path root, long quotaBytes) throws IOException {
+        ArtifactCache cache = new ArtifactCache(root.toAbsolutePath(), quotaBytes);
+        Files.createDirectories(cache.entries);
+        Files.createDirectories(cache.locks);
+        Files.createDirectories(cache.leases);
+        Files.createDirectories(cache.staging);
+        return cache;
+    }
+
+    /**
+     * @return a cache key derived from the given identity, such as a source URL and expected checksum
+     */
+    public static String key(String... parts) {
+        MessageDigest digest = Sha256.newDigest();
+        for (String part : parts) {
+            digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return Sha256.hex(digest.digest());
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Scratch space that survives a failed or interrupted population, so a {@link Populator} can resume work such
+     * as a partial download on the next attempt. Only populators may use it, since they run under the entry's
+     * lock, and it is deleted once the entry is complete.
+     */
+    public Path workDirectory(String key) throws IOException {
+        return Files.createDirectories(staging.resolve(key + ".work"));
+    }
+
+    /**
+     * Returns the entry for {@code key}, populating it first if no process has yet.
+     *
+     * @param populator fills an empty directory with the artifact; called at most once per node for a key
+     * @return a lease on the entry, to be closed once its files are no longer needed
+     */
+    public Lease obtain(String key, Populator populator) throws IOException {
+        Path directory = entries.resolve(key);
+        Path marker = entries.resolve(key + MARKER_SUFFIX);
+        boolean populated = false;
+        Lease lease;
+        Path lockFile = locks.resolve(key + ".lock");
+        synchronized (jvmMonitor(lockFile)) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                if (Files.exists(marker) && Files.isDirectory(directory)) {
+                    LOGGER.debug("Reusing cached artifact {}.", directory);
+                } else {
+                    populate(key, directory, marker, populator);
+                    populated = true;
+                }
+                Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+                lease = Lease.acquire(leases.resolve(key), directory);
+            }
+        }
+        if (populated) {
+            evict(key);
+        }
+        return lease;
+    }
+
+    private void populate(String key, Path directory, Path marker, Populator populator) throws IOException {
+        // A directory without a marker is what a crash during an earlier move or eviction leaves behind
+        deleteRecursively(directory);
+        Path stagingDirectory = staging.resolve(key + "-" + UUID.randomUUID());
+        Files.createDirectories(stagingDirectory);
+        long start = System.nanoTime();
+        try {
+            populator.populate(stagingDirectory);
+            Files.move(stagingDirectory, directory, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            deleteRecursively(stagingDirectory);
+        }
+        deleteRecursively(workDirectory(key));
+        long size = size(directory);
+        Properties properties = new Properties();
+        properties.setProperty("size", String.valueOf(size));
+        Path temp = entries.resolve(key + MARKER_SUFFIX + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Whisperer artifact cache entry");
+        }
+        Files.move(temp, marker, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        LOGGER.info("Cached artifact {} ({} MB) in {} ms.", directory, size / (1024 * 1024), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Deletes least recently used entries nobody holds a lease on until the cache fits its quota.
+     */
+    void evict(String keep) throws IOException {
+        Path lockFile = root.resolve("cache.lock");
+        synchronized (jvmMonitor(lockFile)) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                evictLocked(keep);
+            }
+        }
+    }
+
+    private void evictLocked(String keep) throws IOException {
+        List<Path> markers = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(entries, "*" + MARKER_SUFFIX)) {
+            for (Path marker : stream) {
+                markers.add(marker);
+                total += markerSize(marker);
+            }
+        }
+        if (total <= quotaBytes) {
+            return;
+        }
+        markers.sort(Comparator.comparing(ArtifactCache::lastUsed));
+        for (Path marker : markers) {
+            if (total <= quotaBytes) {
+                break;
+            }
+            String name = marker.getFileName().toString();
+            String key = name.substring(0, name.length() - MARKER_SUFFIX.length());
+            long size = markerSize(marker);
+            if (!key.equals(keep) && tryDelete(key, marker)) {
+                total -= size;
+            }
+        }
+        if (total > quotaBytes) {
+            LOGGER.warn("Artifact cache {} holds {} MB, above its {} MB quota, but the remaining entries are in use.",
+                        root, total / (1024 * 1024), quotaBytes / (1024 * 1024));
+        }
+    }
+
+    private boolean tryDelete(String key, Path marker) throws IOException {
+        Path lockFile = locks.resolve(key + ".lock");
+        // Another thread of this JVM only holds an entry's lock for as long as it takes to check and lease it
+        synchronized (jvmMonitor(lockFile)) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.tryLock()) {
+                if (lock == null || Lease.anyAlive(leases.resolve(key))) {
+                    return false;
+                }
+                // The marker goes first, so a crash half way leaves an incomplete entry that is simply repopulated
+                Files.deleteIfExists(marker);
+                deleteRecursively(entries.resolve(key));
+                LOGGER.info("Evicted least recently used artifact {} from cache {}.", key, root);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the disk space used by complete entries
+     */
+    public long usedBytes() throws IOException {
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(entries, "*" + MARKER_SUFFIX)) {
+            for (Path marker : stream) {
+                total += markerSize(marker);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The monitor every thread of this JVM must hold while it has {@code lockFile} open, so that no thread closes
+     * a channel to the file while another holds the lock on it. Each application loads its own copy of this class,
+     * so the monitor is an interned string, which all of them share.
+     */
+    static Object jvmMonitor(Path lockFile) throws IOException {
+        Path directory = lockFile.toAbsolutePath().getParent().toRealPath();
+        return ("whisperer-file-lock:" + directory.resolve(lockFile.getFileName())).intern();
+    }
+
+    private static String jvmId() {
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        return runtime.getPid() + "-" + runtime.getStartTime();
+    }
+
+    private static long markerSize(Path marker) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(marker, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            return Long.parseLong(properties.getProperty("size", "0"));
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static FileTime lastUsed(Path marker) {
+        try {
+            return Files.getLastModifiedTime(marker);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static long size(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                try {
+                    Files.delete(file);
+                } catch (NoSuchFileException e) {
+                    // Already gone
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills a new cache entry.
+     */
+    @FunctionalInterface
+    public interface Populator {
+        void populate(Path directory) throws IOException;
+    }
+
+    /**
+     * One user's claim on a cache entry, which keeps it from being evicted until closed.
+     */
+    public static final class Lease implements AutoCloseable {
+
+        private final Path directory;
+        private final Path file;
+        private final FileChannel channel;
+        private final FileLock lock;
+
+        private Lease(Path directory, Path file, FileChannel channel, FileLock lock) {
+            this.directory = directory;
+            this.file = file;
+            this.channel = channel;
+            this.lock = lock;
+        }
+
+        private static Lease acquire(Path leaseDirectory, Path directory) throws IOException {
+            Files.createDirectories(leaseDirectory);
+            Path file = leaseDirectory.resolve(JVM_ID + "-" + UUID.randomUUID());
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            try {
+                return new Lease(directory, file, channel, channel.lock());
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return whether any lease on the entry is still held, removing leases of processes that are gone. Leases
+         *         of this JVM count as held without being opened, since that could release their locks; one an
+         *         application never closed therefore keeps its entry until the JVM exits.
+         */
+        private static boolean anyAlive(Path leaseDirectory) throws IOException {
+            if (!Files.isDirectory(leaseDirectory)) {
+                return false;
+            }
+            boolean alive = false;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(leaseDirectory)) {
+                for (Path file : stream) {
+                    if (file.getFileName().toString().startsWith(JVM_ID + "-")) {
+                        alive = true;
+                        continue;
+                    }
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                         FileLock lock = channel.tryLock()) {
+                        if (lock == null) {
+                            alive = true;
+                        } else {
+                            Files.deleteIfExists(file);
+                        }
+                    } catch (NoSuchFileException e) {
+                        // Released meanwhile
+                    }
+                }
+            }
+            return alive;
+        }
+
+        /**
+         * @return the directory holding the artifact's files
+         */
+        public Path getDirectory() {
+            return directory;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!channel.isOpen()) {
+                return;
+            }
+            try {
+                lock.release();
+            } finally {
+                channel.close();
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package org.mule.extension.whisperer.internal.helpers.models;
+
+import org.mule.extension.whisperer.internal.helpers.Sha256;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads a model file over several HTTP range requests at once and installs it atomically.
+ *
+ * <p>Bytes are written into {@code <target>.part}, and a {@code <target>.part.progress} file records which chunks
+ * are complete, so a download interrupted by a crash or restart resumes where it stopped as long as the server
+ * still reports the same length and validators. Once every chunk is in, the file is checked against the expected
+ * SHA-256 (when one is given) and renamed onto the target in one step. A model file at the target path is
+ * therefore always complete. Servers that do not accept range requests or answer HEAD requests are downloaded
+ * over a single connection, and downloads from servers that send neither an ETag nor a Last-Modified date start
+ * over rather than resume, since there is nothing to tell whether the file changed in between.
+ */
+public final class ModelDownloader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModelDownloader.class);
+
+    static final String PART_SUFFIX = ".part";
+    static final String PROGRESS_SUFFIX = ".part.progress";
+
+    private static final long DEFAULT_CHUNK_BYTES = 16L * 1024 * 1024;
+    private static final int CHUNK_ATTEMPTS = 3;
+    private static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final int connections;
+    private final long chunkBytes;
+
+    /**
+     * @param connections range requests in flight at once
+     */
+    public ModelDownloader(int connections) {
+        this(connections, DEFAULT_CHUNK_BYTES);
+    }
+
+    ModelDownloader(int connections, long chunkBytes) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("Model download needs at least 1 connection, got " + connections);
+        }
+        this.connections = connections;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Makes sure {@code target} holds the model at {@code url}.
+     *
+     * <p>An existing target is kept when no checksum is expected or it matches; one that does not match is
+     * downloaded again.
+     *
+     * @param expectedSha256 hex SHA-256 the model must have, or {@code null} to accept any content
+     * @throws IOException if the download fails or the file does not match the expected checksum
+     */
+    public void install(URL url, Path target, String expectedSha256) throws IOException {
+        String expected = expectedSha256 == null || expectedSha256.trim().isEmpty() ? null : expectedSha256.trim().toLowerCase(Locale.ROOT);
+        if (Files.exists(target)) {
+            if (expected == null) {
+                return;
+            }
+            String actual = Sha256.of(target);
+            if (expected.equals(actual)) {
+                LOGGER.debug("Installed model {} matches the expected SHA-256.", target);
+                return;
+            }
+            LOGGER.warn("Installed model {} has SHA-256 {} instead of {}, downloading it again.", target, actual, expected);
+        }
+
+        Path absolute = target.toAbsolutePath();
+        if (absolute.getParent() != null) {
+            Files.createDirectories(absolute.getParent());
+        }
+        Path part = sibling(absolute, PART_SUFFIX);
+        Path progressFile = sibling(absolute, PROGRESS_SUFFIX);
+
+        long start = System.nanoTime();
+        RemoteFile remote = probe(url);
+        AtomicLong transferred = new AtomicLong();
+        if (remote.length > 0 && remote.acceptsRanges) {
+            downloadRanges(url, remote, part, progressFile, transferred, start);
+        } else {
+            LOGGER.info("Server does not support range requests for {}, downloading over a single connection.", url);
+            Files.deleteIfExists(progressFile);
+            downloadWhole(url, part, transferred);
+        }
+
+        String actual = Sha256.of(part);
+        if (expected != null && !expected.equals(actual)) {
+            Files.deleteIfExists(part);
+            Files.deleteIfExists(progressFile);
+            throw new IOException("Downloaded model from " + url + " has SHA-256 " + actual + " but " + expected + " was expected");
+        }
+        try {
+            Files.move(part, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(progressFile);
+
+        double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+        LOGGER.info("Installed model {} (SHA-256 {}): transferred {} MB in {} s ({} MB/s).", absolute, actual,
+                    megabytes(transferred.get()), String.format(Locale.ROOT, "%.1f", seconds),
+                    String.format(Locale.ROOT, "%.1f", transferred.get() / 1048576d / seconds));
+    }
+
+    private void downloadRanges(URL url, RemoteFile remote, Path part, Path progressFile, AtomicLong transferred, long start)
+        throws IOException {
+        int chunkCount = (int) ((remote.length + chunkBytes - 1) / chunkBytes);
+        Progress progress = Progress.load(progressFile, url, remote, chunkBytes, chunkCount);
+        if (progress == null || !Files.exists(part) || Files.size(part) != remote.length) {
+            progress = new Progress(progressFile, url, remote, chunkBytes, chunkCount);
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                // Sized up front so every connection writes its chunk in place
+                channel.write(ByteBuffer.allocate(1), remote.length - 1);
+            }
+            progress.save();
+            if (remote.validator == null) {
+                LOGGER.info("Server sends no ETag or Last-Modified for {}, an interrupted download will start over.", url);
+            }
+        } else {
+            LOGGER.info("Resuming download of {}: {} of {} chunks already complete.", url, progress.completed(), chunkCount);
+        }
+
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            if (!progress.isDone(i)) {
+                pending.add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        int workers = Math.min(connections, pending.size());
+        LOGGER.info("Downloading {} MB from {} over {} connection(s).", megabytes(remote.length), url, workers);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger lastLoggedDecile = new AtomicInteger(progress.completed() * 10 / chunkCount);
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "whisper-model-download");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Progress chunks = progress;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                futures.add(executor.submit(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < pending.size()) {
+                        int chunk = pending.get(index);
+                        downloadChunk(url, remote, channel, chunk, transferred);
+                        int completed = chunks.markDone(chunk);
+                        logProgress(url, completed, chunkCount, lastLoggedDecile, transferred.get(), start);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Model download from " + url + " failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Model download from " + url + " was interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void downloadChunk(URL url, RemoteFile remote, FileChannel channel, int chunk, AtomicLong transferred) throws IOException {
+        long from = chunk * chunkBytes;
+        long to = Math.min(from + chunkBytes, remote.length) - 1;
+        IOException failure = null;
+        for (int attempt = 1; attempt <= CHUNK_ATTEMPTS; attempt++) {
+            HttpURLConnection connection = open(url, "GET");
+            connection.setRequestProperty("Range", "bytes=" + from + "-" + to);
+            if (remote.validator != null) {
+                // The server answers with the whole, changed file instead of a range if the model was replaced
+                connection.setRequestProperty("If-Range", remote.validator);
+            }
+            try {
+                int status = connection.getResponseCode();
+                if (status != HttpURLConnection.HTTP_PARTIAL) {
+                    throw new IOException("Expected a partial response for bytes " + from + "-" + to + " of " + url
+                        + " but got status " + status + "; the file may have changed on the server");
+                }
+                long position = from;
+                byte[] buffer = new byte[BUFFER_BYTES];
+                try (InputStream in = connection.getInputStream()) {
+                    int read;
+                    while (position <= to && (read = in.read(buffer, 0, (int) Math.min(buffer.length, to + 1 - position))) != -1) {
+                        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                        while (bytes.hasRemaining()) {
+                            position += channel.write(bytes, position);
+                        }
+                        transferred.addAndGet(read);
+                    }
+                }
+                if (position != to + 1) {
+                    throw new IOException("Connection closed after " + (position - from) + " of " + (to + 1 - from)
+                        + " bytes of chunk " + chunk);
+                }
+                // Durable before the progress file claims it
+                channel.force(false);
+                return;
+            } catch (IOException e) {
+                failure = e;
+                LOGGER.debug("Attempt {} of chunk {} of {} failed: {}", attempt, chunk, url, e.getMessage());
+            } finally {
+                connection.disconnect();
+            }
+        }
+        throw failure;
+    }
+
+    private static void downloadWhole(URL url, Path part, AtomicLong transferred) throws IOException {
+        HttpURLConnection connection = open(url, "GET");
+        try {
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected status " + status + " downloading " + url);
+            }
+            try (InputStream in = connection.getInputStream();
+                 OutputStream out = Files.newOutputStream(part)) {
+                byte[] buffer = new byte[BUFFER_BYTES];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    transferred.addAndGet(read);
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static RemoteFile probe(URL url) throws IOException {
+        HttpURLConnection connection = open(url, "HEAD");
+        try {
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                // Some servers and signed URLs only allow GET; the single connection download needs nothing from HEAD
+                LOGGER.debug("HEAD request for {} answered with status {}.", url, status);
+                return new RemoteFile(-1, false, null);
+            }
+            String etag = connection.getHeaderField("ETag");
+            // Weak validators are not allowed in If-Range
+            String validator = etag != null && !etag.startsWith("W/") ? etag : connection.getHeaderField("Last-Modified");
+            return new RemoteFile(connection.getContentLengthLong(),
+                                  "bytes".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges")),
+                                  validator);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static HttpURLConnection open(URL url, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setInstanceFollowRedirects(true);
+        return connection;
+    }
+
+    private static void logProgress(URL url, int completed, int chunkCount, AtomicInteger lastLoggedDecile, long transferred, long start) {
+        int decile = completed * 10 / chunkCount;
+        int last = lastLoggedDecile.get();
+        if (decile > last && lastLoggedDecile.compareAndSet(last, decile)) {
+            double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+            LOGGER.info("Downloading {}: {}% complete, {} MB this run at {} MB/s.", url, decile * 10, megabytes(transferred),
+                        String.format(Locale.ROOT, "%.1f", transferred / 1048576d / seconds));
+        }
+    }
+
+    private static Path sibling(Path target, String suffix) {
+        return target.resolveSibling(target.getFileName() + suffix);
+    }
+
+    private static long megabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+
+    private static final class RemoteFile {
+
+        private final long length;
+        private final boolean acceptsRanges;
+        private final String validator;
+
+        private RemoteFile(long length, boolean acceptsRanges, String validator) {
+            this.length = length;
+            this.acceptsRanges = acceptsRanges;
+            this.validator = validator;
+        }
+    }
+
+    /**
+     * Which chunks of a partial download are complete, persisted next to the part file.
+     */
+    private static final class Progress {
+
+        private final Path file;
+        private final URL url;
+        private final RemoteFile remote;
+        private final long chunkBytes;
+        private final BitSet done;
+
+        private Progress(Path file, URL url, RemoteFile remote, long chunkBytes, int chunkCount) {
+            this(file, url, remote, chunkBytes, new BitSet(chunkCount));
+        }
+
+        private Progress(Path file, URL url, RemoteFile remote, long chunkBytes, BitSet done) {
+            this.file = file;
+            this.url = url;
+            this.remote = remote;
+            this.chunkBytes = chunkBytes;
+            this.done = done;
+        }
+
+        /**
+         * @return the saved progress, or {@code null} if there is none or it belongs to a different download
+         */
+        private static Progress load(Path file, URL url, RemoteFile remote, long chunkBytes, int chunkCount) throws IOException {
+            if (remote.validator == null) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            if (!Files.exists(file)) {
+                return null;
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                LOGGER.warn("Ignoring unreadable download progress {}: {}", file, e.getMessage());
+                return null;
+            }
+            boolean sameDownload = url.toString().equals(properties.getProperty("url"))
+                && String.valueOf(remote.length).equals(properties.getProperty("length"))
+                && String.valueOf(chunkBytes).equals(properties.getProperty("chunkBytes"))
+                && remote.validator.equals(properties.getProperty("validator"));
+            if (!sameDownload) {
+                LOGGER.info("Discarding partial download {}, the remote file or chunk size changed.", file);
+                return null;
+            }
+            BitSet done = new BitSet(chunkCount);
+            for (String index : properties.getProperty("done", "").split(",")) {
+                if (!index.isEmpty()) {
+                    done.set(Integer.parseInt(index));
+                }
+            }
+            return new Progress(file, url, remote, chunkBytes, done);
+        }
+
+        private synchronized boolean isDone(int chunk) {
+            return done.get(chunk);
+        }
+
+        private synchronized int completed() {
+            return done.cardinality();
+        }
+
+        /**
+         * @return the number of complete chunks after this one
+         */
+        private synchronized int markDone(int chunk) throws IOException {
+            done.set(chunk);
+            save();
+            return done.cardinality();
+        }
+
+        private synchronized void save() throws IOException {
+            if (remote.validator == null) {
+                // Without a validator a later run could not tell whether these chunks still belong to the file
+                return;
+            }
+            Properties properties = new Properties();
+            properties.setProperty("url", url.toString());
+            properties.setProperty("length", String.valueOf(remote.length));
+            properties.setProperty("chunkBytes", String.valueOf(chunkBytes));
+            properties.setProperty("validator", remote.validator);
+            StringBuilder indexes = new StringBuilder();
+            for (int i = done.nextSetBit(0); i >= 0; i = done.nextSetBit(i + 1)) {
+                indexes.append(indexes.length() == 0 ? "" : ",").append(i);
+            }
+            properties.setProperty("done", indexes.toString());
+            // Written aside and moved into place, so a crash never leaves a half-written progress file
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Whisper model download progress");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
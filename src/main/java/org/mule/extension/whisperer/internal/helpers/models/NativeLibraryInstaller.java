@@ -0,0 +1,238 @@
+package org.mule.extension.whisperer.internal.helpers.models;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.mule.extension.whisperer.internal.helpers.Sha256;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts the bundled native libraries idempotently.
+ *
+ * <p>The zip is read from memory, so no temporary copy of it is written. Every extraction leaves a manifest with
+ * the SHA-256 and size of each library, and the next one checks the files on disk against it: complete, intact
+ * libraries are left alone, and only missing or damaged ones are extracted again, in parallel.
+ *
+ * <p>{@code WhisperJNI.loadLibrary} must never see a half-written library, since loading one crashes the JVM.
+ * A fresh installation is therefore extracted into a staging directory and renamed into place in one step, and
+ * repairs write each library under a temporary name before renaming it over the damaged one. An OS file lock
+ * next to the directory keeps other applications and processes from extracting at the same time.
+ */
+final class NativeLibraryInstaller {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeLibraryInstaller.class);
+
+    static final String MANIFEST_FILE = ".whisperer-manifest";
+    private static final String SOURCE_KEY = "source";
+    private static final String LINK_PREFIX = "link:";
+    private static final String FILE_PREFIX = "file:";
+
+    private NativeLibraryInstaller() {
+    }
+
+    /**
+     * Makes {@code destination} hold exactly the libraries in {@code zip}, extracting as little as possible.
+     *
+     * @return the number of libraries that had to be extracted
+     */
+    static int install(byte[] zip, Path destination) throws IOException {
+        Path absolute = destination.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        Path lockFile = absolute.resolveSibling(absolute.getFileName() + ".lock");
+        synchronized (ArtifactCache.jvmMonitor(lockFile)) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                if (Files.isDirectory(absolute)) {
+                    return extract(zip, absolute);
+                }
+                Path staging = absolute.resolveSibling(absolute.getFileName() + ".staging-" + UUID.randomUUID());
+                try {
+                    Files.createDirectories(staging);
+                    int extracted = extract(zip, staging);
+                    Files.move(staging, absolute, StandardCopyOption.ATOMIC_MOVE);
+                    return extracted;
+                } finally {
+                    ArtifactCache.deleteRecursively(staging);
+                }
+            }
+        }
+    }
+
+    /**
+     * Brings the libraries in {@code directory} in line with {@code zip}, in place. Callers must make sure nothing
+     * loads from the directory meanwhile, or use {@link #install}.
+     *
+     * @return the number of libraries that had to be extracted
+     */
+    static int extract(byte[] zip, Path directory) throws IOException {
+        long start = System.nanoTime();
+        String source = Sha256.of(zip);
+        Properties manifest = readManifest(directory);
+        boolean sameSource = source.equals(manifest.getProperty(SOURCE_KEY));
+
+        Properties updated = new Properties();
+        updated.setProperty(SOURCE_KEY, source);
+        try (ZipFile zipFile = new ZipFile(new SeekableInMemoryByteChannel(zip))) {
+            List<ZipArchiveEntry> files = new ArrayList<>();
+            List<ZipArchiveEntry> links = new ArrayList<>();
+            for (Enumeration<ZipArchiveEntry> entries = zipFile.getEntries(); entries.hasMoreElements(); ) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    (entry.isUnixSymlink() ? links : files).add(entry);
+                }
+            }
+
+            AtomicInteger extracted = new AtomicInteger();
+            List<String[]> results = Collections.synchronizedList(new ArrayList<>());
+            try {
+                files.parallelStream().forEach(entry -> {
+                    // Libraries are flattened into the directory, as whisper-jni looks for them by file name only
+                    String fileName = fileName(entry.getName());
+                    try {
+                        String recorded = sameSource ? manifest.getProperty(fileName) : null;
+                        if (recorded == null || !intact(directory.resolve(fileName), recorded)) {
+                            recorded = extractFile(zipFile, entry, directory, fileName);
+                            extracted.incrementAndGet();
+                        }
+                        results.add(new String[] {fileName, recorded});
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            for (String[] result : results) {
+                updated.setProperty(result[0], result[1]);
+            }
+
+            for (ZipArchiveEntry entry : links) {
+                String fileName = fileName(entry.getName());
+                String target = fileName(zipFile.getUnixSymlink(entry));
+                Path link = directory.resolve(fileName);
+                if (!Files.isSymbolicLink(link) || !Paths.get(target).equals(Files.readSymbolicLink(link))) {
+                    Path temp = directory.resolve("." + fileName + ".tmp-" + UUID.randomUUID());
+                    Files.createSymbolicLink(temp, Paths.get(target));
+                    Files.move(temp, link, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    extracted.incrementAndGet();
+                }
+                updated.setProperty(fileName, LINK_PREFIX + target);
+            }
+
+            // Written last, so it only ever describes files that are fully in place
+            if (extracted.get() > 0 || !sameSource) {
+                writeManifest(directory, updated);
+            }
+            LOGGER.info("Verified {} Whisper JNI dependencies in {}, extracted {}, in {} ms.", files.size() + links.size(), directory,
+                        extracted.get(), (System.nanoTime() - start) / 1_000_000);
+            return extracted.get();
+        }
+    }
+
+    /**
+     * Writes one library under a temporary name and renames it into place.
+     *
+     * @return its manifest record
+     */
+    private static String extractFile(ZipFile zipFile, ZipArchiveEntry entry, Path directory, String fileName) throws IOException {
+        LOGGER.info("Extracting Whisper JNI dependency {}", fileName);
+        Path temp = directory.resolve("." + fileName + ".tmp-" + UUID.randomUUID());
+        MessageDigest digest = Sha256.newDigest();
+        long size;
+        try {
+            try (InputStream in = zipFile.getInputStream(entry);
+                 OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                size = 0;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            setExecutable(temp);
+            Files.move(temp, directory.resolve(fileName), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return FILE_PREFIX + Sha256.hex(digest.digest()) + ":" + size;
+    }
+
+    private static boolean intact(Path file, String recorded) throws IOException {
+        if (!recorded.startsWith(FILE_PREFIX) || !Files.isRegularFile(file) || Files.isSymbolicLink(file)) {
+            return false;
+        }
+        String[] parts = recorded.substring(FILE_PREFIX.length()).split(":");
+        if (parts.length != 2 || Files.size(file) != Long.parseLong(parts[1])) {
+            return false;
+        }
+        boolean matches = parts[0].equals(Sha256.of(file));
+        if (!matches) {
+            LOGGER.warn("Whisper JNI dependency {} does not match its manifest, extracting it again.", file);
+        }
+        return matches;
+    }
+
+    private static void setExecutable(Path file) throws IOException {
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxr-xr-x"));
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            file.toFile().setExecutable(true);
+        }
+    }
+
+    private static Properties readManifest(Path directory) {
+        Properties manifest = new Properties();
+        Path file = directory.resolve(MANIFEST_FILE);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                manifest.load(reader);
+            } catch (IOException e) {
+                LOGGER.warn("Ignoring unreadable manifest {}: {}", file, e.getMessage());
+                manifest.clear();
+            }
+        }
+        return manifest;
+    }
+
+    private static void writeManifest(Path directory, Properties manifest) throws IOException {
+        Path temp = directory.resolve(MANIFEST_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            manifest.store(writer, "Whisper JNI dependencies");
+        }
+        Files.move(temp, directory.resolve(MANIFEST_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String fileName(String path) {
+        return Paths.get(path).getFileName().toString();
+    }
+
+
+}
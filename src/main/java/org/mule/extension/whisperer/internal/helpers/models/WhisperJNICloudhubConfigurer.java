@@ -1,17 +1,12 @@
 package org.mule.extension.whisperer.internal.helpers.models;
 
-import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
-import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.mule.extension.whisperer.internal.helpers.Sha256;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.PosixFilePermissions;
-import java.util.Enumeration;
 
 public class WhisperJNICloudhubConfigurer {
 
@@ -19,88 +14,75 @@ public class WhisperJNICloudhubConfigurer {
 
   public static final String WHISPER_DEPENDENCY_RESOURCE_PATH = "/cloudhub-whisper-dependencies.zip";
   public static final String WHISPER_DEPENDENCY_LIBS_PATH = "/tmp/whisper-deps-linux64";
+  private static final String LIBDIR_PROPERTY = "io.github.givimad.whisperjni.libdir";
+
+  // Held for the life of the JVM, since loaded native libraries are never unloaded
+  private static ArtifactCache.Lease cachedLibsLease;
+  private static boolean libsVerified;
 
   public static boolean isCloudHubDeployment() {
     // Check if the system property cloudhub.deployment is set to true
     return Boolean.getBoolean("cloudhub.deployment");
   }
 
-  public static void setup() {
-
-    // CloudHub specific setup can be done here
-
+  /**
+   * Makes the native libraries available when running on CloudHub. Libraries already extracted from the same
+   * bundle are verified against their manifest and reused; only missing or damaged ones are extracted again.
+   *
+   * @param cache shared cache to extract the libraries into, or {@code null} to use
+   *              {@link #WHISPER_DEPENDENCY_LIBS_PATH}
+   */
+  public static synchronized void ensureSetup(ArtifactCache cache) {
+    if (!isCloudHubDeployment()) {
+      return;
+    }
+    LOGGER.info("CloudHub deployment detected. Performing CloudHub specific setup.");
+    if (cache == null) {
+      setup();
+      return;
+    }
+    if (cachedLibsLease != null) {
+      return;
+    }
     try {
-
-      LOGGER.info("Setting up Whisper JNI for CloudHub deployment. io.github.givimad.whisperjni.libdir={}", WHISPER_DEPENDENCY_LIBS_PATH);
-      // Set the system property for the Whisper JNI library directory
-      System.setProperty("io.github.givimad.whisperjni.libdir", WHISPER_DEPENDENCY_LIBS_PATH);
-      // Extract the Whisper JNI dependencies
-      LOGGER.info("Extracting Whisper JNI dependencies from JAR resource.");
-      extractSoLibs();
-
+      byte[] zip = readDependencies();
+      // Content-addressed, so every application bundling the same libraries shares one extraction
+      String key = ArtifactCache.key("whisper-native-libs", Sha256.of(zip));
+      cachedLibsLease = cache.obtain(key, directory -> NativeLibraryInstaller.extract(zip, directory));
+      LOGGER.info("Using Whisper JNI dependencies from shared cache. {}={}", LIBDIR_PROPERTY, cachedLibsLease.getDirectory());
+      System.setProperty(LIBDIR_PROPERTY, cachedLibsLease.getDirectory().toString());
     } catch (Exception e) {
       LOGGER.error("Error in Whisper setup", e);
     }
   }
 
-  private static void extractSoLibs() throws IOException {
-    // Extract JAR resource to a temp file
-    File tempZip = File.createTempFile("whisper-dependencies", ".zip", new File("/tmp"));
-
-    LOGGER.info("Extracting {}.", WHISPER_DEPENDENCY_RESOURCE_PATH);
+  public static synchronized void setup() {
 
-    try (InputStream zipStream = WhisperJNICloudhubConfigurer.class.getResourceAsStream(WHISPER_DEPENDENCY_RESOURCE_PATH);
-        OutputStream outStream = new FileOutputStream(tempZip)) {
-      byte[] buffer = new byte[8192];
-      int bytesRead;
-      while ((bytesRead = zipStream.read(buffer)) != -1) {
-        outStream.write(buffer, 0, bytesRead);
-      }
-    }
+    // CloudHub specific setup can be done here
 
-    // Create the destination directory if it doesn't exist
-    File destDir = new File(WHISPER_DEPENDENCY_LIBS_PATH);
-    if (!destDir.exists()) {
-      destDir.mkdirs();
-    }
+    try {
 
-    try (ZipFile zipFile = new ZipFile(tempZip)) {
-      for (Enumeration<ZipArchiveEntry> entries = zipFile.getEntries(); entries.hasMoreElements(); ) {
-        ZipArchiveEntry entry = entries.nextElement();
-        // Get just the file name without path
-        String fileName = new File(entry.getName()).getName();
-        // Create a new entry with just the filename
-        ZipArchiveEntry newEntry = new ZipArchiveEntry(fileName);
-        newEntry.setUnixMode(entry.getUnixMode());
-        // Extract using the simplified entry
-        LOGGER.info("Extracting Whisper JNI dependency {}", fileName);
-        extractZipEntry(zipFile, entry, destDir, fileName);
+      if (!libsVerified) {
+        // Extracts into a staging directory or repairs file by file, so loadLibrary never sees partial files
+        NativeLibraryInstaller.install(readDependencies(), Paths.get(WHISPER_DEPENDENCY_LIBS_PATH));
+        libsVerified = true;
       }
-    }
+      LOGGER.info("Setting up Whisper JNI for CloudHub deployment. {}={}", LIBDIR_PROPERTY, WHISPER_DEPENDENCY_LIBS_PATH);
+      // Set the system property for the Whisper JNI library directory
+      System.setProperty(LIBDIR_PROPERTY, WHISPER_DEPENDENCY_LIBS_PATH);
 
-    tempZip.delete();
+    } catch (Exception e) {
+      LOGGER.error("Error in Whisper setup", e);
+    }
   }
 
-  private static void extractZipEntry(ZipFile zipFile, ZipArchiveEntry entry, File destDir, String fileName) throws IOException {
-    File outputFile = new File(destDir, fileName);
-
-    if (!entry.isDirectory()) {
-      // Handle symlinks
-      if (entry.isUnixSymlink()) {
-        String targetPath = zipFile.getUnixSymlink(entry); // Get symlink target
-        // Use just the filename part of the target
-        String targetFileName = new File(targetPath).getName();
-        Path target = Paths.get(destDir.getAbsolutePath(), targetFileName);
-        Files.createSymbolicLink(outputFile.toPath(), target);
-      } else {
-        Files.copy(zipFile.getInputStream(entry), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        Files.setPosixFilePermissions(outputFile.toPath(), PosixFilePermissions.fromString("rwxr-xr-x"));
-      }
-
-      // Set executable permissions if applicable
-      if ((entry.getUnixMode() & 0b001000000) != 0) { // Check Unix executable bit
-        outputFile.setExecutable(true);
+  private static byte[] readDependencies() throws IOException {
+    // The bundle is a few MB; keeping it in memory avoids writing a temporary copy of the zip
+    try (InputStream zipStream = WhisperJNICloudhubConfigurer.class.getResourceAsStream(WHISPER_DEPENDENCY_RESOURCE_PATH)) {
+      if (zipStream == null) {
+        throw new IOException("Resource not found: " + WHISPER_DEPENDENCY_RESOURCE_PATH);
       }
+      return zipStream.readAllBytes();
     }
   }
 }
@@ -1,24 +1,35 @@
 package org.mule.extension.whisperer.internal.helpers.models;
 
-import org.apache.commons.io.FileUtils;
 import org.mule.extension.whisperer.api.error.ConnectorError;
 import org.mule.runtime.extension.api.exception.ModuleException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.net.URL;
+import java.nio.file.Paths;
 
 public class WhisperJNIModelConfigurer {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(WhisperJNIModelConfigurer.class);
 
+  private static final int DEFAULT_DOWNLOAD_CONNECTIONS = 4;
+
   public static void setup(String modelURL, String modelFilePath) {
+    setup(modelURL, modelFilePath, null, DEFAULT_DOWNLOAD_CONNECTIONS);
+  }
+
+  /**
+   * Downloads the model unless a complete copy is already installed, resuming any earlier partial download.
+   *
+   * @param expectedSha256 hex SHA-256 the model must have, or {@code null} to skip verification
+   * @param connections    parallel range requests used for the download
+   */
+  public static void setup(String modelURL, String modelFilePath, String expectedSha256, int connections) {
 
     try {
 
       LOGGER.info("Downloading Whisper Model from: {}", modelURL);
-      FileUtils.copyURLToFile(new URL(modelURL), new File(modelFilePath));
+      new ModelDownloader(connections).install(new URL(modelURL), Paths.get(modelFilePath), expectedSha256);
       LOGGER.info("Whisper Model downloaded from {} and installed at {}", modelURL, modelFilePath);
 
     } catch (Exception e) {
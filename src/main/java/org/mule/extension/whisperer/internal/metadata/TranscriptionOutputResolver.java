@@ -2,6 +2,9 @@ package org.mule.extension.whisperer.internal.metadata;
 
 import org.mule.extension.whisperer.api.OpenAiTranscriptionAttributes;
 import org.mule.extension.whisperer.api.STTParamsModelDetails;
+import org.mule.extension.whisperer.api.WhisperJNITranscriptionAttributes;
+import org.mule.extension.whisperer.internal.connection.openai.OpenAiConnection;
+import org.mule.extension.whisperer.internal.connection.whisperjni.WhisperJNIConnection;
 import org.mule.metadata.api.model.MetadataType;
 import org.mule.runtime.api.connection.ConnectionException;
 import org.mule.runtime.api.metadata.MetadataContext;
@@ -22,7 +25,10 @@ public class TranscriptionOutputResolver implements TypeKeysResolver, OutputType
 
     @Override
     public MetadataType getAttributesType(MetadataContext metadataContext, STTParamsModelDetails params) throws MetadataResolvingException, ConnectionException {
-        if (params.isVerbose()) {
+        Object connection = metadataContext.getConnection().orElse(null);
+        if (connection instanceof WhisperJNIConnection) {
+            return metadataContext.getTypeLoader().load(WhisperJNITranscriptionAttributes.class);
+        } else if (params.isVerbose() || connection instanceof OpenAiConnection) {
             return metadataContext.getTypeLoader().load(OpenAiTranscriptionAttributes.class);
         } else {
             return metadataContext.getTypeBuilder().nullType().build();
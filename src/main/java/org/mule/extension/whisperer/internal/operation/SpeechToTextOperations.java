@@ -1,7 +1,12 @@
 package org.mule.extension.whisperer.internal.operation;
 
+import org.mule.extension.whisperer.api.ModelSwapResult;
+import org.mule.extension.whisperer.api.STTParamsLiveStream;
 import org.mule.extension.whisperer.api.STTParamsModelDetails;
+import org.mule.extension.whisperer.api.TranscriptionHypothesis;
+import org.mule.extension.whisperer.api.TranscriptionSegment;
 import org.mule.extension.whisperer.internal.connection.SpeechToTextConnection;
+import org.mule.extension.whisperer.internal.connection.TranscriptionSegmentStream;
 import org.mule.extension.whisperer.internal.error.TranscriptionErrorTypeProvider;
 import org.mule.extension.whisperer.internal.metadata.TranscriptionOutputResolver;
 import org.mule.runtime.api.metadata.TypedValue;
@@ -11,12 +16,16 @@ import org.mule.runtime.extension.api.annotation.metadata.MetadataKeyId;
 import org.mule.runtime.extension.api.annotation.metadata.OutputResolver;
 import org.mule.runtime.extension.api.annotation.param.*;
 import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
 import org.mule.runtime.extension.api.runtime.operation.Result;
 import org.mule.runtime.extension.api.runtime.process.CompletionCallback;
+import org.mule.runtime.extension.api.runtime.streaming.PagingProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletionException;
 
 public class SpeechToTextOperations {
     private static final Logger LOGGER = LoggerFactory.getLogger(SpeechToTextOperations.class);
@@ -35,10 +44,118 @@ public class SpeechToTextOperations {
             if (null == e) {
                 callback.success(Result.<String, Object>builder()
                         .output(result.getOutput())
+                        .attributes(result.getAttributes().orElse(null))
                         .build());
             } else {
                 callback.error(e.getCause());
             }
         });
     }
+
+    /**
+     * Loads another model in the background and switches new transcriptions to it once it is loaded and warmed up.
+     * Transcriptions already running finish on the previous model, which is closed after the last of them. The
+     * swap lasts until the application restarts.
+     */
+    @DisplayName("Swap Model")
+    @Alias("swap-model")
+    @Throws(TranscriptionErrorTypeProvider.class)
+    public void swapModel(@Connection SpeechToTextConnection connection,
+                          @DisplayName("Model location")
+                          @Summary("File path or classpath:// resource of the new model, or its URL for the remote model connection") String location,
+                          @Optional @Summary("Name of the model to replace on the multiple models connection. Defaults to the default model.") String model,
+                          @Optional @DisplayName("Expected SHA-256") @Summary("Checksum a downloaded model must have") String expectedSha256,
+                          CompletionCallback<ModelSwapResult, Void> callback) {
+        connection.swapModel(model, location, expectedSha256).whenComplete((result, e) -> {
+            if (null == e) {
+                callback.success(Result.<ModelSwapResult, Void>builder().output(result).build());
+            } else {
+                callback.error(e instanceof CompletionException ? e.getCause() : e);
+            }
+        });
+    }
+
+    /**
+     * Transcribes the audio and pages out timed segments while transcription is still running: each page holds
+     * the segments of a window of audio as soon as it and everything before it are transcribed.
+     */
+    @DisplayName("Speech to Text Segments")
+    @Alias("speech-to-text-segments")
+    @Throws(TranscriptionErrorTypeProvider.class)
+    public PagingProvider<SpeechToTextConnection, TranscriptionSegment> transcribeSegments(@Content TypedValue<InputStream> audioContent,
+                                                                                          @Optional String finetuningPrompt,
+                                                                                          @ParameterGroup(name = "Transcription Options") STTParamsModelDetails transcriptionOptions) {
+        return new PagingProvider<SpeechToTextConnection, TranscriptionSegment>() {
+
+            private TranscriptionSegmentStream<TranscriptionSegment> segments;
+
+            @Override
+            public List<TranscriptionSegment> getPage(SpeechToTextConnection connection) {
+                if (segments == null) {
+                    segments = connection.transcribeSegments(audioContent, finetuningPrompt, transcriptionOptions);
+                }
+                return segments.next();
+            }
+
+            @Override
+            public java.util.Optional<Integer> getTotalResults(SpeechToTextConnection connection) {
+                return java.util.Optional.empty();
+            }
+
+            @Override
+            public void close(SpeechToTextConnection connection) {
+                if (segments != null) {
+                    segments.close();
+                }
+            }
+
+            @Override
+            public boolean useStickyConnections() {
+                // Every page comes from the transcription started on the first connection
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Transcribes a live, unbounded stream of raw 16-bit little-endian mono PCM. Pages hold partial hypotheses,
+     * which the next page with the same id replaces, and final ones, which never change.
+     */
+    @DisplayName("Live Speech to Text")
+    @Alias("live-speech-to-text")
+    @Throws(TranscriptionErrorTypeProvider.class)
+    public PagingProvider<SpeechToTextConnection, TranscriptionHypothesis> transcribeLive(@Content InputStream pcmStream,
+                                                                                         @Optional String finetuningPrompt,
+                                                                                         @ParameterGroup(name = "Transcription Options") STTParamsModelDetails transcriptionOptions,
+                                                                                         @ParameterGroup(name = "Live Stream Options") STTParamsLiveStream liveStreamOptions) {
+        return new PagingProvider<SpeechToTextConnection, TranscriptionHypothesis>() {
+
+            private TranscriptionSegmentStream<TranscriptionHypothesis> hypotheses;
+
+            @Override
+            public List<TranscriptionHypothesis> getPage(SpeechToTextConnection connection) {
+                if (hypotheses == null) {
+                    hypotheses = connection.transcribeLive(pcmStream, finetuningPrompt, transcriptionOptions, liveStreamOptions);
+                }
+                return hypotheses.next();
+            }
+
+            @Override
+            public java.util.Optional<Integer> getTotalResults(SpeechToTextConnection connection) {
+                return java.util.Optional.empty();
+            }
+
+            @Override
+            public void close(SpeechToTextConnection connection) {
+                if (hypotheses != null) {
+                    hypotheses.close();
+                }
+            }
+
+            @Override
+            public boolean useStickyConnections() {
+                return true;
+            }
+        };
+    }
 }
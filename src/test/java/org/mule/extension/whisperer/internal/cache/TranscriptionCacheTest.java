@@ -0,0 +1,211 @@
+package org.mule.extension.whisperer.internal.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mule.extension.whisperer.api.OpenAiTranscriptionAttributes;
+import org.mule.extension.whisperer.api.TranscriptionSegment;
+import org.mule.extension.whisperer.internal.helpers.audio.BufferedAudio;
+import org.mule.runtime.api.util.DataUnit;
+import org.mule.runtime.extension.api.runtime.operation.Result;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the content-addressed transcription cache and its memory and disk tiers.
+ */
+class TranscriptionCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    // ========================================
+    // Key Tests
+    // ========================================
+
+    @Test
+    void testKey_HashComputedWhileBufferingMatchesDirectHash() throws IOException {
+        // Given: An audio payload hashed during buffering
+        byte[] audio = "RIFF fake audio payload".getBytes(StandardCharsets.UTF_8);
+        MessageDigest digest = TranscriptionCache.newAudioDigest();
+        try (BufferedAudio ignored = BufferedAudio.buffer(new ByteArrayInputStream(audio), audio.length, BufferedAudio.NEVER_SPILL, digest)) {
+            // When: Comparing with a hash of the same bytes
+            byte[] direct = TranscriptionCache.newAudioDigest().digest(audio);
+
+            // Then: Buffering fed every byte to the digest
+            assertArrayEquals(direct, digest.digest());
+        }
+    }
+
+    @Test
+    void testKey_EveryOptionChangesTheKey() {
+        // Given: A baseline key
+        byte[] audio = {1, 2, 3};
+        String base = TranscriptionCache.key(audio, "whisper-1", "en", 0.9, null, false, false);
+
+        // Then: Same inputs give the same key, any difference gives another
+        assertEquals(base, TranscriptionCache.key(audio, "whisper-1", "en", 0.9, null, false, false));
+        assertNotEquals(base, TranscriptionCache.key(new byte[] {1, 2, 4}, "whisper-1", "en", 0.9, null, false, false));
+        assertNotEquals(base, TranscriptionCache.key(audio, "whisper-2", "en", 0.9, null, false, false));
+        assertNotEquals(base, TranscriptionCache.key(audio, "whisper-1", "es", 0.9, null, false, false));
+        assertNotEquals(base, TranscriptionCache.key(audio, "whisper-1", "en", 0.5, null, false, false));
+        assertNotEquals(base, TranscriptionCache.key(audio, "whisper-1", "en", 0.9, "", false, false));
+        assertNotEquals(base, TranscriptionCache.key(audio, "whisper-1", "en", 0.9, null, true, false));
+        assertNotEquals(base, TranscriptionCache.key(audio, "whisper-1", "en", 0.9, null, false, true));
+    }
+
+    // ========================================
+    // Tier Tests
+    // ========================================
+
+    @Test
+    void testDisabledCache_NeverStores() {
+        // Given: The disabled cache
+        TranscriptionCache cache = TranscriptionCache.disabled();
+
+        // When: Storing a result
+        cache.put("key", text("hello"));
+
+        // Then: Nothing comes back
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    void testMemoryTier_EvictsLeastRecentlyUsed() throws IOException {
+        // Given: A memory-only cache of two entries
+        TranscriptionCache cache = TranscriptionCache.create(parameters(2, null));
+
+        // When: Three results are stored, touching the first before adding the third
+        cache.put("a", text("first"));
+        cache.put("b", text("second"));
+        assertNotNull(cache.get("a"));
+        cache.put("c", text("third"));
+
+        // Then: The untouched entry was evicted
+        assertEquals("first", cache.get("a").getOutput());
+        assertNull(cache.get("b"));
+        assertEquals("third", cache.get("c").getOutput());
+
+        TranscriptionCache.Metrics metrics = cache.getMetrics();
+        assertEquals(3, metrics.getMemoryHits());
+        assertEquals(1, metrics.getMisses());
+        assertEquals(1, metrics.getMemoryEvictions());
+        assertEquals(2, metrics.getMemoryEntries());
+    }
+
+    @Test
+    void testDiskTier_SurvivesRestartWithAttributes() throws IOException {
+        // Given: A cache with a disk tier holding a verbose result
+        OpenAiTranscriptionAttributes attributes = new OpenAiTranscriptionAttributes();
+        attributes.setLanguage("english");
+        attributes.setDuration(12.5);
+        TranscriptionCache cache = TranscriptionCache.create(parameters(10, tempDir.toString()));
+        cache.put("verbose", Result.<String, Object>builder().output("hello").attributes(attributes).build());
+        cache.close();
+
+        // When: A new cache is created over the same directory
+        TranscriptionCache restarted = TranscriptionCache.create(parameters(10, tempDir.toString()));
+        Result<String, Object> cached = restarted.get("verbose");
+
+        // Then: The result and its attributes come back from disk
+        assertNotNull(cached);
+        assertEquals("hello", cached.getOutput());
+        OpenAiTranscriptionAttributes cachedAttributes = (OpenAiTranscriptionAttributes) cached.getAttributes().get();
+        assertEquals("english", cachedAttributes.getLanguage());
+        assertEquals(12.5, cachedAttributes.getDuration(), 0);
+        assertEquals(1, restarted.getMetrics().getDiskHits());
+    }
+
+    @Test
+    void testMemoryTier_EveryHitGetsItsOwnAttributes() throws IOException {
+        // Given: A cached result with attributes
+        OpenAiTranscriptionAttributes attributes = new OpenAiTranscriptionAttributes();
+        attributes.setUploadedBytes(100L);
+        List<TranscriptionSegment> segments = new ArrayList<>();
+        segments.add(new TranscriptionSegment(0, 0d, 1.5, "hello"));
+        attributes.setSegments(segments);
+        TranscriptionCache cache = TranscriptionCache.create(parameters(10, null));
+        cache.put("shared", Result.<String, Object>builder().output("hello").attributes(attributes).build());
+
+        // When: The stored attributes and those of one hit are changed
+        attributes.setUploadedBytes(1L);
+        ((OpenAiTranscriptionAttributes) cache.get("shared").getAttributes().get()).setUploadedBytes(2L);
+
+        // Then: The next hit still sees the attributes as they were cached
+        OpenAiTranscriptionAttributes next = (OpenAiTranscriptionAttributes) cache.get("shared").getAttributes().get();
+        assertEquals(Long.valueOf(100), next.getUploadedBytes());
+        assertEquals("hello", next.getSegments().get(0).getText());
+    }
+
+    @Test
+    void testDiskTier_RejectsPlantedClasses() throws IOException {
+        // Given: A file in the disk tier holding an object no entry ever contains
+        TranscriptionCache.create(parameters(10, tempDir.toString())).put("planted", text("hello"));
+        Path entry = tempDir.resolve("planted.transcript");
+        try (OutputStream out = Files.newOutputStream(entry);
+             ObjectOutputStream objects = new ObjectOutputStream(out)) {
+            objects.writeObject(new File("/"));
+        }
+
+        // When: A restarted cache looks the entry up
+        TranscriptionCache restarted = TranscriptionCache.create(parameters(10, tempDir.toString()));
+        Result<String, Object> cached = restarted.get("planted");
+
+        // Then: The file is not deserialized, and is discarded as a miss
+        assertNull(cached);
+        assertFalse(Files.exists(entry));
+        assertEquals(1, restarted.getMetrics().getMisses());
+    }
+
+    @Test
+    void testDiskTier_EvictsOverSizeCap() throws IOException {
+        // Given: A disk tier capped at 1 KB and no memory tier
+        TranscriptionCacheParameters parameters = parameters(0, tempDir.toString());
+        parameters.setDiskMaxSize(1);
+        parameters.setDiskMaxSizeUnit(DataUnit.KB);
+        TranscriptionCache cache = TranscriptionCache.create(parameters);
+
+        // When: Storing entries that together exceed the cap
+        String text = new String(new char[300]).replace('\0', 'x');
+        for (int i = 0; i < 5; i++) {
+            cache.put("entry-" + i, text(text + i));
+        }
+
+        // Then: The oldest entries were evicted and the newest survives
+        TranscriptionCache.Metrics metrics = cache.getMetrics();
+        assertTrue(metrics.getDiskBytes() <= 1024, "Disk tier should stay under its cap");
+        assertTrue(metrics.getDiskEvictions() > 0, "Old entries should have been evicted");
+        assertNull(cache.get("entry-0"));
+        assertEquals(text + 4, cache.get("entry-4").getOutput());
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private TranscriptionCacheParameters parameters(int maxMemoryEntries, String diskDirectory) {
+        TranscriptionCacheParameters parameters = new TranscriptionCacheParameters();
+        parameters.setCacheEnabled(true);
+        parameters.setMaxMemoryEntries(maxMemoryEntries);
+        parameters.setDiskDirectory(diskDirectory);
+        parameters.setDiskMaxSize(16);
+        parameters.setDiskMaxSizeUnit(DataUnit.MB);
+        return parameters;
+    }
+
+    private Result<String, Object> text(String output) {
+        return Result.<String, Object>builder().output(output).build();
+    }
+}
@@ -0,0 +1,69 @@
+package org.mule.extension.whisperer.internal.connection;
+
+import org.junit.jupiter.api.Test;
+import org.mule.extension.whisperer.api.TranscriptionSegment;
+import org.mule.extension.whisperer.internal.error.TranscriptionException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for handing transcription segments from the producing thread to the paging consumer.
+ */
+class TranscriptionSegmentStreamTest {
+
+    @Test
+    void testNext_DeliversBatchesInOrderThenEnds() throws Exception {
+        // Given: A producer publishing two batches from another thread
+        TranscriptionSegmentStream<TranscriptionSegment> stream = new TranscriptionSegmentStream<>();
+        Thread producer = new Thread(() -> {
+            stream.publish(Collections.singletonList(segment(0, "hello")));
+            stream.publish(Collections.emptyList());
+            stream.publish(Collections.singletonList(segment(1, "world")));
+            stream.complete();
+        });
+        producer.start();
+
+        // When: Paging through the stream
+        List<TranscriptionSegment> first = stream.next();
+        List<TranscriptionSegment> second = stream.next();
+        List<TranscriptionSegment> end = stream.next();
+        producer.join();
+
+        // Then: Empty batches are skipped and the stream ends with an empty page, repeatedly
+        assertEquals("hello", first.get(0).getText());
+        assertEquals("world", second.get(0).getText());
+        assertTrue(end.isEmpty());
+        assertTrue(stream.next().isEmpty());
+    }
+
+    @Test
+    void testNext_RethrowsProducerFailureAfterDeliveredSegments() {
+        // Given: A transcription that fails after its first batch
+        TranscriptionSegmentStream<TranscriptionSegment> stream = new TranscriptionSegmentStream<>();
+        stream.publish(Collections.singletonList(segment(0, "partial")));
+        stream.fail(new IllegalStateException("decoder crashed"));
+
+        // Then: The delivered batch is still readable, then the failure surfaces as a transcription error
+        assertEquals("partial", stream.next().get(0).getText());
+        TranscriptionException e = assertThrows(TranscriptionException.class, stream::next);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void testPublish_FailsOnceConsumerClosed() {
+        // Given: A consumer that stopped reading
+        TranscriptionSegmentStream<TranscriptionSegment> stream = new TranscriptionSegmentStream<>();
+        stream.close();
+
+        // Then: The producer is told to stop
+        assertThrows(CancellationException.class, () -> stream.publish(Collections.singletonList(segment(0, "late"))));
+    }
+
+    private static TranscriptionSegment segment(int id, String text) {
+        return new TranscriptionSegment(id, id * 1.0, id + 1.0, text);
+    }
+}
@@ -0,0 +1,177 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import org.junit.jupiter.api.Test;
+import org.mule.extension.whisperer.api.error.ConnectorError;
+import org.mule.runtime.extension.api.exception.ModuleException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the adaptive concurrency limit shared by the OpenAI configurations of one API key.
+ */
+class ConcurrencyLimiterTest {
+
+    private static final RetryPolicy.HeaderReader NO_HEADERS = name -> null;
+
+    @Test
+    void testAcquire_QueuesOverLimitInArrivalOrder() throws Exception {
+        // Given: A limit of 2, both in use
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 2, 10, 1, TimeUnit.MINUTES);
+        ConcurrencyLimiter.Permit first = limiter.acquire().get();
+        ConcurrencyLimiter.Permit second = limiter.acquire().get();
+
+        // When: Two more requests arrive
+        CompletableFuture<ConcurrencyLimiter.Permit> third = limiter.acquire();
+        CompletableFuture<ConcurrencyLimiter.Permit> fourth = limiter.acquire();
+
+        // Then: They wait, and are let through one per release in the order they came
+        assertFalse(third.isDone());
+        assertEquals(2, limiter.getMetrics().getQueueDepth());
+        first.release(200, NO_HEADERS);
+        assertTrue(third.isDone());
+        assertFalse(fourth.isDone());
+        second.release(200, NO_HEADERS);
+        assertTrue(fourth.isDone());
+        assertEquals(2, limiter.getMetrics().getThrottledRequests());
+        assertEquals(0, limiter.getMetrics().getQueueDepth());
+    }
+
+    @Test
+    void testAcquire_RejectsWhenQueueIsFull() throws Exception {
+        // Given: A limit of 1 in use and a queue of 1 taken
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 1, TimeUnit.MINUTES);
+        limiter.acquire().get();
+        limiter.acquire();
+
+        // When: Another request arrives
+        ExecutionException e = assertThrows(ExecutionException.class, () -> limiter.acquire().get());
+
+        // Then: It fails straight away as a timeout
+        assertEquals(ConnectorError.TIMEOUT, ((ModuleException) e.getCause()).getType());
+        assertEquals(1, limiter.getMetrics().getRejectedRequests());
+    }
+
+    @Test
+    void testAcquire_TimesOutWaiting() throws Exception {
+        // Given: A limit of 1 in use
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 10, 50, TimeUnit.MILLISECONDS);
+        limiter.acquire().get();
+
+        // When: A request waits longer than the queue timeout
+        ExecutionException e = assertThrows(ExecutionException.class, () -> limiter.acquire().get(5, TimeUnit.SECONDS));
+
+        // Then: It fails as a timeout and leaves the queue
+        assertEquals(ConnectorError.TIMEOUT, ((ModuleException) e.getCause()).getType());
+        assertEquals(0, limiter.getMetrics().getQueueDepth());
+    }
+
+    @Test
+    void testRelease_HalvesLimitOnceForBurstOfRateLimits() throws Exception {
+        // Given: 8 requests in flight under a limit of 8
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 16, 10, 1, TimeUnit.MINUTES);
+        List<ConcurrencyLimiter.Permit> permits = acquire(limiter, 8);
+
+        // When: All of them come back rate limited
+        for (ConcurrencyLimiter.Permit permit : permits) {
+            permit.release(429, NO_HEADERS);
+        }
+
+        // Then: The limit is halved once, not eight times
+        assertEquals(4, limiter.getMetrics().getLimit());
+        assertEquals(8, limiter.getMetrics().getRateLimitedResponses());
+
+        // And: A request sent after the decrease can lower it again
+        acquire(limiter, 1).get(0).release(429, NO_HEADERS);
+        assertEquals(2, limiter.getMetrics().getLimit());
+    }
+
+    @Test
+    void testRelease_ShrinksLimitWhenRemainingRunsLow() throws Exception {
+        // Given: A request in flight under a limit of 8
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 16, 10, 1, TimeUnit.MINUTES);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("x-ratelimit-limit-tokens", "200000");
+        headers.put("x-ratelimit-remaining-tokens", "15000");
+
+        // When: It succeeds with under a tenth of the tokens left
+        acquire(limiter, 1).get(0).release(200, headers::get);
+
+        // Then: The limit shrinks by a quarter
+        assertEquals(6, limiter.getMetrics().getLimit());
+    }
+
+    @Test
+    void testRelease_GrowsLimitWhileSaturatedUpToMax() throws Exception {
+        // Given: A limit of 2 with room to grow to 3
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 3, 10, 1, TimeUnit.MINUTES);
+
+        // When: Rounds of requests fill it and succeed
+        for (int round = 0; round < 10; round++) {
+            for (ConcurrencyLimiter.Permit permit : acquire(limiter, limiter.getMetrics().getLimit())) {
+                permit.release(200, NO_HEADERS);
+            }
+        }
+
+        // Then: It grows, but not past the max
+        assertEquals(3, limiter.getMetrics().getLimit());
+    }
+
+    @Test
+    void testRelease_KeepsLimitWhenNotSaturated() throws Exception {
+        // Given: A limit of 4 with one request in flight at a time
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 8, 10, 1, TimeUnit.MINUTES);
+
+        // When: Many such requests succeed
+        for (int i = 0; i < 100; i++) {
+            acquire(limiter, 1).get(0).release(200, NO_HEADERS);
+        }
+
+        // Then: Nothing says more would be better, so the limit stays
+        assertEquals(4, limiter.getMetrics().getLimit());
+    }
+
+    @Test
+    void testShare_OneLimiterPerApiKey() {
+        // Given: Two configurations with the same key and one with another
+        ConcurrencyLimiter.Shared first = ConcurrencyLimiter.share("sk-test-a", () -> new ConcurrencyLimiter(1, 1, 1, 1, TimeUnit.MINUTES));
+        ConcurrencyLimiter.Shared second = ConcurrencyLimiter.share("sk-test-a", () -> new ConcurrencyLimiter(2, 2, 1, 1, TimeUnit.MINUTES));
+        ConcurrencyLimiter.Shared other = ConcurrencyLimiter.share("sk-test-b", () -> new ConcurrencyLimiter(1, 1, 1, 1, TimeUnit.MINUTES));
+
+        // Then: The same key shares the first limiter
+        assertSame(first.get(), second.get());
+        assertNotSame(first.get(), other.get());
+
+        // When: Every configuration of the key releases it
+        first.release();
+        second.release();
+        ConcurrencyLimiter.Shared next = ConcurrencyLimiter.share("sk-test-a", () -> new ConcurrencyLimiter(3, 3, 1, 1, TimeUnit.MINUTES));
+
+        // Then: The next configuration starts a new one
+        assertNotSame(first.get(), next.get());
+        assertEquals(3, next.get().getMetrics().getLimit());
+        next.release();
+        other.release();
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private static List<ConcurrencyLimiter.Permit> acquire(ConcurrencyLimiter limiter, int count) throws Exception {
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CompletableFuture<ConcurrencyLimiter.Permit> permit = limiter.acquire();
+            assertTrue(permit.isDone(), "request " + i + " was queued");
+            permits.add(permit.get());
+        }
+        return permits;
+    }
+}
@@ -0,0 +1,153 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for the streamed multipart body of OpenAI transcription uploads.
+ */
+class MultipartFormDataTest {
+
+    private static final int UPLOAD_BYTES = 25 * 1024 * 1024;
+
+    @Test
+    void testToInputStream_WritesFieldsAndFile() throws IOException {
+        // Given: A form with a text field and a small file
+        MultipartFormData form = new MultipartFormData()
+                .field("model", "whisper-1")
+                .file("file", "speech.wav", "audio/wav", new ByteArrayInputStream(new byte[] {1, 2, 3}), 3);
+
+        // When: The body is read
+        byte[] body = form.toInputStream().readAllBytes();
+
+        // Then: It holds both parts between boundaries, and its length is the one announced
+        String boundary = form.getContentType().substring(form.getContentType().indexOf("boundary=") + 9);
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        assertEquals("--" + boundary + "\r\n"
+                         + "Content-Disposition: form-data; name=\"model\"\r\n"
+                         + "Content-Type: text/plain; charset=UTF-8\r\n\r\n"
+                         + "whisper-1\r\n"
+                         + "--" + boundary + "\r\n"
+                         + "Content-Disposition: form-data; name=\"file\"; filename=\"speech.wav\"\r\n"
+                         + "Content-Type: audio/wav\r\n\r\n"
+                         + "\u0001\u0002\u0003\r\n"
+                         + "--" + boundary + "--\r\n", text);
+        assertEquals(body.length, form.getContentLength());
+    }
+
+    @Test
+    void testGetContentLength_UnknownFileLength() {
+        // Given: A file whose length is not known up front
+        MultipartFormData form = new MultipartFormData()
+                .file("file", "speech.mp3", "audio/mpeg", new ByteArrayInputStream(new byte[10]), -1)
+                .field("language", "en");
+
+        // When/Then: The body length is unknown, so the request is sent chunked
+        assertEquals(-1, form.getContentLength());
+    }
+
+    @Test
+    void testToInputStream_ReadsFileOnlyWhenReached() throws IOException {
+        // Given: A file stream that records whether it has been read
+        CountingInputStream audio = new CountingInputStream(1024);
+        MultipartFormData form = new MultipartFormData()
+                .field("model", "whisper-1")
+                .file("file", "speech.wav", "audio/wav", audio, 1024);
+        InputStream body = form.toInputStream();
+
+        // When: Only the first part is read
+        body.read(new byte[16]);
+
+        // Then: The file has not been touched yet, and is read once the body is read through
+        assertEquals(0, audio.read);
+        body.transferTo(OutputStream.nullOutputStream());
+        assertEquals(1024, audio.read);
+    }
+
+    @Test
+    void testBenchmark_HeapPerUploadAgainstBuffering() throws IOException {
+        // Given: A JVM that reports what each thread allocates
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                   "Thread allocation accounting is not available on this JVM");
+        long threadId = Thread.currentThread().getId();
+
+        long streamedBytes = Long.MAX_VALUE;
+        long bufferedBytes = Long.MAX_VALUE;
+
+        // When: Sending a 25 MB upload through an 8 KB socket buffer, streamed and buffered, best of a few runs
+        for (int run = 0; run < 3; run++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            send(new MultipartFormData()
+                         .field("model", "whisper-1")
+                         .file("file", "speech.wav", "audio/wav", new CountingInputStream(UPLOAD_BYTES), UPLOAD_BYTES)
+                         .toInputStream());
+            streamedBytes = Math.min(streamedBytes, threads.getThreadAllocatedBytes(threadId) - before);
+
+            before = threads.getThreadAllocatedBytes(threadId);
+            byte[] audio = new CountingInputStream(UPLOAD_BYTES).readAllBytes();
+            send(new MultipartFormData()
+                         .field("model", "whisper-1")
+                         .file("file", "speech.wav", "audio/wav", new ByteArrayInputStream(audio), audio.length)
+                         .toInputStream());
+            bufferedBytes = Math.min(bufferedBytes, threads.getThreadAllocatedBytes(threadId) - before);
+        }
+
+        // Then: Report both; the streamed upload allocates a small, fixed amount whatever the audio size
+        System.out.printf("Streamed: %d KB allocated per 25 MB upload%n", streamedBytes / 1024);
+        System.out.printf("Buffered: %d KB allocated per 25 MB upload%n", bufferedBytes / 1024);
+        assertTrue(streamedBytes < 256 * 1024, "Streaming should allocate well under 256 KB per upload, was " + streamedBytes);
+        assertTrue(bufferedBytes > UPLOAD_BYTES, "Buffering should allocate at least the whole upload");
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private static void send(InputStream body) throws IOException {
+        byte[] socketBuffer = new byte[8192];
+        while (body.read(socketBuffer) != -1) {
+            // Written to the socket
+        }
+    }
+
+    /**
+     * Produces audio-sized content without holding it, counting what has been read.
+     */
+    private static final class CountingInputStream extends InputStream {
+
+        private final long length;
+        private long read;
+
+        CountingInputStream(long length) {
+            this.length = length;
+        }
+
+        @Override
+        public int read() {
+            return read < length ? (int) (read++ & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (read >= length) {
+                return -1;
+            }
+            int n = (int) Math.min(len, length - read);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) (read + i);
+            }
+            read += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for retrying OpenAI requests, against a local HTTP stand-in for the OpenAI API.
+ */
+class RetryPolicyTest {
+
+    private static final byte[] BODY = "audio bytes".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private URI uri;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private final ConcurrentLinkedQueue<ScriptedResponse> script = new ConcurrentLinkedQueue<>();
+    private final List<byte[]> receivedBodies = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/audio/transcriptions", this::serve);
+        server.start();
+        uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/audio/transcriptions");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testExecute_RetriesRateLimitAfterRequestedDelay() throws Exception {
+        // Given: Two rate limited responses asking to come back after 200 ms, then success
+        script.add(new ScriptedResponse(429).header("retry-after-ms", "200"));
+        script.add(new ScriptedResponse(429).header("Retry-After", "0.2"));
+        script.add(new ScriptedResponse(200));
+        RetryPolicy policy = new RetryPolicy(3, 1, 10, 10_000, TimeUnit.MILLISECONDS);
+
+        // When: Sending the request
+        long start = System.nanoTime();
+        RetryPolicy.Retried<HttpResponse<String>> retried = policy.execute(exchange(), true).get(10, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then: It succeeds on the third attempt, having waited as asked and sent the same body every time
+        assertEquals(200, retried.getResponse().statusCode());
+        assertEquals(2, retried.getRetries());
+        assertTrue(elapsedMillis >= 400, "waited " + elapsedMillis + " ms");
+        assertEquals(3, receivedBodies.size());
+        for (byte[] body : receivedBodies) {
+            assertArrayEquals(BODY, body);
+        }
+        RetryPolicy.Metrics metrics = policy.getMetrics();
+        assertEquals(1, metrics.getRequests());
+        assertEquals(2, metrics.getRetries());
+        assertEquals(2, metrics.getThrottledResponses());
+        assertEquals(0, metrics.getExhausted());
+    }
+
+    @Test
+    void testExecute_ReturnsLastResponseWhenOutOfRetries() throws Exception {
+        // Given: A server that keeps failing
+        for (int i = 0; i < 5; i++) {
+            script.add(new ScriptedResponse(503));
+        }
+        RetryPolicy policy = new RetryPolicy(2, 1, 10, 10_000, TimeUnit.MILLISECONDS);
+
+        // When: Sending the request
+        RetryPolicy.Retried<HttpResponse<String>> retried = policy.execute(exchange(), true).get(10, TimeUnit.SECONDS);
+
+        // Then: The third failure is handed back
+        assertEquals(503, retried.getResponse().statusCode());
+        assertEquals(2, retried.getRetries());
+        assertEquals(3, receivedBodies.size());
+        assertEquals(3, policy.getMetrics().getServerErrors());
+        assertEquals(1, policy.getMetrics().getExhausted());
+    }
+
+    @Test
+    void testExecute_DoesNotRetryClientErrors() throws Exception {
+        // Given: A request OpenAI rejects as malformed
+        script.add(new ScriptedResponse(400));
+        RetryPolicy policy = new RetryPolicy(3, 1, 10, 10_000, TimeUnit.MILLISECONDS);
+
+        // When: Sending the request
+        RetryPolicy.Retried<HttpResponse<String>> retried = policy.execute(exchange(), true).get(10, TimeUnit.SECONDS);
+
+        // Then: It is not sent again
+        assertEquals(400, retried.getResponse().statusCode());
+        assertEquals(0, retried.getRetries());
+        assertEquals(1, receivedBodies.size());
+    }
+
+    @Test
+    void testExecute_GivesUpWhenWaitWouldExceedBudget() throws Exception {
+        // Given: A rate limit that resets in a minute, and a budget of one second
+        script.add(new ScriptedResponse(429).header("x-ratelimit-remaining-requests", "0")
+                                            .header("x-ratelimit-reset-requests", "1m0s"));
+        RetryPolicy policy = new RetryPolicy(3, 1, 10, 1, TimeUnit.SECONDS);
+
+        // When: Sending the request
+        long start = System.nanoTime();
+        RetryPolicy.Retried<HttpResponse<String>> retried = policy.execute(exchange(), true).get(10, TimeUnit.SECONDS);
+
+        // Then: It fails straight away instead of waiting
+        assertEquals(429, retried.getResponse().statusCode());
+        assertEquals(0, retried.getRetries());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(1, policy.getMetrics().getExhausted());
+    }
+
+    @Test
+    void testExecute_SendsBodyThatCannotBeReopenedOnce() throws Exception {
+        // Given: A transient failure
+        script.add(new ScriptedResponse(502));
+        script.add(new ScriptedResponse(200));
+        RetryPolicy policy = new RetryPolicy(3, 1, 10, 10_000, TimeUnit.MILLISECONDS);
+
+        // When: Sending a body that can only be read once
+        RetryPolicy.Retried<HttpResponse<String>> retried = policy.execute(exchange(), false).get(10, TimeUnit.SECONDS);
+
+        // Then: The failure is handed back without a retry
+        assertEquals(502, retried.getResponse().statusCode());
+        assertEquals(1, receivedBodies.size());
+        assertEquals(0, policy.getMetrics().getRetries());
+    }
+
+    @Test
+    void testExecute_RetriesNetworkErrors() throws Exception {
+        // Given: A server that is down for the first attempt
+        server.stop(0);
+        RetryPolicy policy = new RetryPolicy(1, 50, 50, 10_000, TimeUnit.MILLISECONDS);
+        RetryPolicy.Exchange<HttpResponse<String>> exchange = exchange();
+        int[] attempts = new int[1];
+        RetryPolicy.Exchange<HttpResponse<String>> restarting = new DelegatingExchange(exchange) {
+            @Override
+            public CompletableFuture<HttpResponse<String>> send() {
+                if (attempts[0]++ == 1) {
+                    restartServer();
+                }
+                return super.send();
+            }
+        };
+        script.add(new ScriptedResponse(200));
+
+        // When: Sending the request
+        RetryPolicy.Retried<HttpResponse<String>> retried = policy.execute(restarting, true).get(10, TimeUnit.SECONDS);
+
+        // Then: The retry reaches the server once it is back
+        assertEquals(200, retried.getResponse().statusCode());
+        assertEquals(1, retried.getRetries());
+        assertEquals(1, policy.getMetrics().getNetworkErrors());
+    }
+
+    @Test
+    void testExecute_FailsWithErrorWhenOutOfRetries() {
+        // Given: A server that is down
+        server.stop(0);
+        RetryPolicy policy = new RetryPolicy(1, 1, 1, 10_000, TimeUnit.MILLISECONDS);
+
+        // When: Sending the request
+        ExecutionException e = assertThrows(ExecutionException.class,
+                                            () -> policy.execute(exchange(), true).get(10, TimeUnit.SECONDS));
+
+        // Then: The network error is handed back
+        assertTrue(e.getCause() instanceof IOException);
+        assertEquals(2, policy.getMetrics().getNetworkErrors());
+    }
+
+    @Test
+    void testServerDelay_ReadsRateLimitResets() {
+        // Given: Rate limit headers in OpenAI's duration format
+        Map<String, String> headers = new HashMap<>();
+        headers.put("x-ratelimit-reset-requests", "1h2m3.5s");
+        headers.put("x-ratelimit-reset-tokens", "20ms");
+
+        // When/Then: The sooner reset is used unless the response says which limit ran out
+        assertEquals(20, RetryPolicy.serverDelayMillis(headers::get));
+        headers.put("x-ratelimit-remaining-requests", "0");
+        assertEquals(3_723_500, RetryPolicy.serverDelayMillis(headers::get));
+        assertEquals(-1, RetryPolicy.parseResetDuration("soon"));
+        assertEquals(-1, RetryPolicy.serverDelayMillis(name -> null));
+    }
+
+    @Test
+    void testBackoff_GrowsWithJitterUpToMax() {
+        // Given: A 100 ms initial backoff capped at 1 second
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000, 60_000, TimeUnit.MILLISECONDS);
+
+        // When/Then: Every wait is between half and all of the doubled backoff, never above the cap
+        for (int i = 0; i < 100; i++) {
+            long first = policy.backoffMillis(0);
+            long third = policy.backoffMillis(2);
+            long tenth = policy.backoffMillis(9);
+            assertTrue(first >= 50 && first <= 100, "first retry waited " + first);
+            assertTrue(third >= 200 && third <= 400, "third retry waited " + third);
+            assertTrue(tenth >= 500 && tenth <= 1000, "tenth retry waited " + tenth);
+        }
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private void serve(HttpExchange exchange) throws IOException {
+        receivedBodies.add(exchange.getRequestBody().readAllBytes());
+        ScriptedResponse response = script.poll();
+        int status = response != null ? response.status : 500;
+        if (response != null) {
+            response.headers.forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+        }
+        byte[] body = ("status " + status).getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void restartServer() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", uri.getPort()), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        server.createContext("/v1/audio/transcriptions", this::serve);
+        server.start();
+    }
+
+    private RetryPolicy.Exchange<HttpResponse<String>> exchange() {
+        return new RetryPolicy.Exchange<HttpResponse<String>>() {
+            @Override
+            public CompletableFuture<HttpResponse<String>> send() {
+                // A fresh body stream for every attempt, as the connection reopens its buffered audio
+                HttpRequest request = HttpRequest.newBuilder(uri)
+                        .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(BODY)))
+                        .build();
+                return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+            }
+
+            @Override
+            public int statusCode(HttpResponse<String> response) {
+                return response.statusCode();
+            }
+
+            @Override
+            public String header(HttpResponse<String> response, String name) {
+                return response.headers().firstValue(name).orElse(null);
+            }
+
+            @Override
+            public void discard(HttpResponse<String> response) {
+            }
+        };
+    }
+
+    private static class DelegatingExchange implements RetryPolicy.Exchange<HttpResponse<String>> {
+        private final RetryPolicy.Exchange<HttpResponse<String>> delegate;
+
+        DelegatingExchange(RetryPolicy.Exchange<HttpResponse<String>> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public CompletableFuture<HttpResponse<String>> send() {
+            return delegate.send();
+        }
+
+        @Override
+        public int statusCode(HttpResponse<String> response) {
+            return delegate.statusCode(response);
+        }
+
+        @Override
+        public String header(HttpResponse<String> response, String name) {
+            return delegate.header(response, name);
+        }
+
+        @Override
+        public void discard(HttpResponse<String> response) {
+            delegate.discard(response);
+        }
+    }
+
+    private static final class ScriptedResponse {
+        private final int status;
+        private final Map<String, String> headers = new HashMap<>();
+
+        ScriptedResponse(int status) {
+            this.status = status;
+        }
+
+        ScriptedResponse header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+    }
+}
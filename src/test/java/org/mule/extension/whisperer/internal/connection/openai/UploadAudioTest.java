@@ -0,0 +1,156 @@
+package org.mule.extension.whisperer.internal.connection.openai;
+
+import org.junit.jupiter.api.Test;
+import org.mule.extension.whisperer.api.UploadAudioFormat;
+import org.mule.extension.whisperer.internal.helpers.audio.AudioConverter;
+import org.mule.extension.whisperer.internal.helpers.audio.BufferedAudio;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Tests for transcoding audio to compact 16kHz mono before it is uploaded to OpenAI.
+ */
+class UploadAudioTest {
+
+    @Test
+    void testTranscode_DownmixesAndResamplesWav() throws Exception {
+        // Given: Two seconds of 48kHz stereo WAV, and no ByteDeco FFmpeg to encode FLAC
+        assumeFalse(AudioConverter.isByteDecoAvailable(), "FLAC is encoded instead when ByteDeco FFmpeg is present");
+        BufferedAudio original = buffer(wav(48000, 2, 2));
+
+        // When: Transcoding it for upload
+        try (UploadAudio upload = UploadAudio.transcode(original, "wav", "audio/wav", UploadAudioFormat.FLAC)) {
+
+            // Then: A sixth of the size is uploaded as 16kHz mono 16-bit WAV
+            assertTrue(upload.isTranscoded());
+            assertEquals("speech.wav", upload.getFileName());
+            assertEquals("audio/wav", upload.getMediaType());
+            assertEquals(44 + 2 * 16000 * 2, upload.size());
+            assertEquals(original.size(), upload.getOriginalSize());
+            try (InputStream in = new BufferedInputStream(upload.openStream())) {
+                AudioFormat format = AudioSystem.getAudioFileFormat(in).getFormat();
+                assertEquals(16000f, format.getSampleRate());
+                assertEquals(1, format.getChannels());
+            }
+        }
+    }
+
+    @Test
+    void testTranscode_KeepsOriginalWhenAlreadyCompact() throws IOException {
+        // Given: Audio that is already 16kHz mono 16-bit WAV
+        BufferedAudio original = buffer(wav(16000, 1, 1));
+
+        // When: Transcoding it for upload to WAV
+        try (UploadAudio upload = UploadAudio.transcode(original, "wav", "audio/x-wav", UploadAudioFormat.WAV)) {
+
+            // Then: The original is uploaded, since the copy would be no smaller
+            assertFalse(upload.isTranscoded());
+            assertEquals("audio/x-wav", upload.getMediaType());
+            assertEquals(original.size(), upload.size());
+        }
+    }
+
+    @Test
+    void testTranscode_UploadsUndecodableAudioAsIs() throws IOException {
+        // Given: A payload that claims to be MP3 but is not
+        byte[] payload = new byte[4096];
+        BufferedAudio original = buffer(payload);
+
+        // When: Transcoding it for upload
+        try (UploadAudio upload = UploadAudio.transcode(original, "mp3", "audio/mpeg", UploadAudioFormat.WAV)) {
+
+            // Then: It is uploaded unchanged for OpenAI to decode
+            assertFalse(upload.isTranscoded());
+            assertEquals("speech.mp3", upload.getFileName());
+            try (InputStream in = upload.openStream()) {
+                assertArrayEquals(payload, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void testSplit_KeepsAudioWithinLimitWhole() throws IOException {
+        // Given: Audio smaller than the upload limit
+        BufferedAudio original = buffer(wav(16000, 1, 2));
+        UploadAudio upload = UploadAudio.original(original, "wav", "audio/wav", UploadAudioFormat.WAV);
+
+        // When: Splitting it
+        List<UploadAudio> chunks = upload.split(original.size(), 4);
+
+        // Then: It is uploaded in one piece
+        assertEquals(1, chunks.size());
+        assertSame(upload, chunks.get(0));
+        upload.close();
+    }
+
+    @Test
+    void testSplit_CutsOversizedAudioAtSilences() throws IOException {
+        // Given: 150 seconds of 16kHz mono WAV, silent between 50 and 51 seconds, and a 2 MB upload limit
+        BufferedAudio original = buffer(wav(16000, 1, 150, 50, 51));
+        UploadAudio upload = UploadAudio.original(original, "wav", "audio/wav", UploadAudioFormat.WAV);
+        long limit = 2 * 1024 * 1024;
+
+        // When: Splitting it
+        List<UploadAudio> chunks = upload.split(limit, 4);
+        try {
+
+            // Then: Every chunk fits, they follow each other, and the first ends in the silence
+            assertTrue(chunks.size() >= 3);
+            assertEquals(0, chunks.get(0).getStartSeconds(), 0);
+            assertTrue(chunks.get(1).getStartSeconds() >= 50 && chunks.get(1).getStartSeconds() <= 51);
+            long samples = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                UploadAudio chunk = chunks.get(i);
+                assertTrue(chunk.size() <= limit);
+                assertEquals("audio/wav", chunk.getMediaType());
+                assertEquals(samples / 16000.0, chunk.getStartSeconds(), 1e-9);
+                samples += (chunk.size() - 44) / 2;
+            }
+            assertEquals(150 * 16000, samples);
+        } finally {
+            chunks.forEach(UploadAudio::close);
+        }
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private static BufferedAudio buffer(byte[] audio) throws IOException {
+        return BufferedAudio.buffer(new ByteArrayInputStream(audio), audio.length, BufferedAudio.NEVER_SPILL);
+    }
+
+    private static byte[] wav(int sampleRate, int channels, int seconds) throws IOException {
+        return wav(sampleRate, channels, seconds, 0, 0);
+    }
+
+    private static byte[] wav(int sampleRate, int channels, int seconds, int silenceFrom, int silenceTo) throws IOException {
+        int frames = sampleRate * seconds;
+        byte[] pcm = new byte[frames * channels * 2];
+        for (int frame = 0; frame < frames; frame++) {
+            boolean silent = frame >= silenceFrom * sampleRate && frame < silenceTo * sampleRate;
+            short sample = silent ? 0 : (short) (Math.sin(2 * Math.PI * 440 * frame / sampleRate) * 8000);
+            for (int channel = 0; channel < channels; channel++) {
+                int offset = (frame * channels + channel) * 2;
+                pcm[offset] = (byte) sample;
+                pcm[offset + 1] = (byte) (sample >> 8);
+            }
+        }
+        AudioFormat format = new AudioFormat(sampleRate, 16, channels, true, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, frames), AudioFileFormat.Type.WAVE, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,124 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mule.extension.whisperer.internal.error.TranscriptionException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the bounded executors local decoding and inference run on.
+ */
+class InferenceExecutorsTest {
+
+    private final ThreadPoolExecutor executor = InferenceExecutors.create("test-inference", 1, 1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testSupplyAsync_FailsWithTranscriptionExceptionWhenSaturated() throws Exception {
+        // Given: The only thread is busy and the queue's only slot is taken
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> running = InferenceExecutors.supplyAsync(() -> {
+            started.countDown();
+            await(release);
+            return "running";
+        }, executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = InferenceExecutors.supplyAsync(() -> "queued", executor);
+
+        // When: Another request arrives
+        CompletableFuture<String> rejected = InferenceExecutors.supplyAsync(() -> "rejected", executor);
+
+        // Then: It fails straight away as a transcription error instead of throwing
+        assertTrue(rejected.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(e.getCause() instanceof TranscriptionException, String.valueOf(e.getCause()));
+        assertTrue(e.getCause().getMessage().contains("queue is full"), e.getCause().getMessage());
+
+        // And: The accepted requests still complete
+        release.countDown();
+        assertEquals("running", running.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testShutdown_LetsRunningWorkFinishAndRejectsNewWork() throws Exception {
+        // Given: A request running when the executor shuts down
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CompletableFuture<String> running = InferenceExecutors.supplyAsync(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return "done";
+        }, executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When: Shutting down with a grace period longer than the request needs
+        long before = System.nanoTime();
+        InferenceExecutors.shutdown(executor, 30, TimeUnit.SECONDS);
+
+        // Then: The request finished uninterrupted, and shutdown returned once it had rather than after the grace period
+        assertTrue(executor.isTerminated());
+        assertEquals("done", running.get());
+        assertFalse(interrupted.get());
+        assertTrue(System.nanoTime() - before < TimeUnit.SECONDS.toNanos(10));
+
+        // And: Later requests fail as transcription errors
+        ExecutionException e = assertThrows(ExecutionException.class,
+                                            () -> InferenceExecutors.supplyAsync(() -> "late", executor).get());
+        assertTrue(e.getCause() instanceof TranscriptionException, String.valueOf(e.getCause()));
+    }
+
+    @Test
+    void testShutdown_InterruptsWorkOutlastingGracePeriod() throws Exception {
+        // Given: A request that runs until interrupted
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        InferenceExecutors.supplyAsync(() -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        }, executor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When: Shutting down with a short grace period
+        InferenceExecutors.shutdown(executor, 50, TimeUnit.MILLISECONDS);
+
+        // Then: The request is interrupted
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
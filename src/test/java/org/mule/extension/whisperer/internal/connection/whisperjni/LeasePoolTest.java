@@ -0,0 +1,107 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.junit.jupiter.api.Test;
+import org.mule.extension.whisperer.api.error.ConnectorError;
+import org.mule.runtime.extension.api.exception.ModuleException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the pool decoder states are borrowed from, with plain strings standing in for native states.
+ */
+class LeasePoolTest {
+
+    private final List<String> closed = new CopyOnWriteArrayList<>();
+
+    @Test
+    void testBorrow_TimesOutWhenAllInUse() {
+        // Given: A pool of one state, already borrowed
+        LeasePool<String> pool = pool(50, "state-1");
+        pool.borrow();
+
+        // When/Then: Another borrow gives up after the timeout
+        ModuleException e = assertThrows(ModuleException.class, pool::borrow);
+        assertEquals(ConnectorError.TIMEOUT, e.getType());
+        assertEquals(1, pool.getMetrics().getTimeoutCount());
+        assertTrue(pool.getMetrics().getMaxWaitMillis() >= 40, pool.getMetrics().toString());
+    }
+
+    @Test
+    void testRelease_StateIsReused() {
+        // Given: A pool of one state
+        LeasePool<String> pool = pool(50, "state-1");
+        LeasePool.Lease<String> first = pool.borrow();
+
+        // When: The state is released and borrowed again
+        pool.release(first);
+        LeasePool.Lease<String> second = pool.borrow();
+
+        // Then: The same state is handed out
+        assertEquals("state-1", second.get());
+        assertEquals(2, pool.getMetrics().getBorrowCount());
+    }
+
+    @Test
+    void testGetMetrics_TracksUse() throws Exception {
+        // Given: A pool of two states
+        LeasePool<String> pool = pool(1000, "state-1", "state-2");
+
+        // When: One is borrowed and held for a while
+        LeasePool.Lease<String> lease = pool.borrow();
+        Thread.sleep(20);
+
+        // Then: It counts as in use
+        WhisperStatePool.Metrics inUse = pool.getMetrics();
+        assertEquals(2, inUse.getSize());
+        assertEquals(1, inUse.getInUse());
+        assertEquals(1, inUse.getBorrowCount());
+        assertEquals(0, inUse.getTimeoutCount());
+
+        // When: It is released
+        pool.release(lease);
+
+        // Then: The time it was held shows as utilization
+        WhisperStatePool.Metrics released = pool.getMetrics();
+        assertEquals(0, released.getInUse());
+        assertTrue(released.getUtilization() > 0 && released.getUtilization() <= 1, released.toString());
+    }
+
+    @Test
+    void testClose_WaitsForBorrowedStates() throws Exception {
+        // Given: A pool with one of its two states borrowed
+        LeasePool<String> pool = pool(1000, "state-1", "state-2");
+        LeasePool.Lease<String> lease = pool.borrow();
+
+        // When: The pool closes
+        CompletableFuture<Void> closing = CompletableFuture.runAsync(pool::close);
+
+        // Then: It refuses new borrows and closes nothing while the state is in use
+        assertThrows(TimeoutException.class, () -> closing.get(100, TimeUnit.MILLISECONDS));
+        assertTrue(closed.isEmpty());
+        ModuleException e = assertThrows(ModuleException.class, pool::borrow);
+        assertEquals(ConnectorError.TRANSCRIPTION, e.getType());
+
+        // When: The state is released
+        pool.release(lease);
+
+        // Then: Every state is closed
+        closing.get(5, TimeUnit.SECONDS);
+        assertEquals(2, closed.size());
+        assertTrue(closed.containsAll(Arrays.asList("state-1", "state-2")));
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private LeasePool<String> pool(long borrowTimeoutMillis, String... states) {
+        return new LeasePool<>(Arrays.asList(states), borrowTimeoutMillis, TimeUnit.MILLISECONDS, closed::add);
+    }
+}
@@ -0,0 +1,116 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the threads live transcription streams run on.
+ */
+class LiveStreamExecutorTest {
+
+    private final LiveStreamExecutor executor = new LiveStreamExecutor("test-live", 1);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testStart_RejectsStreamsBeyondMax() throws Exception {
+        // Given: The only stream allowed is open
+        CountDownLatch end = new CountDownLatch(1);
+        CountDownLatch ended = new CountDownLatch(1);
+        executor.start(readers -> {
+            await(end);
+            ended.countDown();
+        }, () -> { });
+
+        // When: Another stream starts
+        // Then: It is rejected rather than queued
+        assertThrows(RejectedExecutionException.class, () -> executor.start(readers -> { }, () -> { }));
+
+        // And: Once the open stream ends, a new one can start
+        end.countDown();
+        assertTrue(ended.await(5, TimeUnit.SECONDS));
+        awaitOpenStreams(0);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.start(readers -> started.countDown(), () -> { });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testStart_CountsStreamUntilItsReaderFinishes() throws Exception {
+        // Given: A stream whose reader outlives its step loop
+        CountDownLatch endOfAudio = new CountDownLatch(1);
+        CountDownLatch readerDone = new CountDownLatch(1);
+        CountDownLatch loopDone = new CountDownLatch(1);
+        executor.start(readers -> {
+            readers.execute(() -> {
+                await(endOfAudio);
+                readerDone.countDown();
+            });
+            loopDone.countDown();
+        }, () -> { });
+
+        // When: The step loop has finished
+        assertTrue(loopDone.await(5, TimeUnit.SECONDS));
+
+        // Then: The stream still counts, since its reader holds a thread
+        assertEquals(1, executor.getOpenStreams());
+
+        // And: It stops counting once the reader finishes
+        endOfAudio.countDown();
+        assertTrue(readerDone.await(5, TimeUnit.SECONDS));
+        awaitOpenStreams(0);
+    }
+
+    @Test
+    void testShutdown_EndsOpenStreamsAndReturnsOnceTheyFinish() throws Exception {
+        // Given: An open stream whose audio would never end on its own
+        CountDownLatch endOfAudio = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.start(readers -> {
+            started.countDown();
+            await(endOfAudio);
+        }, endOfAudio::countDown);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When: The executor shuts down with a long grace period
+        long before = System.nanoTime();
+        executor.shutdown(30, TimeUnit.SECONDS);
+
+        // Then: The stream's audio was ended, and shutdown returned once it finished rather than after the grace period
+        assertEquals(0, endOfAudio.getCount());
+        assertTrue(System.nanoTime() - before < TimeUnit.SECONDS.toNanos(10));
+        awaitOpenStreams(0);
+
+        // And: New streams are rejected
+        assertThrows(RejectedExecutionException.class, () -> executor.start(readers -> { }, () -> { }));
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitOpenStreams(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getOpenStreams() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, executor.getOpenStreams());
+    }
+}
@@ -0,0 +1,185 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.junit.jupiter.api.Test;
+import org.mule.extension.whisperer.api.TranscriptionHypothesis;
+import org.mule.extension.whisperer.internal.connection.TranscriptionSegmentStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for sliding-window live transcription, with a fake inference that reports one segment per second of audio.
+ */
+class LiveTranscriberTest {
+
+    @Test
+    void testRun_EmitsPartialsThenEachSecondFinalOnceInOrder() throws Exception {
+        // Given: 8 s of 8kHz telephony audio arriving at ten times real time
+        LiveTranscriber.Stats stats = new LiveTranscriber.Stats();
+        LiveTranscriber transcriber = new LiveTranscriber(8000, 500, 6, 1000, stats);
+        TranscriptionSegmentStream<TranscriptionHypothesis> hypotheses = new TranscriptionSegmentStream<>();
+        List<String> prompts = new ArrayList<>();
+
+        // When: Transcribing in the background and reading every hypothesis
+        Thread worker = new Thread(() -> {
+            transcriber.run(new PacedInputStream(pcm(8000, 8), 1600, 10), "Call", (samples, count, offsetCentis, prompt) -> {
+                prompts.add(prompt);
+                return secondsIn(offsetCentis, count);
+            }, hypotheses, LiveTranscriberTest::startReader);
+            hypotheses.complete();
+        });
+        worker.start();
+        List<TranscriptionHypothesis> all = new ArrayList<>();
+        List<TranscriptionHypothesis> page;
+        while (!(page = hypotheses.next()).isEmpty()) {
+            all.addAll(page);
+        }
+        worker.join();
+
+        // Then: Every second of audio became final exactly once, in order
+        List<String> finals = new ArrayList<>();
+        for (TranscriptionHypothesis hypothesis : all) {
+            if (!hypothesis.isPartial()) {
+                assertEquals(finals.size(), hypothesis.getId());
+                finals.add(hypothesis.getText());
+            }
+        }
+        assertEquals(List.of("s0", "s1", "s2", "s3", "s4", "s5", "s6", "s7"), finals);
+
+        // And: Partial hypotheses were emitted before the end, and context was carried into later steps
+        assertTrue(all.stream().anyMatch(TranscriptionHypothesis::isPartial), "Expected partial hypotheses");
+        assertEquals("Call", prompts.get(0));
+        assertTrue(prompts.get(prompts.size() - 1).startsWith("Call s0"), prompts.get(prompts.size() - 1));
+
+        LiveTranscriber.Metrics metrics = stats.snapshot();
+        assertEquals(0, metrics.getActiveStreams());
+        assertTrue(metrics.getSteps() > 1);
+        assertEquals(0, metrics.getDroppedAudioMillis());
+    }
+
+    @Test
+    void testRun_ClosedConsumerStopsTranscription() throws Exception {
+        // Given: A consumer that closes the stream before the audio ends
+        LiveTranscriber transcriber = new LiveTranscriber(16000, 500, 6, 1000, new LiveTranscriber.Stats());
+        TranscriptionSegmentStream<TranscriptionHypothesis> hypotheses = new TranscriptionSegmentStream<>();
+        PacedInputStream pcm = new PacedInputStream(pcm(16000, 60), 3200, 10);
+        hypotheses.close();
+
+        // When: Transcribing
+        // Then: The first publish fails and the audio source is closed
+        assertThrows(RuntimeException.class, () -> transcriber.run(pcm, null, (samples, count, offsetCentis, prompt) ->
+            secondsIn(offsetCentis, count), hypotheses, LiveTranscriberTest::startReader));
+        assertTrue(pcm.closed);
+    }
+
+    @Test
+    void testEnd_FinalizesReceivedAudioAndStops() throws Exception {
+        // Given: A minute of audio arriving in real time
+        LiveTranscriber transcriber = new LiveTranscriber(16000, 500, 6, 1000, new LiveTranscriber.Stats());
+        TranscriptionSegmentStream<TranscriptionHypothesis> hypotheses = new TranscriptionSegmentStream<>();
+        PacedInputStream pcm = new PacedInputStream(pcm(16000, 60), 3200, 100);
+        Thread worker = new Thread(() -> {
+            transcriber.run(pcm, null, (samples, count, offsetCentis, prompt) -> secondsIn(offsetCentis, count), hypotheses,
+                            LiveTranscriberTest::startReader);
+            hypotheses.complete();
+        });
+        worker.start();
+
+        // When: The stream is ended after a few seconds
+        Thread.sleep(3000);
+        transcriber.end();
+
+        // Then: The run returns well before the audio would have ended, with the audio so far final and the source closed
+        worker.join(10_000);
+        assertFalse(worker.isAlive());
+        List<TranscriptionHypothesis> all = new ArrayList<>();
+        List<TranscriptionHypothesis> page;
+        while (!(page = hypotheses.next()).isEmpty()) {
+            all.addAll(page);
+        }
+        assertTrue(all.stream().anyMatch(hypothesis -> !hypothesis.isPartial() && hypothesis.getText().equals("s0")), all.toString());
+        assertFalse(all.get(all.size() - 1).isPartial(), "The last hypothesis should be final");
+        assertTrue(pcm.closed);
+    }
+
+    @Test
+    void testConstructor_RejectsWindowShorterThanLatencyAndSteps() {
+        assertThrows(IllegalArgumentException.class, () -> new LiveTranscriber(16000, 1000, 2, 2000, new LiveTranscriber.Stats()));
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private static void startReader(Runnable reader) {
+        Thread thread = new Thread(reader, "test-pcm-reader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * One segment per whole second of the stream that lies fully inside the transcribed samples.
+     */
+    private static List<WhisperSegment> secondsIn(long offsetCentis, int count) {
+        List<WhisperSegment> segments = new ArrayList<>();
+        long endCentis = offsetCentis + count / WhisperSegment.SAMPLES_PER_CENTISECOND;
+        for (long second = (offsetCentis + 99) / 100; second * 100 + 90 <= endCentis; second++) {
+            segments.add(new WhisperSegment(second * 100, second * 100 + 90, "s" + second));
+        }
+        return segments;
+    }
+
+    private static byte[] pcm(int sampleRate, int seconds) {
+        byte[] bytes = new byte[sampleRate * seconds * 2];
+        for (int i = 0; i < sampleRate * seconds; i++) {
+            short value = (short) (Math.sin(2 * Math.PI * 300 * i / sampleRate) * 8000);
+            bytes[2 * i] = (byte) value;
+            bytes[2 * i + 1] = (byte) (value >> 8);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns at most {@code chunk} bytes per read, pausing between reads like a live source.
+     */
+    private static final class PacedInputStream extends InputStream {
+        private final InputStream delegate;
+        private final int chunk;
+        private final long pauseMillis;
+        private volatile boolean closed;
+
+        PacedInputStream(byte[] data, int chunk, long pauseMillis) {
+            this.delegate = new ByteArrayInputStream(data);
+            this.chunk = chunk;
+            this.pauseMillis = pauseMillis;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return delegate.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("closed");
+            }
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return delegate.read(b, off, Math.min(len, chunk));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for splitting long audio into windows and merging the per-window segments, without native inference.
+ */
+class LongAudioTranscriberTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    // ========================================
+    // Planning Tests
+    // ========================================
+
+    @Test
+    void testPlan_ShortAudioIsOneWindow() {
+        // Given: 30 s of audio and 60 s windows
+        LongAudioTranscriber transcriber = new LongAudioTranscriber(0, 60, 2, 1, Runnable::run);
+        float[] samples = tone(30 * SAMPLE_RATE);
+
+        // When: Planning the windows
+        List<LongAudioTranscriber.Window> windows = transcriber.plan(samples, samples.length);
+
+        // Then: The whole recording is a single window
+        assertEquals(1, windows.size());
+        assertEquals(0, windows.get(0).start);
+        assertEquals(samples.length, windows.get(0).end);
+    }
+
+    @Test
+    void testPlan_CutsAtSilenceAndOverlaps() {
+        // Given: 150 s of tone with a pause at 55 s, inside the last fifth of the first 60 s window
+        float[] samples = tone(150 * SAMPLE_RATE);
+        Arrays.fill(samples, 55 * SAMPLE_RATE, 55 * SAMPLE_RATE + 1600, 0f);
+        LongAudioTranscriber transcriber = new LongAudioTranscriber(0, 60, 2, 1, Runnable::run);
+
+        // When: Planning the windows
+        List<LongAudioTranscriber.Window> windows = transcriber.plan(samples, samples.length);
+
+        // Then: The first cut lands in the pause and every window overlaps its successor by 2 s
+        LongAudioTranscriber.Window first = windows.get(0);
+        assertTrue(first.end > 55 * SAMPLE_RATE && first.end < 55 * SAMPLE_RATE + 1600, "Cut should land in the pause: " + first);
+        for (int i = 0; i + 1 < windows.size(); i++) {
+            assertEquals(2 * SAMPLE_RATE, windows.get(i).end - windows.get(i + 1).start);
+            assertTrue(windows.get(i).length() <= 60 * SAMPLE_RATE);
+        }
+        assertEquals(samples.length, windows.get(windows.size() - 1).end);
+    }
+
+    @Test
+    void testConstructor_RejectsOverlapOfHalfTheWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new LongAudioTranscriber(0, 10, 5, 1, Runnable::run));
+    }
+
+    @Test
+    void testShouldSplit_OnlyAboveThreshold() {
+        // Given: A 120 s threshold
+        LongAudioTranscriber transcriber = new LongAudioTranscriber(120, 60, 2, 1, Runnable::run);
+
+        // Then: Only audio longer than the threshold is split
+        assertFalse(transcriber.shouldSplit(120 * SAMPLE_RATE));
+        assertTrue(transcriber.shouldSplit(120 * SAMPLE_RATE + 1));
+    }
+
+    // ========================================
+    // Merge Tests
+    // ========================================
+
+    @Test
+    void testMerge_DropsDuplicatesFromOverlap() {
+        // Given: Two windows overlapping between 58 s and 60 s, both hearing the word at 58.5-59.5 s
+        List<LongAudioTranscriber.Window> windows = Arrays.asList(
+            new LongAudioTranscriber.Window(0, 60 * SAMPLE_RATE),
+            new LongAudioTranscriber.Window(58 * SAMPLE_RATE, 100 * SAMPLE_RATE));
+        List<List<WhisperSegment>> perWindow = Arrays.asList(
+            Arrays.asList(new WhisperSegment(0, 5000, "first"), new WhisperSegment(5850, 5950, "shared")),
+            Arrays.asList(new WhisperSegment(5850, 5950, "shared"), new WhisperSegment(6000, 9000, "second")));
+
+        // When: Merging
+        List<WhisperSegment> merged = LongAudioTranscriber.merge(windows, perWindow);
+
+        // Then: Each segment appears once, in order
+        assertEquals(Arrays.asList("first", "shared", "second"), texts(merged));
+    }
+
+    // ========================================
+    // Parallel Execution Tests
+    // ========================================
+
+    @Test
+    void testTranscribe_RunsWindowsInParallelAndKeepsOrder() throws Exception {
+        // Given: 300 s of audio, 60 s windows and an executor with room for three helpers
+        float[] samples = tone(300 * SAMPLE_RATE);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        try {
+            LongAudioTranscriber transcriber = new LongAudioTranscriber(0, 60, 2, 4, executor);
+
+            // When: Each window reports one segment spanning its own audio
+            List<WhisperSegment> segments = transcriber.transcribe(samples, samples.length, (window, count, offsetCentis) -> {
+                threads.add(Thread.currentThread().getName());
+                sleep(50);
+                long durationCentis = count / WhisperSegment.SAMPLES_PER_CENTISECOND;
+                return Collections.singletonList(new WhisperSegment(offsetCentis, offsetCentis + durationCentis, "w" + offsetCentis));
+            });
+
+            // Then: Segments come back in recording order, and more than one thread did the work
+            List<Long> starts = new ArrayList<>();
+            for (WhisperSegment segment : segments) {
+                starts.add(segment.getStartCentis());
+            }
+            List<Long> sorted = new ArrayList<>(starts);
+            Collections.sort(sorted);
+            assertEquals(sorted, starts);
+            assertTrue(segments.size() >= 5, "Expected one segment per window, got " + segments);
+            assertTrue(threads.size() > 1, "Windows should be shared between threads: " + threads);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTranscribe_DeliversWindowsInOrderAsTheyFinish() throws Exception {
+        // Given: 300 s of audio where the first window is the slowest to transcribe
+        float[] samples = tone(300 * SAMPLE_RATE);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<Long> delivered = Collections.synchronizedList(new ArrayList<>());
+        try {
+            LongAudioTranscriber transcriber = new LongAudioTranscriber(0, 60, 2, 4, executor);
+
+            // When: Transcribing with a listener
+            transcriber.transcribe(samples, samples.length, (window, count, offsetCentis) -> {
+                sleep(offsetCentis == 0 ? 200 : 20);
+                long middle = offsetCentis + count / WhisperSegment.SAMPLES_PER_CENTISECOND / 2;
+                return Collections.singletonList(new WhisperSegment(middle - 50, middle + 50, "w"));
+            }, batch -> {
+                for (WhisperSegment segment : batch) {
+                    delivered.add(segment.getStartCentis());
+                }
+            });
+
+            // Then: Later windows waited for the first one, so delivery is in recording order
+            List<Long> sorted = new ArrayList<>(delivered);
+            Collections.sort(sorted);
+            assertEquals(sorted, delivered);
+            assertEquals(transcriber.plan(samples, samples.length).size(), delivered.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTranscribe_CompletesOnCallerWhenExecutorRejects() {
+        // Given: An executor that rejects every helper
+        float[] samples = tone(200 * SAMPLE_RATE);
+        LongAudioTranscriber transcriber = new LongAudioTranscriber(0, 60, 2, 4, task -> {
+            throw new RejectedExecutionException("full");
+        });
+        String caller = Thread.currentThread().getName();
+
+        // When: Transcribing
+        List<WhisperSegment> segments = transcriber.transcribe(samples, samples.length, (window, count, offsetCentis) -> {
+            assertEquals(caller, Thread.currentThread().getName());
+            long middle = offsetCentis + count / WhisperSegment.SAMPLES_PER_CENTISECOND / 2;
+            return Collections.singletonList(new WhisperSegment(middle - 50, middle + 50, "w"));
+        });
+
+        // Then: Every window was still transcribed
+        assertEquals(transcriber.plan(samples, samples.length).size(), segments.size());
+    }
+
+    @Test
+    void testTranscribe_PropagatesWindowFailure() {
+        // Given: Inference that fails on the second window
+        float[] samples = tone(200 * SAMPLE_RATE);
+        LongAudioTranscriber transcriber = new LongAudioTranscriber(0, 60, 2, 1, Runnable::run);
+
+        // Then: The failure reaches the caller
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+            () -> transcriber.transcribe(samples, samples.length, (window, count, offsetCentis) -> {
+                if (offsetCentis > 0) {
+                    throw new IllegalStateException("boom");
+                }
+                return Collections.emptyList();
+            }));
+        assertEquals("boom", e.getMessage());
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private static float[] tone(int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE));
+        }
+        return samples;
+    }
+
+    private static List<String> texts(List<WhisperSegment> segments) {
+        List<String> texts = new ArrayList<>();
+        for (WhisperSegment segment : segments) {
+            texts.add(segment.getText());
+        }
+        return texts;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
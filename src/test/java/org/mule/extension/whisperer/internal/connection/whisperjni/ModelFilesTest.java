@@ -0,0 +1,136 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mule.extension.whisperer.internal.helpers.models.ArtifactCache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for resolving model files, in particular the persistent extraction of classpath models.
+ */
+class ModelFilesTest {
+
+    private final byte[] model = new byte[300_000];
+    private Path directory;
+    private ArtifactCache cache;
+    private ClassLoader originalClassLoader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        new Random(3).nextBytes(model);
+        directory = Files.createTempDirectory("model-files-test");
+        cache = ArtifactCache.open(directory.resolve("cache"), Long.MAX_VALUE);
+        originalClassLoader = Thread.currentThread().getContextClassLoader();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Thread.currentThread().setContextClassLoader(originalClassLoader);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void testResolve_ExtractsJarModelOnceAndReusesIt() throws IOException {
+        // Given: A model packed in a jar on the classpath
+        useClassPath(jar("app.jar"));
+
+        // When: Resolving it for two consecutive starts
+        Path first;
+        try (ModelFiles.ResolvedModel resolved = ModelFiles.resolve("classpath://models/ggml-test.bin", cache)) {
+            first = resolved.getPath();
+            assertArrayEquals(model, Files.readAllBytes(first));
+        }
+        long modified = Files.getLastModifiedTime(first).toMillis();
+        try (ModelFiles.ResolvedModel resolved = ModelFiles.resolve("classpath://models/ggml-test.bin", cache)) {
+
+            // Then: The second start reuses the same copy without writing it again
+            assertEquals(first, resolved.getPath());
+            assertEquals(modified, Files.getLastModifiedTime(resolved.getPath()).toMillis());
+        }
+    }
+
+    @Test
+    void testResolve_SharesCopyAcrossRedeployedJars() throws IOException {
+        // Given: The same model in the jar of a first and of a redeployed application
+        useClassPath(jar("app-v1.jar"));
+        Path first;
+        try (ModelFiles.ResolvedModel resolved = ModelFiles.resolve("classpath://models/ggml-test.bin", cache)) {
+            first = resolved.getPath();
+        }
+
+        // When: Resolving it from the redeployed jar
+        useClassPath(jar("app-v2.jar"));
+        try (ModelFiles.ResolvedModel resolved = ModelFiles.resolve("classpath://models/ggml-test.bin", cache)) {
+
+            // Then: The content key finds the existing copy
+            assertEquals(first, resolved.getPath());
+        }
+    }
+
+    @Test
+    void testResolve_UsesPlainFileResourceInPlace() throws IOException {
+        // Given: A model in an exploded classpath directory
+        Path classes = directory.resolve("classes");
+        Files.createDirectories(classes.resolve("models"));
+        Path file = Files.write(classes.resolve("models").resolve("ggml-test.bin"), model);
+        useClassPath(classes);
+
+        // When: Resolving it
+        try (ModelFiles.ResolvedModel resolved = ModelFiles.resolve("classpath://models/ggml-test.bin", cache)) {
+
+            // Then: The file is used without copying it
+            assertEquals(file.toRealPath(), resolved.getPath().toRealPath());
+            assertEquals(0, cache.usedBytes());
+        }
+    }
+
+    @Test
+    void testResolve_RejectsMissingResource() {
+        // Given: An empty classpath
+        useClassPath(directory);
+
+        // When/Then: Resolving a missing model fails
+        IOException e = assertThrows(IOException.class, () -> ModelFiles.resolve("classpath://models/missing.bin", cache));
+        assertTrue(e.getMessage().contains("models/missing.bin"), e.getMessage());
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private Path jar(String name) throws IOException {
+        Path jar = directory.resolve(name);
+        try (OutputStream file = Files.newOutputStream(jar);
+             ZipOutputStream out = new ZipOutputStream(file)) {
+            out.putNextEntry(new ZipEntry("models/ggml-test.bin"));
+            out.write(model);
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    private void useClassPath(Path entry) {
+        try {
+            URL[] urls = {entry.toUri().toURL()};
+            Thread.currentThread().setContextClassLoader(new URLClassLoader(urls, null));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
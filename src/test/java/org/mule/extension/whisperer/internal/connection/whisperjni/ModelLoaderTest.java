@@ -0,0 +1,245 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mule.extension.whisperer.api.ModelSwapResult;
+import org.mule.extension.whisperer.api.error.ConnectorError;
+import org.mule.runtime.extension.api.exception.ModuleException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for loading models in the background while requests arrive, and swapping them while requests run.
+ */
+class ModelLoaderTest {
+
+    // Decoder state pools need native models, the loader never touches them
+    private final ModelRouter router = ModelRouter.single("ggml-tiny.bin", "0000", null);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void testLoadInBackground_RequestWaitsForModel() throws Exception {
+        // Given: A model still loading, with requests allowed to wait 5 seconds
+        ModelLoader loader = ModelLoader.loadInBackground("test", 5000, blockingLoad());
+        CompletableFuture<ModelLoader.Lease> request = loader.whenLoaded();
+        assertFalse(request.isDone());
+        assertFalse(loader.validate().isValid());
+
+        // When: Loading finishes
+        release.countDown();
+
+        // Then: The waiting request gets the model and validation passes
+        assertSame(router, request.get(5, TimeUnit.SECONDS).getRouter());
+        assertSame(router, loader.leaseIfLoaded().getRouter());
+        assertTrue(loader.validate().isValid());
+    }
+
+    @Test
+    void testLoadInBackground_FailsFastWithoutWaitTimeout() {
+        // Given: A model still loading, with requests not allowed to wait
+        ModelLoader loader = ModelLoader.loadInBackground("test", 0, blockingLoad());
+
+        // When/Then: A request fails straight away with the distinct error
+        ModuleException e = assertThrows(ModuleException.class, loader::await);
+        assertEquals(ConnectorError.MODEL_NOT_READY, e.getType());
+        assertNull(loader.leaseIfLoaded());
+    }
+
+    @Test
+    void testLoadInBackground_RequestTimesOut() {
+        // Given: A model still loading, with requests allowed to wait 50 ms
+        ModelLoader loader = ModelLoader.loadInBackground("test", 50, blockingLoad());
+
+        // When/Then: A request gives up once the wait timeout passes
+        CompletionException e = assertThrows(CompletionException.class, () -> loader.whenLoaded().join());
+        assertEquals(ConnectorError.MODEL_NOT_READY, ((ModuleException) e.getCause()).getType());
+    }
+
+    @Test
+    void testLoadInBackground_ReportsFailedLoad() {
+        // Given: A load that fails
+        ModelLoader loader = ModelLoader.loadInBackground("test", 5000, (swap, stages, resources) -> {
+            stages.time("model download", () -> {
+                throw new IOException("Connection refused");
+            });
+            return router;
+        });
+
+        // When: A request waits for it
+        ModuleException e = assertThrows(ModuleException.class, loader::await);
+
+        // Then: It fails as a setup failure, and so does validation
+        assertEquals(ConnectorError.MODEL_SETUP_FAILURE, e.getType());
+        assertTrue(e.getMessage().contains("Connection refused"), e.getMessage());
+        assertFalse(loader.validate().isValid());
+    }
+
+    @Test
+    void testClose_WaitsForBackgroundLoad() {
+        // Given: A load that ignores interruption for a while, as native loading does
+        AtomicBoolean released = new AtomicBoolean();
+        ModelLoader loader = ModelLoader.loadInBackground("test", 0, (swap, stages, resources) -> {
+            resources.add(router, () -> released.set(true));
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+            return router;
+        });
+
+        // When: The provider stops
+        loader.close();
+
+        // Then: The load has finished and whatever it loaded is released
+        assertTrue(released.get());
+    }
+
+    @Test
+    void testClose_WhileLoadingFailsLaterRequestsAsStopped() throws Exception {
+        // Given: A load in flight that ignores interruption, as native loading does, with a request waiting on it
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        ModelLoader loader = ModelLoader.loadInBackground("test", 5000, (swap, stages, resources) -> {
+            loadStarted.countDown();
+            while (release.getCount() > 0) {
+                Thread.onSpinWait();
+            }
+            return router;
+        });
+        CompletableFuture<ModelLoader.Lease> waiting = loader.whenLoaded();
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+        // When: The connection stops while the load is still running
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(loader::close);
+        release.countDown();
+        stopped.get(5, TimeUnit.SECONDS);
+
+        // Then: The waiting request was served by the finished load
+        assertTrue(waiting.isDone());
+        assertSame(router, waiting.join().getRouter());
+
+        // And: A request arriving after the stop fails straight away instead of waiting out its timeout
+        CompletableFuture<ModelLoader.Lease> late = loader.whenLoaded();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(1, TimeUnit.SECONDS));
+        assertEquals(ConnectorError.MODEL_NOT_READY, ((ModuleException) e.getCause()).getType());
+        assertTrue(e.getCause().getMessage().contains("stopped"), e.getCause().getMessage());
+    }
+
+    @Test
+    void testLoad_LoadsOnCallingThread() throws Exception {
+        // When: Loading without the background mode
+        ModelLoader loader = ModelLoader.load("test", (swap, stages, resources) -> stages.time("whisper.init", () -> router));
+
+        // Then: The model is ready straight away
+        assertSame(router, loader.await().getRouter());
+        assertTrue(loader.validate().isValid());
+    }
+
+    @Test
+    void testSwap_RunningRequestKeepsPreviousModel() throws Exception {
+        // Given: A loaded model with a request running on it
+        AtomicBoolean previousReleased = new AtomicBoolean();
+        ModelRouter swapped = ModelRouter.single("ggml-base.bin", "0000", null);
+        ModelLoader loader = ModelLoader.load("test", (swap, stages, resources) -> {
+            if (swap == null) {
+                return resources.add(router, () -> previousReleased.set(true));
+            }
+            return ModelRouter.single(swap.getLocation(), "0000", null);
+        });
+        ModelLoader.Lease running = loader.await();
+
+        // When: The model is swapped
+        ModelSwapResult result = loader.swap(new ModelSwap("ggml-tiny.bin", "ggml-base.bin", null)).get(5, TimeUnit.SECONDS);
+
+        // Then: New requests get the new model while the running one keeps the previous model open
+        assertEquals(1, result.getDrainingRequests());
+        assertEquals(swapped.getDefaultModel(), loader.router().getDefaultModel());
+        assertSame(router, running.getRouter());
+        assertFalse(previousReleased.get());
+
+        // When: The running request finishes
+        running.close();
+
+        // Then: The previous model is released
+        assertTrue(previousReleased.get());
+    }
+
+    @Test
+    void testSwap_FailedLoadKeepsCurrentModel() throws Exception {
+        // Given: A loaded model and a swap whose load fails after acquiring something
+        AtomicBoolean partialReleased = new AtomicBoolean();
+        ModelLoader loader = ModelLoader.load("test", (swap, stages, resources) -> {
+            if (swap == null) {
+                return router;
+            }
+            resources.add(swap, () -> partialReleased.set(true));
+            throw new IOException("No such file");
+        });
+
+        // When: The model is swapped
+        CompletableFuture<ModelSwapResult> result = loader.swap(new ModelSwap("ggml-tiny.bin", "missing.bin", null));
+
+        // Then: The swap fails, what it loaded is released and the current model keeps serving
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals(ConnectorError.MODEL_SETUP_FAILURE, ((ModuleException) e.getCause()).getType());
+        assertTrue(partialReleased.get());
+        assertSame(router, loader.router());
+    }
+
+    @Test
+    void testSwap_RejectsConcurrentSwap() throws Exception {
+        // Given: A swap still loading
+        ModelLoader loader = ModelLoader.load("test", (swap, stages, resources) -> {
+            if (swap != null) {
+                release.await();
+            }
+            return router;
+        });
+        CompletableFuture<ModelSwapResult> first = loader.swap(new ModelSwap("ggml-tiny.bin", "ggml-base.bin", null));
+
+        // When: Another swap is requested
+        CompletableFuture<ModelSwapResult> second = loader.swap(new ModelSwap("ggml-tiny.bin", "ggml-small.bin", null));
+
+        // Then: It is rejected while the first one completes
+        ExecutionException e = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertEquals(ConnectorError.MODEL_SETUP_FAILURE, ((ModuleException) e.getCause()).getType());
+        release.countDown();
+        assertEquals("ggml-base.bin", first.get(5, TimeUnit.SECONDS).getLocation());
+    }
+
+    @Test
+    void testSwap_RejectedWhileLoading() {
+        // Given: A model still loading
+        ModelLoader loader = ModelLoader.loadInBackground("test", 0, blockingLoad());
+
+        // When: The model is swapped
+        CompletableFuture<ModelSwapResult> result = loader.swap(new ModelSwap("ggml-tiny.bin", "ggml-base.bin", null));
+
+        // Then: The swap fails as not ready
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertEquals(ConnectorError.MODEL_NOT_READY, ((ModuleException) e.getCause()).getType());
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private ModelLoader.Task blockingLoad() {
+        return (swap, stages, resources) -> stages.time("whisper.init", () -> {
+            release.await();
+            return router;
+        });
+    }
+}
@@ -0,0 +1,137 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for sharing loaded models between configurations.
+ */
+class ModelRegistryTest {
+
+    private Path directory;
+    private ModelRegistry<FakeModel> registry;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("model-registry-test");
+        registry = new ModelRegistry<>(FakeModel::close);
+        loads = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void testAcquire_SameFileIsLoadedOnce() throws IOException {
+        // Given: One model file reached through two different paths
+        Path model = write("model.bin", "weights");
+        Files.createDirectories(directory.resolve("sub"));
+        Path alias = directory.resolve("sub").resolve("..").resolve("model.bin");
+
+        // When: Two configurations acquire it
+        ModelRegistry.SharedModel<FakeModel> first = registry.acquire(model, this::load);
+        ModelRegistry.SharedModel<FakeModel> second = registry.acquire(alias, this::load);
+
+        // Then: They share one loaded copy
+        assertEquals(1, loads.get());
+        assertSame(first.get(), second.get());
+        assertEquals(1, registry.snapshot().getModels().size());
+        assertEquals(2, registry.snapshot().getModels().get(0).getReferences());
+        assertEquals(7, registry.snapshot().getTotalNativeBytes());
+    }
+
+    @Test
+    void testRelease_ClosesAfterLastReference() throws IOException {
+        // Given: A model shared by two configurations
+        Path model = write("model.bin", "weights");
+        ModelRegistry.SharedModel<FakeModel> first = registry.acquire(model, this::load);
+        ModelRegistry.SharedModel<FakeModel> second = registry.acquire(model, this::load);
+        FakeModel loaded = first.get();
+
+        // When: Releasing the first one twice
+        first.release();
+        first.release();
+
+        // Then: The model stays loaded for the second one
+        assertFalse(loaded.closed);
+        assertEquals(1, registry.snapshot().getModels().get(0).getReferences());
+
+        // When: The second one releases it too
+        second.release();
+
+        // Then: The model is closed and forgotten
+        assertTrue(loaded.closed);
+        assertTrue(registry.snapshot().getModels().isEmpty());
+    }
+
+    @Test
+    void testAcquire_ReplacedFileIsLoadedAfresh() throws IOException {
+        // Given: A loaded model whose file is then replaced with different weights
+        Path model = write("model.bin", "weights");
+        ModelRegistry.SharedModel<FakeModel> original = registry.acquire(model, this::load);
+        write("model.bin", "retrained");
+        Files.setLastModifiedTime(model, FileTime.fromMillis(Files.getLastModifiedTime(model).toMillis() + 5000));
+
+        // When: Another configuration acquires the same path
+        ModelRegistry.SharedModel<FakeModel> replaced = registry.acquire(model, this::load);
+
+        // Then: It gets its own copy of the new weights
+        assertEquals(2, loads.get());
+        assertNotSame(original.get(), replaced.get());
+        assertEquals(2, registry.snapshot().getModels().size());
+    }
+
+    @Test
+    void testAcquire_FailedLoadLeavesNothingBehind() throws IOException {
+        // Given: A model that fails to load
+        Path model = write("model.bin", "weights");
+
+        // When: Acquiring it
+        assertThrows(IOException.class, () -> registry.acquire(model, path -> {
+            throw new IOException("Corrupt model");
+        }));
+
+        // Then: The next attempt loads it again
+        assertTrue(registry.snapshot().getModels().isEmpty());
+        registry.acquire(model, this::load);
+        assertEquals(1, loads.get());
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes());
+    }
+
+    private FakeModel load(Path path) {
+        loads.incrementAndGet();
+        return new FakeModel();
+    }
+
+    private static final class FakeModel {
+
+        private boolean closed;
+
+        void close() {
+            closed = true;
+        }
+    }
+}
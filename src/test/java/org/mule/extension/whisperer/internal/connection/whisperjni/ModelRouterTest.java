@@ -0,0 +1,119 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for routing transcriptions between several loaded models.
+ */
+class ModelRouterTest {
+
+    @Test
+    void testRoute_FirstMatchingRuleWins() {
+        // Given: Short English audio goes to tiny.en, anything up to 10 minutes to base
+        AtomicInteger queueDepth = new AtomicInteger();
+        ModelRouter router = router(queueDepth,
+                                    new ModelRouter.Rule("tiny.en", 30d, languages("en"), null),
+                                    new ModelRouter.Rule("base", 600d, null, null));
+
+        // When: Routing short English, short German and long English audio
+        ModelRouter.Route shortEnglish = router.route(12, "en");
+        ModelRouter.Route shortGerman = router.route(12, "de");
+        ModelRouter.Route longEnglish = router.route(3600, "EN");
+
+        // Then: Each lands on the first model whose rule holds, or the default
+        assertEquals("tiny.en", shortEnglish.getModel());
+        assertEquals("rule 1: duration 12.0 s <= 30.0 s, language en", shortEnglish.getReason());
+        assertEquals("base", shortGerman.getModel());
+        assertEquals("large-v3-turbo", longEnglish.getModel());
+        assertEquals("default model", longEnglish.getReason());
+    }
+
+    @Test
+    void testRoute_DegradesUnderLoad() {
+        // Given: A queue depth rule ahead of everything else
+        AtomicInteger queueDepth = new AtomicInteger(2);
+        ModelRouter router = router(queueDepth, new ModelRouter.Rule("tiny.en", null, null, 8));
+
+        // When: Routing before and during overload
+        ModelRouter.Route calm = router.route(60, "en");
+        queueDepth.set(9);
+        ModelRouter.Route overloaded = router.route(60, "en");
+
+        // Then: Only the overloaded request is degraded to the small model
+        assertEquals("large-v3-turbo", calm.getModel());
+        assertEquals("tiny.en", overloaded.getModel());
+        assertEquals("rule 1: queue depth 9 >= 8", overloaded.getReason());
+        assertFalse(calm.isOverload());
+        assertTrue(overloaded.isOverload());
+
+        // And: The metrics count both decisions
+        ModelRouter.Metrics metrics = router.snapshot();
+        assertEquals(Long.valueOf(1), metrics.getRoutedRequests().get("tiny.en"));
+        assertEquals(Long.valueOf(1), metrics.getRoutedRequests().get("large-v3-turbo"));
+        assertEquals(Long.valueOf(0), metrics.getRoutedRequests().get("base"));
+        assertEquals(1, metrics.getRuleRoutes());
+        assertEquals(1, metrics.getOverloadRoutes());
+        assertEquals(9, metrics.getQueueDepth());
+    }
+
+    @Test
+    void testRoute_LanguageRuleNeedsRequestedLanguage() {
+        // Given: A rule restricted to English
+        ModelRouter router = router(new AtomicInteger(), new ModelRouter.Rule("tiny.en", null, languages("en"), null));
+
+        // When: Routing a request that does not name a language
+        ModelRouter.Route route = router.route(5, null);
+
+        // Then: It falls through to the default model
+        assertEquals("large-v3-turbo", route.getModel());
+    }
+
+    @Test
+    void testRoute_SingleModelAlwaysWins() {
+        // Given: The router of a single-model provider
+        ModelRouter router = ModelRouter.single("model.bin", "9f86d081", null);
+
+        // When: Routing
+        ModelRouter.Route route = router.route(5, "en");
+
+        // Then: The only model is picked, and cached results are keyed by the file's content rather than its path
+        assertEquals("model.bin", route.getModel());
+        assertEquals("only model", route.getReason());
+        assertEquals("sha256:9f86d081", router.getCacheId());
+    }
+
+    @Test
+    void testConstructor_RejectsUnknownModel() {
+        // Given/When/Then: A rule for a model that is not loaded fails at start
+        assertThrows(IllegalArgumentException.class,
+                     () -> router(new AtomicInteger(), new ModelRouter.Rule("medium", null, null, null)));
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private static ModelRouter router(AtomicInteger queueDepth, ModelRouter.Rule... rules) {
+        // Decoder state pools need native models, routing never touches them
+        Map<String, WhisperStatePool> models = new LinkedHashMap<>();
+        models.put("large-v3-turbo", null);
+        models.put("tiny.en", null);
+        models.put("base", null);
+        List<ModelRouter.Rule> ruleList = Arrays.asList(rules);
+        return new ModelRouter(models, "large-v3-turbo", ruleList, queueDepth::get, "models");
+    }
+
+    private static Set<String> languages(String... languages) {
+        return new HashSet<>(Arrays.asList(languages));
+    }
+}
@@ -0,0 +1,86 @@
+package org.mule.extension.whisperer.internal.connection.whisperjni;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for how a model's warm-up shows in the connection's validation.
+ */
+class ModelWarmUpTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testValidate_NotReadyUntilWarmUpCompletes() throws Exception {
+        // Given: A warm-up still running
+        CountDownLatch started = new CountDownLatch(1);
+        ModelWarmUp warmUp = ModelWarmUp.start("model", () -> {
+            started.countDown();
+            release.await();
+        }, executor, "test");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Then: The connection is not ready
+        assertFalse(warmUp.validate().isValid());
+
+        // When: The warm-up completes
+        release.countDown();
+        warmUp.awaitCompletion();
+
+        // Then: The connection is ready
+        assertTrue(warmUp.validate().isValid());
+        assertNull(warmUp.getFailure());
+    }
+
+    @Test
+    void testValidate_FailedWarmUpLeavesConnectionReady() throws Exception {
+        // Given: A warm-up whose inference fails
+        ModelWarmUp warmUp = ModelWarmUp.start("model", () -> {
+            throw new IOException("Warm-up inference failed with code 1");
+        }, executor, "test");
+
+        // When: It completes
+        warmUp.awaitCompletion();
+
+        // Then: The failure is reported, but the connection is ready and the first request pays the start-up costs
+        assertTrue(warmUp.getFailure() instanceof IOException, String.valueOf(warmUp.getFailure()));
+        assertTrue(warmUp.validate().isValid());
+    }
+
+    @Test
+    void testStart_RejectedWarmUpLeavesConnectionReady() throws Exception {
+        // Given: An executor that no longer accepts work
+        executor.shutdown();
+
+        // When: The warm-up starts
+        ModelWarmUp warmUp = ModelWarmUp.start("model", () -> fail("A rejected warm-up must not run"), executor, "test");
+        warmUp.awaitCompletion();
+
+        // Then: It fails without leaving the connection waiting on it
+        assertTrue(warmUp.getFailure() instanceof RejectedExecutionException, String.valueOf(warmUp.getFailure()));
+        assertTrue(warmUp.validate().isValid());
+    }
+
+    @Test
+    void testSkipped_IsReady() {
+        // When/Then: A provider that skips warm-up is ready straight away
+        assertTrue(ModelWarmUp.skipped().validate().isValid());
+        assertNull(ModelWarmUp.skipped().getFailure());
+    }
+}
@@ -0,0 +1,49 @@
+package org.mule.extension.whisperer.internal.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the shared SHA-256 helper.
+ */
+class Sha256Test {
+
+    private static final byte[] ABC = "abc".getBytes(StandardCharsets.US_ASCII);
+    // FIPS 180-2 test vector for "abc"
+    private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @Test
+    void testOf_MatchesKnownVector() throws IOException {
+        // When/Then: Bytes and streams of the same content hash alike
+        assertEquals(ABC_SHA256, Sha256.of(ABC));
+        assertEquals(ABC_SHA256, Sha256.of(new ByteArrayInputStream(ABC)));
+    }
+
+    @Test
+    void testOf_HashesFile() throws IOException {
+        // Given: A file holding the test vector's input
+        Path file = Files.createTempFile("sha256-test", ".bin");
+        try {
+            Files.write(file, ABC);
+
+            // When/Then: It hashes like the bytes it holds
+            assertEquals(ABC_SHA256, Sha256.of(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testHex_IsLowerCaseWithTwoDigitsPerByte() {
+        // When/Then: Small and negative bytes keep their leading zero and sign bits do not leak
+        assertEquals("00010f10ff80", Sha256.hex(new byte[] {0, 1, 15, 16, -1, -128}));
+        assertEquals("", Sha256.hex(new byte[0]));
+    }
+}
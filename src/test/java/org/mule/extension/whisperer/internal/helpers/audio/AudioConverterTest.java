@@ -9,7 +9,9 @@ import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -295,6 +297,113 @@ class AudioConverterTest {
         assertTrue(outputWavFile.length() > 0);
     }
 
+    // ========================================
+    // In-Memory Decoding Tests
+    // ========================================
+
+    @Test
+    void testDecodeWavInMemory_MatchesFileReader() throws IOException, javax.sound.sampled.UnsupportedAudioFileException {
+        // Given: A 48kHz WAV file buffered in memory
+        File inputFile = getTestResourceFile("speech-sample-1.wav");
+
+        try (InputStream in = new FileInputStream(inputFile);
+             BufferedAudio audio = BufferedAudio.buffer(in, inputFile.length(), BufferedAudio.NEVER_SPILL)) {
+
+            // When: Decoding straight to samples
+            float[] samples = AudioConverter.decodeToSamples(audio, "wav").toArray();
+
+            // Then: No temp file was needed and the samples match the file-based reader
+            assertFalse(audio.isSpilled(), "Payload below threshold should stay in memory");
+            assertArrayEquals(AudioFileReader.readFile(inputFile), samples);
+        }
+    }
+
+    @Test
+    void testDecodeMp3InMemory() throws IOException {
+        // Given: An MP3 file buffered in memory
+        File inputFile = getTestResourceFile("speech-sample-3.mp3");
+
+        try (InputStream in = new FileInputStream(inputFile);
+             BufferedAudio audio = BufferedAudio.buffer(in, -1, BufferedAudio.NEVER_SPILL)) {
+
+            // When: Decoding straight to samples
+            float[] samples = AudioConverter.decodeToSamples(audio, "mp3").toArray();
+
+            // Then: Roughly the file's duration worth of 16kHz samples
+            assertTrue(samples.length > 16000, "Should decode at least one second of audio");
+            assertTrue(samples.length < 16000 * 600, "Should decode to 16kHz, not the source rate");
+            for (float sample : samples) {
+                assertTrue(sample >= -1f && sample <= 1f, "Samples should be normalized");
+            }
+        }
+    }
+
+    @Test
+    void testDecodeM4AInMemory_UsingByteDeco() throws IOException {
+        // Given: ByteDeco FFmpeg is available
+        if (!AudioConverter.isByteDecoAvailable()) {
+            System.out.println("⚠️  Skipping in-memory M4A test - ByteDeco FFmpeg not available");
+            return; // Skip test if ByteDeco not available
+        }
+
+        // Given: An M4A file buffered in memory
+        File inputFile = getTestResourceFile("speech-sample-2.m4a");
+
+        try (InputStream in = new FileInputStream(inputFile);
+             BufferedAudio audio = BufferedAudio.buffer(in, inputFile.length(), BufferedAudio.NEVER_SPILL)) {
+
+            // When: Decoding through the custom AVIOContext
+            FloatSampleBuffer samples = AudioConverter.decodeToSamples(audio, "m4a");
+
+            // Then: Same samples as decoding the file from disk
+            assertArrayEquals(ByteDecoConverter.decode(inputFile.getAbsolutePath()).toArray(), samples.toArray());
+        }
+    }
+
+    @Test
+    void testDecodeOggFromStream_UsingByteDeco() throws IOException {
+        // Given: ByteDeco FFmpeg is available
+        if (!AudioConverter.isByteDecoAvailable()) {
+            System.out.println("⚠️  Skipping streamed OGG test - ByteDeco FFmpeg not available");
+            return; // Skip test if ByteDeco not available
+        }
+
+        // Given: An OGG file read as a plain, non-seekable stream
+        File inputFile = getTestResourceFile("speech-sample-5.ogg");
+
+        try (InputStream in = new FileInputStream(inputFile)) {
+            // When: Decoding while reading
+            FloatSampleBuffer samples = ByteDecoConverter.decode(in);
+
+            // Then: At least a second of 16kHz audio
+            assertTrue(samples.size() > 16000, "Should decode at least one second of audio");
+        }
+    }
+
+    @Test
+    void testDecodeWithSpillToDisk_DeletesSpillFileOnClose() throws IOException {
+        // Given: A spill threshold smaller than the payload
+        File inputFile = getTestResourceFile("speech-sample-1.wav");
+        BufferedAudio audio;
+        float[] samples;
+
+        try (InputStream in = new FileInputStream(inputFile)) {
+            audio = BufferedAudio.buffer(in, -1, 1024);
+        }
+        try {
+            // When: Decoding from the spill file
+            assertTrue(audio.isSpilled(), "Payload above threshold should spill to disk");
+            assertEquals(inputFile.length(), audio.size());
+            samples = AudioConverter.decodeToSamples(audio, "wav").toArray();
+        } finally {
+            audio.close();
+        }
+
+        // Then: Decoding works and the spill file is gone
+        assertTrue(samples.length > 0);
+        assertFalse(audio.isSpilled(), "Spill file should be released on close");
+    }
+
     // ========================================
     // Helper Methods
     // ========================================
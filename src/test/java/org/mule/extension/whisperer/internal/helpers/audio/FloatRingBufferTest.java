@@ -0,0 +1,75 @@
+package org.mule.extension.whisperer.internal.helpers.audio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the off-heap sample ring used by live transcription.
+ */
+class FloatRingBufferTest {
+
+    @Test
+    void testRead_WrapsAroundAndKeepsNewestSamples() {
+        // Given: A ring of 8 samples after 13 have been written
+        FloatRingBuffer ring = new FloatRingBuffer(8);
+        ring.write(sequence(0, 5), 0, 5);
+        ring.write(sequence(5, 8), 0, 8);
+
+        // When: Reading the 8 newest samples, which straddle the wrap point
+        float[] target = new float[8];
+        ring.read(5, target, 0, 8);
+
+        // Then: They come back in order
+        assertArrayEquals(sequence(5, 8), target);
+        assertEquals(13, ring.written());
+    }
+
+    @Test
+    void testRead_RejectsOverwrittenAndUnwrittenRanges() {
+        // Given: A ring of 4 samples after 10 have been written
+        FloatRingBuffer ring = new FloatRingBuffer(4);
+        ring.write(sequence(0, 10), 0, 10);
+
+        // Then: Samples before the newest 4, or not written yet, cannot be read
+        assertThrows(IllegalArgumentException.class, () -> ring.read(5, new float[4], 0, 4));
+        assertThrows(IllegalArgumentException.class, () -> ring.read(7, new float[4], 0, 4));
+    }
+
+    @Test
+    void testAwaitWritten_ReturnsWhenClosed() throws Exception {
+        // Given: A reader waiting for samples that will never come
+        FloatRingBuffer ring = new FloatRingBuffer(4);
+        Thread closer = new Thread(() -> {
+            sleep(50);
+            ring.close();
+        });
+        closer.start();
+
+        // When: Waiting far longer than it takes to close
+        long start = System.nanoTime();
+        long written = ring.awaitWritten(100, 10_000);
+
+        // Then: Closing released the waiter
+        assertEquals(0, written);
+        assertTrue(ring.isClosed());
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 5_000);
+        assertThrows(IllegalStateException.class, () -> ring.write(new float[1], 0, 1));
+    }
+
+    private static float[] sequence(int first, int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = first + i;
+        }
+        return values;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
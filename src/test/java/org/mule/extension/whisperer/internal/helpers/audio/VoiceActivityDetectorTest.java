@@ -0,0 +1,146 @@
+package org.mule.extension.whisperer.internal.helpers.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the energy and zero-crossing voice activity detector.
+ */
+class VoiceActivityDetectorTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    @Test
+    void testCompact_AllSilentAudioKeepsNothing() {
+        // Given: 10 s of near-silent line noise
+        FloatSampleBuffer samples = new FloatSampleBuffer();
+        noise(samples, 10 * SAMPLE_RATE, 0.0005f);
+
+        // When: Compacting
+        VoiceActivityDetector.SpeechMap speech = detector().compact(samples);
+
+        // Then: No speech is left to transcribe
+        assertTrue(speech.isSilent());
+        assertEquals(0, samples.size());
+        assertEquals(10 * SAMPLE_RATE, speech.getSkippedSamples());
+    }
+
+    @Test
+    void testCompact_RemovesLongSilenceAndMapsTimesBack() {
+        // Given: 2 s of speech-like tone, 5 s of silence, then 2 s more tone
+        FloatSampleBuffer samples = new FloatSampleBuffer();
+        tone(samples, 2 * SAMPLE_RATE);
+        silence(samples, 5 * SAMPLE_RATE);
+        tone(samples, 2 * SAMPLE_RATE);
+
+        // When: Compacting
+        VoiceActivityDetector.SpeechMap speech = detector().compact(samples);
+
+        // Then: Most of the silence is gone, the padding around the speech is kept
+        assertEquals(2, speech.getRegionCount());
+        assertEquals(speech.getKeptSamples(), samples.size());
+        assertTrue(speech.getSkippedSamples() > 4 * SAMPLE_RATE, "Skipped " + speech.getSkippedSamples());
+        assertTrue(speech.getSkippedSamples() < 5 * SAMPLE_RATE, "Skipped " + speech.getSkippedSamples());
+
+        // And: A point inside the second tone maps back to its original position
+        int secondToneInCompacted = samples.size() - SAMPLE_RATE;
+        assertEquals(8 * SAMPLE_RATE, speech.toOriginalSample(secondToneInCompacted), 480);
+        assertEquals(SAMPLE_RATE, speech.toOriginalSample(SAMPLE_RATE));
+    }
+
+    @Test
+    void testCompact_KeepsShortPauses() {
+        // Given: Two tones separated by a 400 ms pause
+        FloatSampleBuffer samples = new FloatSampleBuffer();
+        tone(samples, SAMPLE_RATE);
+        silence(samples, SAMPLE_RATE * 4 / 10);
+        tone(samples, SAMPLE_RATE);
+        int original = samples.size();
+
+        // When: Compacting
+        VoiceActivityDetector.SpeechMap speech = detector().compact(samples);
+
+        // Then: The pause is kept so the words are not run together
+        assertEquals(1, speech.getRegionCount());
+        assertEquals(original, samples.size());
+    }
+
+    @Test
+    void testCompact_ExtendsSpeechThroughQuietFricatives() {
+        // Given: A tone followed by 600 ms of hiss below the silence threshold, then 3 s of silence
+        FloatSampleBuffer samples = new FloatSampleBuffer();
+        tone(samples, SAMPLE_RATE);
+        noise(samples, SAMPLE_RATE * 6 / 10, 0.004f);
+        silence(samples, 3 * SAMPLE_RATE);
+
+        // When: Compacting without padding
+        VoiceActivityDetector.SpeechMap speech = new VoiceActivityDetector(-45, 1000, 0).compact(samples);
+
+        // Then: The hiss stays attached to the voiced audio
+        assertTrue(speech.getKeptSamples() >= SAMPLE_RATE * 16 / 10 - 480, "Kept " + speech.getKeptSamples());
+    }
+
+    @Test
+    void testCompact_KeepsQuieterSpeakerWithoutSilence() {
+        // Given: A loud and a quiet speaker taking 2 s turns with no silence at all, the quiet one at about -37 dBFS
+        FloatSampleBuffer samples = new FloatSampleBuffer();
+        for (int turn = 0; turn < 5; turn++) {
+            tone(samples, 2 * SAMPLE_RATE, turn % 2 == 0 ? 0.3 : 0.02);
+        }
+        int original = samples.size();
+
+        // When: Compacting
+        VoiceActivityDetector.SpeechMap speech = detector().compact(samples);
+
+        // Then: The quiet speaker sets the noise floor but is above the threshold, so nothing is removed
+        assertEquals(1, speech.getRegionCount());
+        assertEquals(original, samples.size());
+    }
+
+    @Test
+    void testGate_RaisedOnlyAboveTrustedNoiseFloor() {
+        VoiceActivityDetector detector = detector();
+
+        // A floor below the threshold can only be noise, and lifts the gate a margin above it
+        assertEquals(-45, detector.gateDb(-60), 1e-9);
+        assertEquals(-40, detector.gateDb(-50), 1e-9);
+
+        // A floor at or above the threshold may be speech, so the threshold alone applies
+        assertEquals(-45, detector.gateDb(-45), 1e-9);
+        assertEquals(-45, detector.gateDb(-30), 1e-9);
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private static VoiceActivityDetector detector() {
+        return new VoiceActivityDetector(-45, 1000, 250);
+    }
+
+    private static void tone(FloatSampleBuffer samples, int length) {
+        tone(samples, length, 0.3);
+    }
+
+    private static void tone(FloatSampleBuffer samples, int length, double amplitude) {
+        for (int i = 0; i < length; i++) {
+            samples.add((float) (amplitude * Math.sin(2 * Math.PI * 220 * i / SAMPLE_RATE)));
+        }
+    }
+
+    private static void silence(FloatSampleBuffer samples, int length) {
+        for (int i = 0; i < length; i++) {
+            samples.add(0f);
+        }
+    }
+
+    private static void noise(FloatSampleBuffer samples, int length, float amplitude) {
+        Random random = new Random(42);
+        for (int i = 0; i < length; i++) {
+            samples.add((random.nextFloat() * 2 - 1) * amplitude);
+        }
+    }
+}
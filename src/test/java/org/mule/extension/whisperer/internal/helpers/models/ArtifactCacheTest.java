@@ -0,0 +1,185 @@
+package org.mule.extension.whisperer.internal.helpers.models;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the node-wide artifact cache.
+ */
+class ArtifactCacheTest {
+
+    private Path root;
+    private final AtomicInteger populations = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("artifact-cache-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        ArtifactCache.deleteRecursively(root);
+    }
+
+    @Test
+    void testObtain_ConcurrentUsersPopulateOnce() throws Exception {
+        // Given: Two caches on the same root, standing in for two applications
+        ArtifactCache first = ArtifactCache.open(root, Long.MAX_VALUE);
+        ArtifactCache second = ArtifactCache.open(root, Long.MAX_VALUE);
+        CountDownLatch ready = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // When: Four users ask for the same artifact at once
+        List<Future<ArtifactCache.Lease>> leases = new ArrayList<>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                ArtifactCache cache = i % 2 == 0 ? first : second;
+                leases.add(executor.submit(() -> {
+                    ready.await();
+                    return cache.obtain("model", directory -> populate(directory, 1000));
+                }));
+            }
+            ready.countDown();
+
+            // Then: It was populated once and everyone sees the complete file
+            for (Future<ArtifactCache.Lease> lease : leases) {
+                assertEquals(1000, Files.size(lease.get().getDirectory().resolve("artifact.bin")));
+                lease.get().close();
+            }
+            assertEquals(1, populations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testObtain_EvictsLeastRecentlyUsedUnleasedEntries() throws IOException {
+        // Given: A 2500 byte quota holding two 1000 byte entries, the older one no longer in use
+        ArtifactCache cache = ArtifactCache.open(root, 2500);
+        ArtifactCache.Lease oldest = cache.obtain("oldest", directory -> populate(directory, 1000));
+        oldest.close();
+        ArtifactCache.Lease inUse = cache.obtain("in-use", directory -> populate(directory, 1000));
+
+        // When: A third entry pushes the cache over its quota
+        cache.obtain("newest", directory -> populate(directory, 1000)).close();
+
+        // Then: Only the unused oldest entry is evicted
+        assertFalse(Files.exists(oldest.getDirectory()));
+        assertTrue(Files.exists(inUse.getDirectory()));
+        assertEquals(2000, cache.usedBytes());
+
+        // And: Asking for it again populates it anew
+        cache.obtain("oldest", directory -> populate(directory, 1000)).close();
+        assertEquals(4, populations.get());
+    }
+
+    @Test
+    void testObtain_FailedPopulationKeepsWorkDirectoryForRetry() throws IOException {
+        // Given: A population that fails half way after saving partial work
+        ArtifactCache cache = ArtifactCache.open(root, Long.MAX_VALUE);
+        assertThrows(IOException.class, () -> cache.obtain("model", directory -> {
+            Files.write(cache.workDirectory("model").resolve("partial"), new byte[10]);
+            throw new IOException("Connection reset");
+        }));
+
+        // When: Trying again
+        ArtifactCache.Lease lease = cache.obtain("model", directory -> {
+            // Then: The partial work is still there to resume from
+            assertTrue(Files.exists(cache.workDirectory("model").resolve("partial")));
+            populate(directory, 100);
+        });
+
+        // And: Scratch space is gone once the entry is complete
+        assertFalse(Files.exists(root.resolve("staging").resolve("model.work")));
+        assertTrue(Files.exists(lease.getDirectory().resolve("artifact.bin")));
+        lease.close();
+    }
+
+    @Test
+    void testEvict_IgnoresLeasesOfDeadProcesses() throws IOException {
+        // Given: An entry whose only lease file was left behind unlocked by a crashed process
+        ArtifactCache cache = ArtifactCache.open(root, 0);
+        cache.obtain("crashed", directory -> populate(directory, 1000)).close();
+        Path staleLease = root.resolve("leases").resolve("crashed").resolve("dead-process");
+        Files.write(staleLease, new byte[0]);
+
+        // When: Evicting
+        cache.evict("none");
+
+        // Then: The entry and the stale lease are gone
+        assertFalse(Files.exists(staleLease));
+        assertFalse(Files.exists(root.resolve("entries").resolve("crashed")));
+        assertEquals(0, cache.usedBytes());
+    }
+
+    @Test
+    void testEvict_LeavesLeaseOfAnotherApplicationLocked() throws Exception {
+        // Given: One application holding a lease, and another on the same root in this JVM
+        ArtifactCache first = ArtifactCache.open(root, 0);
+        ArtifactCache second = ArtifactCache.open(root, 0);
+        ArtifactCache.Lease held = first.obtain("held", directory -> populate(directory, 1000));
+        Path leaseFile;
+        try (Stream<Path> files = Files.list(root.resolve("leases").resolve("held"))) {
+            leaseFile = files.findFirst().orElseThrow();
+        }
+
+        // When: The other application's eviction passes over the entry
+        second.obtain("other", directory -> populate(directory, 1000)).close();
+
+        // Then: The entry stays, and another process still finds its lease locked
+        assertTrue(Files.exists(root.resolve("entries").resolve("held")));
+        assertTrue(isLockedByAnotherProcess(leaseFile));
+        held.close();
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private void populate(Path directory, int size) throws IOException {
+        populations.incrementAndGet();
+        Files.write(directory.resolve("artifact.bin"), new byte[size]);
+    }
+
+    private static boolean isLockedByAnotherProcess(Path file) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process probe = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), LockProbe.class.getName(),
+                                           file.toString()).inheritIO().start();
+        assertTrue(probe.waitFor(30, TimeUnit.SECONDS), "lock probe did not finish");
+        return probe.exitValue() == LockProbe.LOCKED;
+    }
+
+    /**
+     * Reports through its exit code whether some other process holds a lock on a file.
+     */
+    static final class LockProbe {
+        static final int LOCKED = 3;
+
+        public static void main(String[] args) throws IOException {
+            try (FileChannel channel = FileChannel.open(Path.of(args[0]), StandardOpenOption.WRITE);
+                 FileLock lock = channel.tryLock()) {
+                System.exit(lock == null ? LOCKED : 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.mule.extension.whisperer.internal.helpers.models;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mule.extension.whisperer.internal.helpers.Sha256;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the resumable parallel model download, against a local HTTP stand-in for the model repository.
+ */
+class ModelDownloaderTest {
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private final byte[] model = new byte[CHUNK_BYTES * 10 + 1234];
+    private HttpServer server;
+    private Path directory;
+    private Path target;
+    private URL url;
+
+    private volatile boolean acceptRanges = true;
+    private volatile boolean sendValidator = true;
+    private volatile int headStatus = 200;
+    private volatile int failFromChunk = Integer.MAX_VALUE;
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        new Random(7).nextBytes(model);
+        directory = Files.createTempDirectory("model-downloader-test");
+        target = directory.resolve("models").resolve("ggml-test.bin");
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ggml-test.bin", this::serve);
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/ggml-test.bin");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.stop(0);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void testInstall_DownloadsRangesInParallelAndInstallsAtomically() throws IOException {
+        // When: Downloading over 4 connections with the right checksum
+        downloader(4).install(url, target, Sha256.of(write("expected", model)));
+
+        // Then: The model is installed whole, from one range request per chunk, with nothing left behind
+        assertArrayEquals(model, Files.readAllBytes(target));
+        assertEquals(11, rangeRequests.get());
+        assertFalse(Files.exists(sibling(ModelDownloader.PART_SUFFIX)));
+        assertFalse(Files.exists(sibling(ModelDownloader.PROGRESS_SUFFIX)));
+    }
+
+    @Test
+    void testInstall_ResumesInterruptedDownload() throws IOException {
+        // Given: A download that died after its first 3 chunks, leaving only the part file behind
+        failFromChunk = 3;
+        assertThrows(IOException.class, () -> downloader(1).install(url, target, null));
+        assertFalse(Files.exists(target));
+        assertTrue(Files.exists(sibling(ModelDownloader.PART_SUFFIX)));
+
+        // When: Downloading again once the server recovers
+        failFromChunk = Integer.MAX_VALUE;
+        bytesServed.set(0);
+        downloader(2).install(url, target, null);
+
+        // Then: Only the missing chunks were fetched and the file is intact
+        assertEquals(model.length - 3L * CHUNK_BYTES, bytesServed.get());
+        assertArrayEquals(model, Files.readAllBytes(target));
+    }
+
+    @Test
+    void testInstall_RejectsChecksumMismatch() {
+        // When: The expected checksum does not match what the server sends
+        IOException e = assertThrows(IOException.class,
+                                     () -> downloader(4).install(url, target, "00" + "ff".repeat(31)));
+
+        // Then: Nothing is installed and the bad download is discarded
+        assertTrue(e.getMessage().contains("SHA-256"), e.getMessage());
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(sibling(ModelDownloader.PART_SUFFIX)));
+    }
+
+    @Test
+    void testInstall_FallsBackToSingleConnectionWithoutRangeSupport() throws IOException {
+        // Given: A server that ignores range requests
+        acceptRanges = false;
+
+        // When: Downloading
+        downloader(4).install(url, target, null);
+
+        // Then: The whole file arrives in one request
+        assertArrayEquals(model, Files.readAllBytes(target));
+        assertEquals(0, rangeRequests.get());
+    }
+
+    @Test
+    void testInstall_FallsBackToSingleConnectionWhenHeadIsRejected() throws IOException {
+        // Given: A server that only allows GET
+        headStatus = 405;
+
+        // When: Downloading
+        downloader(4).install(url, target, null);
+
+        // Then: The whole file arrives in one request
+        assertArrayEquals(model, Files.readAllBytes(target));
+        assertEquals(0, rangeRequests.get());
+    }
+
+    @Test
+    void testInstall_StartsOverWithoutValidator() throws IOException {
+        // Given: A server without ETag or Last-Modified, and a download that died after its first 3 chunks
+        sendValidator = false;
+        failFromChunk = 3;
+        assertThrows(IOException.class, () -> downloader(1).install(url, target, null));
+
+        // Then: No resume state was recorded
+        assertFalse(Files.exists(sibling(ModelDownloader.PROGRESS_SUFFIX)));
+
+        // When: Downloading again once the server recovers
+        failFromChunk = Integer.MAX_VALUE;
+        bytesServed.set(0);
+        downloader(2).install(url, target, null);
+
+        // Then: Every chunk was fetched again and the file is intact
+        assertEquals(model.length, bytesServed.get());
+        assertArrayEquals(model, Files.readAllBytes(target));
+    }
+
+    @Test
+    void testInstall_KeepsVerifiedInstalledModel() throws IOException {
+        // Given: An installed model with the expected checksum
+        Files.createDirectories(target.getParent());
+        Files.write(target, model);
+
+        // When: Installing again
+        downloader(4).install(url, target, Sha256.of(target));
+
+        // Then: The server is not contacted
+        assertEquals(0, requests.get());
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private ModelDownloader downloader(int connections) {
+        return new ModelDownloader(connections, CHUNK_BYTES);
+    }
+
+    private Path sibling(String suffix) {
+        return target.resolveSibling(target.getFileName() + suffix);
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(directory.resolve(name), content);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        if (sendValidator) {
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+        }
+        if (acceptRanges) {
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        }
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(model.length));
+            exchange.sendResponseHeaders(headStatus, -1);
+            exchange.close();
+            return;
+        }
+        int from = 0;
+        int to = model.length - 1;
+        int status = 200;
+        if (acceptRanges && range != null) {
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            from = Integer.parseInt(bounds[0]);
+            to = Integer.parseInt(bounds[1]);
+            status = 206;
+            rangeRequests.incrementAndGet();
+            if (from / CHUNK_BYTES >= failFromChunk) {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + model.length);
+        }
+        int length = to + 1 - from;
+        exchange.sendResponseHeaders(status, length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(model, from, length);
+        }
+        bytesServed.addAndGet(length);
+    }
+}
@@ -0,0 +1,126 @@
+package org.mule.extension.whisperer.internal.helpers.models;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the idempotent extraction of the bundled native libraries.
+ */
+class NativeLibraryInstallerTest {
+
+    private Path root;
+    private Path destination;
+    private byte[] whisper;
+    private byte[] ggml;
+    private byte[] zip;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("native-library-installer-test");
+        destination = root.resolve("whisper-deps-linux64");
+        whisper = randomBytes(200_000, 1);
+        ggml = randomBytes(50_000, 2);
+        zip = zip(whisper, ggml);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        ArtifactCache.deleteRecursively(root);
+    }
+
+    @Test
+    void testInstall_ExtractsFlattenedLibrariesWithManifest() throws IOException {
+        // When: Installing into a directory that does not exist yet
+        int extracted = NativeLibraryInstaller.install(zip, destination);
+
+        // Then: Both libraries are in place, flattened, with a manifest and no staging leftovers
+        assertEquals(2, extracted);
+        assertArrayEquals(whisper, Files.readAllBytes(destination.resolve("libwhisper.so")));
+        assertArrayEquals(ggml, Files.readAllBytes(destination.resolve("libggml.so")));
+        assertTrue(Files.exists(destination.resolve(NativeLibraryInstaller.MANIFEST_FILE)));
+        try (Stream<Path> siblings = Files.list(root)) {
+            assertEquals(0, siblings.filter(path -> path.getFileName().toString().contains(".staging-")).count());
+        }
+    }
+
+    @Test
+    void testInstall_SkipsIntactExtraction() throws IOException {
+        // Given: A completed installation
+        NativeLibraryInstaller.install(zip, destination);
+        long modified = Files.getLastModifiedTime(destination.resolve("libwhisper.so")).toMillis();
+
+        // When: Installing the same bundle again
+        int extracted = NativeLibraryInstaller.install(zip, destination);
+
+        // Then: Nothing is written
+        assertEquals(0, extracted);
+        assertEquals(modified, Files.getLastModifiedTime(destination.resolve("libwhisper.so")).toMillis());
+    }
+
+    @Test
+    void testInstall_RepairsOnlyDamagedLibraries() throws IOException {
+        // Given: An installation where one library was truncated and the other corrupted in place
+        NativeLibraryInstaller.install(zip, destination);
+        Files.write(destination.resolve("libwhisper.so"), new byte[100]);
+        byte[] corrupted = ggml.clone();
+        corrupted[10]++;
+        Files.write(destination.resolve("libggml.so"), corrupted);
+
+        // When: Installing again
+        int extracted = NativeLibraryInstaller.install(zip, destination);
+
+        // Then: Both are restored
+        assertEquals(2, extracted);
+        assertArrayEquals(whisper, Files.readAllBytes(destination.resolve("libwhisper.so")));
+        assertArrayEquals(ggml, Files.readAllBytes(destination.resolve("libggml.so")));
+    }
+
+    @Test
+    void testInstall_ReextractsForDifferentBundle() throws IOException {
+        // Given: An installation from an older bundle
+        NativeLibraryInstaller.install(zip(randomBytes(1000, 3), ggml), destination);
+
+        // When: Installing a newer bundle
+        NativeLibraryInstaller.install(zip, destination);
+
+        // Then: The libraries match the newer bundle
+        assertArrayEquals(whisper, Files.readAllBytes(destination.resolve("libwhisper.so")));
+    }
+
+    // ========================================
+    // Helper Methods
+    // ========================================
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] zip(byte[] whisper, byte[] ggml) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.putNextEntry(new ZipEntry("linux64/"));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("linux64/libwhisper.so"));
+            out.write(whisper);
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("linux64/libggml.so"));
+            out.write(ggml);
+            out.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+}